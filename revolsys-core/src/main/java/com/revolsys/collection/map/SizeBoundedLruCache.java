@@ -0,0 +1,250 @@
+package com.revolsys.collection.map;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.parallel.ThreadInterruptedException;
+
+/**
+ * A thread-safe least recently used cache that is bounded by the total size
+ * (e.g. bytes) of the values instead of the number of values. When the total
+ * size exceeds the maximum size the least recently used values are removed.
+ *
+ * {@link #getOrLoad(Object, Function)} only loads a value once if multiple
+ * threads request the same key at the same time, the other threads wait for
+ * the value to be loaded.
+ *
+ * The number of hits, misses and evictions are counted so the effectiveness of
+ * the cache can be measured.
+ *
+ * The same value instance is returned to every caller, so mutable values must
+ * be treated as read-only by the callers.
+ *
+ * @param <K> The type of key.
+ * @param <V> The type of value.
+ */
+public class SizeBoundedLruCache<K, V> {
+
+  private final Map<K, V> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long evictionCount = 0;
+
+  private long hitCount = 0;
+
+  private final Map<K, FutureTask<V>> loading = new HashMap<>();
+
+  private long maxSize;
+
+  private long missCount = 0;
+
+  private long size = 0;
+
+  private final ToLongFunction<? super V> sizeFunction;
+
+  /**
+   * Construct a new cache.
+   *
+   * @param maxSize The maximum total size of the values.
+   * @param sizeFunction The function to calculate the size of a value.
+   */
+  public SizeBoundedLruCache(final long maxSize, final ToLongFunction<? super V> sizeFunction) {
+    this.maxSize = maxSize;
+    this.sizeFunction = sizeFunction;
+  }
+
+  public synchronized void clear() {
+    this.cache.clear();
+    this.size = 0;
+  }
+
+  /**
+   * Reset the hit, miss and eviction counts to 0.
+   */
+  public synchronized void clearStatistics() {
+    this.hitCount = 0;
+    this.missCount = 0;
+    this.evictionCount = 0;
+  }
+
+  private void evict() {
+    final Iterator<V> values = this.cache.values().iterator();
+    while (this.size > this.maxSize && values.hasNext()) {
+      final V value = values.next();
+      values.remove();
+      this.size -= this.sizeFunction.applyAsLong(value);
+      this.evictionCount++;
+    }
+  }
+
+  public synchronized V get(final K key) {
+    final V value = this.cache.get(key);
+    if (value == null) {
+      this.missCount++;
+    } else {
+      this.hitCount++;
+    }
+    return value;
+  }
+
+  /**
+   * @return The number of values removed to keep the cache within the maximum
+   *         size.
+   */
+  public synchronized long getEvictionCount() {
+    return this.evictionCount;
+  }
+
+  /**
+   * @return The number of times a value was found in the cache.
+   */
+  public synchronized long getHitCount() {
+    return this.hitCount;
+  }
+
+  public synchronized long getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * @return The number of times a value was not found in the cache.
+   */
+  public synchronized long getMissCount() {
+    return this.missCount;
+  }
+
+  /**
+   * Get the value for the key, loading and caching the value if it is not in
+   * the cache. If another thread is loading the value for the key wait for that
+   * thread to load the value.
+   *
+   * @param key The key.
+   * @param loader The function to load the value.
+   * @return The value or null if the loader returned null. The value is shared
+   *         with other callers and must not be modified.
+   */
+  public V getOrLoad(final K key, final Function<? super K, ? extends V> loader) {
+    FutureTask<V> task;
+    boolean load = false;
+    synchronized (this) {
+      final V value = this.cache.get(key);
+      if (value != null) {
+        this.hitCount++;
+        return value;
+      }
+      this.missCount++;
+      task = this.loading.get(key);
+      if (task == null) {
+        task = new FutureTask<>(() -> loader.apply(key));
+        this.loading.put(key, task);
+        load = true;
+      }
+    }
+    if (load) {
+      try {
+        task.run();
+      } finally {
+        // Cache the value before removing the task so another thread can't
+        // miss both and load the value again
+        synchronized (this) {
+          if (task.isDone() && !task.isCancelled()) {
+            try {
+              final V value = task.get();
+              if (value != null) {
+                put(key, value);
+              }
+            } catch (final ExecutionException e) {
+              // Thrown to the callers below
+            } catch (final InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+          this.loading.remove(key);
+        }
+      }
+    }
+    try {
+      return task.get();
+    } catch (final InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    } catch (final ExecutionException e) {
+      throw Exceptions.wrap(e.getCause());
+    }
+  }
+
+  /**
+   * @return The total size of the values in the cache.
+   */
+  public synchronized long getSize() {
+    return this.size;
+  }
+
+  public synchronized void put(final K key, final V value) {
+    final long valueSize = this.sizeFunction.applyAsLong(value);
+    if (valueSize <= this.maxSize) {
+      final V oldValue = this.cache.put(key, value);
+      if (oldValue != null) {
+        this.size -= this.sizeFunction.applyAsLong(oldValue);
+      }
+      this.size += valueSize;
+      evict();
+    } else {
+      remove(key);
+    }
+  }
+
+  public synchronized V remove(final K key) {
+    final V value = this.cache.remove(key);
+    if (value != null) {
+      this.size -= this.sizeFunction.applyAsLong(value);
+    }
+    return value;
+  }
+
+  /**
+   * Remove all the values whose key matches the filter.
+   *
+   * @param filter The filter.
+   */
+  public synchronized void removeIf(final Predicate<? super K> filter) {
+    for (final Iterator<Entry<K, V>> entries = this.cache.entrySet().iterator(); entries
+      .hasNext();) {
+      final Entry<K, V> entry = entries.next();
+      if (filter.test(entry.getKey())) {
+        entries.remove();
+        this.size -= this.sizeFunction.applyAsLong(entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Set the maximum total size of the values, removing the least recently used
+   * values if the cache is larger than the new maximum size.
+   *
+   * @param maxSize The maximum size.
+   */
+  public synchronized void setMaxSize(final long maxSize) {
+    this.maxSize = maxSize;
+    evict();
+  }
+
+  public synchronized int size() {
+    return this.cache.size();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "SizeBoundedLruCache(" + this.cache.size() + " values, " + this.size + "/"
+      + this.maxSize + ", hits=" + this.hitCount + ", misses=" + this.missCount + ", evictions="
+      + this.evictionCount + ")";
+  }
+}
@@ -0,0 +1,244 @@
+package com.revolsys.collection.map;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link SizeBoundedLruCache} split into stripes by the hash code of the key
+ * so that threads using different keys don't contend for a single lock. Each
+ * stripe is bounded by an equal share of the maximum size and evicts its own
+ * least recently used values.
+ *
+ * A value larger than a stripe's share of the maximum size can't be cached, so
+ * {@link #ensureValueSize(long)} can be used to reduce the number of stripes
+ * used so that values of that size fit in one stripe.
+ *
+ * @param <K> The type of key.
+ * @param <V> The type of value.
+ */
+public class StripedSizeBoundedLruCache<K, V> {
+
+  private static int getStripeCount(final int stripeCount) {
+    int count = 1;
+    while (count < stripeCount && count < 1 << 16) {
+      count <<= 1;
+    }
+    return count;
+  }
+
+  private long maxSize;
+
+  private long maxValueSize;
+
+  private final SizeBoundedLruCache<K, V>[] stripes;
+
+  /** The number of stripes used, a power of 2 less than or equal to stripes.length. */
+  private volatile int usedStripeCount;
+
+  /**
+   * Construct a new cache with 4 stripes per available processor.
+   *
+   * @param maxSize The maximum total size of the values.
+   * @param sizeFunction The function to calculate the size of a value.
+   */
+  public StripedSizeBoundedLruCache(final long maxSize,
+    final ToLongFunction<? super V> sizeFunction) {
+    this(maxSize, sizeFunction, Runtime.getRuntime().availableProcessors() * 4);
+  }
+
+  /**
+   * Construct a new cache.
+   *
+   * @param maxSize The maximum total size of the values.
+   * @param sizeFunction The function to calculate the size of a value.
+   * @param stripeCount The number of stripes, rounded up to a power of 2.
+   */
+  @SuppressWarnings("unchecked")
+  public StripedSizeBoundedLruCache(final long maxSize,
+    final ToLongFunction<? super V> sizeFunction, final int stripeCount) {
+    this.maxSize = maxSize;
+    final int count = getStripeCount(stripeCount);
+    this.stripes = new SizeBoundedLruCache[count];
+    for (int i = 0; i < count; i++) {
+      this.stripes[i] = new SizeBoundedLruCache<>(maxSize / count, sizeFunction);
+    }
+    this.usedStripeCount = count;
+  }
+
+  public void clear() {
+    for (final SizeBoundedLruCache<K, V> stripe : this.stripes) {
+      stripe.clear();
+    }
+  }
+
+  /**
+   * Reset the hit, miss and eviction counts to 0.
+   */
+  public void clearStatistics() {
+    for (final SizeBoundedLruCache<K, V> stripe : this.stripes) {
+      stripe.clearStatistics();
+    }
+  }
+
+  /**
+   * Ensure that a value of the size can be cached by reducing the number of
+   * stripes used until the value fits in a stripe's share of the maximum size.
+   * The values in the stripes that are no longer used are evicted. If the size
+   * is larger than the maximum size one stripe is used and the value can't be
+   * cached.
+   *
+   * @param valueSize The size of the value.
+   */
+  public synchronized void ensureValueSize(final long valueSize) {
+    if (valueSize > this.maxValueSize) {
+      this.maxValueSize = valueSize;
+      updateStripes();
+    }
+  }
+
+  public V get(final K key) {
+    return getStripe(key).get(key);
+  }
+
+  /**
+   * @return The number of values removed to keep the cache within the maximum
+   *         size.
+   */
+  public long getEvictionCount() {
+    long count = 0;
+    for (final SizeBoundedLruCache<K, V> stripe : this.stripes) {
+      count += stripe.getEvictionCount();
+    }
+    return count;
+  }
+
+  /**
+   * @return The number of times a value was found in the cache.
+   */
+  public long getHitCount() {
+    long count = 0;
+    for (final SizeBoundedLruCache<K, V> stripe : this.stripes) {
+      count += stripe.getHitCount();
+    }
+    return count;
+  }
+
+  public synchronized long getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * @return The number of times a value was not found in the cache.
+   */
+  public long getMissCount() {
+    long count = 0;
+    for (final SizeBoundedLruCache<K, V> stripe : this.stripes) {
+      count += stripe.getMissCount();
+    }
+    return count;
+  }
+
+  /**
+   * Get the value for the key, loading and caching the value if it is not in
+   * the cache.
+   *
+   * @param key The key.
+   * @param loader The function to load the value.
+   * @return The value or null if the loader returned null.
+   * @see SizeBoundedLruCache#getOrLoad(Object, Function)
+   */
+  public V getOrLoad(final K key, final Function<? super K, ? extends V> loader) {
+    return getStripe(key).getOrLoad(key, loader);
+  }
+
+  /**
+   * @return The total size of the values in the cache.
+   */
+  public long getSize() {
+    long size = 0;
+    for (final SizeBoundedLruCache<K, V> stripe : this.stripes) {
+      size += stripe.getSize();
+    }
+    return size;
+  }
+
+  private SizeBoundedLruCache<K, V> getStripe(final K key) {
+    final int hash = key.hashCode();
+    final int index = (hash ^ hash >>> 16) & this.usedStripeCount - 1;
+    return this.stripes[index];
+  }
+
+  /**
+   * @return The number of stripes used.
+   */
+  public int getStripeCount() {
+    return this.usedStripeCount;
+  }
+
+  public void put(final K key, final V value) {
+    getStripe(key).put(key, value);
+  }
+
+  public V remove(final K key) {
+    return getStripe(key).remove(key);
+  }
+
+  /**
+   * Remove all the values whose key matches the filter.
+   *
+   * @param filter The filter.
+   */
+  public void removeIf(final Predicate<? super K> filter) {
+    for (final SizeBoundedLruCache<K, V> stripe : this.stripes) {
+      stripe.removeIf(filter);
+    }
+  }
+
+  /**
+   * Set the maximum total size of the values, removing the least recently used
+   * values if the cache is larger than the new maximum size.
+   *
+   * @param maxSize The maximum size.
+   */
+  public synchronized void setMaxSize(final long maxSize) {
+    this.maxSize = maxSize;
+    updateStripes();
+  }
+
+  public int size() {
+    int size = 0;
+    for (final SizeBoundedLruCache<K, V> stripe : this.stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "StripedSizeBoundedLruCache(" + size() + " values, " + getSize() + "/" + getMaxSize()
+      + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions="
+      + getEvictionCount() + ")";
+  }
+
+  /**
+   * Use the largest number of stripes where the maximum value size fits in a
+   * stripe's share of the maximum size.
+   */
+  private void updateStripes() {
+    final long maxSize = this.maxSize;
+    int count = this.stripes.length;
+    while (count > 1 && maxSize / count < this.maxValueSize) {
+      count >>= 1;
+    }
+    final long stripeMaxSize = maxSize / count;
+    for (int i = 0; i < this.stripes.length; i++) {
+      if (i < count) {
+        this.stripes[i].setMaxSize(stripeMaxSize);
+      } else {
+        this.stripes[i].setMaxSize(0);
+      }
+    }
+    this.usedStripeCount = count;
+  }
+}
@@ -67,10 +67,20 @@ public class ThreadSharedProperties {
   }
 
   public static Map<Object, Object> getThreadGroupProperties() {
+    final Thread thread = Thread.currentThread();
+    final ThreadGroup threadGroup = thread.getThreadGroup();
+    return getThreadGroupProperties(threadGroup);
+  }
+
+  /**
+   * Get the properties a new thread in the thread group will use.
+   *
+   * @param threadGroup The thread group.
+   * @return The thread group's properties or a copy of the default properties.
+   */
+  public static Map<Object, Object> getThreadGroupProperties(final ThreadGroup threadGroup) {
     synchronized (threadGroupProperties) {
       Map<Object, Object> properties = null;
-      final Thread thread = Thread.currentThread();
-      final ThreadGroup threadGroup = thread.getThreadGroup();
       if (threadGroup != null) {
         properties = threadGroupProperties.get(threadGroup);
       }
@@ -125,4 +135,23 @@ public class ThreadSharedProperties {
       properties.put(name, value);
     }
   }
+
+  /**
+   * Set the properties used by the current thread. Used to give a task run on
+   * a pooled thread the properties of the thread group it would have been run
+   * in.
+   *
+   * @param properties The properties or null to use the thread group's
+   *          properties.
+   * @return The previous properties, to restore when the task finishes.
+   */
+  public static Map<Object, Object> setThreadProperties(final Map<Object, Object> properties) {
+    final Map<Object, Object> oldProperties = threadProperties.get();
+    if (properties == null) {
+      threadProperties.remove();
+    } else {
+      threadProperties.set(properties);
+    }
+    return oldProperties;
+  }
 }
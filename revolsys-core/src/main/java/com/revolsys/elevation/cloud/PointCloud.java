@@ -1,5 +1,6 @@
 package com.revolsys.elevation.cloud;
 
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -9,6 +10,8 @@ import com.revolsys.collection.map.MapEx;
 import com.revolsys.elevation.cloud.las.LasPointCloud;
 import com.revolsys.elevation.gridded.GriddedElevationModel;
 import com.revolsys.elevation.gridded.IntArrayScaleGriddedElevationModel;
+import com.revolsys.elevation.gridded.scaledint.TiledScaledIntegerGriddedDigitalElevationModel;
+import com.revolsys.elevation.gridded.scaledint.TiledScaledIntegerGriddedDigitalElevationModelBuilder;
 import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
 import com.revolsys.elevation.tin.quadedge.QuadEdgeDelaunayTinBuilder;
 import com.revolsys.geometry.model.BoundingBox;
@@ -124,6 +127,30 @@ public interface PointCloud<P extends Point>
     return newGriddedElevationModel(gridCellSize);
   }
 
+  /**
+   * Build a tiled elevation model from the points matching the
+   * {@link #getDefaultFilter()} without loading all the points into memory.
+   *
+   * @param baseDirectory The base directory the tile files are written to.
+   * @param filePrefix The prefix for the tile file names.
+   * @param gridTileSize The number of grid cells in the width and height of a tile.
+   * @param gridCellSize The width and height of a grid cell.
+   * @return The elevation model.
+   * @see TiledScaledIntegerGriddedDigitalElevationModelBuilder
+   */
+  default TiledScaledIntegerGriddedDigitalElevationModel newTiledGriddedElevationModel(
+    final Path baseDirectory, final String filePrefix, final int gridTileSize,
+    final int gridCellSize) {
+    final GeometryFactory geometryFactory = getGeometryFactory();
+    try (
+      TiledScaledIntegerGriddedDigitalElevationModelBuilder builder = new TiledScaledIntegerGriddedDigitalElevationModelBuilder(
+        baseDirectory, filePrefix, geometryFactory, gridTileSize, gridCellSize)) {
+      final Predicate<Point> filter = getDefaultFilter();
+      builder.addPoints(this, filter);
+      return builder.build();
+    }
+  }
+
   default TriangulatedIrregularNetwork newTriangulatedIrregularNetwork() {
     final Predicate<Point> filter = getDefaultFilter();
     return newTriangulatedIrregularNetwork(filter);
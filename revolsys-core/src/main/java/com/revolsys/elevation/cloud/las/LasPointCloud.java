@@ -13,11 +13,17 @@ import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import org.jeometry.common.logging.Logs;
+
 import com.revolsys.collection.map.MapEx;
 import com.revolsys.elevation.cloud.PointCloud;
 import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
 import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.cloud.las.zip.LasZipChunkDecoder;
+import com.revolsys.elevation.cloud.las.zip.LasZipChunkIndex;
+import com.revolsys.elevation.cloud.las.zip.LasZipChunkTable;
 import com.revolsys.elevation.cloud.las.zip.LasZipCompressorType;
+import com.revolsys.elevation.cloud.las.zip.LasZipDecompressSelective;
 import com.revolsys.elevation.cloud.las.zip.LasZipHeader;
 import com.revolsys.elevation.cloud.las.zip.LasZipPointCloudWriterFactory;
 import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
@@ -61,6 +67,10 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   private ByteBuffer byteBuffer;
 
+  private LasZipChunkIndex chunkIndex;
+
+  private boolean chunkIndexLoaded;
+
   private final long[] classificationCounts = new long[256];
 
   private boolean classificationsLoaded;
@@ -81,6 +91,8 @@ public class LasPointCloud extends BaseObjectWithProperties
 
   private Resource resource;
 
+  private boolean writeChunkIndex = false;
+
   public LasPointCloud(final LasPointFormat pointFormat, final GeometryFactory geometryFactory) {
     final LasPointCloudHeader header = new LasPointCloudHeader(this, pointFormat, geometryFactory);
     setHeader(header);
@@ -137,6 +149,19 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * Call the action for a copy of each point within the bounding box. For
+   * chunked LAZ files only the chunks whose extent intersects the bounding box
+   * are decompressed (see {@link #getChunkIndex()}).
+   *
+   * @param boundingBox The bounding box.
+   * @param action The action to call for each point.
+   */
+  public void forEachPoint(final BoundingBox boundingBox, final Consumer<? super LasPoint> action) {
+    forEachPointReused(boundingBox, LasZipDecompressSelective.ALL,
+      point -> action.accept(point.clone()));
+  }
+
   @Override
   public void forEachPoint(final Consumer<? super LasPoint> action) {
     final Iterable<LasPoint> iterable = iterable();
@@ -150,6 +175,109 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * Read the points into reusable primitive arrays, calling the action for each
+   * batch of points. The batch size is the LAZ chunk size (or
+   * {@link LasZipHeader#LASZIP_CHUNK_SIZE_DEFAULT} for LAS files) so no objects
+   * are created per point.
+   *
+   * @param action The action to call for each batch.
+   */
+  public void forEachPointColumns(final Consumer<? super LasPointColumns> action) {
+    int batchSize = LasZipHeader.LASZIP_CHUNK_SIZE_DEFAULT;
+    final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(this);
+    if (lasZipHeader != null) {
+      final long chunkSize = lasZipHeader.getChunkSize();
+      if (chunkSize > 0 && chunkSize < Integer.MAX_VALUE) {
+        batchSize = (int)chunkSize;
+      }
+    }
+    forEachPointColumns(batchSize, action);
+  }
+
+  /**
+   * Read the points into reusable primitive arrays, calling the action for each
+   * batch of up to batchSize points. The {@link LasPointColumns} passed to the
+   * action is reused for the next batch.
+   *
+   * @param batchSize The maximum number of points in a batch.
+   * @param action The action to call for each batch.
+   */
+  public void forEachPointColumns(final int batchSize,
+    final Consumer<? super LasPointColumns> action) {
+    final LasPointColumns columns = new LasPointColumns(this, batchSize);
+    final Iterable<LasPoint> iterable = iterable();
+    if (iterable instanceof LasPointCloudIterator) {
+      final LasPointCloudIterator iterator = (LasPointCloudIterator)iterable;
+      iterator.forEachColumns(columns, action);
+    } else {
+      for (final LasPoint point : iterable) {
+        if (columns.isFull()) {
+          action.accept(columns);
+          columns.clear();
+        }
+        columns.addPoint(point);
+      }
+      if (!columns.isEmpty()) {
+        action.accept(columns);
+      }
+    }
+  }
+
+  /**
+   * Read the points within the bounding box into reusable primitive arrays,
+   * calling the action for each batch of points. For chunked LAZ files only the
+   * chunks whose extent intersects the bounding box are decompressed and for
+   * layered (LAS 1.4) files only the layers in decompressSelective are
+   * decompressed. The values of the other attributes are those of the first
+   * point in the chunk.
+   *
+   * @param boundingBox The bounding box.
+   * @param decompressSelective The {@link LasZipDecompressSelective} flags.
+   * @param action The action to call for each batch.
+   */
+  public void forEachPointColumns(final BoundingBox boundingBox, final int decompressSelective,
+    final Consumer<? super LasPointColumns> action) {
+    final LasPointColumns columns = new LasPointColumns(this,
+      LasZipHeader.LASZIP_CHUNK_SIZE_DEFAULT);
+    forEachPointReused(boundingBox, decompressSelective, point -> {
+      if (columns.isFull()) {
+        action.accept(columns);
+        columns.clear();
+      }
+      columns.addPoint(point);
+    });
+    if (!columns.isEmpty()) {
+      action.accept(columns);
+    }
+  }
+
+  private void forEachPointReused(final BoundingBox boundingBox, final int decompressSelective,
+    final Consumer<LasPoint> action) {
+    final BoundingBox queryBoundingBox = boundingBox.bboxToCs(this.geometryFactory);
+    if (!queryBoundingBox.isEmpty()) {
+      final Consumer<LasPoint> filter = point -> {
+        if (queryBoundingBox.bboxCovers(point.getX(), point.getY())) {
+          action.accept(point);
+        }
+      };
+      final LasZipChunkIndex chunkIndex = getChunkIndex();
+      if (chunkIndex == null) {
+        if (getBoundingBox().bboxIntersects(queryBoundingBox)) {
+          forEachPoint(filter);
+        }
+      } else {
+        final LasZipChunkTable chunkTable = chunkIndex.getChunkTable();
+        try (
+          LasZipChunkDecoder decoder = new LasZipChunkDecoder(this, decompressSelective)) {
+          for (final int chunk : chunkIndex.getChunkIndexes(queryBoundingBox)) {
+            decoder.decodeChunk(chunkTable, chunk, filter);
+          }
+        }
+      }
+    }
+  }
+
   @Override
   public BoundingBox getBoundingBox() {
     if (this.header == null) {
@@ -159,6 +287,29 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * Get the index of the extent of each chunk for a chunked LAZ file. The index
+   * is read from the {@link LasZipChunkIndex#FILE_EXTENSION} file or calculated
+   * on the first call. A calculated index is only written to the file if
+   * {@link #isWriteChunkIndex()}.
+   *
+   * @return The chunk index or null if the file is not a chunked LAZ file.
+   */
+  public synchronized LasZipChunkIndex getChunkIndex() {
+    if (!this.chunkIndexLoaded) {
+      this.chunkIndexLoaded = true;
+      final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(this);
+      if (lasZipHeader != null && !lasZipHeader.isCompressor(LasZipCompressorType.POINTWISE)) {
+        try {
+          this.chunkIndex = LasZipChunkIndex.getChunkIndex(this);
+        } catch (final RuntimeException e) {
+          Logs.debug(this, "Unable to create chunk index: " + this.resource, e);
+        }
+      }
+    }
+    return this.chunkIndex;
+  }
+
   public long[] getClassificationCounts() {
     return this.classificationCounts.clone();
   }
@@ -224,6 +375,10 @@ public class LasPointCloud extends BaseObjectWithProperties
     return (globalEncoding & 1) != 0;
   }
 
+  public boolean isWriteChunkIndex() {
+    return this.writeChunkIndex;
+  }
+
   public Iterable<LasPoint> iterable() {
     if (this.allLoaded || !this.points.isEmpty()) {
       return this.points;
@@ -270,6 +425,26 @@ public class LasPointCloud extends BaseObjectWithProperties
     return this.header.newLasPoint(this, x, y, z);
   }
 
+  /**
+   * Open a new reader on the LAS file positioned at the start of the point
+   * records. Each thread that reads part of the file must use its own reader.
+   *
+   * @return The reader or null if the file doesn't exist.
+   */
+  public ChannelReader newPointRecordsReader() {
+    if (this.lasResource == null) {
+      return null;
+    } else {
+      final ChannelReader reader = this.lasResource.newChannelReader();
+      if (reader != null) {
+        reader.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        final long offset = this.header.getPointRecordsOffset();
+        reader.seek(offset);
+      }
+      return reader;
+    }
+  }
+
   @Override
   public TriangulatedIrregularNetwork newTriangulatedIrregularNetwork() {
     final GeometryFactory geometryFactory = getGeometryFactory();
@@ -347,6 +522,17 @@ public class LasPointCloud extends BaseObjectWithProperties
     this.fileGpsTime = getCurrentGpsTime();
   }
 
+  /**
+   * Set if a calculated chunk index is written to the
+   * {@link LasZipChunkIndex#FILE_EXTENSION} file next to the LAZ file so that
+   * later queries don't need to calculate it.
+   *
+   * @param writeChunkIndex True if the chunk index file is to be written.
+   */
+  public void setWriteChunkIndex(final boolean writeChunkIndex) {
+    this.writeChunkIndex = writeChunkIndex;
+  }
+
   @Override
   public double toDoubleX(final int x) {
     return this.geometryFactory.toDoubleX(x);
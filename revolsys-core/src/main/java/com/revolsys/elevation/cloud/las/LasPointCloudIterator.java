@@ -2,6 +2,7 @@ package com.revolsys.elevation.cloud.las;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
 import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
@@ -37,6 +38,33 @@ public class LasPointCloudIterator
     this.reader = null;
   }
 
+  /**
+   * Read the remaining points into the reusable columns, calling the action
+   * once each time the columns are full and once for the final partial batch.
+   * A single {@link LasPoint} is used to decode all the points so no objects
+   * are created per point.
+   *
+   * @param columns The columns to read the points into.
+   * @param action The action to call for each batch of points.
+   */
+  public void forEachColumns(final LasPointColumns columns,
+    final Consumer<? super LasPointColumns> action) {
+    final LasPoint point = this.pointFormat.newLasPoint(this.pointCloud);
+    try {
+      while (this.index < this.pointCount) {
+        columns.clear();
+        while (this.index < this.pointCount && !columns.isFull()) {
+          readNext(point);
+          this.index++;
+          columns.addPoint(point);
+        }
+        action.accept(columns);
+      }
+    } finally {
+      close();
+    }
+  }
+
   @Override
   protected void finalize() throws Throwable {
     close();
@@ -65,6 +93,17 @@ public class LasPointCloudIterator
   }
 
   protected LasPoint readNext() {
-    return this.pointFormat.readLasPoint(this.pointCloud, this.reader);
+    final LasPoint point = this.pointFormat.newLasPoint(this.pointCloud);
+    readNext(point);
+    return point;
+  }
+
+  /**
+   * Read the next point into the existing point instance.
+   *
+   * @param point The point to update.
+   */
+  protected void readNext(final LasPoint point) {
+    point.read(this.pointCloud, this.reader);
   }
 }
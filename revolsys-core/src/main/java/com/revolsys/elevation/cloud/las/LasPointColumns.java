@@ -0,0 +1,217 @@
+package com.revolsys.elevation.cloud.las;
+
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+
+/**
+ * A reusable batch of LAS points stored as primitive arrays (one array per
+ * attribute). The arrays are allocated once and refilled for each batch so
+ * reading a point cloud does not create an object per point.
+ *
+ * The arrays are only valid for the duration of the callback they are passed
+ * to and only the first {@link #size()} values of each array are populated.
+ */
+public class LasPointColumns {
+
+  private final LasPointCloud pointCloud;
+
+  private final int capacity;
+
+  private int size;
+
+  private final int[] xInts;
+
+  private final int[] yInts;
+
+  private final int[] zInts;
+
+  private final int[] intensities;
+
+  private final short[] classifications;
+
+  private final byte[] returnNumbers;
+
+  private final byte[] numberOfReturns;
+
+  private final double[] gpsTimes;
+
+  private long startIndex;
+
+  public LasPointColumns(final LasPointCloud pointCloud, final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+    }
+    this.pointCloud = pointCloud;
+    this.capacity = capacity;
+    this.xInts = new int[capacity];
+    this.yInts = new int[capacity];
+    this.zInts = new int[capacity];
+    this.intensities = new int[capacity];
+    this.classifications = new short[capacity];
+    this.returnNumbers = new byte[capacity];
+    this.numberOfReturns = new byte[capacity];
+    final LasPointFormat pointFormat = pointCloud.getPointFormat();
+    if (isGpsTime(pointFormat)) {
+      this.gpsTimes = new double[capacity];
+    } else {
+      this.gpsTimes = null;
+    }
+  }
+
+  /**
+   * Copy the attributes of the point to the next free row. The point is not
+   * retained so the same instance can be used to read every point.
+   *
+   * @param point The point to copy.
+   */
+  public void addPoint(final LasPoint point) {
+    final int index = this.size;
+    this.xInts[index] = point.getXInt();
+    this.yInts[index] = point.getYInt();
+    this.zInts[index] = point.getZInt();
+    this.intensities[index] = point.getIntensity();
+    this.classifications[index] = point.getClassification();
+    this.returnNumbers[index] = point.getReturnNumber();
+    this.numberOfReturns[index] = point.getNumberOfReturns();
+    if (this.gpsTimes != null) {
+      this.gpsTimes[index] = point.getGpsTime();
+    }
+    this.size = index + 1;
+  }
+
+  public void clear() {
+    this.startIndex += this.size;
+    this.size = 0;
+  }
+
+  /**
+   * Remove all the points and set the point cloud index of the first point that
+   * will be added.
+   *
+   * @param startIndex The index of the next point.
+   */
+  public void clear(final long startIndex) {
+    this.startIndex = startIndex;
+    this.size = 0;
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  public short getClassification(final int index) {
+    return this.classifications[index];
+  }
+
+  public short[] getClassifications() {
+    return this.classifications;
+  }
+
+  public double getGpsTime(final int index) {
+    if (this.gpsTimes == null) {
+      return 315964800;
+    } else {
+      return this.gpsTimes[index];
+    }
+  }
+
+  /**
+   * @return The GPS times or null if the point format doesn't have a GPS time.
+   */
+  public double[] getGpsTimes() {
+    return this.gpsTimes;
+  }
+
+  public int getIntensity(final int index) {
+    return this.intensities[index];
+  }
+
+  public int[] getIntensities() {
+    return this.intensities;
+  }
+
+  public byte getNumberOfReturns(final int index) {
+    return this.numberOfReturns[index];
+  }
+
+  public byte[] getNumberOfReturns() {
+    return this.numberOfReturns;
+  }
+
+  public LasPointCloud getPointCloud() {
+    return this.pointCloud;
+  }
+
+  public byte getReturnNumber(final int index) {
+    return this.returnNumbers[index];
+  }
+
+  public byte[] getReturnNumbers() {
+    return this.returnNumbers;
+  }
+
+  /**
+   * @return The index within the point cloud of the first point in this batch.
+   */
+  public long getStartIndex() {
+    return this.startIndex;
+  }
+
+  public double getX(final int index) {
+    return this.pointCloud.toDoubleX(this.xInts[index]);
+  }
+
+  public int getXInt(final int index) {
+    return this.xInts[index];
+  }
+
+  public int[] getXInts() {
+    return this.xInts;
+  }
+
+  public double getY(final int index) {
+    return this.pointCloud.toDoubleY(this.yInts[index]);
+  }
+
+  public int getYInt(final int index) {
+    return this.yInts[index];
+  }
+
+  public int[] getYInts() {
+    return this.yInts;
+  }
+
+  public double getZ(final int index) {
+    return this.pointCloud.toDoubleZ(this.zInts[index]);
+  }
+
+  public int getZInt(final int index) {
+    return this.zInts[index];
+  }
+
+  public int[] getZInts() {
+    return this.zInts;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  public boolean isFull() {
+    return this.size == this.capacity;
+  }
+
+  private boolean isGpsTime(final LasPointFormat pointFormat) {
+    final int id = pointFormat.getId();
+    return id == 1 || id >= 3;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public String toString() {
+    return this.startIndex + "+" + this.size;
+  }
+}
@@ -0,0 +1,121 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.util.function.Consumer;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.LasPointColumns;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.math.arithmeticcoding.ArithmeticDecoder;
+
+/**
+ * Decodes a single chunk from a chunked LAZ file. Each instance has its own
+ * reader, decoder and codecs so different instances can decode different
+ * chunks of the same file on different threads.
+ */
+public class LasZipChunkDecoder implements BaseCloseable {
+
+  private final ArithmeticDecoder decoder = new ArithmeticDecoder();
+
+  private final LasZipItemCodec[] codecs;
+
+  private final boolean layered;
+
+  private final LasPoint point;
+
+  private final LasPointCloud pointCloud;
+
+  private ChannelReader reader;
+
+  public LasZipChunkDecoder(final LasPointCloud pointCloud) {
+    this(pointCloud, LasZipDecompressSelective.ALL);
+  }
+
+  /**
+   * Construct a decoder that only decompresses the selected layers. Values for
+   * layers that are not decompressed are those of the first point in the chunk.
+   *
+   * @param pointCloud The point cloud.
+   * @param decompressSelective The {@link LasZipDecompressSelective} flags.
+   */
+  public LasZipChunkDecoder(final LasPointCloud pointCloud, final int decompressSelective) {
+    this.pointCloud = pointCloud;
+    final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
+    this.codecs = lasZipHeader.newLazCodecs(this.decoder, decompressSelective);
+    this.layered = lasZipHeader.isCompressor(LasZipCompressorType.LAYERED_CHUNKED);
+    this.point = pointCloud.getPointFormat().newLasPoint(pointCloud);
+    this.reader = pointCloud.newPointRecordsReader();
+  }
+
+  @Override
+  public void close() {
+    final ChannelReader reader = this.reader;
+    this.reader = null;
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  /**
+   * Decode the chunk, calling the action for each point. The same point
+   * instance is passed for every point so it must not be retained.
+   *
+   * @param chunkTable The chunk table.
+   * @param chunkIndex The index of the chunk to decode.
+   * @param action The action to call for each point.
+   */
+  public void decodeChunk(final LasZipChunkTable chunkTable, final int chunkIndex,
+    final Consumer<LasPoint> action) {
+    final ChannelReader reader = this.reader;
+    final LasPoint point = this.point;
+    final int pointCount = chunkTable.getChunkPointCount(chunkIndex);
+    try {
+      reader.seek(chunkTable.getChunkOffset(chunkIndex));
+      if (pointCount > 0) {
+        int context = 0;
+        point.read(this.pointCloud, reader);
+        if (this.layered) {
+          this.decoder.init(reader, false);
+          reader.getInt(); // count unused
+          for (final LasZipItemCodec codec : this.codecs) {
+            codec.readChunkSizes();
+          }
+          for (final LasZipItemCodec codec : this.codecs) {
+            context = codec.init(point, context);
+          }
+        } else {
+          for (final LasZipItemCodec codec : this.codecs) {
+            context = codec.init(point, context);
+          }
+          this.decoder.init(reader);
+        }
+        action.accept(point);
+        for (int i = 1; i < pointCount; i++) {
+          for (final LasZipItemCodec codec : this.codecs) {
+            context = codec.read(point, context);
+          }
+          action.accept(point);
+        }
+      }
+    } catch (final Exception e) {
+      throw Exceptions.wrap(
+        "Error decompressing: " + this.pointCloud.getResource() + "\nchunk=" + chunkIndex, e);
+    }
+  }
+
+  /**
+   * Decode the chunk into the columns.
+   *
+   * @param chunkTable The chunk table.
+   * @param chunkIndex The index of the chunk to decode.
+   * @param columns The columns to read the points into.
+   */
+  public void decodeChunk(final LasZipChunkTable chunkTable, final int chunkIndex,
+    final LasPointColumns columns) {
+    columns.clear(chunkTable.getFirstPointIndex(chunkIndex));
+    decodeChunk(chunkTable, chunkIndex, columns::addPoint);
+  }
+}
@@ -0,0 +1,227 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * The x,y extent of each chunk in a chunked LAZ file. Used to skip chunks that
+ * don't intersect a query bounding box so that only the chunks with candidate
+ * points are decompressed.
+ *
+ * The index is calculated on the first scan (only decompressing the x,y layer
+ * for layered files). If {@link LasPointCloud#isWriteChunkIndex()} it is
+ * cached in a file with the extension {@link #FILE_EXTENSION} added to the LAZ
+ * file name. The cache is ignored if the LAZ file's modified time, point count
+ * or chunk table differ from when it was written.
+ */
+public class LasZipChunkIndex {
+
+  public static final String FILE_EXTENSION = "chunks";
+
+  private static final String FILE_TYPE = "LZCI";
+
+  private static final int FILE_VERSION = 1;
+
+  /**
+   * Get the chunk index for the point cloud, reading it from the cache file if
+   * it exists and is up to date, otherwise calculating it. The cache file is
+   * only written if {@link LasPointCloud#isWriteChunkIndex()}, a failure to
+   * write it is logged and doesn't fail the query.
+   *
+   * @param pointCloud The point cloud.
+   * @return The chunk index.
+   */
+  public static LasZipChunkIndex getChunkIndex(final LasPointCloud pointCloud) {
+    try (
+      LasZipParallelReader reader = new LasZipParallelReader(pointCloud)) {
+      final LasZipChunkTable chunkTable = reader.getChunkTable();
+      final Resource resource = pointCloud.getResource();
+      final Resource indexResource = resource.newResourceAddExtension(FILE_EXTENSION);
+      final long lastModified = resource.getLastModified();
+      LasZipChunkIndex chunkIndex = read(pointCloud, chunkTable, indexResource, lastModified);
+      if (chunkIndex == null) {
+        chunkIndex = newChunkIndex(pointCloud, reader);
+        if (pointCloud.isWriteChunkIndex()) {
+          chunkIndex.write(indexResource, lastModified);
+        }
+      }
+      return chunkIndex;
+    }
+  }
+
+  private static LasZipChunkIndex newChunkIndex(final LasPointCloud pointCloud,
+    final LasZipParallelReader reader) {
+    final LasZipChunkTable chunkTable = reader.getChunkTable();
+    final int chunkCount = chunkTable.getChunkCount();
+    final int[] bounds = new int[chunkCount * 4];
+    reader //
+      .setDecompressSelective(LasZipDecompressSelective.CHANNEL_RETURNS_XY)
+      .setOrdered(false)
+      .forEachChunk(columns -> {
+        final int chunkIndex = chunkTable.getChunkIndex(columns.getStartIndex());
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        final int[] xInts = columns.getXInts();
+        final int[] yInts = columns.getYInts();
+        for (int i = 0; i < columns.size(); i++) {
+          final int x = xInts[i];
+          final int y = yInts[i];
+          if (x < minX) {
+            minX = x;
+          }
+          if (x > maxX) {
+            maxX = x;
+          }
+          if (y < minY) {
+            minY = y;
+          }
+          if (y > maxY) {
+            maxY = y;
+          }
+        }
+        final int offset = chunkIndex * 4;
+        bounds[offset] = minX;
+        bounds[offset + 1] = minY;
+        bounds[offset + 2] = maxX;
+        bounds[offset + 3] = maxY;
+      });
+    return new LasZipChunkIndex(pointCloud, chunkTable, bounds);
+  }
+
+  private static LasZipChunkIndex read(final LasPointCloud pointCloud,
+    final LasZipChunkTable chunkTable, final Resource indexResource, final long lastModified) {
+    if (indexResource.exists()) {
+      try (
+        ChannelReader in = indexResource.newChannelReader()) {
+        final String fileType = in.getUsAsciiString(4);
+        final int version = in.getInt();
+        final long fileLastModified = in.getLong();
+        final long pointCount = in.getLong();
+        final int chunkCount = in.getInt();
+        final long chunksEnd = in.getLong();
+        if (FILE_TYPE.equals(fileType) && version == FILE_VERSION
+          && fileLastModified == lastModified && pointCount == pointCloud.getPointCount()
+          && chunkCount == chunkTable.getChunkCount()
+          && chunksEnd == chunkTable.getChunkOffset(chunkCount)) {
+          final int[] bounds = new int[chunkCount * 4];
+          for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = in.getInt();
+          }
+          return new LasZipChunkIndex(pointCloud, chunkTable, bounds);
+        }
+      } catch (final RuntimeException e) {
+        Logs.debug(LasZipChunkIndex.class, "Unable to read chunk index: " + indexResource, e);
+      }
+    }
+    return null;
+  }
+
+  private final int[] bounds;
+
+  private final LasZipChunkTable chunkTable;
+
+  private final LasPointCloud pointCloud;
+
+  public LasZipChunkIndex(final LasPointCloud pointCloud, final LasZipChunkTable chunkTable,
+    final int[] bounds) {
+    this.pointCloud = pointCloud;
+    this.chunkTable = chunkTable;
+    this.bounds = bounds;
+  }
+
+  public BoundingBox getChunkBoundingBox(final int chunkIndex) {
+    final LasPointCloud pointCloud = this.pointCloud;
+    final int offset = chunkIndex * 4;
+    final double minX = pointCloud.toDoubleX(this.bounds[offset]);
+    final double minY = pointCloud.toDoubleY(this.bounds[offset + 1]);
+    final double maxX = pointCloud.toDoubleX(this.bounds[offset + 2]);
+    final double maxY = pointCloud.toDoubleY(this.bounds[offset + 3]);
+    final GeometryFactory geometryFactory = pointCloud.getGeometryFactory();
+    return geometryFactory.newBoundingBox(minX, minY, maxX, maxY);
+  }
+
+  public int getChunkCount() {
+    return this.chunkTable.getChunkCount();
+  }
+
+  /**
+   * Get the indexes of the chunks whose extent intersects the bounding box.
+   *
+   * @param boundingBox The bounding box in the point cloud's coordinate system.
+   * @return The chunk indexes in file order.
+   */
+  public List<Integer> getChunkIndexes(final BoundingBox boundingBox) {
+    final List<Integer> chunkIndexes = new ArrayList<>();
+    if (!boundingBox.isEmpty()) {
+      final double minX = boundingBox.getMinX();
+      final double minY = boundingBox.getMinY();
+      final double maxX = boundingBox.getMaxX();
+      final double maxY = boundingBox.getMaxY();
+      for (int chunkIndex = 0; chunkIndex < getChunkCount(); chunkIndex++) {
+        if (isChunkIntersects(chunkIndex, minX, minY, maxX, maxY)) {
+          chunkIndexes.add(chunkIndex);
+        }
+      }
+    }
+    return chunkIndexes;
+  }
+
+  public LasZipChunkTable getChunkTable() {
+    return this.chunkTable;
+  }
+
+  public boolean isChunkIntersects(final int chunkIndex, final double minX, final double minY,
+    final double maxX, final double maxY) {
+    final int offset = chunkIndex * 4;
+    if (this.pointCloud.toDoubleX(this.bounds[offset]) > maxX) {
+      return false;
+    } else if (this.pointCloud.toDoubleY(this.bounds[offset + 1]) > maxY) {
+      return false;
+    } else if (this.pointCloud.toDoubleX(this.bounds[offset + 2]) < minX) {
+      return false;
+    } else if (this.pointCloud.toDoubleY(this.bounds[offset + 3]) < minY) {
+      return false;
+    } else {
+      return true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.pointCloud.getResource() + " " + Arrays.toString(this.bounds);
+  }
+
+  private void write(final Resource indexResource, final long lastModified) {
+    try (
+      ChannelWriter out = indexResource.newChannelWriter()) {
+      out.putString(FILE_TYPE, 4);
+      out.putInt(FILE_VERSION);
+      out.putLong(lastModified);
+      out.putLong(this.pointCloud.getPointCount());
+      out.putInt(getChunkCount());
+      out.putLong(this.chunkTable.getChunkOffset(getChunkCount()));
+      for (final int value : this.bounds) {
+        out.putInt(value);
+      }
+    } catch (final RuntimeException e) {
+      Logs.warn(this, "Unable to write chunk index: " + indexResource, e);
+      try {
+        indexResource.delete();
+      } catch (final RuntimeException deleteException) {
+        Logs.debug(this, "Unable to delete chunk index: " + indexResource, deleteException);
+      }
+    }
+  }
+}
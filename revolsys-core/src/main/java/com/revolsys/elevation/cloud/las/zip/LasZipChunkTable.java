@@ -0,0 +1,164 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.util.Arrays;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.math.arithmeticcoding.ArithmeticCodingInteger;
+import com.revolsys.math.arithmeticcoding.ArithmeticDecoder;
+
+/**
+ * The chunk table of a chunked LAZ file. Each chunk starts with an
+ * uncompressed point and is compressed independently of the other chunks so
+ * the table allows the chunks to be read in any order.
+ */
+public class LasZipChunkTable {
+
+  /**
+   * Read the chunk table for the point cloud.
+   *
+   * @param pointCloud The point cloud.
+   * @param reader A seekable reader positioned at the start of the point records.
+   * @return The chunk table.
+   */
+  public static LasZipChunkTable read(final LasPointCloud pointCloud, final ChannelReader reader) {
+    final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(pointCloud);
+    if (lasZipHeader == null) {
+      throw new IllegalArgumentException("Not a LAZ file: " + pointCloud.getResource());
+    } else if (lasZipHeader.isCompressor(LasZipCompressorType.POINTWISE)) {
+      throw new IllegalArgumentException("LAZ file is not chunked: " + pointCloud.getResource());
+    } else if (!reader.isSeekable()) {
+      throw new IllegalArgumentException(
+        "LAZ chunk table requires a seekable file: " + pointCloud.getResource());
+    }
+    final long chunkSize = lasZipHeader.getChunkSize();
+    final long pointCount = pointCloud.getPointCount();
+
+    long chunkTableOffset = reader.getLong();
+    final long chunksStart = reader.position();
+    if (chunkTableOffset == -1) {
+      // Written to a non-seekable stream so the offset is at the end of the file
+      reader.seekEnd(8);
+      chunkTableOffset = reader.getLong();
+    }
+    if (chunkTableOffset + 8 == chunksStart || chunkTableOffset <= 0) {
+      throw new IllegalArgumentException(
+        "LAZ file does not have a chunk table: " + pointCloud.getResource());
+    }
+
+    reader.seek(chunkTableOffset);
+    final int version = reader.getInt();
+    if (version != 0) {
+      throw new IllegalArgumentException("Unsupported chunk table version: " + version);
+    }
+    final int chunkCount = reader.getInt();
+    final long[] offsets = new long[chunkCount + 1];
+    final long[] firstPointIndexes = new long[chunkCount + 1];
+    offsets[0] = chunksStart;
+    if (chunkCount > 0) {
+      final boolean variableChunkSize = chunkSize == Integer.MAX_VALUE;
+      final ArithmeticDecoder decoder = new ArithmeticDecoder();
+      decoder.init(reader);
+      final ArithmeticCodingInteger ic = new ArithmeticCodingInteger(decoder, 32, 2);
+      ic.initDecompressor();
+      int lastPointCount = 0;
+      int lastByteCount = 0;
+      for (int i = 0; i < chunkCount; i++) {
+        long chunkPointCount;
+        if (variableChunkSize) {
+          lastPointCount = ic.decompress(lastPointCount, 0);
+          chunkPointCount = lastPointCount;
+        } else {
+          chunkPointCount = Math.min(chunkSize, pointCount - firstPointIndexes[i]);
+        }
+        lastByteCount = ic.decompress(lastByteCount, 1);
+        offsets[i + 1] = offsets[i] + Integer.toUnsignedLong(lastByteCount);
+        firstPointIndexes[i + 1] = firstPointIndexes[i] + chunkPointCount;
+        if (offsets[i + 1] <= offsets[i]) {
+          throw new IllegalArgumentException(
+            "LAZ chunk table is corrupt: " + pointCloud.getResource());
+        }
+      }
+    }
+    reader.seek(chunksStart);
+    return new LasZipChunkTable(lasZipHeader.getCompressor(), offsets, firstPointIndexes);
+  }
+
+  private final LasZipCompressorType compressor;
+
+  private final long[] offsets;
+
+  private final long[] firstPointIndexes;
+
+  private final int maxChunkPointCount;
+
+  public LasZipChunkTable(final LasZipCompressorType compressor, final long[] offsets,
+    final long[] firstPointIndexes) {
+    this.compressor = compressor;
+    this.offsets = offsets;
+    this.firstPointIndexes = firstPointIndexes;
+    int maxChunkPointCount = 0;
+    for (int i = 0; i < getChunkCount(); i++) {
+      maxChunkPointCount = Math.max(maxChunkPointCount, getChunkPointCount(i));
+    }
+    this.maxChunkPointCount = maxChunkPointCount;
+  }
+
+  public int getChunkCount() {
+    return this.offsets.length - 1;
+  }
+
+  /**
+   * @param chunkIndex The chunk index.
+   * @return The number of compressed bytes in the chunk.
+   */
+  public long getChunkLength(final int chunkIndex) {
+    return this.offsets[chunkIndex + 1] - this.offsets[chunkIndex];
+  }
+
+  /**
+   * @param chunkIndex The chunk index.
+   * @return The file offset of the start of the chunk.
+   */
+  public long getChunkOffset(final int chunkIndex) {
+    return this.offsets[chunkIndex];
+  }
+
+  public int getChunkPointCount(final int chunkIndex) {
+    return (int)(this.firstPointIndexes[chunkIndex + 1] - this.firstPointIndexes[chunkIndex]);
+  }
+
+  /**
+   * @param pointIndex The index of a point in the point cloud.
+   * @return The index of the chunk containing the point.
+   */
+  public int getChunkIndex(final long pointIndex) {
+    final int index = Arrays.binarySearch(this.firstPointIndexes, pointIndex);
+    if (index >= 0) {
+      return Math.min(index, getChunkCount() - 1);
+    } else {
+      return -index - 2;
+    }
+  }
+
+  public LasZipCompressorType getCompressor() {
+    return this.compressor;
+  }
+
+  /**
+   * @param chunkIndex The chunk index.
+   * @return The index in the point cloud of the first point in the chunk.
+   */
+  public long getFirstPointIndex(final int chunkIndex) {
+    return this.firstPointIndexes[chunkIndex];
+  }
+
+  public int getMaxChunkPointCount() {
+    return this.maxChunkPointCount;
+  }
+
+  @Override
+  public String toString() {
+    return "chunks=" + getChunkCount();
+  }
+}
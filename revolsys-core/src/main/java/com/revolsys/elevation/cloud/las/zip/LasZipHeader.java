@@ -311,6 +311,15 @@ public class LasZipHeader implements MapSerializer {
     return this.compressor == compressor;
   }
 
+  public LasZipItemCodec[] newLazCodecs(final ArithmeticCodingCodec codec,
+    final int decompressSelective) {
+    final LasZipItemCodec[] itemCodecs = newLazCodecs(codec);
+    for (final LasZipItemCodec itemCodec : itemCodecs) {
+      itemCodec.setDecompressSelective(decompressSelective);
+    }
+    return itemCodecs;
+  }
+
   public LasZipItemCodec[] newLazCodecs(final ArithmeticCodingCodec codec) {
     final int itemCount = this.getNumItems();
     final LasZipItemCodec[] itemCodecs = new LasZipItemCodec[itemCount];
@@ -185,10 +185,8 @@ public class LasZipLayeredChunkedIterator extends LasPointCloudIterator {
   }
 
   @Override
-  protected LasPoint readNext() {
+  protected void readNext(final LasPoint point) {
     try {
-      final LasPoint point;
-
       if (this.chunk_count == this.chunk_size) {
         if (this.point_start != 0) {
           this.current_chunk++;
@@ -225,7 +223,7 @@ public class LasZipLayeredChunkedIterator extends LasPointCloudIterator {
       this.chunk_count++;
 
       if (this.chunk_count == 1) {
-        point = this.pointFormat.readLasPoint(this.pointCloud, this.reader);
+        point.read(this.pointCloud, this.reader);
 
         this.decoder.init(this.reader, false);
         final int count = this.reader.getInt(); // count unused
@@ -236,12 +234,10 @@ public class LasZipLayeredChunkedIterator extends LasPointCloudIterator {
           this.contextIndex = codec.init(point, this.contextIndex);
         }
       } else {
-        point = this.pointFormat.newLasPoint(this.pointCloud);
         for (final LasZipItemCodec pointDecompressor : this.codecs) {
           this.contextIndex = pointDecompressor.read(point, this.contextIndex);
         }
       }
-      return point;
     } catch (final RuntimeException e) {
       close();
       throw e;
@@ -0,0 +1,267 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.LasPointColumns;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.parallel.ThreadInterruptedException;
+
+/**
+ * Read a chunked LAZ file by decoding the chunks concurrently on an
+ * {@link ExecutorService}. The chunk table is read up front and each chunk is
+ * decoded into a {@link LasPointColumns} by a {@link LasZipChunkDecoder}. The
+ * decoded chunks are passed to the action on the calling thread either in file
+ * order or in the order they complete.
+ *
+ * At most 2 x parallelism chunks are decoded or waiting to be consumed at any
+ * one time so memory use is bounded regardless of the file size.
+ */
+public class LasZipParallelReader implements BaseCloseable {
+
+  private final LasPointCloud pointCloud;
+
+  private LasZipChunkTable chunkTable;
+
+  private final Queue<LasZipChunkDecoder> decoders = new ConcurrentLinkedQueue<>();
+
+  private final List<LasZipChunkDecoder> allDecoders = new ArrayList<>();
+
+  private final Queue<LasPointColumns> freeColumns = new ConcurrentLinkedQueue<>();
+
+  private ExecutorService executor = ForkJoinPool.commonPool();
+
+  private boolean ordered = true;
+
+  private int decompressSelective = LasZipDecompressSelective.ALL;
+
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  public LasZipParallelReader(final LasPointCloud pointCloud) {
+    this.pointCloud = pointCloud;
+  }
+
+  @Override
+  public void close() {
+    synchronized (this.allDecoders) {
+      for (final LasZipChunkDecoder decoder : this.allDecoders) {
+        decoder.close();
+      }
+      this.allDecoders.clear();
+      this.decoders.clear();
+    }
+    this.freeColumns.clear();
+  }
+
+  private LasPointColumns decodeChunk(final int chunkIndex) {
+    LasZipChunkDecoder decoder = this.decoders.poll();
+    if (decoder == null) {
+      decoder = new LasZipChunkDecoder(this.pointCloud, this.decompressSelective);
+      synchronized (this.allDecoders) {
+        this.allDecoders.add(decoder);
+      }
+    }
+    try {
+      LasPointColumns columns = this.freeColumns.poll();
+      if (columns == null) {
+        final int capacity = Math.max(1, this.chunkTable.getMaxChunkPointCount());
+        columns = new LasPointColumns(this.pointCloud, capacity);
+      }
+      decoder.decodeChunk(this.chunkTable, chunkIndex, columns);
+      return columns;
+    } finally {
+      this.decoders.add(decoder);
+    }
+  }
+
+  private void deliver(final Future<LasPointColumns> future,
+    final Consumer<? super LasPointColumns> action) {
+    final LasPointColumns columns;
+    try {
+      columns = future.get();
+    } catch (final InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    } catch (final ExecutionException e) {
+      throw Exceptions.wrap(e.getCause());
+    }
+    action.accept(columns);
+    this.freeColumns.add(columns);
+  }
+
+  /**
+   * Decode all the chunks calling the action with the columns for each chunk.
+   * The columns are reused after the action returns so must not be retained.
+   *
+   * @param action The action to call for each chunk.
+   */
+  public void forEachChunk(final Consumer<? super LasPointColumns> action) {
+    final LasZipChunkTable chunkTable = getChunkTable();
+    final List<Integer> chunkIndexes = new ArrayList<>();
+    for (int i = 0; i < chunkTable.getChunkCount(); i++) {
+      chunkIndexes.add(i);
+    }
+    forEachChunk(chunkIndexes, action);
+  }
+
+  /**
+   * Decode the chunks calling the action with the columns for each chunk. The
+   * columns are reused after the action returns so must not be retained.
+   *
+   * @param chunkIndexes The indexes of the chunks to decode.
+   * @param action The action to call for each chunk.
+   */
+  public void forEachChunk(final Iterable<Integer> chunkIndexes,
+    final Consumer<? super LasPointColumns> action) {
+    getChunkTable();
+    final int maxPending = Math.max(1, this.parallelism * 2);
+    final List<Future<LasPointColumns>> submitted = new ArrayList<>();
+    try {
+      if (this.ordered) {
+        final Deque<Future<LasPointColumns>> pending = new ArrayDeque<>();
+        for (final int chunkIndex : chunkIndexes) {
+          if (pending.size() >= maxPending) {
+            deliver(pending.removeFirst(), action);
+          }
+          final Future<LasPointColumns> future = this.executor
+            .submit(() -> decodeChunk(chunkIndex));
+          submitted.add(future);
+          pending.addLast(future);
+        }
+        while (!pending.isEmpty()) {
+          deliver(pending.removeFirst(), action);
+        }
+      } else {
+        final CompletionService<LasPointColumns> completionService = new ExecutorCompletionService<>(
+          this.executor);
+        int pendingCount = 0;
+        for (final int chunkIndex : chunkIndexes) {
+          if (pendingCount >= maxPending) {
+            deliver(take(completionService), action);
+            pendingCount--;
+          }
+          submitted.add(completionService.submit(() -> decodeChunk(chunkIndex)));
+          pendingCount++;
+        }
+        for (; pendingCount > 0; pendingCount--) {
+          deliver(take(completionService), action);
+        }
+      }
+    } finally {
+      for (final Future<LasPointColumns> future : submitted) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  public LasZipChunkTable getChunkTable() {
+    if (this.chunkTable == null) {
+      try (
+        ChannelReader reader = this.pointCloud.newPointRecordsReader()) {
+        if (reader == null) {
+          throw new IllegalArgumentException(
+            "Cannot open point cloud: " + this.pointCloud.getResource());
+        }
+        this.chunkTable = LasZipChunkTable.read(this.pointCloud, reader);
+      }
+    }
+    return this.chunkTable;
+  }
+
+  public int getDecompressSelective() {
+    return this.decompressSelective;
+  }
+
+  public ExecutorService getExecutor() {
+    return this.executor;
+  }
+
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  public boolean isOrdered() {
+    return this.ordered;
+  }
+
+  /**
+   * Set the {@link LasZipDecompressSelective} flags for the layers to
+   * decompress. Must be set before the first chunk is read.
+   *
+   * @param decompressSelective The layers to decompress.
+   * @return this
+   */
+  public LasZipParallelReader setDecompressSelective(final int decompressSelective) {
+    this.decompressSelective = decompressSelective;
+    return this;
+  }
+
+  /**
+   * Set the executor used to decode the chunks. Defaults to the common
+   * {@link ForkJoinPool}.
+   *
+   * @param executor The executor.
+   * @return this
+   */
+  public LasZipParallelReader setExecutor(final ExecutorService executor) {
+    if (executor == null) {
+      this.executor = ForkJoinPool.commonPool();
+    } else {
+      this.executor = executor;
+    }
+    return this;
+  }
+
+  /**
+   * Set if the chunks are passed to the action in file order (true) or as
+   * soon as they have been decoded (false).
+   *
+   * @param ordered True if the chunks are to be returned in order.
+   * @return this
+   */
+  public LasZipParallelReader setOrdered(final boolean ordered) {
+    this.ordered = ordered;
+    return this;
+  }
+
+  /**
+   * Set the number of chunks that can be decoded at the same time.
+   *
+   * @param parallelism The parallelism.
+   * @return this
+   */
+  public LasZipParallelReader setParallelism(final int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be > 0: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  private Future<LasPointColumns> take(final CompletionService<LasPointColumns> completionService) {
+    try {
+      return completionService.take();
+    } catch (final InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.pointCloud.getResource() + " parallelism=" + this.parallelism;
+  }
+}
@@ -47,24 +47,21 @@ public class LasZipPointwiseChunkedIterator extends LasPointCloudIterator {
   }
 
   @Override
-  protected LasPoint readNext() {
+  protected void readNext(final LasPoint point) {
     try {
-      LasPoint point;
       if (this.chunkSize == this.chunkReadCount) {
-        point = this.pointFormat.readLasPoint(this.pointCloud, this.reader);
+        point.read(this.pointCloud, this.reader);
         for (final LasZipItemCodec codec : this.codecs) {
           this.context = codec.init(point, this.context);
         }
         this.decoder.init(this.reader);
         this.chunkReadCount = 0;
       } else {
-        point = this.pointFormat.newLasPoint(this.pointCloud);
         for (final LasZipItemCodec pointDecompressor : this.codecs) {
           this.context = pointDecompressor.read(point, this.context);
         }
       }
       this.chunkReadCount++;
-      return point;
     } catch (final Exception e) {
       close();
       throw Exceptions.wrap("Error decompressing: " + this.pointCloud.getResource(), e);
@@ -22,23 +22,20 @@ public class LasZipPointwiseIterator extends LasPointCloudIterator {
   }
 
   @Override
-  protected LasPoint readNext() {
+  protected void readNext(final LasPoint point) {
     try {
-      LasPoint point;
       if (this.index == 0) {
         final ChannelReader reader = this.reader;
-        point = this.pointFormat.readLasPoint(this.pointCloud, reader);
+        point.read(this.pointCloud, reader);
         for (final LasZipItemCodec pointDecompressor : this.pointDecompressors) {
           pointDecompressor.init(point, 0);
         }
         this.decoder.init(reader);
       } else {
-        point = this.pointFormat.newLasPoint(this.pointCloud);
         for (final LasZipItemCodec pointDecompressor : this.pointDecompressors) {
           pointDecompressor.read(point, 0);
         }
       }
-      return point;
     } catch (final Exception e) {
       final long index = this.index;
       close();
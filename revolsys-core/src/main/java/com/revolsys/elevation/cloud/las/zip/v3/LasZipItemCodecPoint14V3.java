@@ -196,17 +196,7 @@ public class LasZipItemCodecPoint14V3 implements LasZipItemCodec {
     for (int i = 0; i < this.contexts.length; i++) {
       this.contexts[i] = new LasZipContextPoint14();
     }
-    final int decompressSelective = LasZipDecompressSelective.ALL;
-    this.dec_Z.setEnabled(decompressSelective, LasZipDecompressSelective.Z);
-    this.dec_classification.setEnabled(decompressSelective,
-      LasZipDecompressSelective.CLASSIFICATION);
-    this.dec_flags.setEnabled(decompressSelective, LasZipDecompressSelective.FLAGS);
-    this.dec_intensity.setEnabled(decompressSelective, LasZipDecompressSelective.INTENSITY);
-    this.dec_scan_angle.setEnabled(decompressSelective, LasZipDecompressSelective.SCAN_ANGLE);
-    this.dec_user_data.setEnabled(decompressSelective, LasZipDecompressSelective.USER_DATA);
-    this.dec_point_source.setEnabled(decompressSelective, LasZipDecompressSelective.POINT_SOURCE);
-    this.dec_gps_time.setEnabled(decompressSelective, LasZipDecompressSelective.GPS_TIME);
-
+    setDecompressSelective(LasZipDecompressSelective.ALL);
   }
 
   @Override
@@ -309,7 +299,7 @@ public class LasZipItemCodecPoint14V3 implements LasZipItemCodec {
     context.last_gpstime[2] = 0;
     context.last_gpstime[3] = 0;
 
-    context.lastPoint = point;
+    context.lastPoint = point.clone();
     context.gps_time_change = false;
 
     context.unused = false;
@@ -477,7 +467,7 @@ public class LasZipItemCodecPoint14V3 implements LasZipItemCodec {
     }
     point.setGpsTimeLong(gpsTime);
 
-    context.lastPoint = point;
+    setLastPoint(context, point);
     context.gps_time_change = gps_time_change;
     return contextIndex;
   }
@@ -803,7 +793,7 @@ public class LasZipItemCodecPoint14V3 implements LasZipItemCodec {
       writeGpsTime(gpsTime);
     }
 
-    context.lastPoint = point;
+    setLastPoint(context, point);
     context.gps_time_change = gps_time_change;
 
     return contextIndex;
@@ -1004,6 +994,42 @@ public class LasZipItemCodecPoint14V3 implements LasZipItemCodec {
     return this.current_context;
   }
 
+  @Override
+  public void setDecompressSelective(final int decompressSelective) {
+    this.dec_Z.setEnabled(decompressSelective, LasZipDecompressSelective.Z);
+    this.dec_classification.setEnabled(decompressSelective,
+      LasZipDecompressSelective.CLASSIFICATION);
+    this.dec_flags.setEnabled(decompressSelective, LasZipDecompressSelective.FLAGS);
+    this.dec_intensity.setEnabled(decompressSelective, LasZipDecompressSelective.INTENSITY);
+    this.dec_scan_angle.setEnabled(decompressSelective, LasZipDecompressSelective.SCAN_ANGLE);
+    this.dec_user_data.setEnabled(decompressSelective, LasZipDecompressSelective.USER_DATA);
+    this.dec_point_source.setEnabled(decompressSelective, LasZipDecompressSelective.POINT_SOURCE);
+    this.dec_gps_time.setEnabled(decompressSelective, LasZipDecompressSelective.GPS_TIME);
+  }
+
+  /**
+   * Copy the values of the point to the context's last point. A copy is kept so
+   * that the caller can reuse the same point instance for every read or write.
+   */
+  private void setLastPoint(final LasZipContextPoint14 context, final LasPoint point) {
+    final LasPoint lastPoint = context.lastPoint;
+    lastPoint.setXInt(point.getXInt());
+    lastPoint.setYInt(point.getYInt());
+    lastPoint.setZInt(point.getZInt());
+    lastPoint.setIntensity(point.getIntensity());
+    lastPoint.setNumberOfReturns(point.getNumberOfReturns());
+    lastPoint.setReturnNumber(point.getReturnNumber());
+    lastPoint.setClassification(point.getClassification());
+    lastPoint.setEdgeOfFlightLine(point.isEdgeOfFlightLine());
+    lastPoint.setScanDirectionFlag(point.isScanDirectionFlag());
+    lastPoint.setClassificationFlags(point.getClassificationFlags());
+    lastPoint.setScanAngle(point.getScanAngle());
+    lastPoint.setUserData(point.getUserData());
+    lastPoint.setPointSourceID(point.getPointSourceID());
+    lastPoint.setScannerChannel(point.getScannerChannel());
+    lastPoint.setGpsTimeLong(point.getGpsTimeLong());
+  }
+
   private void writeInitContext(final int contextIndex, final LasPoint point) {
     initContext(contextIndex, point, this.enc_channel_returns_XY, this.enc_Z, this.enc_intensity,
       this.enc_scan_angle, this.enc_point_source, this.enc_gps_time);
@@ -0,0 +1,198 @@
+package com.revolsys.elevation.gridded.rasterizer;
+
+import java.util.Arrays;
+
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.grid.Grid;
+
+/**
+ * Base class for rasterizers that calculate the colour of a cell from the 3x3
+ * kernel of cells around it.
+ *
+ * <pre>
+ * a b c
+ * d e f
+ * g h i
+ * </pre>
+ *
+ * Neighbour cells outside the grid or without a value are extrapolated from
+ * the other cells in the kernel. Cells without a value are
+ * {@link Grid#NULL_COLOUR}.
+ */
+public abstract class AbstractKernelGriddedElevationModelRasterizer
+  extends AbstractGriddedElevationModelRasterizer {
+
+  protected double oneDivCellSizeTimes8;
+
+  public AbstractKernelGriddedElevationModelRasterizer(final String type, final String iconName) {
+    super(type, iconName);
+  }
+
+  /**
+   * Calculate the colour for the cell e from the kernel. All of the values are
+   * finite.
+   */
+  protected abstract int getKernelValue(double a, double b, double c, double d, double f,
+    double g, double h, double i);
+
+  public double getOneDivCellSizeTimes8() {
+    return this.oneDivCellSizeTimes8;
+  }
+
+  /**
+   * Get the pixels by reading each row of the grid once, including the rows
+   * above and below the region. The 3 rows of the kernel are reused as the
+   * kernel moves down the image.
+   */
+  @Override
+  public void getPixels(final int x, final int y, final int width, final int height,
+    final int[] pixels) {
+    final int rowLength = width + 2;
+    double[] rowAbove = new double[rowLength];
+    double[] row = new double[rowLength];
+    double[] rowBelow = new double[rowLength];
+    int gridY = this.height - 1 - y;
+    readRow(gridY + 1, x - 1, rowAbove);
+    readRow(gridY, x - 1, row);
+    int index = 0;
+    for (int imageY = y; imageY < y + height; imageY++) {
+      readRow(gridY - 1, x - 1, rowBelow);
+      for (int i = 0; i < width; i++) {
+        pixels[index++] = getValue(rowAbove[i], rowAbove[i + 1], rowAbove[i + 2], row[i],
+          row[i + 1], row[i + 2], rowBelow[i], rowBelow[i + 1], rowBelow[i + 2]);
+      }
+      final double[] nextRowBelow = rowAbove;
+      rowAbove = row;
+      row = rowBelow;
+      rowBelow = nextRowBelow;
+      gridY--;
+    }
+  }
+
+  private int getValue(double a, double b, double c, double d, final double e, double f,
+    double g, double h, double i) {
+    if (Double.isFinite(e)) {
+      if (!Double.isFinite(d)) {
+        if (Double.isFinite(f)) {
+          d = e - (f - e);
+        } else {
+          d = e;
+          f = e;
+        }
+      } else if (!Double.isFinite(f)) {
+        f = e;
+      }
+      if (!Double.isFinite(a)) {
+        if (Double.isFinite(g)) {
+          a = d - (g - d);
+        } else {
+          a = d;
+        }
+      }
+      if (!Double.isFinite(b)) {
+        if (Double.isFinite(h)) {
+          b = e - (h - e);
+        } else {
+          b = e;
+        }
+      }
+      if (!Double.isFinite(c)) {
+        if (Double.isFinite(i)) {
+          c = f - (i - f);
+        } else {
+          c = f;
+        }
+      }
+      if (!Double.isFinite(g)) {
+        g = d - (a - d);
+      }
+      if (!Double.isFinite(h)) {
+        h = e - (b - e);
+      }
+      if (!Double.isFinite(i)) {
+        i = f - (c - f);
+      }
+      return getKernelValue(a, b, c, d, f, g, h, i);
+    } else {
+      return Grid.NULL_COLOUR;
+    }
+  }
+
+  @Override
+  public int getValue(final int gridX, final int gridY) {
+    final GriddedElevationModel elevationModel = this.elevationModel;
+    final int width = this.width;
+    final int height = this.height;
+
+    double a = Double.NaN;
+    double b = Double.NaN;
+    double c = Double.NaN;
+    double d = Double.NaN;
+    final double e = elevationModel.getValueFast(gridX, gridY);
+    double f = Double.NaN;
+    double g = Double.NaN;
+    double h = Double.NaN;
+    double i = Double.NaN;
+    if (Double.isFinite(e)) {
+      final boolean firstX = gridX == 0;
+      final boolean firstY = gridY == 0;
+      final boolean lastX = gridX == width - 1;
+      final boolean lastY = gridY == height - 1;
+      final int gridX0 = gridX - 1;
+      final int gridX2 = gridX + 1;
+      if (!lastY) {
+        final int gridY2 = gridY + 1;
+        if (!firstX) {
+          a = elevationModel.getValueFast(gridX0, gridY2);
+        }
+        b = elevationModel.getValueFast(gridX, gridY2);
+        if (!lastX) {
+          c = elevationModel.getValueFast(gridX2, gridY2);
+        }
+      }
+      if (!firstX) {
+        d = elevationModel.getValueFast(gridX0, gridY);
+      }
+      if (!lastX) {
+        f = elevationModel.getValueFast(gridX2, gridY);
+      }
+      if (!firstY) {
+        final int gridY0 = gridY - 1;
+        if (!firstX) {
+          g = elevationModel.getValueFast(gridX0, gridY0);
+        }
+        h = elevationModel.getValueFast(gridX, gridY0);
+        if (!lastX) {
+          i = elevationModel.getValueFast(gridX2, gridY0);
+        }
+      }
+    }
+    return getValue(a, b, c, d, e, f, g, h, i);
+  }
+
+  private void readRow(final int gridY, final int startGridX, final double[] row) {
+    if (gridY < 0 || gridY >= this.height) {
+      Arrays.fill(row, Double.NaN);
+    } else {
+      final GriddedElevationModel elevationModel = this.elevationModel;
+      final int width = this.width;
+      for (int i = 0; i < row.length; i++) {
+        final int gridX = startGridX + i;
+        if (gridX >= 0 && gridX < width) {
+          row[i] = elevationModel.getValueFast(gridX, gridY);
+        } else {
+          row[i] = Double.NaN;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void updateValues() {
+    super.updateValues();
+    if (this.elevationModel != null) {
+      final double gridCellWidth = this.elevationModel.getGridCellWidth();
+      this.oneDivCellSizeTimes8 = 1.0 / (8 * gridCellWidth);
+    }
+  }
+}
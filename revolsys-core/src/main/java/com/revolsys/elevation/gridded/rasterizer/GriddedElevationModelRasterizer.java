@@ -3,6 +3,7 @@ package com.revolsys.elevation.gridded.rasterizer;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
+import java.util.stream.IntStream;
 
 import com.revolsys.beans.PropertyChangeSupportProxy;
 import com.revolsys.elevation.gridded.GriddedElevationModel;
@@ -15,6 +16,9 @@ import com.revolsys.util.IconNameProxy;
 public interface GriddedElevationModelRasterizer extends BoundingBoxProxy, Cloneable, IconNameProxy,
   MapSerializer, ObjectWithProperties, PropertyChangeSupportProxy {
 
+  /** The number of image rows in each band when rasterizing an image. */
+  int BAND_HEIGHT = 64;
+
   GriddedElevationModelRasterizer clone();
 
   GriddedElevationModel getElevationModel();
@@ -27,6 +31,24 @@ public interface GriddedElevationModelRasterizer extends BoundingBoxProxy, Clone
 
   String getName();
 
+  /**
+   * Get the ARGB pixel values for a region of the image, with y=0 the top row
+   * of the image. Can be used with
+   * {@link com.revolsys.raster.io.format.tiff.TiffTiledImageWriter} to write the
+   * image without creating the full image in memory.
+   */
+  default void getPixels(final int x, final int y, final int width, final int height,
+    final int[] pixels) {
+    final int gridHeight = getHeight();
+    int index = 0;
+    for (int imageY = y; imageY < y + height; imageY++) {
+      final int gridY = gridHeight - 1 - imageY;
+      for (int gridX = x; gridX < x + width; gridX++) {
+        pixels[index++] = getValue(gridX, gridY);
+      }
+    }
+  }
+
   default int getValue(final int index) {
     final int width = getWidth();
     final int height = getHeight();
@@ -46,18 +68,32 @@ public interface GriddedElevationModelRasterizer extends BoundingBoxProxy, Clone
     rasterize(dataBuffer);
   }
 
+  /**
+   * Rasterize the image into the buffer in bands of {@link #BAND_HEIGHT} rows
+   * using {@link #getPixels(int, int, int, int, int[])}. If the elevation
+   * model supports concurrent reads the bands are rasterized in parallel.
+   *
+   * @param imageBuffer The buffer to write the pixels to.
+   */
   default void rasterize(final DataBuffer imageBuffer) {
-    final int width = getWidth();
     final int height = getHeight();
-    int index = 0;
-    for (int gridY = height - 1; gridY >= 0; gridY--) {
-      for (int gridX = 0; gridX < width; gridX++) {
-        final int value = getValue(gridX, gridY);
-
-        imageBuffer.setElem(index, value);
-        index++;
-      }
+    final int bandCount = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    IntStream bands = IntStream.range(0, bandCount);
+    final GriddedElevationModel elevationModel = getElevationModel();
+    if (elevationModel.isConcurrentReadSupported()) {
+      bands = bands.parallel();
     }
+    bands.forEach(bandIndex -> {
+      final int width = getWidth();
+      final int y = bandIndex * BAND_HEIGHT;
+      final int rowCount = Math.min(BAND_HEIGHT, height - y);
+      final int[] pixels = new int[width * rowCount];
+      getPixels(0, y, width, rowCount, pixels);
+      int index = y * width;
+      for (final int pixel : pixels) {
+        imageBuffer.setElem(index++, pixel);
+      }
+    });
   }
 
   void setElevationModel(GriddedElevationModel elevationModel);
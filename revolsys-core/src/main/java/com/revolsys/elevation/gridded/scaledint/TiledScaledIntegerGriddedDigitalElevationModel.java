@@ -1,44 +1,121 @@
 package com.revolsys.elevation.gridded.scaledint;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.Map;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import com.revolsys.collection.map.LruMap;
-import com.revolsys.elevation.gridded.DirectFileElevationModel;
+import org.jeometry.common.exception.Exceptions;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.collection.map.StripedSizeBoundedLruCache;
 import com.revolsys.elevation.gridded.GriddedElevationModel;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.grid.AbstractGrid;
 import com.revolsys.spring.resource.Resource;
-import com.revolsys.util.IntPair;
 import com.revolsys.util.Strings;
 
+/**
+ * A gridded elevation model stored as a directory of sigdem tile files. The
+ * cells for a tile are read into memory when the tile is first used and kept in
+ * a cache shared by all the models (see {@link #getTileCache()}). The cache is
+ * bounded by the number of bytes used by the tiles and is split into stripes so
+ * elevations can be read from many threads without contention. The number of
+ * stripes is reduced if needed so that a tile fits in a stripe.
+ */
 public class TiledScaledIntegerGriddedDigitalElevationModel extends AbstractGrid
   implements GriddedElevationModel {
 
+  private static final class TileKey {
+    private final int modelId;
+
+    private final int tileX;
+
+    private final int tileY;
+
+    private TileKey(final int modelId, final int tileX, final int tileY) {
+      this.modelId = modelId;
+      this.tileX = tileX;
+      this.tileY = tileY;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (obj == this) {
+        return true;
+      } else if (obj instanceof TileKey) {
+        final TileKey other = (TileKey)obj;
+        return this.tileX == other.tileX && this.tileY == other.tileY
+          && this.modelId == other.modelId;
+      } else {
+        return false;
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      return (this.modelId * 31 + this.tileX) * 0x9E3779B1 + this.tileY;
+    }
+  }
+
+  private static final int[] EMPTY_TILE = new int[0];
+
+  private static final AtomicInteger MODEL_ID = new AtomicInteger();
+
+  private static final StripedSizeBoundedLruCache<TileKey, int[]> TILE_CACHE = new StripedSizeBoundedLruCache<>(
+    Math.min(256L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 8),
+    cells -> 16 + cells.length * 4L, 16);
+
+  /**
+   * Get the cache of tile cells shared by all the models. Can be used to change
+   * the maximum size in bytes or get the hit, miss and eviction counts.
+   *
+   * @return The tile cache.
+   */
+  public static StripedSizeBoundedLruCache<?, int[]> getTileCache() {
+    return TILE_CACHE;
+  }
+
+  private static long getTileCacheSize(final int gridTileSize) {
+    return 16 + (long)gridTileSize * gridTileSize * 4;
+  }
+
   private int gridTileSize;
 
   private final int coordinateSystemId;
 
-  private final Map<IntPair, DirectFileElevationModel> models = new LruMap<>(5000);
-
   private final Path baseDirectory;
 
-  private final IntPair getKey = new IntPair();
-
   private final String filePrefix;
 
+  private final int modelId = MODEL_ID.incrementAndGet();
+
+  private double scaleZ;
+
   private final int gridCellSize;
 
   private final String tileWidthString;
 
+  private volatile boolean tileCacheWarningLogged;
+
   public TiledScaledIntegerGriddedDigitalElevationModel(final Path baseDirectory,
     final String filePrefix, final GeometryFactory geometryFactory, final double minX,
     final double minY, final int gridTileSize, final int gridCellSize) {
     super(geometryFactory, minX, minY, Integer.MAX_VALUE, Integer.MAX_VALUE, gridCellSize);
     this.filePrefix = filePrefix;
     this.gridTileSize = gridTileSize;
+    TILE_CACHE.ensureValueSize(getTileCacheSize(gridTileSize));
     this.gridCellSize = gridCellSize;
     this.coordinateSystemId = geometryFactory.getHorizontalCoordinateSystemId();
+    this.scaleZ = geometryFactory.getScaleZ();
+    if (this.scaleZ <= 0) {
+      this.scaleZ = 1000;
+    }
     this.tileWidthString = Integer.toString(gridCellSize * gridTileSize);
     this.baseDirectory = baseDirectory//
       .resolve(ScaledIntegerGriddedDigitalElevation.FILE_EXTENSION)//
@@ -54,48 +131,67 @@ public class TiledScaledIntegerGriddedDigitalElevationModel extends AbstractGrid
       gridCellSize);
   }
 
+  /**
+   * Remove this model's tiles from the tile cache.
+   */
   @Override
   public void clear() {
+    final int modelId = this.modelId;
+    TILE_CACHE.removeIf(key -> key.modelId == modelId);
   }
 
   public int getGridTileSize() {
     return this.gridTileSize;
   }
 
+  private int[] getTileCells(final int tileX, final int tileY) {
+    final TileKey key = new TileKey(this.modelId, tileX, tileY);
+    return TILE_CACHE.getOrLoad(key, this::readTile);
+  }
+
+  /**
+   * Get the path to the sigdem file for the tile.
+   *
+   * @param tileX The tile x index (minX / (gridTileSize * gridCellSize)).
+   * @param tileY The tile y index (minY / (gridTileSize * gridCellSize)).
+   * @return The path.
+   */
+  public Path getTilePath(final int tileX, final int tileY) {
+    final int tileSize = this.gridTileSize;
+    final int cellSize = this.gridCellSize;
+    final int minX = tileX * tileSize * cellSize;
+    final int minY = tileY * tileSize * cellSize;
+    final String fileName = Strings.toString("_", this.filePrefix,
+      getHorizontalCoordinateSystemId(), this.tileWidthString, minX, minY) + "."
+      + ScaledIntegerGriddedDigitalElevation.FILE_EXTENSION;
+    return this.baseDirectory //
+      .resolve(Integer.toString(minX)) //
+      .resolve(fileName);
+  }
+
   @Override
   public double getValueFast(final int gridX, final int gridY) {
-    DirectFileElevationModel model;
-    final Map<IntPair, DirectFileElevationModel> models = this.models;
     final int tileSize = this.gridTileSize;
-    final int minGridX = Math.floorDiv(gridX, tileSize);
-    final int minGridY = Math.floorDiv(gridY, tileSize);
-    synchronized (models) {
-      final IntPair getKey = this.getKey;
-      getKey.setValues(minGridX, minGridY);
-
-      model = models.get(getKey);
-      if (model == null) {
-        final int cellSize = this.gridCellSize;
-        final int tileX = minGridX * tileSize * cellSize;
-        final int tileY = minGridY * tileSize * cellSize;
-        final GeometryFactory geometryFactory = getGeometryFactory();
-
-        final String fileName = Strings.toString("_", this.filePrefix,
-          getHorizontalCoordinateSystemId(), this.tileWidthString, tileX, tileY) + "."
-          + ScaledIntegerGriddedDigitalElevation.FILE_EXTENSION;
-        final Path path = this.baseDirectory //
-          .resolve(Integer.toString(tileX)) //
-          .resolve(fileName);
-
-        model = new ScaledIntegerGriddedDigitalElevationModelFile(path, geometryFactory, tileX,
-          tileY, tileSize, tileSize, this.gridCellWidth);
-        models.put(getKey.clone(), model);
+    final int tileX = Math.floorDiv(gridX, tileSize);
+    final int tileY = Math.floorDiv(gridY, tileSize);
+    final int[] cells = getTileCells(tileX, tileY);
+    if (cells.length == 0) {
+      return Double.NaN;
+    } else {
+      final int gridCellX = gridX - tileX * tileSize;
+      final int gridCellY = gridY - tileY * tileSize;
+      final int elevationInt = cells[gridCellY * tileSize + gridCellX];
+      if (elevationInt == Integer.MIN_VALUE) {
+        return Double.NaN;
+      } else {
+        return elevationInt / this.scaleZ;
       }
     }
-    final int gridCellX = gridX % tileSize;
-    final int gridCellY = gridY % tileSize;
+  }
 
-    return model.getValue(gridCellX, gridCellY);
+  @Override
+  public boolean isConcurrentReadSupported() {
+    return true;
   }
 
   @Override
@@ -114,8 +210,49 @@ public class TiledScaledIntegerGriddedDigitalElevationModel extends AbstractGrid
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Read all the cells for the tile, the cells are stored as big endian integers
+   * after the sigdem header.
+   */
+  private int[] readTile(final TileKey key) {
+    final Path path = getTilePath(key.tileX, key.tileY);
+    final int tileSize = this.gridTileSize;
+    final int cellCount = tileSize * tileSize;
+    try (
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(cellCount * 4);
+      final long offset = ScaledIntegerGriddedDigitalElevation.HEADER_SIZE;
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, offset + buffer.position()) == -1) {
+          break;
+        }
+      }
+      buffer.flip();
+      final int[] cells = new int[cellCount];
+      final IntBuffer intBuffer = buffer.asIntBuffer();
+      final int readCount = intBuffer.remaining();
+      intBuffer.get(cells, 0, readCount);
+      Arrays.fill(cells, readCount, cellCount, Integer.MIN_VALUE);
+      if (!this.tileCacheWarningLogged && getTileCacheSize(tileSize) > TILE_CACHE.getMaxSize()) {
+        this.tileCacheWarningLogged = true;
+        Logs.warn(this, "Tiles are larger than the tile cache maximum size "
+          + TILE_CACHE.getMaxSize() + " and are read for each elevation: "
+          + this.baseDirectory);
+      }
+      return cells;
+    } catch (final NoSuchFileException e) {
+      return EMPTY_TILE;
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to read: " + path, e);
+    }
+  }
+
   public void setGridTileSize(final int gridTileSize) {
-    this.gridTileSize = gridTileSize;
+    if (this.gridTileSize != gridTileSize) {
+      clear();
+      this.gridTileSize = gridTileSize;
+      TILE_CACHE.ensureValueSize(getTileCacheSize(gridTileSize));
+    }
   }
 
   @Override
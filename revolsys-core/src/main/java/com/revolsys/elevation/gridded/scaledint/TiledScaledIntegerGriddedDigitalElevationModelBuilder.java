@@ -0,0 +1,384 @@
+package com.revolsys.elevation.gridded.scaledint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.cloud.PointCloud;
+import com.revolsys.elevation.gridded.IntArrayScaleGriddedElevationModel;
+import com.revolsys.elevation.tin.quadedge.QuadEdgeDelaunayTinBuilder;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.file.Paths;
+
+/**
+ * Build a {@link TiledScaledIntegerGriddedDigitalElevationModel} from a stream
+ * of points without loading all the points into memory.
+ *
+ * <ol>
+ * <li>Each point added is binned into the tile it is in, and the neighbouring
+ * tiles if it is within the buffer distance of the tile edge. The points are
+ * buffered in memory and appended to a temporary file for each tile when more
+ * than {@link #setMaxBufferedPointCount(int)} points are buffered.</li>
+ * <li>{@link #build()} reads the points for each tile, builds a TIN from the
+ * points, rasterizes the TIN into an {@link IntArrayScaleGriddedElevationModel}
+ * and writes it as a sigdem tile file.</li>
+ * </ol>
+ *
+ * The memory used is bounded by the buffered points and the points for the
+ * tiles being built, not by the total number of points.
+ */
+public class TiledScaledIntegerGriddedDigitalElevationModelBuilder implements BaseCloseable {
+
+  private class TileBuffer {
+    private final int tileX;
+
+    private final int tileY;
+
+    private double[] coordinates = EMPTY_COORDINATES;
+
+    private int coordinateCount;
+
+    private long pointCount;
+
+    private boolean hasTilePoints;
+
+    private TileBuffer(final int tileX, final int tileY) {
+      this.tileX = tileX;
+      this.tileY = tileY;
+    }
+
+    private void addPoint(final double x, final double y, final double z) {
+      if (this.coordinateCount == this.coordinates.length) {
+        final double[] newCoordinates = new double[Math.max(96, this.coordinates.length * 2)];
+        System.arraycopy(this.coordinates, 0, newCoordinates, 0, this.coordinateCount);
+        this.coordinates = newCoordinates;
+      }
+      final double[] coordinates = this.coordinates;
+      coordinates[this.coordinateCount++] = x;
+      coordinates[this.coordinateCount++] = y;
+      coordinates[this.coordinateCount++] = z;
+      this.pointCount++;
+      TiledScaledIntegerGriddedDigitalElevationModelBuilder.this.bufferedPointCount++;
+    }
+
+    private void flush() {
+      final int coordinateCount = this.coordinateCount;
+      if (coordinateCount > 0) {
+        final Path file = getPointsFile();
+        final ByteBuffer buffer = ByteBuffer.allocate(coordinateCount * 8);
+        buffer.asDoubleBuffer().put(this.coordinates, 0, coordinateCount);
+        try (
+          FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+        } catch (final IOException e) {
+          throw Exceptions.wrap("Unable to write: " + file, e);
+        }
+        this.coordinateCount = 0;
+        this.coordinates = EMPTY_COORDINATES;
+      }
+    }
+
+    private Path getPointsFile() {
+      return TiledScaledIntegerGriddedDigitalElevationModelBuilder.this.tempDirectory
+        .resolve(this.tileX + "_" + this.tileY + ".xyz");
+    }
+
+    private double[] readPoints() {
+      final int coordinateCount = Math.toIntExact(this.pointCount * 3);
+      final double[] coordinates = new double[coordinateCount];
+      final int fileCoordinateCount = coordinateCount - this.coordinateCount;
+      if (fileCoordinateCount > 0) {
+        final Path file = getPointsFile();
+        final ByteBuffer buffer = ByteBuffer.allocate(fileCoordinateCount * 8);
+        try (
+          FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+              throw new IOException("Unexpected end of file");
+            }
+          }
+        } catch (final IOException e) {
+          throw Exceptions.wrap("Unable to read: " + file, e);
+        }
+        buffer.flip();
+        final DoubleBuffer doubleBuffer = buffer.asDoubleBuffer();
+        doubleBuffer.get(coordinates, 0, fileCoordinateCount);
+      }
+      System.arraycopy(this.coordinates, 0, coordinates, fileCoordinateCount,
+        this.coordinateCount);
+      return coordinates;
+    }
+  }
+
+  private static final double[] EMPTY_COORDINATES = new double[0];
+
+  private final Map<Long, TileBuffer> tiles = new HashMap<>();
+
+  private final GeometryFactory geometryFactory;
+
+  private final GeometryFactory gridGeometryFactory;
+
+  private final TiledScaledIntegerGriddedDigitalElevationModel elevationModel;
+
+  private final int gridTileSize;
+
+  private final int gridCellSize;
+
+  private final double tileWidth;
+
+  private double bufferDistance;
+
+  private int maxBufferedPointCount = 1000000;
+
+  private int bufferedPointCount;
+
+  private int threadCount = 1;
+
+  private Path tempDirectory;
+
+  /**
+   * Construct a new builder.
+   *
+   * @param baseDirectory The base directory the tile files are written to.
+   * @param filePrefix The prefix for the tile file names.
+   * @param geometryFactory The geometry factory of the points and elevation model.
+   * @param gridTileSize The number of grid cells in the width and height of a tile.
+   * @param gridCellSize The width and height of a grid cell.
+   */
+  public TiledScaledIntegerGriddedDigitalElevationModelBuilder(final Path baseDirectory,
+    final String filePrefix, final GeometryFactory geometryFactory, final int gridTileSize,
+    final int gridCellSize) {
+    this.geometryFactory = geometryFactory.convertAxisCount(3);
+    final double scaleXy = 1.0 / gridCellSize;
+    this.gridGeometryFactory = geometryFactory.convertAxisCountAndScales(3, scaleXy, scaleXy,
+      1000.0);
+    this.gridTileSize = gridTileSize;
+    this.gridCellSize = gridCellSize;
+    this.tileWidth = (double)gridTileSize * gridCellSize;
+    this.bufferDistance = Math.min(this.tileWidth, 10.0 * gridCellSize);
+    this.elevationModel = new TiledScaledIntegerGriddedDigitalElevationModel(baseDirectory,
+      filePrefix, this.gridGeometryFactory, 0, 0, gridTileSize, gridCellSize);
+  }
+
+  public void addPoint(final double x, final double y, final double z) {
+    if (Double.isFinite(x) && Double.isFinite(y) && Double.isFinite(z)) {
+      final double tileWidth = this.tileWidth;
+      final double bufferDistance = this.bufferDistance;
+      final int tileX = (int)Math.floor(x / tileWidth);
+      final int tileY = (int)Math.floor(y / tileWidth);
+      final double tileMinX = tileX * tileWidth;
+      final double tileMinY = tileY * tileWidth;
+
+      int minTileX = tileX;
+      int maxTileX = tileX;
+      if (x - tileMinX < bufferDistance) {
+        minTileX--;
+      }
+      if (tileMinX + tileWidth - x <= bufferDistance) {
+        maxTileX++;
+      }
+      int minTileY = tileY;
+      int maxTileY = tileY;
+      if (y - tileMinY < bufferDistance) {
+        minTileY--;
+      }
+      if (tileMinY + tileWidth - y <= bufferDistance) {
+        maxTileY++;
+      }
+      for (int bufferTileY = minTileY; bufferTileY <= maxTileY; bufferTileY++) {
+        for (int bufferTileX = minTileX; bufferTileX <= maxTileX; bufferTileX++) {
+          final TileBuffer tile = getTile(bufferTileX, bufferTileY);
+          tile.addPoint(x, y, z);
+          if (bufferTileX == tileX && bufferTileY == tileY) {
+            tile.hasTilePoints = true;
+          }
+        }
+      }
+      if (this.bufferedPointCount >= this.maxBufferedPointCount) {
+        flush();
+      }
+    }
+  }
+
+  public void addPoint(final Point point) {
+    final Point convertedPoint = point.convertPoint2d(this.geometryFactory);
+    final double x = convertedPoint.getX();
+    final double y = convertedPoint.getY();
+    final double z = point.getZ();
+    addPoint(x, y, z);
+  }
+
+  /**
+   * Add the points from the point cloud that match the filter.
+   *
+   * @param pointCloud The point cloud.
+   * @param filter The filter.
+   */
+  public <P extends Point> void addPoints(final PointCloud<P> pointCloud,
+    final Predicate<? super P> filter) {
+    pointCloud.forEachPoint(point -> {
+      if (filter.test(point)) {
+        addPoint(point);
+      }
+    });
+  }
+
+  /**
+   * Write the tile files for all the tiles that contain points.
+   *
+   * @return The elevation model to read the tiles.
+   */
+  public TiledScaledIntegerGriddedDigitalElevationModel build() {
+    final List<TileBuffer> tiles = new ArrayList<>();
+    for (final TileBuffer tile : this.tiles.values()) {
+      if (tile.hasTilePoints) {
+        tiles.add(tile);
+      }
+    }
+    if (this.threadCount > 1) {
+      final ForkJoinPool pool = new ForkJoinPool(this.threadCount);
+      try {
+        pool.submit(() -> tiles.parallelStream().forEach(this::writeTile)).join();
+      } finally {
+        pool.shutdown();
+      }
+    } else {
+      for (final TileBuffer tile : tiles) {
+        writeTile(tile);
+      }
+    }
+    this.elevationModel.clear();
+    return this.elevationModel;
+  }
+
+  /**
+   * Delete the temporary point files.
+   */
+  @Override
+  public void close() {
+    this.tiles.clear();
+    this.bufferedPointCount = 0;
+    if (this.tempDirectory != null) {
+      Paths.deleteDirectories(this.tempDirectory);
+      this.tempDirectory = null;
+    }
+  }
+
+  private void flush() {
+    if (this.tempDirectory == null) {
+      try {
+        this.tempDirectory = Files.createTempDirectory("sigdem");
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to create temporary directory", e);
+      }
+    }
+    for (final TileBuffer tile : this.tiles.values()) {
+      tile.flush();
+    }
+    this.bufferedPointCount = 0;
+  }
+
+  public double getBufferDistance() {
+    return this.bufferDistance;
+  }
+
+  public TiledScaledIntegerGriddedDigitalElevationModel getElevationModel() {
+    return this.elevationModel;
+  }
+
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  private TileBuffer getTile(final int tileX, final int tileY) {
+    final Long key = (long)tileX << 32 | tileY & 0xffffffffL;
+    TileBuffer tile = this.tiles.get(key);
+    if (tile == null) {
+      tile = new TileBuffer(tileX, tileY);
+      this.tiles.put(key, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Set the distance outside a tile that points are also included in the TIN
+   * for the tile, so the triangles along the tile edges match the neighbouring
+   * tiles. Limited to the tile width.
+   *
+   * @param bufferDistance The buffer distance.
+   * @return this
+   */
+  public TiledScaledIntegerGriddedDigitalElevationModelBuilder setBufferDistance(
+    final double bufferDistance) {
+    this.bufferDistance = Math.min(this.tileWidth, bufferDistance);
+    return this;
+  }
+
+  /**
+   * Set the maximum number of points (including points in the buffer of
+   * neighbouring tiles) buffered in memory before they are written to the
+   * temporary files.
+   *
+   * @param maxBufferedPointCount The maximum number of points.
+   * @return this
+   */
+  public TiledScaledIntegerGriddedDigitalElevationModelBuilder setMaxBufferedPointCount(
+    final int maxBufferedPointCount) {
+    this.maxBufferedPointCount = Math.max(1, maxBufferedPointCount);
+    return this;
+  }
+
+  /**
+   * Set the number of tiles built at the same time by {@link #build()}. The
+   * memory used increases with the number of threads.
+   *
+   * @param threadCount The number of threads.
+   * @return this
+   */
+  public TiledScaledIntegerGriddedDigitalElevationModelBuilder setThreadCount(
+    final int threadCount) {
+    this.threadCount = Math.max(1, threadCount);
+    return this;
+  }
+
+  private void writeTile(final TileBuffer tile) {
+    if (tile.pointCount >= 3) {
+      final double[] coordinates = tile.readPoints();
+      final QuadEdgeDelaunayTinBuilder tinBuilder = new QuadEdgeDelaunayTinBuilder(
+        this.geometryFactory);
+      for (int i = 0; i < coordinates.length;) {
+        final double x = coordinates[i++];
+        final double y = coordinates[i++];
+        final double z = coordinates[i++];
+        tinBuilder.insertVertex(x, y, z);
+      }
+      final int gridTileSize = this.gridTileSize;
+      final double tileMinX = tile.tileX * this.tileWidth;
+      final double tileMinY = tile.tileY * this.tileWidth;
+      final IntArrayScaleGriddedElevationModel tileModel = new IntArrayScaleGriddedElevationModel(
+        this.gridGeometryFactory, tileMinX, tileMinY, gridTileSize, gridTileSize, this.gridCellSize);
+      tinBuilder.forEachTriangle(tileModel::setElevationsForTriangle);
+
+      final Path tilePath = this.elevationModel.getTilePath(tile.tileX, tile.tileY);
+      Paths.createParentDirectories(tilePath);
+      tileModel.writeGriddedElevationModel(tilePath);
+    }
+  }
+}
@@ -0,0 +1,389 @@
+package com.revolsys.elevation.tin.compactbinary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import org.jeometry.common.exception.Exceptions;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
+import com.revolsys.geometry.index.hprtree.HprTreeFile;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Triangle;
+import com.revolsys.geometry.model.impl.AbstractTriangle;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.io.file.Paths;
+import com.revolsys.properties.BaseObjectWithProperties;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * A read-only {@link ScaledIntegerTriangulatedIrregularNetwork} .sitin file
+ * where the triangles are read from a memory-mapped buffer instead of being
+ * loaded into arrays. Opening the file only reads the header and the pages are
+ * shared with other processes that map the same file.
+ *
+ * <p>Point and bounding box queries use a packed R-tree of the triangle
+ * bounding boxes stored in a .sitin.rtree sidecar file. The index is built on
+ * first use and rebuilt if the size or last modified time of the .sitin file
+ * changes. If the index can't be written all the triangles are scanned.</p>
+ */
+public class MappedScaledIntegerTriangulatedIrregularNetwork extends BaseObjectWithProperties
+  implements TriangulatedIrregularNetwork, BaseCloseable {
+
+  private class MappedTriangle extends AbstractTriangle {
+    private static final long serialVersionUID = 1L;
+
+    private final int triangleIndex;
+
+    private MappedTriangle(final int triangleIndex) {
+      this.triangleIndex = triangleIndex;
+    }
+
+    @Override
+    public double getCoordinate(final int vertexIndex, final int axisIndex) {
+      if (vertexIndex >= 0 && vertexIndex < 3 && axisIndex >= 0 && axisIndex < 3) {
+        return getTriangleVertexCoordinate(this.triangleIndex, vertexIndex, axisIndex);
+      } else {
+        return Double.NaN;
+      }
+    }
+
+    @Override
+    public double[] getCoordinates() {
+      final double[] coordinates = new double[12];
+      int coordinateIndex = 0;
+      for (int vertexIndex = 0; vertexIndex < 3; vertexIndex++) {
+        for (int axisIndex = 0; axisIndex < 3; axisIndex++) {
+          coordinates[coordinateIndex++] = getTriangleVertexCoordinate(this.triangleIndex,
+            vertexIndex, axisIndex);
+        }
+      }
+      coordinates[coordinateIndex++] = coordinates[0];
+      coordinates[coordinateIndex++] = coordinates[1];
+      coordinates[coordinateIndex++] = coordinates[2];
+      return coordinates;
+    }
+
+    @Override
+    public GeometryFactory getGeometryFactory() {
+      return MappedScaledIntegerTriangulatedIrregularNetwork.this.geometryFactory;
+    }
+
+    @Override
+    public double getX(final int vertexIndex) {
+      return getTriangleVertexCoordinate(this.triangleIndex, vertexIndex, 0);
+    }
+
+    @Override
+    public double getY(final int vertexIndex) {
+      return getTriangleVertexCoordinate(this.triangleIndex, vertexIndex, 1);
+    }
+
+    @Override
+    public double getZ(final int vertexIndex) {
+      return getTriangleVertexCoordinate(this.triangleIndex, vertexIndex, 2);
+    }
+  }
+
+  public static final String SPATIAL_INDEX_FILE_EXTENSION = "rtree";
+
+  private static final int TRIANGLE_BYTES = 9 * 4;
+
+  /** File type, version, geometry factory and bounding box. */
+  private static final int TRIANGLES_OFFSET = ScaledIntegerTriangulatedIrregularNetwork.FILE_TYPE_BYTES.length
+    + 2 + 4 + 6 * 8 + 4 * 8;
+
+  private static final int TRIANGLES_PER_BUFFER = Integer.MAX_VALUE / TRIANGLE_BYTES;
+
+  /**
+   * Check if the resource is an uncompressed .sitin file that can be mapped.
+   */
+  public static boolean isMappable(final Resource resource) {
+    return resource != null && resource.isFile()
+      && ScaledIntegerTriangulatedIrregularNetwork.FILE_EXTENSION
+        .equalsIgnoreCase(resource.getFileNameExtension())
+      && resource.exists();
+  }
+
+  private final Resource resource;
+
+  private final Path path;
+
+  private final GeometryFactory geometryFactory;
+
+  private final BoundingBox boundingBox;
+
+  private final int triangleCount;
+
+  private final ByteBuffer[] buffers;
+
+  private final double scaleX;
+
+  private final double scaleY;
+
+  private final double scaleZ;
+
+  private HprTreeFile spatialIndex;
+
+  private boolean spatialIndexInitialized = false;
+
+  public MappedScaledIntegerTriangulatedIrregularNetwork(final Resource resource) {
+    this.resource = resource;
+    this.path = resource.getPath();
+    try (
+      ChannelReader in = resource.newChannelReader()) {
+      final String fileType = in.getString(
+        ScaledIntegerTriangulatedIrregularNetwork.FILE_TYPE_BYTES.length,
+        StandardCharsets.ISO_8859_1);
+      if (!ScaledIntegerTriangulatedIrregularNetwork.FILE_TYPE.equals(fileType)) {
+        throw new IllegalArgumentException("Not a sitin file: " + resource);
+      }
+      @SuppressWarnings("unused")
+      final short version = in.getShort();
+      this.geometryFactory = GeometryFactory.readOffsetScaled3d(in);
+      final double minX = in.getDouble();
+      final double minY = in.getDouble();
+      final double maxX = in.getDouble();
+      final double maxY = in.getDouble();
+      this.boundingBox = this.geometryFactory.newBoundingBox(2, minX, minY, maxX, maxY);
+    }
+    this.scaleX = this.geometryFactory.getScaleX();
+    this.scaleY = this.geometryFactory.getScaleY();
+    this.scaleZ = this.geometryFactory.getScaleZ();
+
+    try (
+      FileChannel channel = FileChannel.open(this.path, Paths.OPEN_OPTIONS_READ_SET,
+        Paths.FILE_ATTRIBUTES_NONE)) {
+      final long dataSize = channel.size() - TRIANGLES_OFFSET;
+      if (dataSize < 0 || dataSize % TRIANGLE_BYTES != 0) {
+        throw new IllegalArgumentException(
+          "File size is not a whole number of triangles: " + resource);
+      }
+      final long triangleCount = dataSize / TRIANGLE_BYTES;
+      if (triangleCount > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Too many triangles " + triangleCount + ": " + resource);
+      }
+      this.triangleCount = (int)triangleCount;
+      final int bufferCount = (int)((triangleCount + TRIANGLES_PER_BUFFER - 1)
+        / TRIANGLES_PER_BUFFER);
+      this.buffers = new ByteBuffer[bufferCount];
+      for (int i = 0; i < bufferCount; i++) {
+        final long firstTriangle = (long)i * TRIANGLES_PER_BUFFER;
+        final long bufferTriangleCount = Math.min(TRIANGLES_PER_BUFFER,
+          triangleCount - firstTriangle);
+        this.buffers[i] = channel
+          .map(MapMode.READ_ONLY, TRIANGLES_OFFSET + firstTriangle * TRIANGLE_BYTES,
+            bufferTriangleCount * TRIANGLE_BYTES)
+          .order(ByteOrder.BIG_ENDIAN);
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to map: " + resource, e);
+    }
+  }
+
+  private HprTreeFile buildSpatialIndex(final Path indexPath, final long sourceSize,
+    final long sourceTime) {
+    HprTreeFile.write(indexPath, this.triangleCount, (triangleIndex, bounds) -> {
+      double minX = Double.POSITIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+      for (int vertexIndex = 0; vertexIndex < 3; vertexIndex++) {
+        final double x = getTriangleVertexCoordinate(triangleIndex, vertexIndex, 0);
+        final double y = getTriangleVertexCoordinate(triangleIndex, vertexIndex, 1);
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+          return false;
+        }
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+      }
+      bounds[0] = minX;
+      bounds[1] = minY;
+      bounds[2] = maxX;
+      bounds[3] = maxY;
+      return true;
+    }, HprTreeFile.DEFAULT_NODE_SIZE, sourceSize, sourceTime);
+    return HprTreeFile.open(indexPath);
+  }
+
+  @Override
+  public synchronized void close() {
+    final HprTreeFile spatialIndex = this.spatialIndex;
+    this.spatialIndex = null;
+    if (spatialIndex != null) {
+      spatialIndex.close();
+    }
+  }
+
+  @Override
+  public void forEachTriangle(final BoundingBox boundingBox,
+    final Consumer<? super Triangle> action) {
+    final HprTreeFile spatialIndex = getSpatialIndex();
+    if (spatialIndex == null) {
+      TriangulatedIrregularNetwork.super.forEachTriangle(boundingBox, action);
+    } else {
+      final double minX = boundingBox.getMinX();
+      final double minY = boundingBox.getMinY();
+      final double maxX = boundingBox.getMaxX();
+      final double maxY = boundingBox.getMaxY();
+      for (final int triangleIndex : spatialIndex.query(minX, minY, maxX, maxY)) {
+        final Triangle triangle = newTriangle(triangleIndex);
+        if (triangle.intersectsBbox(boundingBox)) {
+          action.accept(triangle);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void forEachTriangle(final Consumer<? super Triangle> action) {
+    for (int triangleIndex = 0; triangleIndex < this.triangleCount; triangleIndex++) {
+      final Triangle triangle = newTriangle(triangleIndex);
+      action.accept(triangle);
+    }
+  }
+
+  @Override
+  public void forEachTriangle(final double x, final double y,
+    final Consumer<? super Triangle> action) {
+    final HprTreeFile spatialIndex = getSpatialIndex();
+    if (spatialIndex == null) {
+      TriangulatedIrregularNetwork.super.forEachTriangle(x, y, action);
+    } else {
+      for (final int triangleIndex : spatialIndex.query(x, y, x, y)) {
+        final Triangle triangle = newTriangle(triangleIndex);
+        if (triangle.intersects(x, y)) {
+          action.accept(triangle);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void forEachVertex(final Consumer<Point> action) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public BoundingBox getBoundingBox() {
+    return this.boundingBox;
+  }
+
+  /**
+   * Get the elevation from the first triangle containing the point, using the
+   * spatial index to find the candidate triangles.
+   */
+  @Override
+  public double getElevation(final double x, final double y) {
+    final HprTreeFile spatialIndex = getSpatialIndex();
+    if (spatialIndex == null) {
+      return TriangulatedIrregularNetwork.super.getElevation(x, y);
+    } else {
+      for (final int triangleIndex : spatialIndex.query(x, y, x, y)) {
+        final Triangle triangle = newTriangle(triangleIndex);
+        if (triangle.intersects(x, y)) {
+          return triangle.getElevation(x, y);
+        }
+      }
+      return Double.NaN;
+    }
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  @Override
+  public Resource getResource() {
+    return this.resource;
+  }
+
+  /**
+   * Get the spatial index, opening or building the .sitin.rtree file on first
+   * use.
+   *
+   * @return The spatial index or null if it couldn't be built.
+   */
+  public synchronized HprTreeFile getSpatialIndex() {
+    if (!this.spatialIndexInitialized) {
+      this.spatialIndexInitialized = true;
+      final Path indexPath = getSpatialIndexPath();
+      try {
+        final long sourceSize = Files.size(this.path);
+        final long sourceTime = Files.getLastModifiedTime(this.path).toMillis();
+        final HprTreeFile index = HprTreeFile.open(indexPath);
+        if (index != null) {
+          if (index.getSourceSize() == sourceSize && index.getSourceTime() == sourceTime) {
+            this.spatialIndex = index;
+            return index;
+          } else {
+            index.close();
+          }
+        }
+        this.spatialIndex = buildSpatialIndex(indexPath, sourceSize, sourceTime);
+      } catch (final Exception e) {
+        Logs.error(this, "Unable to build spatial index: " + indexPath, e);
+      }
+    }
+    return this.spatialIndex;
+  }
+
+  public Path getSpatialIndexPath() {
+    return this.path
+      .resolveSibling(this.path.getFileName() + "." + SPATIAL_INDEX_FILE_EXTENSION);
+  }
+
+  @Override
+  public int getTriangleCount() {
+    return this.triangleCount;
+  }
+
+  public double getTriangleVertexCoordinate(final int triangleIndex, final int vertexIndex,
+    final int axisIndex) {
+    if (triangleIndex < 0 || triangleIndex >= this.triangleCount) {
+      return Double.NaN;
+    }
+    final ByteBuffer buffer = this.buffers[triangleIndex / TRIANGLES_PER_BUFFER];
+    final int offset = triangleIndex % TRIANGLES_PER_BUFFER * TRIANGLE_BYTES
+      + (vertexIndex * 3 + axisIndex) * 4;
+    final int intValue = buffer.getInt(offset);
+    if (intValue == Integer.MIN_VALUE) {
+      return Double.NaN;
+    } else {
+      switch (axisIndex) {
+        case 0:
+          return intValue / this.scaleX;
+        case 1:
+          return intValue / this.scaleY;
+        default:
+          return intValue / this.scaleZ;
+      }
+    }
+  }
+
+  @Override
+  public int getVertexCount() {
+    return 0;
+  }
+
+  public Triangle newTriangle(final int triangleIndex) {
+    if (triangleIndex >= 0 && triangleIndex < this.triangleCount) {
+      return new MappedTriangle(triangleIndex);
+    } else {
+      return null;
+    }
+  }
+}
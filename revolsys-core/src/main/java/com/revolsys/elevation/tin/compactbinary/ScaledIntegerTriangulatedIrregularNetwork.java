@@ -30,6 +30,13 @@ public class ScaledIntegerTriangulatedIrregularNetwork extends AbstractIoFactory
 
   public static final byte[] FILE_TYPE_BYTES = FILE_TYPE.getBytes(StandardCharsets.UTF_8);
 
+  /**
+   * Property to read the triangles from a memory-mapped file using
+   * {@link MappedScaledIntegerTriangulatedIrregularNetwork} instead of loading
+   * them into memory.
+   */
+  public static final String PROPERTY_MAPPED = "mapped";
+
   public ScaledIntegerTriangulatedIrregularNetwork() {
     super("Scaled Integer Triangulated Irregular Network");
     addMediaTypeAndFileExtension(MEDIA_TYPE, FILE_EXTENSION);
@@ -53,6 +60,13 @@ public class ScaledIntegerTriangulatedIrregularNetwork extends AbstractIoFactory
   @Override
   public TriangulatedIrregularNetwork newTriangulatedIrregularNetwork(final Resource resource,
     final MapEx properties) {
+    if (properties != null && properties.getBoolean(PROPERTY_MAPPED, false)
+      && MappedScaledIntegerTriangulatedIrregularNetwork.isMappable(resource)) {
+      final MappedScaledIntegerTriangulatedIrregularNetwork tin = new MappedScaledIntegerTriangulatedIrregularNetwork(
+        resource);
+      tin.setProperties(properties);
+      return tin;
+    }
     try (
       ScaledIntegerTriangulatedIrregularNetworkReader reader = new ScaledIntegerTriangulatedIrregularNetworkReader(
         resource, properties)) {
@@ -0,0 +1,789 @@
+package com.revolsys.elevation.tin.quadedge.intscale;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+import com.revolsys.elevation.tin.IntArrayScaleTriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.TriangleConsumer;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+
+/**
+ * Create a Delaunay triangulation using the Guibas-Stolfi divide and conquer
+ * algorithm on the integer (scaled) coordinates of the vertices.
+ *
+ * <p>The vertices are sorted by x then y and split into halves. Halves larger
+ * than the {@link #setParallelThreshold(int)} are triangulated in parallel
+ * and the two triangulations are merged along the seam between them.</p>
+ *
+ * <p>The quad edges are stored in int arrays instead of objects. Each half
+ * only allocates edges from its own range of the arrays so the halves can be
+ * triangulated without locking. Duplicate x, y vertices are removed, keeping
+ * the first z value.</p>
+ */
+public class IntDivideAndConquerDelaunayTinBuilder {
+
+  /**
+   * The edges a half can allocate. Edges are allocated from the range and then
+   * reused from the list of deleted edges.
+   */
+  private class EdgeAllocator {
+    private int freeHead = -1;
+
+    private int freeTail = -1;
+
+    private int nextRecord;
+
+    private final int endRecord;
+
+    private EdgeAllocator(final int startRecord, final int endRecord) {
+      this.nextRecord = startRecord;
+      this.endRecord = endRecord;
+    }
+
+    private void add(final EdgeAllocator allocator) {
+      for (int record = allocator.nextRecord; record < allocator.endRecord; record++) {
+        free(record);
+      }
+      final int otherHead = allocator.freeHead;
+      if (otherHead != -1) {
+        if (this.freeHead == -1) {
+          this.freeHead = otherHead;
+        } else {
+          IntDivideAndConquerDelaunayTinBuilder.this.freeNext[this.freeTail] = otherHead;
+        }
+        this.freeTail = allocator.freeTail;
+      }
+    }
+
+    private int allocate() {
+      final int record = this.freeHead;
+      if (record != -1) {
+        this.freeHead = IntDivideAndConquerDelaunayTinBuilder.this.freeNext[record];
+        if (this.freeHead == -1) {
+          this.freeTail = -1;
+        }
+        return record;
+      } else if (this.nextRecord < this.endRecord) {
+        return this.nextRecord++;
+      } else {
+        throw new IllegalStateException("No free edges");
+      }
+    }
+
+    private void free(final int record) {
+      IntDivideAndConquerDelaunayTinBuilder.this.freeNext[record] = this.freeHead;
+      if (this.freeHead == -1) {
+        this.freeTail = record;
+      }
+      this.freeHead = record;
+    }
+  }
+
+  private class SortTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int start;
+
+    private final int end;
+
+    private final long[] keys;
+
+    private final int[] zs;
+
+    private final long[] tempKeys;
+
+    private final int[] tempZs;
+
+    private SortTask(final long[] keys, final int[] zs, final long[] tempKeys,
+      final int[] tempZs, final int start, final int end) {
+      this.keys = keys;
+      this.zs = zs;
+      this.tempKeys = tempKeys;
+      this.tempZs = tempZs;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      final int start = this.start;
+      final int end = this.end;
+      if (end - start <= SORT_INSERTION_SIZE) {
+        insertionSort(this.keys, this.zs, start, end);
+      } else {
+        final int middle = (start + end) >>> 1;
+        final SortTask left = new SortTask(this.keys, this.zs, this.tempKeys, this.tempZs, start,
+          middle);
+        final SortTask right = new SortTask(this.keys, this.zs, this.tempKeys, this.tempZs,
+          middle, end);
+        if (end - start > IntDivideAndConquerDelaunayTinBuilder.this.parallelThreshold) {
+          invokeAll(left, right);
+        } else {
+          left.compute();
+          right.compute();
+        }
+        merge(start, middle, end);
+      }
+    }
+
+    private void merge(final int start, final int middle, final int end) {
+      final long[] keys = this.keys;
+      final int[] zs = this.zs;
+      if (keys[middle - 1] > keys[middle]) {
+        final long[] tempKeys = this.tempKeys;
+        final int[] tempZs = this.tempZs;
+        System.arraycopy(keys, start, tempKeys, start, end - start);
+        System.arraycopy(zs, start, tempZs, start, end - start);
+        int leftIndex = start;
+        int rightIndex = middle;
+        for (int i = start; i < end; i++) {
+          if (rightIndex >= end
+            || leftIndex < middle && tempKeys[leftIndex] <= tempKeys[rightIndex]) {
+            keys[i] = tempKeys[leftIndex];
+            zs[i] = tempZs[leftIndex++];
+          } else {
+            keys[i] = tempKeys[rightIndex];
+            zs[i] = tempZs[rightIndex++];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Triangulate the vertices from start to end, returning the counter clockwise
+   * convex hull edge out of the left most vertex and the clockwise convex hull
+   * edge out of the right most vertex.
+   */
+  private class TriangulateTask extends RecursiveTask<long[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final int start;
+
+    private final int end;
+
+    private EdgeAllocator allocator;
+
+    private TriangulateTask(final int start, final int end) {
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected long[] compute() {
+      final int start = this.start;
+      final int end = this.end;
+      if (end - start <= IntDivideAndConquerDelaunayTinBuilder.this.parallelThreshold) {
+        this.allocator = new EdgeAllocator(start * 3, end * 3);
+        return triangulate(this.allocator, start, end);
+      } else {
+        final int middle = (start + end) >>> 1;
+        final TriangulateTask leftTask = new TriangulateTask(start, middle);
+        final TriangulateTask rightTask = new TriangulateTask(middle, end);
+        leftTask.fork();
+        final long[] right = rightTask.compute();
+        final long[] left = leftTask.join();
+        this.allocator = leftTask.allocator;
+        this.allocator.add(rightTask.allocator);
+        return mergeHulls(this.allocator, left, right);
+      }
+    }
+  }
+
+  private static final int SORT_INSERTION_SIZE = 32;
+
+  private static final int TRIANGLE_BLOCK_SIZE = 65536;
+
+  private static final double IN_CIRCLE_ERROR_BOUND = (10.0 + 96.0 * Math.ulp(0.5))
+    * Math.ulp(0.5);
+
+  private static void insertionSort(final long[] keys, final int[] zs, final int start,
+    final int end) {
+    for (int i = start + 1; i < end; i++) {
+      final long key = keys[i];
+      final int z = zs[i];
+      int j = i - 1;
+      while (j >= start && keys[j] > key) {
+        keys[j + 1] = keys[j];
+        zs[j + 1] = zs[j];
+        j--;
+      }
+      keys[j + 1] = key;
+      zs[j + 1] = z;
+    }
+  }
+
+  private static int rot(final int edge) {
+    return edge & ~3 | edge + 1 & 3;
+  }
+
+  private static int rotInv(final int edge) {
+    return edge & ~3 | edge + 3 & 3;
+  }
+
+  private static int sym(final int edge) {
+    return edge ^ 2;
+  }
+
+  private final int[] bounds = new int[] {
+    Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE
+  };
+
+  private final GeometryFactory geometryFactory;
+
+  private int[] xs = new int[0];
+
+  private int[] ys = new int[0];
+
+  private int[] zs = new int[0];
+
+  private int vertexCount;
+
+  private int parallelThreshold = 65536;
+
+  /** The next edge counter clockwise around the origin of each edge. */
+  private int[] onext;
+
+  /**
+   * The origin vertex index + 1 of the primal edges (edge / 2), 0 if the edge
+   * is not used.
+   */
+  private int[] origins;
+
+  private int[] freeNext;
+
+  private boolean built;
+
+  public IntDivideAndConquerDelaunayTinBuilder(final GeometryFactory geometryFactory) {
+    if (geometryFactory == null) {
+      throw new NullPointerException("A geometryFactory must be specified");
+    } else {
+      this.geometryFactory = geometryFactory.convertAxisCount(3);
+      if (this.geometryFactory.getScaleX() == 0) {
+        throw new IllegalArgumentException("scaleX must not be 0");
+      }
+      if (this.geometryFactory.getScaleY() == 0) {
+        throw new IllegalArgumentException("scaleY must not be 0");
+      }
+      if (this.geometryFactory.getScaleZ() == 0) {
+        throw new IllegalArgumentException("scaleZ must not be 0");
+      }
+    }
+  }
+
+  public synchronized void buildTin() {
+    if (!this.built) {
+      sortVertices();
+      final int vertexCount = this.vertexCount;
+      final int recordCount = vertexCount * 3;
+      this.onext = new int[recordCount * 4];
+      this.origins = new int[recordCount * 2];
+      this.freeNext = new int[recordCount];
+      if (vertexCount >= 2) {
+        final TriangulateTask task = new TriangulateTask(0, vertexCount);
+        if (vertexCount > this.parallelThreshold) {
+          ForkJoinPool.commonPool().invoke(task);
+        } else {
+          task.compute();
+        }
+      }
+      this.freeNext = null;
+      this.built = true;
+    }
+  }
+
+  /**
+   * Check if the vertices a, b, c are in counter clockwise order using exact
+   * 128 bit products.
+   */
+  private boolean ccw(final int a, final int b, final int c) {
+    final int[] xs = this.xs;
+    final int[] ys = this.ys;
+    final long ax = xs[a];
+    final long ay = ys[a];
+    final long dx1 = xs[b] - ax;
+    final long dy1 = ys[b] - ay;
+    final long dx2 = xs[c] - ax;
+    final long dy2 = ys[c] - ay;
+    final long high1 = Math.multiplyHigh(dx1, dy2);
+    final long high2 = Math.multiplyHigh(dy1, dx2);
+    if (high1 == high2) {
+      return Long.compareUnsigned(dx1 * dy2, dy1 * dx2) > 0;
+    } else {
+      return high1 > high2;
+    }
+  }
+
+  private int connect(final EdgeAllocator allocator, final int a, final int b) {
+    final int edge = newEdge(allocator, dest(a), org(b));
+    splice(edge, lnext(a));
+    splice(sym(edge), b);
+    return edge;
+  }
+
+  private void deleteEdge(final EdgeAllocator allocator, final int edge) {
+    splice(edge, oprev(edge));
+    final int symEdge = sym(edge);
+    splice(symEdge, oprev(symEdge));
+    this.origins[edge >> 1] = 0;
+    this.origins[symEdge >> 1] = 0;
+    allocator.free(edge >>> 2);
+  }
+
+  private int countTriangles(final int startRecord, final int endRecord) {
+    final int[] origins = this.origins;
+    int count = 0;
+    for (int record = startRecord; record < endRecord; record++) {
+      if (origins[record << 1] != 0) {
+        final int edge = record << 2;
+        if (getTriangleEdge(edge) != -1) {
+          count++;
+        }
+        if (getTriangleEdge(edge | 2) != -1) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private int dest(final int edge) {
+    return this.origins[(edge ^ 2) >> 1] - 1;
+  }
+
+  public void forEachTriangle(final TriangleConsumer action) {
+    final GeometryFactory geometryFactory = this.geometryFactory;
+    forEachTriangleInt((x1, y1, z1, x2, y2, z2, x3, y3, z3) -> {
+      action.accept(//
+        geometryFactory.toDoubleX(x1), geometryFactory.toDoubleY(y1),
+        geometryFactory.toDoubleZ(z1), //
+        geometryFactory.toDoubleX(x2), geometryFactory.toDoubleY(y2),
+        geometryFactory.toDoubleZ(z2), //
+        geometryFactory.toDoubleX(x3), geometryFactory.toDoubleY(y3),
+        geometryFactory.toDoubleZ(z3));
+    });
+  }
+
+  public void forEachTriangleInt(final TriangleConsumerInt action) {
+    buildTin();
+    forEachTriangleInt(0, this.vertexCount * 3, action);
+  }
+
+  private void forEachTriangleInt(final int startRecord, final int endRecord,
+    final TriangleConsumerInt action) {
+    final int[] origins = this.origins;
+    final int[] xs = this.xs;
+    final int[] ys = this.ys;
+    final int[] zs = this.zs;
+    for (int record = startRecord; record < endRecord; record++) {
+      if (origins[record << 1] != 0) {
+        for (int edge = record << 2; edge <= (record << 2 | 2); edge += 2) {
+          final int edge3 = getTriangleEdge(edge);
+          if (edge3 != -1) {
+            final int vertex1 = org(edge);
+            final int vertex2 = dest(edge);
+            final int vertex3 = org(edge3);
+            action.accept(xs[vertex1], ys[vertex1], zs[vertex1], xs[vertex2], ys[vertex2],
+              zs[vertex2], xs[vertex3], ys[vertex3], zs[vertex3]);
+          }
+        }
+      }
+    }
+  }
+
+  public BoundingBox getBoundingBox() {
+    final double minX = this.geometryFactory.toDoubleX(this.bounds[0]);
+    final double minY = this.geometryFactory.toDoubleY(this.bounds[1]);
+    final double maxX = this.geometryFactory.toDoubleX(this.bounds[2]);
+    final double maxY = this.geometryFactory.toDoubleY(this.bounds[3]);
+    return this.geometryFactory.newBoundingBox(2, minX, minY, maxX, maxY);
+  }
+
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  public int getParallelThreshold() {
+    return this.parallelThreshold;
+  }
+
+  /**
+   * Get the third edge of the triangle to the left of the edge if the edge is
+   * the lowest numbered edge of a counter clockwise triangle, -1 otherwise.
+   */
+  private int getTriangleEdge(final int edge) {
+    final int edge2 = lnext(edge);
+    if (edge2 > edge) {
+      final int edge3 = lnext(edge2);
+      if (edge3 > edge && lnext(edge3) == edge) {
+        if (ccw(org(edge), org(edge2), org(edge3))) {
+          return edge3;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get the number of vertices, after the tin is built this excludes the
+   * duplicate vertices.
+   */
+  public int getVertexCount() {
+    return this.vertexCount;
+  }
+
+  /**
+   * Check if vertex d is inside the circle through the counter clockwise
+   * vertices a, b, c. The double determinant is used unless it is within the
+   * error bound where the exact determinant is calculated.
+   */
+  private boolean inCircle(final int a, final int b, final int c, final int d) {
+    final int[] xs = this.xs;
+    final int[] ys = this.ys;
+    final double dx = xs[d];
+    final double dy = ys[d];
+    final double adx = xs[a] - dx;
+    final double ady = ys[a] - dy;
+    final double bdx = xs[b] - dx;
+    final double bdy = ys[b] - dy;
+    final double cdx = xs[c] - dx;
+    final double cdy = ys[c] - dy;
+
+    final double bdxcdy = bdx * cdy;
+    final double cdxbdy = cdx * bdy;
+    final double alift = adx * adx + ady * ady;
+
+    final double cdxady = cdx * ady;
+    final double adxcdy = adx * cdy;
+    final double blift = bdx * bdx + bdy * bdy;
+
+    final double adxbdy = adx * bdy;
+    final double bdxady = bdx * ady;
+    final double clift = cdx * cdx + cdy * cdy;
+
+    final double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy)
+      + clift * (adxbdy - bdxady);
+    final double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+      + (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+      + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+    final double errorBound = IN_CIRCLE_ERROR_BOUND * permanent;
+    if (det > errorBound) {
+      return true;
+    } else if (-det > errorBound) {
+      return false;
+    } else {
+      return inCircleExact(a, b, c, d);
+    }
+  }
+
+  private boolean inCircleExact(final int a, final int b, final int c, final int d) {
+    final int[] xs = this.xs;
+    final int[] ys = this.ys;
+    final long dx = xs[d];
+    final long dy = ys[d];
+    final BigInteger adx = BigInteger.valueOf(xs[a] - dx);
+    final BigInteger ady = BigInteger.valueOf(ys[a] - dy);
+    final BigInteger bdx = BigInteger.valueOf(xs[b] - dx);
+    final BigInteger bdy = BigInteger.valueOf(ys[b] - dy);
+    final BigInteger cdx = BigInteger.valueOf(xs[c] - dx);
+    final BigInteger cdy = BigInteger.valueOf(ys[c] - dy);
+    final BigInteger alift = adx.multiply(adx).add(ady.multiply(ady));
+    final BigInteger blift = bdx.multiply(bdx).add(bdy.multiply(bdy));
+    final BigInteger clift = cdx.multiply(cdx).add(cdy.multiply(cdy));
+    final BigInteger det = alift.multiply(bdx.multiply(cdy).subtract(cdx.multiply(bdy)))
+      .add(blift.multiply(cdx.multiply(ady).subtract(adx.multiply(cdy))))
+      .add(clift.multiply(adx.multiply(bdy).subtract(bdx.multiply(ady))));
+    return det.signum() > 0;
+  }
+
+  public void insertVertex(final int x, final int y, final int z) {
+    if (this.built) {
+      throw new IllegalStateException("Cannot insert vertices after the tin is built");
+    }
+    if (x < this.bounds[0]) {
+      this.bounds[0] = x;
+    }
+    if (x > this.bounds[2]) {
+      this.bounds[2] = x;
+    }
+    if (y < this.bounds[1]) {
+      this.bounds[1] = y;
+    }
+    if (y > this.bounds[3]) {
+      this.bounds[3] = y;
+    }
+    final int index = this.vertexCount;
+    if (index == this.xs.length) {
+      final int newLength = Math.max(1024, index + (index >> 1));
+      this.xs = Arrays.copyOf(this.xs, newLength);
+      this.ys = Arrays.copyOf(this.ys, newLength);
+      this.zs = Arrays.copyOf(this.zs, newLength);
+    }
+    this.xs[index] = x;
+    this.ys[index] = y;
+    this.zs[index] = z;
+    this.vertexCount++;
+  }
+
+  public void insertVertex(final Point point) {
+    final Point convertedPoint = point.convertPoint2d(this.geometryFactory);
+    final double x = convertedPoint.getX();
+    final double y = convertedPoint.getY();
+    final double z = point.getZ();
+    final int xInt = this.geometryFactory.toIntX(x);
+    final int yInt = this.geometryFactory.toIntY(y);
+    final int zInt = this.geometryFactory.toIntZ(z);
+    insertVertex(xInt, yInt, zInt);
+  }
+
+  private boolean leftOf(final int vertex, final int edge) {
+    return ccw(vertex, org(edge), dest(edge));
+  }
+
+  private int lnext(final int edge) {
+    return rot(this.onext[rotInv(edge)]);
+  }
+
+  /**
+   * Merge the triangulations of the left and right halves, walking up the seam
+   * from the lower common tangent to the upper common tangent.
+   */
+  private long[] mergeHulls(final EdgeAllocator allocator, final long[] left,
+    final long[] right) {
+    int ldo = (int)left[0];
+    int ldi = (int)left[1];
+    int rdi = (int)right[0];
+    int rdo = (int)right[1];
+    while (true) {
+      if (leftOf(org(rdi), ldi)) {
+        ldi = lnext(ldi);
+      } else if (rightOf(org(ldi), rdi)) {
+        rdi = rprev(rdi);
+      } else {
+        break;
+      }
+    }
+    int basel = connect(allocator, sym(rdi), ldi);
+    if (org(ldi) == org(ldo)) {
+      ldo = sym(basel);
+    }
+    if (org(rdi) == org(rdo)) {
+      rdo = basel;
+    }
+    while (true) {
+      int lcand = this.onext[sym(basel)];
+      final boolean leftValid = valid(lcand, basel);
+      if (leftValid) {
+        while (inCircle(dest(basel), org(basel), dest(lcand),
+          dest(this.onext[lcand]))) {
+          final int next = this.onext[lcand];
+          deleteEdge(allocator, lcand);
+          lcand = next;
+        }
+      }
+      int rcand = oprev(basel);
+      final boolean rightValid = valid(rcand, basel);
+      if (rightValid) {
+        while (inCircle(dest(basel), org(basel), dest(rcand),
+          dest(oprev(rcand)))) {
+          final int previous = oprev(rcand);
+          deleteEdge(allocator, rcand);
+          rcand = previous;
+        }
+      }
+      if (!leftValid && !rightValid) {
+        break;
+      } else if (!leftValid || rightValid && inCircle(dest(lcand),
+        org(lcand), org(rcand), dest(rcand))) {
+        basel = connect(allocator, rcand, sym(basel));
+      } else {
+        basel = connect(allocator, sym(basel), sym(lcand));
+      }
+    }
+    return new long[] {
+      ldo, rdo
+    };
+  }
+
+  private int newEdge(final EdgeAllocator allocator, final int origin, final int dest) {
+    final int record = allocator.allocate();
+    final int edge = record << 2;
+    final int[] onext = this.onext;
+    onext[edge] = edge;
+    onext[edge + 1] = edge + 3;
+    onext[edge + 2] = edge + 2;
+    onext[edge + 3] = edge + 1;
+    this.origins[edge >> 1] = origin + 1;
+    this.origins[edge + 2 >> 1] = dest + 1;
+    return edge;
+  }
+
+  public IntArrayScaleTriangulatedIrregularNetwork newTriangulatedIrregularNetwork() {
+    buildTin();
+    final BoundingBox boundingBox = getBoundingBox();
+    final int recordCount = this.vertexCount * 3;
+    final int blockSize = TRIANGLE_BLOCK_SIZE;
+    final int blockCount = (recordCount + blockSize - 1) / blockSize;
+    final int[] blockOffsets = new int[blockCount + 1];
+    IntStream.range(0, blockCount).parallel().forEach(block -> {
+      final int startRecord = block * blockSize;
+      final int endRecord = Math.min(recordCount, startRecord + blockSize);
+      blockOffsets[block + 1] = countTriangles(startRecord, endRecord);
+    });
+    for (int block = 0; block < blockCount; block++) {
+      blockOffsets[block + 1] += blockOffsets[block];
+    }
+    final int triangleCount = blockOffsets[blockCount];
+    final int[] triangleXCoordinates = new int[triangleCount * 3];
+    final int[] triangleYCoordinates = new int[triangleCount * 3];
+    final int[] triangleZCoordinates = new int[triangleCount * 3];
+    IntStream.range(0, blockCount).parallel().forEach(block -> {
+      final int startRecord = block * blockSize;
+      final int endRecord = Math.min(recordCount, startRecord + blockSize);
+      forEachTriangleInt(startRecord, endRecord, new TriangleConsumerInt() {
+        private int coordinateIndex = blockOffsets[block] * 3;
+
+        @Override
+        public void accept(final int x1, final int y1, final int z1, final int x2,
+          final int y2, final int z2, final int x3, final int y3, final int z3) {
+          triangleXCoordinates[this.coordinateIndex] = x1;
+          triangleYCoordinates[this.coordinateIndex] = y1;
+          triangleZCoordinates[this.coordinateIndex++] = z1;
+          triangleXCoordinates[this.coordinateIndex] = x2;
+          triangleYCoordinates[this.coordinateIndex] = y2;
+          triangleZCoordinates[this.coordinateIndex++] = z2;
+          triangleXCoordinates[this.coordinateIndex] = x3;
+          triangleYCoordinates[this.coordinateIndex] = y3;
+          triangleZCoordinates[this.coordinateIndex++] = z3;
+        }
+      });
+    });
+    return new IntArrayScaleTriangulatedIrregularNetwork(this.geometryFactory, boundingBox,
+      triangleCount, triangleXCoordinates, triangleYCoordinates, triangleZCoordinates);
+  }
+
+  private int oprev(final int edge) {
+    return rot(this.onext[rot(edge)]);
+  }
+
+  private int org(final int edge) {
+    return this.origins[edge >> 1] - 1;
+  }
+
+  private boolean rightOf(final int vertex, final int edge) {
+    return ccw(vertex, dest(edge), org(edge));
+  }
+
+  private int rprev(final int edge) {
+    return this.onext[sym(edge)];
+  }
+
+  /**
+   * Set the minimum number of vertices before the halves are triangulated in
+   * parallel.
+   */
+  public IntDivideAndConquerDelaunayTinBuilder setParallelThreshold(final int parallelThreshold) {
+    this.parallelThreshold = Math.max(3, parallelThreshold);
+    return this;
+  }
+
+  /**
+   * Sort the vertices by x then y and remove the duplicate x, y vertices.
+   */
+  private void sortVertices() {
+    final int vertexCount = this.vertexCount;
+    final long[] keys = new long[vertexCount];
+    final int[] xs = this.xs;
+    final int[] ys = this.ys;
+    for (int i = 0; i < vertexCount; i++) {
+      keys[i] = (long)xs[i] << 32 | ys[i] - (long)Integer.MIN_VALUE;
+    }
+    final int[] zs = Arrays.copyOf(this.zs, vertexCount);
+    final SortTask sortTask = new SortTask(keys, zs, new long[vertexCount],
+      new int[vertexCount], 0, vertexCount);
+    if (vertexCount > this.parallelThreshold) {
+      ForkJoinPool.commonPool().invoke(sortTask);
+    } else {
+      sortTask.compute();
+    }
+    int count = 0;
+    for (int i = 0; i < vertexCount; i++) {
+      final long key = keys[i];
+      if (count == 0 || keys[count - 1] != key) {
+        keys[count] = key;
+        zs[count++] = zs[i];
+      }
+    }
+    this.xs = new int[count];
+    this.ys = new int[count];
+    this.zs = Arrays.copyOf(zs, count);
+    for (int i = 0; i < count; i++) {
+      final long key = keys[i];
+      this.xs[i] = (int)(key >> 32);
+      this.ys[i] = (int)((key & 0xffffffffL) + Integer.MIN_VALUE);
+    }
+    this.vertexCount = count;
+  }
+
+  private void splice(final int a, final int b) {
+    final int[] onext = this.onext;
+    final int alpha = rot(onext[a]);
+    final int beta = rot(onext[b]);
+    final int aNext = onext[a];
+    onext[a] = onext[b];
+    onext[b] = aNext;
+    final int alphaNext = onext[alpha];
+    onext[alpha] = onext[beta];
+    onext[beta] = alphaNext;
+  }
+
+  /**
+   * Triangulate the vertices from start to end in this thread.
+   */
+  private long[] triangulate(final EdgeAllocator allocator, final int start, final int end) {
+    final int count = end - start;
+    if (count == 2) {
+      final int a = newEdge(allocator, start, start + 1);
+      return new long[] {
+        a, sym(a)
+      };
+    } else if (count == 3) {
+      final int v1 = start;
+      final int v2 = start + 1;
+      final int v3 = start + 2;
+      final int a = newEdge(allocator, v1, v2);
+      final int b = newEdge(allocator, v2, v3);
+      splice(sym(a), b);
+      if (ccw(v1, v2, v3)) {
+        connect(allocator, b, a);
+        return new long[] {
+          a, sym(b)
+        };
+      } else if (ccw(v1, v3, v2)) {
+        final int c = connect(allocator, b, a);
+        return new long[] {
+          sym(c), c
+        };
+      } else {
+        return new long[] {
+          a, sym(b)
+        };
+      }
+    } else {
+      final int middle = (start + end) >>> 1;
+      final long[] left = triangulate(allocator, start, middle);
+      final long[] right = triangulate(allocator, middle, end);
+      return mergeHulls(allocator, left, right);
+    }
+  }
+
+  private boolean valid(final int edge, final int basel) {
+    return ccw(dest(edge), dest(basel), org(basel));
+  }
+}
@@ -1,7 +1,9 @@
 package com.revolsys.geometry.geoid;
 
+import com.revolsys.collection.map.LinkedHashMapEx;
 import com.revolsys.collection.map.MapEx;
 import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.compactbinary.ScaledIntegerTriangulatedIrregularNetwork;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.properties.BaseObjectWithProperties;
 import com.revolsys.spring.resource.Resource;
@@ -29,8 +31,12 @@ public class TriangulatedIrregularNetworkGeoidModelReader extends BaseObjectWith
 
   @Override
   public GeoidModel read() {
+    final MapEx properties = new LinkedHashMapEx(getProperties());
+    if (!properties.containsKey(ScaledIntegerTriangulatedIrregularNetwork.PROPERTY_MAPPED)) {
+      properties.put(ScaledIntegerTriangulatedIrregularNetwork.PROPERTY_MAPPED, true);
+    }
     final TriangulatedIrregularNetwork tin = TriangulatedIrregularNetwork
-      .newTriangulatedIrregularNetwork(this.resource, getProperties());
+      .newTriangulatedIrregularNetwork(this.resource, properties);
     if (tin == null) {
       return null;
     } else {
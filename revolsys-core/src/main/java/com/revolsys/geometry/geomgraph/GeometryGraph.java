@@ -383,6 +383,6 @@ public class GeometryGraph extends PlanarGraph {
   }
 
   private EdgeSetIntersector newEdgeSetIntersector() {
-    return new SimpleMCSweepLineIntersector();
+    return SimpleMCSweepLineIntersector.getThreadIntersector();
   }
 }
@@ -44,17 +44,71 @@ import com.revolsys.geometry.geomgraph.Edge;
  * drastically improves the average-case time.
  * The use of MonotoneChains as the items in the index
  * seems to offer an improvement in performance over a sweep-line alone.
+ * <p>
+ * The chains and sweep line events are stored in primitive arrays instead of
+ * objects. Use {@link #getThreadIntersector()} to reuse the arrays of an
+ * intersector for each call on the same thread.
  *
  * @version 1.7
  */
 public class SimpleMCSweepLineIntersector extends EdgeSetIntersector {
-  private final SweepLineEvent[] EMPTY = new SweepLineEvent[0];
+  private static final int[] EMPTY_INT = new int[0];
 
-  private SweepLineEvent[] events = this.EMPTY;
+  private static final double[] EMPTY_DOUBLE = new double[0];
+
+  private static final MonotoneChainEdge[] EMPTY_EDGES = new MonotoneChainEdge[0];
+
+  private static final Object[] EMPTY_LABELS = new Object[0];
+
+  /**
+   * The maximum number of chains for the arrays to be kept for the next call.
+   */
+  private static final int MAX_RETAINED_CHAIN_COUNT = 65536;
+
+  private static final ThreadLocal<SimpleMCSweepLineIntersector> THREAD_INTERSECTOR = ThreadLocal
+    .withInitial(SimpleMCSweepLineIntersector::new);
+
+  /**
+   * Get the intersector for the current thread. The arrays are reused for each
+   * call on the thread. If the thread's intersector is in use a new intersector
+   * is returned.
+   *
+   * @return The intersector.
+   */
+  public static SimpleMCSweepLineIntersector getThreadIntersector() {
+    final SimpleMCSweepLineIntersector intersector = THREAD_INTERSECTOR.get();
+    if (intersector.inUse) {
+      return new SimpleMCSweepLineIntersector();
+    } else {
+      return intersector;
+    }
+  }
+
+  private int chainCount = 0;
+
+  private int[] chainDeleteEventIndexes = EMPTY_INT;
+
+  private MonotoneChainEdge[] chainEdges = EMPTY_EDGES;
+
+  private int[] chainIndexes = EMPTY_INT;
+
+  private Object[] chainLabels = EMPTY_LABELS;
+
+  private double[] chainMaxX = EMPTY_DOUBLE;
+
+  private double[] chainMinX = EMPTY_DOUBLE;
 
   private int eventCount = 0;
 
-  private boolean changed = true;
+  /**
+   * The events are chainNum << 1 for an insert event and chainNum << 1 | 1 for
+   * a delete event.
+   */
+  private int[] events = EMPTY_INT;
+
+  private int[] eventSortBuffer = EMPTY_INT;
+
+  private boolean inUse = false;
 
   /**
    * A SimpleMCSweepLineIntersector creates monotone chains from the edges
@@ -64,25 +118,15 @@ public class SimpleMCSweepLineIntersector extends EdgeSetIntersector {
   }
 
   private void add(final Edge edge, final Object edgeSet) {
-    SweepLineEvent[] events = this.events;
     final MonotoneChainEdge chainEdge = edge.getMonotoneChainEdge();
     final int[] startIndexes = chainEdge.startIndexes;
     final int count = startIndexes.length - 1;
-    final int requiredLength = this.eventCount + 2 * count;
-    if (requiredLength >= events.length) {
-      int newLength = events.length + (events.length >> 1);
-      if (newLength < requiredLength) {
-        newLength = requiredLength;
-      }
-      if (newLength < 16) {
-        newLength = 16;
-      }
-      events = new SweepLineEvent[newLength];
-      System.arraycopy(this.events, 0, events, 0, this.eventCount);
-      this.events = events;
-    }
+    ensureCapacity(this.chainCount + count);
     for (int i = 0; i < count; i++) {
-      final MonotoneChain chain = new MonotoneChain(chainEdge, i);
+      final int chainNum = this.chainCount++;
+      this.chainEdges[chainNum] = chainEdge;
+      this.chainIndexes[chainNum] = i;
+      this.chainLabels[chainNum] = edgeSet;
 
       double minX = edge.getX(startIndexes[i]);
       double maxX = edge.getX(startIndexes[i + 1]);
@@ -91,12 +135,11 @@ public class SimpleMCSweepLineIntersector extends EdgeSetIntersector {
         minX = maxX;
         maxX = t;
       }
-      final SweepLineInsertEvent minEvent = new SweepLineInsertEvent(edgeSet, minX, chain);
-      final SweepLineEvent maxEvent = new SweepLineDeleteEvent(maxX, minEvent);
-      events[this.eventCount++] = minEvent;
-      events[this.eventCount++] = maxEvent;
+      this.chainMinX[chainNum] = minX;
+      this.chainMaxX[chainNum] = maxX;
+      this.events[this.eventCount++] = chainNum << 1;
+      this.events[this.eventCount++] = chainNum << 1 | 1;
     }
-    this.changed = true;
   }
 
   private void add(final List<Edge> edges) {
@@ -112,85 +155,192 @@ public class SimpleMCSweepLineIntersector extends EdgeSetIntersector {
     }
   }
 
+  /**
+   * Clear the chains so the edges can be garbage collected. The arrays are
+   * released if they are larger than {@link #MAX_RETAINED_CHAIN_COUNT}.
+   */
+  private void clear() {
+    if (this.chainEdges.length > MAX_RETAINED_CHAIN_COUNT) {
+      this.chainDeleteEventIndexes = EMPTY_INT;
+      this.chainEdges = EMPTY_EDGES;
+      this.chainIndexes = EMPTY_INT;
+      this.chainLabels = EMPTY_LABELS;
+      this.chainMaxX = EMPTY_DOUBLE;
+      this.chainMinX = EMPTY_DOUBLE;
+      this.events = EMPTY_INT;
+      this.eventSortBuffer = EMPTY_INT;
+    } else {
+      Arrays.fill(this.chainEdges, 0, this.chainCount, null);
+      Arrays.fill(this.chainLabels, 0, this.chainCount, null);
+    }
+    this.chainCount = 0;
+    this.eventCount = 0;
+  }
+
+  /**
+   * Events are ordered first by their x-value, and then by their eventType.
+   * Insert events are sorted before Delete events, so that
+   * items whose Insert and Delete events occur at the same x-value will be
+   * correctly handled. Events with the same x-value and type are in the order
+   * they were added.
+   */
+  private int compareEvents(final int event1, final int event2) {
+    final int chainNum1 = event1 >> 1;
+    final int chainNum2 = event2 >> 1;
+    final boolean delete1 = (event1 & 1) == 1;
+    final boolean delete2 = (event2 & 1) == 1;
+    final double x1 = delete1 ? this.chainMaxX[chainNum1] : this.chainMinX[chainNum1];
+    final double x2 = delete2 ? this.chainMaxX[chainNum2] : this.chainMinX[chainNum2];
+    final int compare = Double.compare(x1, x2);
+    if (compare != 0) {
+      return compare;
+    } else if (delete1 != delete2) {
+      return delete1 ? 1 : -1;
+    } else {
+      return Integer.compare(chainNum1, chainNum2);
+    }
+  }
+
   @Override
   public void computeIntersections(final List<Edge> edges0, final List<Edge> edges1,
     final SegmentIntersector si) {
-    add(edges0, edges0);
-    add(edges1, edges1);
-    computeIntersections(si);
+    this.inUse = true;
+    try {
+      add(edges0, edges0);
+      add(edges1, edges1);
+      computeIntersections(si);
+    } finally {
+      clear();
+      this.inUse = false;
+    }
   }
 
   @Override
   public void computeIntersections(final List<Edge> edges, final SegmentIntersector si,
     final boolean testAllSegments) {
-    if (testAllSegments) {
-      add(edges, null);
-    } else {
-      add(edges);
+    this.inUse = true;
+    try {
+      if (testAllSegments) {
+        add(edges, null);
+      } else {
+        add(edges);
+      }
+      computeIntersections(si);
+    } finally {
+      clear();
+      this.inUse = false;
     }
-    computeIntersections(si);
   }
 
   private void computeIntersections(final SegmentIntersector si) {
     prepareEvents();
-    final SweepLineEvent[] events = this.events;
+    final int[] events = this.events;
     final int eventCount = this.eventCount;
     for (int i = 0; i < eventCount; i++) {
-      final SweepLineEvent event = events[i];
-      if (event.isInsert()) {
-        final SweepLineInsertEvent insert = (SweepLineInsertEvent)event;
-        final int deleteEventIndex = insert.getDeleteEventIndex();
-        processOverlaps(i, deleteEventIndex, insert, si);
+      final int event = events[i];
+      if ((event & 1) == 0) {
+        final int chainNum = event >> 1;
+        final int deleteEventIndex = this.chainDeleteEventIndexes[chainNum];
+        processOverlaps(i, deleteEventIndex, chainNum, si);
       }
     }
   }
 
+  private void ensureCapacity(final int chainCount) {
+    if (chainCount > this.chainEdges.length) {
+      int newLength = this.chainEdges.length + (this.chainEdges.length >> 1);
+      if (newLength < chainCount) {
+        newLength = chainCount;
+      }
+      if (newLength < 16) {
+        newLength = 16;
+      }
+      this.chainDeleteEventIndexes = new int[newLength];
+      this.chainEdges = Arrays.copyOf(this.chainEdges, newLength);
+      this.chainIndexes = Arrays.copyOf(this.chainIndexes, newLength);
+      this.chainLabels = Arrays.copyOf(this.chainLabels, newLength);
+      this.chainMaxX = Arrays.copyOf(this.chainMaxX, newLength);
+      this.chainMinX = Arrays.copyOf(this.chainMinX, newLength);
+      this.events = Arrays.copyOf(this.events, newLength * 2);
+      this.eventSortBuffer = new int[newLength * 2];
+    }
+  }
+
   /**
    * Because Delete Events have a link to their corresponding Insert event,
    * it is possible to compute exactly the range of events which must be
    * compared to a given Insert event object.
    */
   private void prepareEvents() {
-    if (this.changed) {
-      this.changed = false;
-      final SweepLineEvent[] events = this.events;
-      final int eventCount = this.eventCount;
-      Arrays.sort(events, 0, eventCount);
-      // set DELETE event indexes
-      for (int i = 0; i < eventCount; i++) {
-        final SweepLineEvent event = events[i];
-        if (event.isDelete()) {
-          final SweepLineDeleteEvent delete = (SweepLineDeleteEvent)event;
-          final SweepLineInsertEvent insertEvent = delete.getInsertEvent();
-          insertEvent.setDeleteEventIndex(i);
-        }
+    final int[] events = this.events;
+    final int eventCount = this.eventCount;
+    sortEvents(events, this.eventSortBuffer, 0, eventCount);
+    // set DELETE event indexes
+    for (int i = 0; i < eventCount; i++) {
+      final int event = events[i];
+      if ((event & 1) == 1) {
+        this.chainDeleteEventIndexes[event >> 1] = i;
       }
     }
   }
 
-  private void processOverlaps(final int start, final int end, final SweepLineInsertEvent insert1,
+  private void processOverlaps(final int start, final int end, final int chainNum1,
     final SegmentIntersector intersector) {
-    final MonotoneChain chain1 = insert1.object;
-    final int chain1Index = chain1.chainIndex;
-    final MonotoneChainEdge chain1Edge = chain1.edge;
-    final SweepLineEvent[] events = this.events;
+    final MonotoneChainEdge chain1Edge = this.chainEdges[chainNum1];
+    final int chain1Index = this.chainIndexes[chainNum1];
+    final Object label1 = this.chainLabels[chainNum1];
+    final int[] events = this.events;
     /*
      * Since we might need to test for self-intersections, include current
      * INSERT event object in list of event objects to test. Last index can be
      * skipped, because it must be a Delete event.
      */
     for (int i = start; i < end; i++) {
-      final SweepLineEvent event = events[i];
-      if (event.isInsert()) {
-        final SweepLineInsertEvent insert = (SweepLineInsertEvent)event;
-        final MonotoneChain chain2 = insert.object;
+      final int event = events[i];
+      if ((event & 1) == 0) {
+        final int chainNum2 = event >> 1;
         // don't compare edges in same group, if labels are present
-        if (!insert1.isSameLabel(insert)) {
-          final MonotoneChainEdge chain2Edge = chain2.edge;
-          final int chain2Index = chain2.chainIndex;
+        if (label1 == null || label1 != this.chainLabels[chainNum2]) {
+          final MonotoneChainEdge chain2Edge = this.chainEdges[chainNum2];
+          final int chain2Index = this.chainIndexes[chainNum2];
           chain1Edge.computeIntersectsForChain(chain1Index, chain2Edge, chain2Index, intersector);
         }
       }
     }
   }
+
+  /**
+   * Merge sort the events in the range [fromIndex, toIndex) using the buffer.
+   */
+  private void sortEvents(final int[] events, final int[] buffer, final int fromIndex,
+    final int toIndex) {
+    final int length = toIndex - fromIndex;
+    if (length < 16) {
+      for (int i = fromIndex + 1; i < toIndex; i++) {
+        final int event = events[i];
+        int j = i - 1;
+        while (j >= fromIndex && compareEvents(events[j], event) > 0) {
+          events[j + 1] = events[j];
+          j--;
+        }
+        events[j + 1] = event;
+      }
+    } else {
+      final int middleIndex = (fromIndex + toIndex) >>> 1;
+      sortEvents(events, buffer, fromIndex, middleIndex);
+      sortEvents(events, buffer, middleIndex, toIndex);
+      if (compareEvents(events[middleIndex - 1], events[middleIndex]) > 0) {
+        System.arraycopy(events, fromIndex, buffer, fromIndex, length);
+        int i = fromIndex;
+        int j = middleIndex;
+        for (int k = fromIndex; k < toIndex; k++) {
+          if (j >= toIndex || i < middleIndex && compareEvents(buffer[i], buffer[j]) <= 0) {
+            events[k] = buffer[i++];
+          } else {
+            events[k] = buffer[j++];
+          }
+        }
+      }
+    }
+  }
 }
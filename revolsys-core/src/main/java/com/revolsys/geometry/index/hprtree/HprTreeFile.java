@@ -0,0 +1,416 @@
+package com.revolsys.geometry.index.hprtree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.channels.MappedFileWindow;
+
+/**
+ * A read-only packed R-tree of item bounding boxes stored in a file and
+ * accessed using a memory-mapped buffer. The items are sorted by the Hilbert
+ * curve value of the centre of their bounding box so that nearby items are in
+ * the same nodes. The tree is stored as an array of nodes with the root first
+ * and the leaves last. Each node is the bounding box (minX, minY, maxX, maxY)
+ * followed by the index of the first child node, or for leaves the item index.
+ *
+ * <pre>
+ * magic        8 bytes "RSHPRTRE"
+ * version      int
+ * nodeSize     int
+ * itemCount    int
+ * reserved     int
+ * sourceSize   long
+ * sourceTime   long
+ * nodes        (4 doubles + long) * nodeCount
+ * </pre>
+ *
+ * The source size and time record the size and last modified time of the file
+ * the index was built from so that stale indexes can be detected.
+ */
+public class HprTreeFile implements BaseCloseable {
+
+  /**
+   * Get the bounding box of the item with the index.
+   */
+  public interface ItemBounds {
+    /**
+     * Get the bounding box of the item.
+     *
+     * @param index The item index.
+     * @param bounds The array to set minX, minY, maxX, maxY in.
+     * @return False if the item has no bounding box and is not indexed.
+     */
+    boolean getBounds(int index, double[] bounds);
+  }
+
+  public static final int DEFAULT_NODE_SIZE = 16;
+
+  private static final int HEADER_SIZE = 40;
+
+  private static final int HILBERT_MAX = (1 << 16) - 1;
+
+  private static final byte[] MAGIC = "RSHPRTRE".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int NODE_BYTES = 40;
+
+  private static final int VERSION = 1;
+
+  /**
+   * Get the position on the Hilbert curve of the grid cell x,y.
+   *
+   * @param x The x grid cell 0..65535.
+   * @param y The y grid cell 0..65535.
+   * @return The Hilbert value.
+   */
+  private static long hilbert(int x, int y) {
+    final int n = 1 << 16;
+    long d = 0;
+    for (int s = n / 2; s > 0; s /= 2) {
+      final int rx = (x & s) > 0 ? 1 : 0;
+      final int ry = (y & s) > 0 ? 1 : 0;
+      d += (long)s * s * (3 * rx ^ ry);
+      if (ry == 0) {
+        if (rx == 1) {
+          x = n - 1 - x;
+          y = n - 1 - y;
+        }
+        final int t = x;
+        x = y;
+        y = t;
+      }
+    }
+    return d;
+  }
+
+  /**
+   * Get the start and end node index of each level of the tree, with the root
+   * level first.
+   *
+   * @param itemCount The number of items.
+   * @param nodeSize The maximum number of children per node.
+   * @return The start and end node index pairs.
+   */
+  private static long[] levelBounds(final int itemCount, final int nodeSize) {
+    final List<Long> levelCounts = new ArrayList<>();
+    long count = itemCount;
+    levelCounts.add(count);
+    while (count > 1) {
+      count = (count + nodeSize - 1) / nodeSize;
+      levelCounts.add(count);
+    }
+    final int levelCount = levelCounts.size();
+    final long[] bounds = new long[levelCount * 2];
+    long start = 0;
+    for (int level = 0; level < levelCount; level++) {
+      bounds[level * 2] = start;
+      start += levelCounts.get(levelCount - 1 - level);
+      bounds[level * 2 + 1] = start;
+    }
+    return bounds;
+  }
+
+  /**
+   * Open the index file.
+   *
+   * @param path The path to the index file.
+   * @return The index or null if the file doesn't exist or is not a valid index.
+   */
+  public static HprTreeFile open(final Path path) {
+    if (Files.exists(path)) {
+      final MappedFileWindow file = new MappedFileWindow(path, ByteOrder.LITTLE_ENDIAN,
+        Integer.MAX_VALUE);
+      try {
+        if (file.size() >= HEADER_SIZE) {
+          final ByteBuffer header = file.getBuffer(0, HEADER_SIZE);
+          final byte[] magic = new byte[MAGIC.length];
+          header.get(magic);
+          if (Arrays.equals(MAGIC, magic) && header.getInt() == VERSION) {
+            final int nodeSize = header.getInt();
+            final int itemCount = header.getInt();
+            header.getInt();
+            final long sourceSize = header.getLong();
+            final long sourceTime = header.getLong();
+            final long[] levelBounds = levelBounds(itemCount, nodeSize);
+            final long nodeCount = levelBounds[levelBounds.length - 1];
+            if (nodeSize > 1 && file.size() == HEADER_SIZE + nodeCount * NODE_BYTES) {
+              return new HprTreeFile(file, nodeSize, itemCount, levelBounds, sourceSize,
+                sourceTime);
+            }
+          }
+        }
+      } catch (final RuntimeException e) {
+        file.close();
+        throw e;
+      }
+      file.close();
+    }
+    return null;
+  }
+
+  /**
+   * Write a new index file. The file is written to a temporary file which is
+   * moved to the path when complete.
+   *
+   * @param path The path to the index file.
+   * @param itemCount The number of items.
+   * @param itemBounds The source for the bounding box of each item.
+   * @param nodeSize The maximum number of children per node.
+   * @param sourceSize The size of the file the index is for.
+   * @param sourceTime The last modified time of the file the index is for.
+   */
+  public static void write(final Path path, final int itemCount, final ItemBounds itemBounds,
+    final int nodeSize, final long sourceSize, final long sourceTime) {
+    final double[] bounds = new double[4];
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    int indexedCount = 0;
+    for (int i = 0; i < itemCount; i++) {
+      if (itemBounds.getBounds(i, bounds)) {
+        indexedCount++;
+        minX = Math.min(minX, bounds[0]);
+        minY = Math.min(minY, bounds[1]);
+        maxX = Math.max(maxX, bounds[2]);
+        maxY = Math.max(maxY, bounds[3]);
+      }
+    }
+
+    // Sort the items by the Hilbert value, the item index is stored in the low
+    // 31 bits
+    final long[] sortKeys = new long[indexedCount];
+    final double width = maxX - minX;
+    final double height = maxY - minY;
+    int keyIndex = 0;
+    for (int i = 0; i < itemCount; i++) {
+      if (itemBounds.getBounds(i, bounds)) {
+        int x = 0;
+        if (width > 0) {
+          x = (int)Math.floor(HILBERT_MAX * ((bounds[0] + bounds[2]) / 2 - minX) / width);
+        }
+        int y = 0;
+        if (height > 0) {
+          y = (int)Math.floor(HILBERT_MAX * ((bounds[1] + bounds[3]) / 2 - minY) / height);
+        }
+        sortKeys[keyIndex++] = hilbert(x, y) << 31 | i;
+      }
+    }
+    Arrays.sort(sortKeys);
+
+    final long[] levelBounds = levelBounds(indexedCount, nodeSize);
+    final int levelCount = levelBounds.length / 2;
+    final long nodeCount = levelBounds[levelBounds.length - 1];
+    final long fileSize = HEADER_SIZE + nodeCount * NODE_BYTES;
+    if (fileSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+        "Spatial index for " + itemCount + " items exceeds 2GB: " + path);
+    }
+    final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      try (
+        FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        final MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, fileSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(nodeSize);
+        buffer.putInt(indexedCount);
+        buffer.putInt(0);
+        buffer.putLong(sourceSize);
+        buffer.putLong(sourceTime);
+
+        final int leafLevel = levelCount - 1;
+        int position = (int)(HEADER_SIZE + levelBounds[leafLevel * 2] * NODE_BYTES);
+        for (final long sortKey : sortKeys) {
+          final int itemIndex = (int)(sortKey & Integer.MAX_VALUE);
+          itemBounds.getBounds(itemIndex, bounds);
+          buffer.position(position);
+          buffer.putDouble(bounds[0]);
+          buffer.putDouble(bounds[1]);
+          buffer.putDouble(bounds[2]);
+          buffer.putDouble(bounds[3]);
+          buffer.putLong(itemIndex);
+          position += NODE_BYTES;
+        }
+
+        for (int level = leafLevel - 1; level >= 0; level--) {
+          final long childEnd = levelBounds[(level + 1) * 2 + 1];
+          long childIndex = levelBounds[(level + 1) * 2];
+          for (long nodeIndex = levelBounds[level * 2]; nodeIndex < levelBounds[level * 2
+            + 1]; nodeIndex++) {
+            final long firstChildIndex = childIndex;
+            double nodeMinX = Double.POSITIVE_INFINITY;
+            double nodeMinY = Double.POSITIVE_INFINITY;
+            double nodeMaxX = Double.NEGATIVE_INFINITY;
+            double nodeMaxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < nodeSize && childIndex < childEnd; i++) {
+              final int childPosition = (int)(HEADER_SIZE + childIndex * NODE_BYTES);
+              nodeMinX = Math.min(nodeMinX, buffer.getDouble(childPosition));
+              nodeMinY = Math.min(nodeMinY, buffer.getDouble(childPosition + 8));
+              nodeMaxX = Math.max(nodeMaxX, buffer.getDouble(childPosition + 16));
+              nodeMaxY = Math.max(nodeMaxY, buffer.getDouble(childPosition + 24));
+              childIndex++;
+            }
+            buffer.position((int)(HEADER_SIZE + nodeIndex * NODE_BYTES));
+            buffer.putDouble(nodeMinX);
+            buffer.putDouble(nodeMinY);
+            buffer.putDouble(nodeMaxX);
+            buffer.putDouble(nodeMaxY);
+            buffer.putLong(firstChildIndex);
+          }
+        }
+        buffer.force();
+      }
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    } catch (final IOException e) {
+      try {
+        Files.deleteIfExists(tempPath);
+      } catch (final IOException e1) {
+      }
+      throw Exceptions.wrap("Unable to write spatial index: " + path, e);
+    }
+  }
+
+  private final MappedFileWindow file;
+
+  private final int itemCount;
+
+  private final long[] levelBounds;
+
+  private final int nodeSize;
+
+  private final long sourceSize;
+
+  private final long sourceTime;
+
+  private HprTreeFile(final MappedFileWindow file, final int nodeSize, final int itemCount,
+    final long[] levelBounds, final long sourceSize, final long sourceTime) {
+    this.file = file;
+    this.nodeSize = nodeSize;
+    this.itemCount = itemCount;
+    this.levelBounds = levelBounds;
+    this.sourceSize = sourceSize;
+    this.sourceTime = sourceTime;
+  }
+
+  @Override
+  public void close() {
+    this.file.close();
+  }
+
+  /**
+   * Visit the index of each item whose bounding box intersects the bounding
+   * box. The items are visited in the order they are stored in the tree, not
+   * the item index order.
+   *
+   * @param minX The minimum x.
+   * @param minY The minimum y.
+   * @param maxX The maximum x.
+   * @param maxY The maximum y.
+   * @param action The action to call with the item index.
+   */
+  public synchronized void forEach(final double minX, final double minY, final double maxX,
+    final double maxY, final IntConsumer action) {
+    if (this.itemCount > 0) {
+      final long nodeCount = this.levelBounds[this.levelBounds.length - 1];
+      final ByteBuffer buffer = this.file.getBuffer(HEADER_SIZE, (int)(nodeCount * NODE_BYTES));
+      final int baseOffset = buffer.position();
+      final int leafLevel = this.levelBounds.length / 2 - 1;
+      // Stack of node index and level pairs for the nodes to visit
+      long[] stack = new long[64];
+      int stackSize = 0;
+      stack[stackSize++] = 0;
+      stack[stackSize++] = 0;
+      while (stackSize > 0) {
+        final int level = (int)stack[--stackSize];
+        final long nodeStart = stack[--stackSize];
+        final long levelEnd = this.levelBounds[level * 2 + 1];
+        final long nodeEnd = Math.min(nodeStart + this.nodeSize, levelEnd);
+        for (long nodeIndex = nodeStart; nodeIndex < nodeEnd; nodeIndex++) {
+          final int offset = baseOffset + (int)(nodeIndex * NODE_BYTES);
+          if (!(buffer.getDouble(offset) > maxX || buffer.getDouble(offset + 8) > maxY
+            || buffer.getDouble(offset + 16) < minX || buffer.getDouble(offset + 24) < minY)) {
+            final long childIndex = buffer.getLong(offset + 32);
+            if (level == leafLevel) {
+              action.accept((int)childIndex);
+            } else {
+              if (stackSize + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+              }
+              stack[stackSize++] = childIndex;
+              stack[stackSize++] = level + 1;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  public int getItemCount() {
+    return this.itemCount;
+  }
+
+  public int getNodeSize() {
+    return this.nodeSize;
+  }
+
+  public long getSourceSize() {
+    return this.sourceSize;
+  }
+
+  public long getSourceTime() {
+    return this.sourceTime;
+  }
+
+  /**
+   * Get the index of the items whose bounding box intersects the bounding box.
+   *
+   * @param minX The minimum x.
+   * @param minY The minimum y.
+   * @param maxX The maximum x.
+   * @param maxY The maximum y.
+   * @return The item indexes in ascending order.
+   */
+  public int[] query(final double minX, final double minY, final double maxX,
+    final double maxY) {
+    final int[][] indexes = {
+      new int[16]
+    };
+    final int[] count = {
+      0
+    };
+    forEach(minX, minY, maxX, maxY, index -> {
+      if (count[0] == indexes[0].length) {
+        indexes[0] = Arrays.copyOf(indexes[0], count[0] * 2);
+      }
+      indexes[0][count[0]++] = index;
+    });
+    final int[] result = Arrays.copyOf(indexes[0], count[0]);
+    Arrays.sort(result);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return this.file.toString();
+  }
+}
@@ -52,6 +52,7 @@ import com.revolsys.util.ExitLoopException;
  * - items cannot be added or removed once the first query has been made.
  * The advantage of this characteristic is that the index performance
  * can be optimized based on a fixed set of items.
+ * Once built the index can be queried from multiple threads.
  *
  * @author Martin Davis
  */
@@ -60,7 +61,7 @@ public class SortedPackedIntervalRTree<V> {
 
   private int level = 0;
 
-  private IntervalRTreeNode<V> root = null;
+  private volatile IntervalRTreeNode<V> root = null;
 
   private Comparator<IntervalRTreeNode<V>> comparator;
 
@@ -88,31 +89,37 @@ public class SortedPackedIntervalRTree<V> {
     }
   }
 
-  private synchronized void init() {
-    if (this.root == null) {
+  /**
+   * Build the tree on the first query. An empty index has a null root.
+   */
+  private synchronized IntervalRTreeNode<V> init() {
+    if (this.root == null && this.leaves != null) {
       try {
-        // sort the leaf nodes
-        Collections.sort(this.leaves, this.comparator);
-
-        // now group nodes into blocks of two and build tree up recursively
-        List<IntervalRTreeNode<V>> src = this.leaves;
-        List<IntervalRTreeNode<V>> dest = new ArrayList<>();
-
-        while (true) {
-          buildLevel(src, dest);
-          if (dest.size() == 1) {
-            this.root = dest.get(0);
-            return;
+        if (!this.leaves.isEmpty()) {
+          // sort the leaf nodes
+          Collections.sort(this.leaves, this.comparator);
+
+          // now group nodes into blocks of two and build tree up recursively
+          List<IntervalRTreeNode<V>> src = this.leaves;
+          List<IntervalRTreeNode<V>> dest = new ArrayList<>();
+
+          while (true) {
+            buildLevel(src, dest);
+            if (dest.size() == 1) {
+              this.root = dest.get(0);
+              break;
+            }
+
+            final List<IntervalRTreeNode<V>> temp = src;
+            src = dest;
+            dest = temp;
           }
-
-          final List<IntervalRTreeNode<V>> temp = src;
-          src = dest;
-          dest = temp;
         }
       } finally {
         this.leaves = null;
       }
     }
+    return this.root;
   }
 
   /**
@@ -125,7 +132,7 @@ public class SortedPackedIntervalRTree<V> {
    * @throws IllegalStateException if the index has already been queried
    */
   public void insert(final double min, final double max, final V item) {
-    if (this.root != null) {
+    if (this.leaves == null) {
       throw new IllegalStateException("Index cannot be added to once it has been queried");
     }
     this.leaves.add(new IntervalRTreeLeafNode<>(min, max, item));
@@ -140,10 +147,15 @@ public class SortedPackedIntervalRTree<V> {
    * @param visitor the visitor to pass any matched items to
    */
   public void query(final double min, final double max, final Consumer<? super V> visitor) {
-    init();
-    try {
-      this.root.query(min, max, visitor);
-    } catch (final ExitLoopException e) {
+    IntervalRTreeNode<V> root = this.root;
+    if (root == null) {
+      root = init();
+    }
+    if (root != null) {
+      try {
+        root.query(min, max, visitor);
+      } catch (final ExitLoopException e) {
+      }
     }
   }
 
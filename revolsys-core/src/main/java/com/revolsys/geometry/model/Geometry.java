@@ -2467,6 +2467,26 @@ public interface Geometry extends BoundingBoxProxy, Cloneable, Comparable<Object
     }
   }
 
+  /**
+   * Computes the union of all the elements of this geometry.
+   * If parallel is true the polygons are unioned using a fork/join pool
+   * when there are enough polygons for it to be worthwhile.
+   *
+   * @param parallel True if the polygons can be unioned in parallel.
+   * @return the union geometry
+   * @throws TopologyException if a robustness error occurs
+   *
+   * @see #union()
+   * @see com.revolsys.geometry.operation.union.CascadedPolygonUnion#setParallelThreshold(int)
+   */
+  default Geometry union(final boolean parallel) {
+    if (isEmpty()) {
+      return this;
+    } else {
+      return UnaryUnionOp.union(Collections.singletonList(this), null, parallel);
+    }
+  }
+
   /**
    * Computes a <code>Geometry</code> representing the point-set
    * which is contained in both this
@@ -56,8 +56,7 @@ import com.revolsys.geometry.model.segment.PolygonSegment;
 import com.revolsys.geometry.model.segment.Segment;
 import com.revolsys.geometry.model.vertex.PolygonVertex;
 import com.revolsys.geometry.model.vertex.Vertex;
-import com.revolsys.geometry.operation.overlay.OverlayOp;
-import com.revolsys.geometry.operation.overlay.snap.SnapIfNeededOverlayOp;
+import com.revolsys.geometry.operation.RectangleClipper;
 import com.revolsys.geometry.operation.polygonize.Polygonizer;
 import com.revolsys.geometry.operation.valid.GeometryValidationError;
 import com.revolsys.util.Property;
@@ -618,8 +617,7 @@ public interface Polygon extends Polygonal {
     if (bboxCoveredBy(boundingBox)) {
       return this;
     } else {
-      return SnapIfNeededOverlayOp.overlayOp(this, boundingBox.toRectangle(),
-        OverlayOp.INTERSECTION);
+      return RectangleClipper.clip(this, boundingBox);
     }
   }
 
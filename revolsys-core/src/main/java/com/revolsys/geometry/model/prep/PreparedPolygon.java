@@ -77,10 +77,10 @@ public class PreparedPolygon extends PolygonImpl implements PreparedPolygonal {
 
   private final boolean isRectangle;
 
-  private PointOnGeometryLocator pointLocator = null;
+  private volatile PointOnGeometryLocator pointLocator = null;
 
   // create these lazily, since they are expensive
-  private FastSegmentSetIntersectionFinder segIntFinder = null;
+  private volatile FastSegmentSetIntersectionFinder segIntFinder = null;
 
   public PreparedPolygon(final Polygon polygon) {
     super(polygon.getGeometryFactory(), prepareRings(polygon), polygon.getRingCount());
@@ -163,26 +163,39 @@ public class PreparedPolygon extends PolygonImpl implements PreparedPolygonal {
    *
    * @return the intersection finder
    */
-  public synchronized FastSegmentSetIntersectionFinder getIntersectionFinder() {
+  public FastSegmentSetIntersectionFinder getIntersectionFinder() {
     /**
      * MD - Another option would be to use a simple scan for
      * segment testing for small geometries.
      * However, testing indicates that there is no particular advantage
      * to this approach.
      */
-    if (this.segIntFinder == null) {
-      this.segIntFinder = new FastSegmentSetIntersectionFinder(
-        SegmentStringUtil.extractSegmentStrings(this));
+    FastSegmentSetIntersectionFinder segIntFinder = this.segIntFinder;
+    if (segIntFinder == null) {
+      synchronized (this) {
+        segIntFinder = this.segIntFinder;
+        if (segIntFinder == null) {
+          segIntFinder = new FastSegmentSetIntersectionFinder(
+            SegmentStringUtil.extractSegmentStrings(this));
+          this.segIntFinder = segIntFinder;
+        }
+      }
     }
-    return this.segIntFinder;
+    return segIntFinder;
   }
 
-  public synchronized PointOnGeometryLocator getPointLocator() {
-    if (this.pointLocator == null) {
-      this.pointLocator = new IndexedPointInAreaLocator(this);
+  public PointOnGeometryLocator getPointLocator() {
+    PointOnGeometryLocator pointLocator = this.pointLocator;
+    if (pointLocator == null) {
+      synchronized (this) {
+        pointLocator = this.pointLocator;
+        if (pointLocator == null) {
+          pointLocator = new IndexedPointInAreaLocator(this);
+          this.pointLocator = pointLocator;
+        }
+      }
     }
-
-    return this.pointLocator;
+    return pointLocator;
   }
 
   /**
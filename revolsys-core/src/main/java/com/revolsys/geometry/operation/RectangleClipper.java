@@ -0,0 +1,889 @@
+package com.revolsys.geometry.operation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.BoundingBoxProxy;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Lineal;
+import com.revolsys.geometry.model.LinearRing;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.Punctual;
+import com.revolsys.geometry.operation.overlay.OverlayOp;
+import com.revolsys.geometry.operation.overlay.snap.SnapIfNeededOverlayOp;
+
+/**
+ * Clip points, lines and polygons to an axis aligned rectangle working directly
+ * on the coordinate arrays of the geometry.
+ *
+ * <p>Line segments are clipped using the Liang-Barsky algorithm, interpolating
+ * the values of any axes after x and y. Polygon rings are split into the pieces
+ * inside the rectangle which are then joined by walking counter-clockwise
+ * around the rectangle (Weiler-Atherton). Rings that are wholly inside the
+ * rectangle are kept, with holes assigned to the result shell that contains
+ * them.</p>
+ *
+ * <p>Polygons with a vertex exactly on one of the rectangle's edge lines or
+ * that only touch the rectangle at a point are clipped using
+ * {@link SnapIfNeededOverlayOp} to get a robust result.</p>
+ *
+ * <p>The {@link #clip(Geometry, Iterable, BiConsumer)} method extracts the
+ * coordinates of the geometry once and clips them against each of the tiles
+ * (e.g. map grid sheets) the geometry intersects.</p>
+ */
+public class RectangleClipper {
+
+  /**
+   * The coordinates of a geometry extracted once so that they can be clipped
+   * against multiple rectangles.
+   */
+  private static class ClipSource {
+    private final Geometry geometry;
+
+    private final List<Point> points = new ArrayList<>();
+
+    private final List<double[]> lines = new ArrayList<>();
+
+    private final List<Polygon> polygons = new ArrayList<>();
+
+    /** The rings of each polygon, shells counter-clockwise and holes clockwise. */
+    private final List<double[][]> polygonRings = new ArrayList<>();
+
+    private final List<Geometry> others = new ArrayList<>();
+
+    private ClipSource(final Geometry geometry) {
+      this.geometry = geometry;
+      for (final Geometry part : geometry.geometries()) {
+        if (part.isEmpty()) {
+        } else if (part instanceof Point) {
+          this.points.add((Point)part);
+        } else if (part instanceof LineString) {
+          final LineString line = (LineString)part;
+          this.lines.add(getCoordinates(line, line.getAxisCount()));
+        } else if (part instanceof Polygon) {
+          final Polygon polygon = (Polygon)part;
+          final int axisCount = polygon.getAxisCount();
+          final int ringCount = polygon.getRingCount();
+          final double[][] rings = new double[ringCount][];
+          for (int ringIndex = 0; ringIndex < ringCount; ringIndex++) {
+            final LinearRing ring = polygon.getRing(ringIndex);
+            final double[] coordinates = getCoordinates(ring, axisCount);
+            final boolean counterClockwise = signedArea(coordinates, axisCount) > 0;
+            if (counterClockwise == (ringIndex > 0)) {
+              reverse(coordinates, axisCount);
+            }
+            rings[ringIndex] = coordinates;
+          }
+          this.polygons.add(polygon);
+          this.polygonRings.add(rings);
+        } else {
+          this.others.add(part);
+        }
+      }
+    }
+
+    private double[] getCoordinates(final LineString line, final int axisCount) {
+      final int vertexCount = line.getVertexCount();
+      final double[] coordinates = new double[vertexCount * axisCount];
+      int coordinateIndex = 0;
+      for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          coordinates[coordinateIndex++] = line.getCoordinate(vertexIndex, axisIndex);
+        }
+      }
+      return coordinates;
+    }
+  }
+
+  /**
+   * A section of a polygon ring inside the rectangle from the point it enters
+   * the rectangle to the point it exits.
+   */
+  private static class RingPiece implements Comparable<RingPiece> {
+    private final double[] coordinates;
+
+    private final double entryDistance;
+
+    private final double exitDistance;
+
+    private boolean used;
+
+    private RingPiece(final double[] coordinates, final double entryDistance,
+      final double exitDistance) {
+      this.coordinates = coordinates;
+      this.entryDistance = entryDistance;
+      this.exitDistance = exitDistance;
+    }
+
+    @Override
+    public int compareTo(final RingPiece piece) {
+      return Double.compare(this.entryDistance, piece.entryDistance);
+    }
+  }
+
+  private static final int LEFT = 0;
+
+  private static final int RIGHT = 1;
+
+  private static final int BOTTOM = 2;
+
+  private static final int TOP = 3;
+
+  /**
+   * Clip the geometry to the bounding box.
+   *
+   * @param geometry The geometry to clip.
+   * @param boundingBox The bounding box in the same coordinate system as the geometry.
+   * @return The clipped geometry.
+   */
+  public static Geometry clip(final Geometry geometry, final BoundingBox boundingBox) {
+    return new RectangleClipper(boundingBox).clip(geometry);
+  }
+
+  /**
+   * Clip the geometry to each of the tiles that it intersects. The coordinates
+   * of the geometry are only extracted once for all the tiles. The action is
+   * called with each tile and the non-empty clipped geometry for that tile.
+   *
+   * @param geometry The geometry to clip.
+   * @param tiles The tiles in the same coordinate system as the geometry.
+   * @param action The action to call with the tile and clipped geometry.
+   */
+  public static <T extends BoundingBoxProxy> void clip(final Geometry geometry,
+    final Iterable<T> tiles, final BiConsumer<T, Geometry> action) {
+    if (geometry != null && !geometry.isEmpty()) {
+      final ClipSource source = new ClipSource(geometry);
+      final RectangleClipper clipper = new RectangleClipper();
+      for (final T tile : tiles) {
+        final BoundingBox boundingBox = tile.getBoundingBox();
+        if (geometry.bboxIntersects(boundingBox)) {
+          clipper.setRectangle(boundingBox);
+          final Geometry clippedGeometry = clipper.clip(source);
+          if (!clippedGeometry.isEmpty()) {
+            action.accept(tile, clippedGeometry);
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isDuplicate(final double[] coordinates, final int offset1,
+    final int offset2) {
+    return coordinates[offset1] == coordinates[offset2]
+      && coordinates[offset1 + 1] == coordinates[offset2 + 1];
+  }
+
+  /**
+   * Get the location of the point relative to the ring using ray crossing.
+   *
+   * @return 1 if inside, 0 if on the boundary and -1 if outside.
+   */
+  private static int locateInRing(final double[] ring, final int axisCount, final double x,
+    final double y) {
+    int crossingCount = 0;
+    final int vertexCount = ring.length / axisCount;
+    double x1 = ring[0];
+    double y1 = ring[1];
+    for (int vertexIndex = 1; vertexIndex < vertexCount; vertexIndex++) {
+      final int offset = vertexIndex * axisCount;
+      final double x2 = ring[offset];
+      final double y2 = ring[offset + 1];
+      if (x1 == x && y1 == y) {
+        return 0;
+      } else if (y1 == y && y2 == y) {
+        if (Math.min(x1, x2) <= x && x <= Math.max(x1, x2)) {
+          return 0;
+        }
+      } else if (y1 > y != y2 > y) {
+        final double crossX = x1 + (y - y1) * (x2 - x1) / (y2 - y1);
+        if (crossX == x) {
+          return 0;
+        } else if (crossX > x) {
+          crossingCount++;
+        }
+      }
+      x1 = x2;
+      y1 = y2;
+    }
+    if (crossingCount % 2 == 1) {
+      return 1;
+    } else {
+      return -1;
+    }
+  }
+
+  private static void reverse(final double[] coordinates, final int axisCount) {
+    final int vertexCount = coordinates.length / axisCount;
+    for (int i = 0, j = vertexCount - 1; i < j; i++, j--) {
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        final int offset1 = i * axisCount + axisIndex;
+        final int offset2 = j * axisCount + axisIndex;
+        final double value = coordinates[offset1];
+        coordinates[offset1] = coordinates[offset2];
+        coordinates[offset2] = value;
+      }
+    }
+  }
+
+  private static double signedArea(final double[] ring, final int axisCount) {
+    final int vertexCount = ring.length / axisCount;
+    double sum = 0;
+    double x1 = ring[0];
+    double y1 = ring[1];
+    for (int vertexIndex = 1; vertexIndex < vertexCount; vertexIndex++) {
+      final int offset = vertexIndex * axisCount;
+      final double x2 = ring[offset];
+      final double y2 = ring[offset + 1];
+      sum += (x1 - x2) * (y1 + y2);
+      x1 = x2;
+      y1 = y2;
+    }
+    return sum / 2;
+  }
+
+  private double minX;
+
+  private double minY;
+
+  private double maxX;
+
+  private double maxY;
+
+  private BoundingBox boundingBox;
+
+  private int axisCount;
+
+  private double[] buffer = new double[64];
+
+  private int bufferCount;
+
+  private double entryT;
+
+  private double exitT;
+
+  private int entryEdge;
+
+  private int exitEdge;
+
+  private final List<RingPiece> pieces = new ArrayList<>();
+
+  private final List<double[]> insideHoles = new ArrayList<>();
+
+  private final List<double[]> shells = new ArrayList<>();
+
+  private final List<List<double[]>> shellHoles = new ArrayList<>();
+
+  public RectangleClipper() {
+  }
+
+  public RectangleClipper(final BoundingBox boundingBox) {
+    setRectangle(boundingBox);
+  }
+
+  private void addCorners(final double fromDistance, final double toDistance) {
+    final double width = this.maxX - this.minX;
+    final double height = this.maxY - this.minY;
+    final double[] cornerDistances = {
+      0, width, width + height, width + height + width
+    };
+    if (fromDistance < toDistance) {
+      for (int i = 0; i < 4; i++) {
+        final double cornerDistance = cornerDistances[i];
+        if (fromDistance < cornerDistance && cornerDistance < toDistance) {
+          addCorner(i);
+        }
+      }
+    } else {
+      for (int i = 1; i < 4; i++) {
+        if (fromDistance < cornerDistances[i]) {
+          addCorner(i);
+        }
+      }
+      addCorner(0);
+      for (int i = 1; i < 4; i++) {
+        if (cornerDistances[i] < toDistance) {
+          addCorner(i);
+        }
+      }
+    }
+  }
+
+  private void addCorner(final int cornerIndex) {
+    final int offset = ensureBuffer(1);
+    final double[] buffer = this.buffer;
+    if (cornerIndex == 0 || cornerIndex == 3) {
+      buffer[offset] = this.minX;
+    } else {
+      buffer[offset] = this.maxX;
+    }
+    if (cornerIndex < 2) {
+      buffer[offset + 1] = this.minY;
+    } else {
+      buffer[offset + 1] = this.maxY;
+    }
+    for (int axisIndex = 2; axisIndex < this.axisCount; axisIndex++) {
+      buffer[offset + axisIndex] = Double.NaN;
+    }
+  }
+
+  private void addIntersection(final double[] coordinates, final int offset1, final int offset2,
+    final double t, final int edge) {
+    final int offset = ensureBuffer(1);
+    final double[] buffer = this.buffer;
+    final double x1 = coordinates[offset1];
+    final double y1 = coordinates[offset1 + 1];
+    final double x2 = coordinates[offset2];
+    final double y2 = coordinates[offset2 + 1];
+    double x;
+    double y;
+    if (edge == LEFT) {
+      x = this.minX;
+      y = clamp(y1 + (y2 - y1) * t, this.minY, this.maxY);
+    } else if (edge == RIGHT) {
+      x = this.maxX;
+      y = clamp(y1 + (y2 - y1) * t, this.minY, this.maxY);
+    } else if (edge == BOTTOM) {
+      x = clamp(x1 + (x2 - x1) * t, this.minX, this.maxX);
+      y = this.minY;
+    } else if (edge == TOP) {
+      x = clamp(x1 + (x2 - x1) * t, this.minX, this.maxX);
+      y = this.maxY;
+    } else {
+      x = x1 + (x2 - x1) * t;
+      y = y1 + (y2 - y1) * t;
+    }
+    buffer[offset] = x;
+    buffer[offset + 1] = y;
+    for (int axisIndex = 2; axisIndex < this.axisCount; axisIndex++) {
+      final double c1 = coordinates[offset1 + axisIndex];
+      final double c2 = coordinates[offset2 + axisIndex];
+      buffer[offset + axisIndex] = c1 + (c2 - c1) * t;
+    }
+  }
+
+  private void addVertex(final double[] coordinates, final int vertexOffset) {
+    final int offset = ensureBuffer(1);
+    System.arraycopy(coordinates, vertexOffset, this.buffer, offset, this.axisCount);
+  }
+
+  private double clamp(final double value, final double min, final double max) {
+    if (value < min) {
+      return min;
+    } else if (value > max) {
+      return max;
+    } else {
+      return value;
+    }
+  }
+
+  private Geometry clip(final ClipSource source) {
+    final Geometry geometry = source.geometry;
+    final GeometryFactory geometryFactory = geometry.getGeometryFactory();
+    if (geometry.bboxCoveredBy(this.boundingBox)) {
+      return geometry;
+    } else if (!geometry.bboxIntersects(this.boundingBox)) {
+      return newEmpty(geometry);
+    }
+    final List<Geometry> parts = new ArrayList<>();
+    for (final Point point : source.points) {
+      final double x = point.getX();
+      final double y = point.getY();
+      if (this.minX <= x && x <= this.maxX && this.minY <= y && y <= this.maxY) {
+        parts.add(point);
+      }
+    }
+    final int lineAxisCount = geometry.getAxisCount();
+    for (final double[] coordinates : source.lines) {
+      clipLine(geometryFactory, lineAxisCount, coordinates, parts);
+    }
+    final List<Polygon> polygons = source.polygons;
+    for (int i = 0; i < polygons.size(); i++) {
+      final Polygon polygon = polygons.get(i);
+      if (polygon.bboxCoveredBy(this.boundingBox)) {
+        parts.add(polygon);
+      } else if (polygon.bboxIntersects(this.boundingBox)) {
+        final double[][] rings = source.polygonRings.get(i);
+        final int axisCount = polygon.getAxisCount();
+        if (!clipPolygon(geometryFactory, axisCount, polygon, rings, parts)) {
+          final Geometry intersection = SnapIfNeededOverlayOp.overlayOp(polygon,
+            this.boundingBox.toRectangle(), OverlayOp.INTERSECTION);
+          parts.addAll(intersection.getGeometries(Polygon.class));
+        }
+      }
+    }
+    for (final Geometry other : source.others) {
+      final Geometry intersection = other.intersectionBbox(this.boundingBox);
+      if (!intersection.isEmpty()) {
+        parts.add(intersection);
+      }
+    }
+    if (parts.isEmpty()) {
+      return newEmpty(geometry);
+    } else if (geometry instanceof Polygonal) {
+      return geometryFactory.polygonal(parts);
+    } else {
+      return geometryFactory.geometry(parts);
+    }
+  }
+
+  /**
+   * Clip the geometry to the rectangle.
+   *
+   * @param geometry The geometry in the same coordinate system as the rectangle.
+   * @return The clipped geometry.
+   */
+  public Geometry clip(final Geometry geometry) {
+    if (geometry == null) {
+      return null;
+    } else if (geometry.isEmpty()) {
+      return geometry;
+    } else {
+      geometry.notNullSameCs(this.boundingBox);
+      if (geometry.bboxCoveredBy(this.boundingBox)) {
+        return geometry;
+      } else {
+        return clip(new ClipSource(geometry));
+      }
+    }
+  }
+
+  private void clipLine(final GeometryFactory geometryFactory, final int axisCount,
+    final double[] coordinates, final List<Geometry> parts) {
+    this.axisCount = axisCount;
+    this.bufferCount = 0;
+    boolean connected = false;
+    final int vertexCount = coordinates.length / axisCount;
+    for (int vertexIndex = 1; vertexIndex < vertexCount; vertexIndex++) {
+      final int offset1 = (vertexIndex - 1) * axisCount;
+      final int offset2 = vertexIndex * axisCount;
+      if (clipSegment(coordinates, offset1, offset2) && this.entryT < this.exitT) {
+        if (!connected || this.entryT > 0) {
+          newLinePart(geometryFactory, parts);
+          addIntersection(coordinates, offset1, offset2, this.entryT, this.entryEdge);
+        }
+        if (this.exitT < 1) {
+          addIntersection(coordinates, offset1, offset2, this.exitT, this.exitEdge);
+          newLinePart(geometryFactory, parts);
+          connected = false;
+        } else {
+          addVertex(coordinates, offset2);
+          connected = true;
+        }
+      } else {
+        connected = false;
+      }
+    }
+    newLinePart(geometryFactory, parts);
+  }
+
+  /**
+   * Clip the rings of the polygon.
+   *
+   * @return False if the polygon must be clipped using the overlay.
+   */
+  private boolean clipPolygon(final GeometryFactory geometryFactory, final int axisCount,
+    final Polygon polygon, final double[][] rings, final List<Geometry> parts) {
+    this.axisCount = axisCount;
+    this.pieces.clear();
+    this.insideHoles.clear();
+    this.shells.clear();
+    this.shellHoles.clear();
+    for (int ringIndex = 0; ringIndex < rings.length; ringIndex++) {
+      final double[] ring = rings[ringIndex];
+      final int result = splitRing(ring);
+      if (result < -1) {
+        return false;
+      } else if (result == 1 && ringIndex > 0) {
+        this.insideHoles.add(ring);
+      }
+    }
+    final List<RingPiece> pieces = this.pieces;
+    if (pieces.isEmpty()) {
+      if (locateInPolygon(rings, this.minX, this.minY) > 0) {
+        this.bufferCount = 0;
+        for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+          addCorner(cornerIndex);
+        }
+        addCorner(0);
+        this.shells.add(Arrays.copyOf(this.buffer, this.bufferCount * axisCount));
+        this.shellHoles.add(new ArrayList<>(this.insideHoles));
+      } else {
+        return true;
+      }
+    } else {
+      if (!joinPieces()) {
+        return false;
+      }
+      for (final double[] hole : this.insideHoles) {
+        final int shellIndex = getShellIndex(hole);
+        if (shellIndex < 0) {
+          return false;
+        }
+        this.shellHoles.get(shellIndex).add(hole);
+      }
+    }
+    for (int i = 0; i < this.shells.size(); i++) {
+      final List<double[]> polygonRings = new ArrayList<>();
+      final double[] shell = newRingCoordinates(this.shells.get(i), geometryFactory);
+      if (shell != null) {
+        polygonRings.add(shell);
+        for (final double[] hole : this.shellHoles.get(i)) {
+          polygonRings.add(hole);
+        }
+        final double[][] ringArray = polygonRings.toArray(new double[polygonRings.size()][]);
+        parts.add(geometryFactory.polygon(axisCount, ringArray));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Compute the parameters along the segment where it enters and exits the
+   * rectangle using the Liang-Barsky algorithm.
+   *
+   * @return True if the segment intersects the rectangle.
+   */
+  private boolean clipSegment(final double[] coordinates, final int offset1, final int offset2) {
+    final double x1 = coordinates[offset1];
+    final double y1 = coordinates[offset1 + 1];
+    final double deltaX = coordinates[offset2] - x1;
+    final double deltaY = coordinates[offset2 + 1] - y1;
+    double t0 = 0;
+    double t1 = 1;
+    int edge0 = -1;
+    int edge1 = -1;
+    for (int edge = 0; edge < 4; edge++) {
+      double p;
+      double q;
+      if (edge == LEFT) {
+        p = -deltaX;
+        q = x1 - this.minX;
+      } else if (edge == RIGHT) {
+        p = deltaX;
+        q = this.maxX - x1;
+      } else if (edge == BOTTOM) {
+        p = -deltaY;
+        q = y1 - this.minY;
+      } else {
+        p = deltaY;
+        q = this.maxY - y1;
+      }
+      if (p == 0) {
+        if (q < 0) {
+          return false;
+        }
+      } else {
+        final double r = q / p;
+        if (p < 0) {
+          if (r > t1) {
+            return false;
+          } else if (r > t0) {
+            t0 = r;
+            edge0 = edge;
+          }
+        } else {
+          if (r < t0) {
+            return false;
+          } else if (r < t1) {
+            t1 = r;
+            edge1 = edge;
+          }
+        }
+      }
+    }
+    this.entryT = t0;
+    this.entryEdge = edge0;
+    this.exitT = t1;
+    this.exitEdge = edge1;
+    return true;
+  }
+
+  private int ensureBuffer(final int vertexCount) {
+    final int axisCount = this.axisCount;
+    final int offset = this.bufferCount * axisCount;
+    final int length = offset + vertexCount * axisCount;
+    if (length > this.buffer.length) {
+      this.buffer = Arrays.copyOf(this.buffer, Math.max(length, this.buffer.length * 2));
+    }
+    this.bufferCount += vertexCount;
+    return offset;
+  }
+
+  /**
+   * Get the distance counter-clockwise around the rectangle from the
+   * (minX,minY) corner to the point on the rectangle's boundary.
+   */
+  private double getPerimeterDistance(final double x, final double y) {
+    final double width = this.maxX - this.minX;
+    final double height = this.maxY - this.minY;
+    if (y == this.minY) {
+      return x - this.minX;
+    } else if (x == this.maxX) {
+      return width + y - this.minY;
+    } else if (y == this.maxY) {
+      return width + height + this.maxX - x;
+    } else {
+      return width + height + width + this.maxY - y;
+    }
+  }
+
+  /**
+   * Get the index of the result shell that contains the hole. Vertices of the
+   * hole that touch a shell are skipped.
+   *
+   * @return The shell index or -1 if no shell contains the hole.
+   */
+  private int getShellIndex(final double[] hole) {
+    final int axisCount = this.axisCount;
+    final int vertexCount = hole.length / axisCount;
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      final double x = hole[vertexIndex * axisCount];
+      final double y = hole[vertexIndex * axisCount + 1];
+      boolean touches = false;
+      for (int shellIndex = 0; shellIndex < this.shells.size(); shellIndex++) {
+        final int location = locateInRing(this.shells.get(shellIndex), axisCount, x, y);
+        if (location > 0) {
+          return shellIndex;
+        } else if (location == 0) {
+          touches = true;
+        }
+      }
+      if (!touches) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isCorner(final double x, final double y) {
+    return (x == this.minX || x == this.maxX) && (y == this.minY || y == this.maxY);
+  }
+
+  private boolean isInside(final double[] coordinates, final int offset) {
+    final double x = coordinates[offset];
+    final double y = coordinates[offset + 1];
+    return this.minX < x && x < this.maxX && this.minY < y && y < this.maxY;
+  }
+
+  private boolean isOnEdgeLine(final double[] coordinates, final int offset) {
+    final double x = coordinates[offset];
+    final double y = coordinates[offset + 1];
+    return x == this.minX || x == this.maxX || y == this.minY || y == this.maxY;
+  }
+
+  /**
+   * Join the ring pieces by walking counter-clockwise around the rectangle from
+   * the exit of each piece to the next entry.
+   *
+   * @return False if the pieces could not be joined.
+   */
+  private boolean joinPieces() {
+    final List<RingPiece> pieces = this.pieces;
+    pieces.sort(null);
+    final int pieceCount = pieces.size();
+    final double[] entryDistances = new double[pieceCount];
+    for (int i = 0; i < pieceCount; i++) {
+      entryDistances[i] = pieces.get(i).entryDistance;
+      if (i > 0 && entryDistances[i] == entryDistances[i - 1]) {
+        return false;
+      }
+    }
+    for (final RingPiece startPiece : pieces) {
+      if (!startPiece.used) {
+        this.bufferCount = 0;
+        RingPiece piece = startPiece;
+        while (true) {
+          piece.used = true;
+          final double[] coordinates = piece.coordinates;
+          final int offset = ensureBuffer(coordinates.length / this.axisCount);
+          System.arraycopy(coordinates, 0, this.buffer, offset, coordinates.length);
+
+          final double exitDistance = piece.exitDistance;
+          int nextIndex = Arrays.binarySearch(entryDistances, exitDistance);
+          if (nextIndex >= 0) {
+            return false;
+          }
+          nextIndex = -nextIndex - 1;
+          if (nextIndex == pieceCount) {
+            nextIndex = 0;
+          }
+          final RingPiece nextPiece = pieces.get(nextIndex);
+          addCorners(exitDistance, nextPiece.entryDistance);
+          if (nextPiece == startPiece) {
+            addVertex(startPiece.coordinates, 0);
+            break;
+          } else if (nextPiece.used) {
+            return false;
+          } else {
+            piece = nextPiece;
+          }
+        }
+        this.shells.add(Arrays.copyOf(this.buffer, this.bufferCount * this.axisCount));
+        this.shellHoles.add(new ArrayList<>());
+      }
+    }
+    return true;
+  }
+
+  private int locateInPolygon(final double[][] rings, final double x, final double y) {
+    final int axisCount = this.axisCount;
+    if (locateInRing(rings[0], axisCount, x, y) > 0) {
+      for (int ringIndex = 1; ringIndex < rings.length; ringIndex++) {
+        if (locateInRing(rings[ringIndex], axisCount, x, y) >= 0) {
+          return -1;
+        }
+      }
+      return 1;
+    } else {
+      return -1;
+    }
+  }
+
+  private Geometry newEmpty(final Geometry geometry) {
+    final GeometryFactory geometryFactory = geometry.getGeometryFactory();
+    if (geometry instanceof Polygonal) {
+      return geometryFactory.polygon();
+    } else if (geometry instanceof Punctual) {
+      return geometryFactory.point();
+    } else if (geometry instanceof Lineal) {
+      return geometryFactory.lineString();
+    } else {
+      return geometryFactory.geometryCollection();
+    }
+  }
+
+  private void newLinePart(final GeometryFactory geometryFactory, final List<Geometry> parts) {
+    if (this.bufferCount > 1) {
+      final double[] coordinates = newPreciseCoordinates(geometryFactory, false);
+      if (coordinates != null) {
+        parts.add(geometryFactory.lineString(this.axisCount, coordinates));
+      }
+    }
+    this.bufferCount = 0;
+  }
+
+  /**
+   * Copy the buffer making the coordinates precise and removing repeated
+   * points.
+   *
+   * @return The coordinates or null if there are too few points.
+   */
+  private double[] newPreciseCoordinates(final GeometryFactory geometryFactory,
+    final boolean ring) {
+    final int axisCount = this.axisCount;
+    final double[] buffer = this.buffer;
+    int vertexCount = 0;
+    for (int vertexIndex = 0; vertexIndex < this.bufferCount; vertexIndex++) {
+      final int sourceOffset = vertexIndex * axisCount;
+      final int targetOffset = vertexCount * axisCount;
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        final double value = buffer[sourceOffset + axisIndex];
+        buffer[targetOffset + axisIndex] = geometryFactory.makePrecise(axisIndex, value);
+      }
+      if (vertexCount == 0 || !isDuplicate(buffer, targetOffset - axisCount, targetOffset)) {
+        vertexCount++;
+      }
+    }
+    if (vertexCount < 2 || ring && vertexCount < 4) {
+      return null;
+    } else {
+      return Arrays.copyOf(buffer, vertexCount * axisCount);
+    }
+  }
+
+  private double[] newRingCoordinates(final double[] coordinates,
+    final GeometryFactory geometryFactory) {
+    final int axisCount = this.axisCount;
+    this.bufferCount = 0;
+    final int offset = ensureBuffer(coordinates.length / axisCount);
+    System.arraycopy(coordinates, 0, this.buffer, offset, coordinates.length);
+    return newPreciseCoordinates(geometryFactory, true);
+  }
+
+  public RectangleClipper setRectangle(final BoundingBox boundingBox) {
+    this.boundingBox = boundingBox;
+    this.minX = boundingBox.getMinX();
+    this.minY = boundingBox.getMinY();
+    this.maxX = boundingBox.getMaxX();
+    this.maxY = boundingBox.getMaxY();
+    return this;
+  }
+
+  /**
+   * Split the ring into the pieces inside the rectangle.
+   *
+   * @return 1 if the ring is inside, 0 if it crosses the rectangle, -1 if it is
+   * outside and -2 if the overlay must be used.
+   */
+  private int splitRing(final double[] ring) {
+    final int axisCount = this.axisCount;
+    final int segmentCount = ring.length / axisCount - 1;
+    int startIndex = -1;
+    for (int vertexIndex = 0; vertexIndex < segmentCount; vertexIndex++) {
+      final int offset = vertexIndex * axisCount;
+      if (isOnEdgeLine(ring, offset)) {
+        return -2;
+      } else if (startIndex == -1 && !isInside(ring, offset)) {
+        startIndex = vertexIndex;
+      }
+    }
+    if (startIndex == -1) {
+      return 1;
+    }
+    boolean crosses = false;
+    this.bufferCount = 0;
+    double entryDistance = 0;
+    for (int i = 0; i < segmentCount; i++) {
+      final int index1 = (startIndex + i) % segmentCount;
+      final int index2 = (index1 + 1) % segmentCount;
+      final int offset1 = index1 * axisCount;
+      final int offset2 = index2 * axisCount;
+      final boolean inside1 = isInside(ring, offset1);
+      final boolean inside2 = isInside(ring, offset2);
+      if (inside1 && inside2) {
+        addVertex(ring, offset2);
+      } else if (clipSegment(ring, offset1, offset2)) {
+        if (!inside1) {
+          if (this.entryT >= this.exitT) {
+            return -2;
+          }
+          this.bufferCount = 0;
+          addIntersection(ring, offset1, offset2, this.entryT, this.entryEdge);
+          final double x = this.buffer[0];
+          final double y = this.buffer[1];
+          if (isCorner(x, y)) {
+            return -2;
+          }
+          entryDistance = getPerimeterDistance(x, y);
+        }
+        if (inside2) {
+          addVertex(ring, offset2);
+        } else {
+          final int offset = this.bufferCount * axisCount;
+          addIntersection(ring, offset1, offset2, this.exitT, this.exitEdge);
+          final double x = this.buffer[offset];
+          final double y = this.buffer[offset + 1];
+          if (isCorner(x, y)) {
+            return -2;
+          }
+          final double exitDistance = getPerimeterDistance(x, y);
+          final double[] coordinates = Arrays.copyOf(this.buffer, this.bufferCount * axisCount);
+          this.pieces.add(new RingPiece(coordinates, entryDistance, exitDistance));
+          crosses = true;
+        }
+      }
+    }
+    if (crosses) {
+      return 0;
+    } else {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.revolsys.geometry.operation.overlay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.prep.PreparedPolygonal;
+
+/**
+ * Compute the result of an overlay operation without building a geometry graph
+ * for the cases where the result is known from the bounding boxes or a cheap
+ * covers test.
+ *
+ * <p>{@link #overlay(Geometry, Geometry, int)} is used by
+ * {@link OverlayOp#overlayOp(Geometry, Geometry, int)} and only computes
+ * intersections.</p>
+ *
+ * <ul>
+ * <li>The intersection of geometries with disjoint bounding boxes is empty.</li>
+ * <li>If a polygon covers the other polygon the intersection is a copy of the
+ * covered polygon. The covers test is only used if the covering polygon is a
+ * rectangle or a {@link PreparedPolygonal}, so there is no extra cost if the
+ * test fails.</li>
+ * </ul>
+ *
+ * <p>{@link #overlayShortcut(Geometry, Geometry, int)} is for callers that
+ * opt in to the shortcuts for the other operations. For polygons with disjoint
+ * bounding boxes the difference is the first polygon and the union and
+ * symmetric difference are the polygons of both, without noding. If a polygon
+ * covers the other polygon the union is the covering polygon and the
+ * difference of the covered polygon is empty. The input geometry may be
+ * returned.</p>
+ *
+ * The result uses the geometry factory of the first geometry, the same as
+ * {@link OverlayOp}. Prepared geometries are never returned.
+ */
+public class OverlayFastPath {
+
+  private static boolean isFastCovers(final Polygonal polygonal, final Geometry geometry) {
+    if (polygonal.bboxCovers(geometry)) {
+      if (polygonal.isRectangle()) {
+        return true;
+      } else if (polygonal instanceof PreparedPolygonal) {
+        return polygonal.covers(geometry);
+      }
+    }
+    return false;
+  }
+
+  private static Geometry newResult(final Polygonal polygonal,
+    final GeometryFactory geometryFactory, final boolean copy) {
+    if (copy || polygonal instanceof PreparedPolygonal
+      || polygonal.getGeometryFactory() != geometryFactory) {
+      return polygonal.newGeometry(geometryFactory);
+    } else {
+      return polygonal;
+    }
+  }
+
+  /**
+   * Compute the intersection if there is a fast path. The result is a new
+   * geometry, never one of the inputs.
+   *
+   * @param geometry1 The first geometry.
+   * @param geometry2 The second geometry.
+   * @param opCode The overlay operation code.
+   * @return The result geometry or null if there was no fast path or the
+   *         operation isn't {@link OverlayOp#INTERSECTION}.
+   */
+  public static Geometry overlay(final Geometry geometry1, final Geometry geometry2,
+    final int opCode) {
+    if (opCode != OverlayOp.INTERSECTION || geometry1.isEmpty() || geometry2.isEmpty()) {
+      return null;
+    } else if (geometry1 instanceof Polygonal && geometry2 instanceof Polygonal) {
+      return overlayPolygonal((Polygonal)geometry1, (Polygonal)geometry2, opCode, true);
+    } else if (!geometry1.bboxIntersects(geometry2)) {
+      final GeometryFactory geometryFactory = geometry1.getGeometryFactory();
+      return OverlayOp.newEmptyResult(opCode, geometry1, geometry2, geometryFactory);
+    } else {
+      return null;
+    }
+  }
+
+  private static Geometry overlayPolygonal(final Polygonal polygonal1,
+    final Polygonal polygonal2, final int opCode, final boolean copy) {
+    final GeometryFactory geometryFactory = polygonal1.getGeometryFactory();
+    if (!polygonal1.bboxIntersects(polygonal2)) {
+      switch (opCode) {
+        case OverlayOp.INTERSECTION:
+          return OverlayOp.newEmptyResult(opCode, polygonal1, polygonal2, geometryFactory);
+        case OverlayOp.DIFFERENCE:
+          return newResult(polygonal1, geometryFactory, copy);
+        case OverlayOp.UNION:
+        case OverlayOp.SYMDIFFERENCE:
+          final List<Polygon> polygons = new ArrayList<>();
+          for (final Polygon polygon : polygonal1.getGeometries(Polygon.class)) {
+            polygons.add(polygon.newGeometry(geometryFactory));
+          }
+          for (final Polygon polygon : polygonal2.getGeometries(Polygon.class)) {
+            polygons.add(polygon.newGeometry(geometryFactory));
+          }
+          return geometryFactory.polygonal(polygons);
+        default:
+          return null;
+      }
+    } else if (isFastCovers(polygonal1, polygonal2)) {
+      switch (opCode) {
+        case OverlayOp.INTERSECTION:
+          return newResult(polygonal2, geometryFactory, copy);
+        case OverlayOp.UNION:
+          return newResult(polygonal1, geometryFactory, copy);
+        default:
+          return null;
+      }
+    } else if (isFastCovers(polygonal2, polygonal1)) {
+      switch (opCode) {
+        case OverlayOp.INTERSECTION:
+          return newResult(polygonal1, geometryFactory, copy);
+        case OverlayOp.UNION:
+          return newResult(polygonal2, geometryFactory, copy);
+        case OverlayOp.DIFFERENCE:
+          return OverlayOp.newEmptyResult(opCode, polygonal1, polygonal2, geometryFactory);
+        default:
+          return null;
+      }
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Compute the result of the overlay operation if there is a fast path,
+   * including the shortcuts for union, difference and symmetric difference.
+   * The result may be one of the input geometries (if it isn't prepared) and
+   * the union of disjoint polygons isn't noded or normalized, so this is only
+   * for callers that don't modify the result.
+   *
+   * @param geometry1 The first geometry.
+   * @param geometry2 The second geometry.
+   * @param opCode The overlay operation code.
+   * @return The result geometry or null if there was no fast path.
+   */
+  public static Geometry overlayShortcut(final Geometry geometry1, final Geometry geometry2,
+    final int opCode) {
+    if (geometry1.isEmpty() || geometry2.isEmpty()) {
+      return null;
+    } else if (geometry1 instanceof Polygonal && geometry2 instanceof Polygonal) {
+      return overlayPolygonal((Polygonal)geometry1, (Polygonal)geometry2, opCode, false);
+    } else {
+      return overlay(geometry1, geometry2, opCode);
+    }
+  }
+
+  private OverlayFastPath() {
+  }
+}
@@ -182,6 +182,8 @@ public class OverlayOp extends GeometryGraphOperation {
   /**
    * Computes an overlay operation for
    * the given geometry arguments.
+   * The {@link OverlayFastPath} is used if the result of an intersection can
+   * be computed without building the geometry graphs.
    *
    * @param geom0 the first geometry argument
    * @param geom1 the second geometry argument
@@ -190,6 +192,10 @@ public class OverlayOp extends GeometryGraphOperation {
    * @throws TopologyException if a robustness problem is encountered
    */
   public static Geometry overlayOp(final Geometry geom0, final Geometry geom1, final int opCode) {
+    final Geometry fastResult = OverlayFastPath.overlay(geom0, geom1, opCode);
+    if (fastResult != null) {
+      return fastResult;
+    }
     final OverlayOp gov = new OverlayOp(geom0, geom1);
     final Geometry geomOv = gov.getResultGeometry(opCode);
     return geomOv;
@@ -0,0 +1,300 @@
+package com.revolsys.geometry.operation.predicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.jeometry.common.function.BiConsumerInt;
+
+import com.revolsys.geometry.index.strtree.StrTree;
+import com.revolsys.geometry.index.strtree.StrTreeNode;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.Location;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygonal;
+
+/**
+ * A spatial join between a set of polygons and candidate geometries using a
+ * {@link SpatialPredicate}.
+ * <p>
+ * The polygons are prepared and loaded into a {@link StrTree} once, so the
+ * join can be used for many sets of candidates. The candidates are evaluated in
+ * blocks on the fork/join pool. Each block has its own buffers for the index
+ * query and the matches. Points are located directly in the prepared polygons.
+ * <p>
+ * The result is the matched pairs of polygon id and candidate id, which are the
+ * indexes of the geometries in the input lists. Each pair is packed into a long,
+ * use {@link #getPolygonId(long)} and {@link #getCandidateId(long)} to read them.
+ * The pairs are ordered by candidate id and then polygon id.
+ * <p>
+ * The candidates must use the same coordinate system as the polygons.
+ */
+public class PreparedPolygonSpatialJoin {
+
+  private class JoinBlock implements Consumer<IndexedPolygon> {
+    private final List<IndexedPolygon> polygons = new ArrayList<>();
+
+    private long[] pairs = new long[64];
+
+    private int pairCount = 0;
+
+    @Override
+    public void accept(final IndexedPolygon polygon) {
+      this.polygons.add(polygon);
+    }
+
+    private void addPair(final int polygonId, final int candidateId) {
+      if (this.pairCount == this.pairs.length) {
+        this.pairs = Arrays.copyOf(this.pairs, this.pairCount * 2);
+      }
+      this.pairs[this.pairCount++] = newPair(polygonId, candidateId);
+    }
+
+    private long[] getPairs() {
+      return Arrays.copyOf(this.pairs, this.pairCount);
+    }
+
+    private void join(final Geometry candidate, final int candidateId,
+      final SpatialPredicate predicate) {
+      if (candidate != null && !candidate.isEmpty()) {
+        if (candidate instanceof Point) {
+          final Point point = (Point)candidate;
+          join(point.getX(), point.getY(), candidateId, predicate);
+        } else {
+          final BoundingBox boundingBox = candidate.getBoundingBox();
+          query(boundingBox.getMinX(), boundingBox.getMinY(), boundingBox.getMaxX(),
+            boundingBox.getMaxY());
+          for (final IndexedPolygon polygon : this.polygons) {
+            if (predicate.test(polygon.polygon, candidate)) {
+              addPair(polygon.id, candidateId);
+            }
+          }
+        }
+      }
+    }
+
+    private void join(final double x, final double y, final int candidateId,
+      final SpatialPredicate predicate) {
+      query(x, y, x, y);
+      for (final IndexedPolygon polygon : this.polygons) {
+        final Location location = polygon.polygon.locate(x, y);
+        if (predicate.test(location)) {
+          addPair(polygon.id, candidateId);
+        }
+      }
+    }
+
+    private void query(final double minX, final double minY, final double maxX,
+      final double maxY) {
+      this.polygons.clear();
+      PreparedPolygonSpatialJoin.this.root.query(minX, minY, maxX, maxY, this);
+      if (this.polygons.size() > 1) {
+        this.polygons.sort(null);
+      }
+    }
+  }
+
+  private static class IndexedPolygon implements Comparable<IndexedPolygon> {
+    private final int id;
+
+    private final Polygonal polygon;
+
+    private IndexedPolygon(final int id, final Polygonal polygon) {
+      this.id = id;
+      this.polygon = polygon;
+    }
+
+    @Override
+    public int compareTo(final IndexedPolygon other) {
+      return Integer.compare(this.id, other.id);
+    }
+  }
+
+  @FunctionalInterface
+  private interface JoinBlockAction {
+    void join(JoinBlock block, int startIndex, int endIndex);
+  }
+
+  public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+  private static final long[] EMPTY_PAIRS = new long[0];
+
+  public static int getCandidateId(final long pair) {
+    return (int)pair;
+  }
+
+  public static int getPolygonId(final long pair) {
+    return (int)(pair >>> 32);
+  }
+
+  public static long newPair(final int polygonId, final int candidateId) {
+    return (long)polygonId << 32 | candidateId & 0xFFFFFFFFL;
+  }
+
+  private int blockSize = DEFAULT_BLOCK_SIZE;
+
+  private boolean parallel = true;
+
+  private final int polygonCount;
+
+  private final StrTreeNode<IndexedPolygon> root;
+
+  /**
+   * Construct a new join for the polygons. Null or empty polygons are ignored
+   * but still use an id.
+   *
+   * @param polygons The polygons.
+   */
+  public PreparedPolygonSpatialJoin(final Iterable<? extends Polygonal> polygons) {
+    final StrTree<IndexedPolygon> index = new StrTree<>();
+    int id = 0;
+    for (final Polygonal polygon : polygons) {
+      if (polygon != null && !polygon.isEmpty()) {
+        final Polygonal preparedPolygon = polygon.prepare();
+        index.insertItem(preparedPolygon.getBoundingBox(),
+          new IndexedPolygon(id, preparedPolygon));
+      }
+      id++;
+    }
+    this.polygonCount = id;
+    this.root = index.getRoot();
+  }
+
+  public int getBlockSize() {
+    return this.blockSize;
+  }
+
+  public int getPolygonCount() {
+    return this.polygonCount;
+  }
+
+  public boolean isParallel() {
+    return this.parallel;
+  }
+
+  /**
+   * Join the polygons to a stream of candidate geometries. The candidates are
+   * read in batches so only one batch is in memory at a time. The action is
+   * called on the current thread for each matched pair in candidate order.
+   *
+   * @param candidates The candidate geometries.
+   * @param predicate The predicate to test.
+   * @param action The action to call with the polygon id and candidate id.
+   */
+  public void join(final Iterable<? extends Geometry> candidates,
+    final SpatialPredicate predicate, final BiConsumerInt action) {
+    final int batchSize = this.blockSize * ForkJoinPool.getCommonPoolParallelism() * 4;
+    final List<Geometry> batch = new ArrayList<>(batchSize);
+    int offset = 0;
+    for (final Iterator<? extends Geometry> iterator = candidates.iterator(); iterator
+      .hasNext();) {
+      batch.add(iterator.next());
+      if (batch.size() == batchSize || !iterator.hasNext()) {
+        final long[] pairs = join(batch, offset, predicate);
+        for (final long pair : pairs) {
+          action.accept(getPolygonId(pair), getCandidateId(pair));
+        }
+        offset += batch.size();
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Join the polygons to the list of candidate geometries.
+   *
+   * @param candidates The candidate geometries.
+   * @param predicate The predicate to test.
+   * @return The matched pairs.
+   */
+  public long[] join(final List<? extends Geometry> candidates,
+    final SpatialPredicate predicate) {
+    return join(candidates, 0, predicate);
+  }
+
+  private long[] join(final List<? extends Geometry> candidates, final int offset,
+    final SpatialPredicate predicate) {
+    final int candidateCount = candidates.size();
+    return joinBlocks(candidateCount, (block, startIndex, endIndex) -> {
+      for (int i = startIndex; i < endIndex; i++) {
+        final Geometry candidate = candidates.get(i);
+        block.join(candidate, offset + i, predicate);
+      }
+    });
+  }
+
+  private long[] joinBlocks(final int candidateCount, final JoinBlockAction action) {
+    if (candidateCount == 0 || this.root.isEmpty()) {
+      return EMPTY_PAIRS;
+    } else {
+      final int blockSize = this.blockSize;
+      final int blockCount = (int)(((long)candidateCount + blockSize - 1) / blockSize);
+      IntStream blocks = IntStream.range(0, blockCount);
+      if (this.parallel && blockCount > 1) {
+        blocks = blocks.parallel();
+      }
+      final long[][] blockPairs = blocks.mapToObj(blockIndex -> {
+        final int startIndex = blockIndex * blockSize;
+        final int endIndex = Math.min(candidateCount, startIndex + blockSize);
+        final JoinBlock block = new JoinBlock();
+        action.join(block, startIndex, endIndex);
+        return block.getPairs();
+      }).toArray(long[][]::new);
+      if (blockPairs.length == 1) {
+        return blockPairs[0];
+      } else {
+        int pairCount = 0;
+        for (final long[] pairs : blockPairs) {
+          pairCount += pairs.length;
+        }
+        final long[] allPairs = new long[pairCount];
+        int index = 0;
+        for (final long[] pairs : blockPairs) {
+          System.arraycopy(pairs, 0, allPairs, index, pairs.length);
+          index += pairs.length;
+        }
+        return allPairs;
+      }
+    }
+  }
+
+  /**
+   * Join the polygons to points without creating point geometries. The
+   * candidate id is the index of the point.
+   *
+   * @param coordinates The x,y coordinates of the points.
+   * @param predicate The predicate to test.
+   * @return The matched pairs.
+   */
+  public long[] joinPoints(final double[] coordinates, final SpatialPredicate predicate) {
+    final int pointCount = coordinates.length / 2;
+    return joinBlocks(pointCount, (block, startIndex, endIndex) -> {
+      for (int i = startIndex; i < endIndex; i++) {
+        final double x = coordinates[i * 2];
+        final double y = coordinates[i * 2 + 1];
+        block.join(x, y, i, predicate);
+      }
+    });
+  }
+
+  /**
+   * Set the number of candidates in each block that is evaluated as a task.
+   *
+   * @param blockSize The number of candidates.
+   * @return This join.
+   */
+  public PreparedPolygonSpatialJoin setBlockSize(final int blockSize) {
+    this.blockSize = Math.max(1, blockSize);
+    return this;
+  }
+
+  public PreparedPolygonSpatialJoin setParallel(final boolean parallel) {
+    this.parallel = parallel;
+    return this;
+  }
+}
@@ -0,0 +1,62 @@
+package com.revolsys.geometry.operation.predicate;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.Location;
+
+/**
+ * The spatial predicates that can be evaluated by a {@link PreparedPolygonSpatialJoin}.
+ */
+public enum SpatialPredicate {
+  CONTAINS {
+    @Override
+    public boolean test(final Geometry geometry, final Geometry other) {
+      return geometry.contains(other);
+    }
+
+    @Override
+    public boolean test(final Location location) {
+      return location == Location.INTERIOR;
+    }
+  },
+
+  COVERS {
+    @Override
+    public boolean test(final Geometry geometry, final Geometry other) {
+      return geometry.covers(other);
+    }
+
+    @Override
+    public boolean test(final Location location) {
+      return location != Location.EXTERIOR;
+    }
+  },
+
+  INTERSECTS {
+    @Override
+    public boolean test(final Geometry geometry, final Geometry other) {
+      return geometry.intersects(other);
+    }
+
+    @Override
+    public boolean test(final Location location) {
+      return location != Location.EXTERIOR;
+    }
+  };
+
+  /**
+   * Test the predicate for the geometry and the other geometry.
+   *
+   * @param geometry The geometry (e.g. the prepared polygon).
+   * @param other The other geometry.
+   * @return True if the predicate is true.
+   */
+  public abstract boolean test(Geometry geometry, Geometry other);
+
+  /**
+   * Test the predicate for a point with the location of the point in the geometry.
+   *
+   * @param location The location of the point.
+   * @return True if the predicate is true.
+   */
+  public abstract boolean test(Location location);
+}
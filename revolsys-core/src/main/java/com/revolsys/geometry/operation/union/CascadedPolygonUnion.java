@@ -35,6 +35,9 @@ package com.revolsys.geometry.operation.union;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import com.revolsys.collection.list.Lists;
 import com.revolsys.geometry.index.strtree.StrTree;
@@ -70,11 +73,39 @@ import com.revolsys.util.Property;
  * The best situation for using <tt>buffer(0)</tt> is the trivial case
  * where there is <i>no</i> overlap between the input geometries.
  * However, this case is likely rare in practice.
+ * <p>
+ * The union is sequential by default. If a parallel threshold is set (or
+ * {@link #union(Iterable, boolean)} is used with parallel = true) subtrees of
+ * the index with at least the parallel threshold number of polygons are
+ * unioned as separate fork/join tasks. The subtrees of the index
+ * are spatially separate so the partial results stay small. The polygons are
+ * unioned in the same order as the sequential union so the result is the same.
  *
  * @author Martin Davis
  *
  */
 public class CascadedPolygonUnion {
+  private class UnionTreeTask extends RecursiveTask<Polygonal> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<?> items;
+
+    private UnionTreeTask(final List<?> items) {
+      this.items = items;
+    }
+
+    @Override
+    protected Polygonal compute() {
+      return unionTree(this.items);
+    }
+  }
+
+  /**
+   * The minimum number of polygons in a subtree before it is unioned in a
+   * separate task when {@link #union(Iterable, boolean)} is parallel.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+
   /**
    * The effectiveness of the index is somewhat sensitive
    * to the node capacity.
@@ -101,6 +132,24 @@ public class CascadedPolygonUnion {
     }
   }
 
+  /**
+   * Get the number of polygons in the tree of items, stopping once the count
+   * reaches the limit so only the start of a large subtree is visited.
+   */
+  private static int itemCount(final List<?> items, final int limit) {
+    int count = 0;
+    for (final Object item : items) {
+      if (count >= limit) {
+        return count;
+      } else if (item instanceof List) {
+        count += itemCount((List<?>)item, limit - count);
+      } else if (item != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   /**
    * Computes a {@link Polygonal} containing only {@link Polygonal} components.
    * Extracts the {@link Polygon}s from the input
@@ -138,6 +187,22 @@ public class CascadedPolygonUnion {
     return op.union();
   }
 
+  /**
+   * Computes the union of
+   * a collection of {@link Polygonal} {@link Polygonal}s.
+   *
+   * @param polygons a collection of {@link Polygonal} {@link Polygonal}s
+   * @param parallel True if the subtrees can be unioned in parallel.
+   */
+  public static Polygonal union(final Iterable<? extends Polygonal> polygons,
+    final boolean parallel) {
+    final CascadedPolygonUnion op = new CascadedPolygonUnion(polygons);
+    if (parallel) {
+      op.setParallelThreshold(DEFAULT_PARALLEL_THRESHOLD);
+    }
+    return op.union();
+  }
+
   public static Polygonal union(final Polygonal... polygons) {
     return union(Arrays.asList(polygons));
   }
@@ -146,6 +211,8 @@ public class CascadedPolygonUnion {
 
   private List<Polygon> polygons = new ArrayList<>();
 
+  private int parallelThreshold = Integer.MAX_VALUE;
+
   /**
    * Creates a new instance to union
    * the given collection of {@link Polygonal}s.
@@ -223,26 +290,80 @@ public class CascadedPolygonUnion {
     }
   }
 
+  public int getParallelThreshold() {
+    return this.parallelThreshold;
+  }
+
+  /**
+   * Check if the subtree has at least {@link #parallelThreshold} polygons. The
+   * tree isn't visited if parallel union is disabled.
+   */
+  private boolean isParallel(final List<?> items) {
+    final int parallelThreshold = this.parallelThreshold;
+    if (parallelThreshold == Integer.MAX_VALUE) {
+      return false;
+    } else {
+      return itemCount(items, parallelThreshold) >= parallelThreshold;
+    }
+  }
+
   /**
    * Reduces a tree of geometries to a list of geometries
    * by recursively unioning the subtrees in the list.
+   * Subtrees with at least {@link #parallelThreshold} polygons
+   * are unioned in parallel.
    *
    * @param geomTree a tree-structured list of geometries
    * @return a list of Geometrys
    */
   private List<Polygonal> reduceToGeometries(final List<?> items) {
-    final List<Polygonal> geoms = new ArrayList<>();
-    for (final Object item : items) {
-      Polygonal polygon = null;
+    final int itemCount = items.size();
+    final Polygonal[] geoms = new Polygonal[itemCount];
+    final UnionTreeTask[] tasks = new UnionTreeTask[itemCount];
+    int taskCount = 0;
+    for (int i = 0; i < itemCount; i++) {
+      final Object item = items.get(i);
       if (item instanceof List) {
         final List<?> childItems = (List<?>)item;
-        polygon = unionTree(childItems);
+        if (ForkJoinTask.inForkJoinPool() && isParallel(childItems)) {
+          tasks[i] = new UnionTreeTask(childItems);
+          taskCount++;
+        }
       } else if (item instanceof Polygonal) {
-        polygon = (Polygonal)item;
+        geoms[i] = (Polygonal)item;
+      }
+    }
+    if (taskCount > 0) {
+      for (int i = itemCount - 1; i >= 0; i--) {
+        final UnionTreeTask task = tasks[i];
+        if (task != null) {
+          task.fork();
+        }
       }
-      geoms.add(polygon);
     }
-    return geoms;
+    for (int i = 0; i < itemCount; i++) {
+      final Object item = items.get(i);
+      final UnionTreeTask task = tasks[i];
+      if (task != null) {
+        geoms[i] = task.join();
+      } else if (item instanceof List) {
+        geoms[i] = unionTree((List<?>)item);
+      }
+    }
+    return Arrays.asList(geoms);
+  }
+
+  /**
+   * Set the minimum number of polygons in a subtree before it is unioned as a
+   * separate fork/join task. The default {@link Integer#MAX_VALUE} unions on
+   * the current thread.
+   *
+   * @param parallelThreshold The minimum number of polygons.
+   * @return This union.
+   */
+  public CascadedPolygonUnion setParallelThreshold(final int parallelThreshold) {
+    this.parallelThreshold = Math.max(2, parallelThreshold);
+    return this;
   }
 
   /**
@@ -278,11 +399,15 @@ public class CascadedPolygonUnion {
         final BoundingBox boundingBox = polygon.getBoundingBox();
         index.insertItem(boundingBox, polygon);
       }
+      final int polygonCount = this.polygons.size();
       this.polygons = null;
 
       final List<?> itemTree = index.itemsTree();
-      final Polygonal unionAll = unionTree(itemTree);
-      return unionAll;
+      if (polygonCount >= this.parallelThreshold) {
+        return ForkJoinPool.commonPool().invoke(new UnionTreeTask(itemTree));
+      } else {
+        return unionTree(itemTree);
+      }
     }
   }
 
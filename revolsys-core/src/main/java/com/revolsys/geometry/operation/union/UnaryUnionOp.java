@@ -113,7 +113,26 @@ public class UnaryUnionOp {
    * or an empty GEOMETRYCOLLECTION
    */
   public static Geometry union(final Collection<? extends Geometry> geometries,
-    GeometryFactory geometryFactory) {
+    final GeometryFactory geometryFactory) {
+    return union(geometries, geometryFactory, false);
+  }
+
+  /**
+   * Computes the geometric union of a {@link Collection}
+   * of {@link Geometry}s.
+   *
+   * If no input geometries were provided but a {@link GeometryFactory} was provided,
+   * an empty {@link Geometry} is returned.
+   *
+   * @param geoms a collection of geometries
+   * @param geometryFactory the geometry factory to use if the collection is empty
+   * @param parallel True if large sets of polygons can be unioned in parallel.
+   * @return the union of the geometries,
+   * or an empty GEOMETRYCOLLECTION
+   * @see CascadedPolygonUnion#setParallelThreshold(int)
+   */
+  public static Geometry union(final Collection<? extends Geometry> geometries,
+    GeometryFactory geometryFactory, final boolean parallel) {
 
     final List<Point> points = new ArrayList<>();
     final List<LineString> lines = new ArrayList<>();
@@ -126,7 +145,7 @@ public class UnaryUnionOp {
       lines.addAll(geometry.getGeometries(LineString.class));
       polygons.addAll(geometry.getGeometries(Polygon.class));
     }
-    return union(geometryFactory, points, lines, polygons);
+    return union(geometryFactory, points, lines, polygons, parallel);
   }
 
   /**
@@ -152,7 +171,7 @@ public class UnaryUnionOp {
    * or <code>null</code> if no GeometryFactory was provided
    */
   private static Geometry union(final GeometryFactory geometryFactory, final List<Point> points,
-    final List<LineString> lines, final List<Polygon> polygons) {
+    final List<LineString> lines, final List<Polygon> polygons, final boolean parallel) {
     if (geometryFactory == null) {
       return null;
     } else {
@@ -177,7 +196,7 @@ public class UnaryUnionOp {
 
       Geometry unionPolygons = null;
       if (polygons.size() > 0) {
-        unionPolygons = CascadedPolygonUnion.union(polygons);
+        unionPolygons = CascadedPolygonUnion.union(polygons, parallel);
       }
 
       /**
@@ -0,0 +1,587 @@
+package com.revolsys.geometry.operation.valid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.revolsys.geometry.algorithm.CGAlgorithmsDD;
+import com.revolsys.geometry.algorithm.LineIntersector;
+import com.revolsys.geometry.algorithm.RobustLineIntersector;
+import com.revolsys.geometry.algorithm.locate.IndexedPointInAreaLocator;
+import com.revolsys.geometry.geomgraph.Quadrant;
+import com.revolsys.geometry.index.chain.MonotoneChain;
+import com.revolsys.geometry.index.chain.MonotoneChainOverlapAction;
+import com.revolsys.geometry.index.intervalrtree.SortedPackedIntervalRTree;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.LinearRing;
+import com.revolsys.geometry.model.Location;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.impl.PointDoubleXY;
+
+/**
+ * Validate the topology of a {@link Polygonal} geometry without building a
+ * {@link com.revolsys.geometry.geomgraph.GeometryGraph}. This is intended for
+ * very large polygons with many vertices and holes.
+ *
+ * <p>The rings are split into {@link MonotoneChain}s which are indexed by their x
+ * interval in a {@link SortedPackedIntervalRTree}. Overlapping chains are
+ * intersected to find crossing and overlapping segments and the points where
+ * rings touch. Ring nesting is tested using one point of each ring that is not
+ * a touch point, against the rings whose bounding box contains it. The interior
+ * is disconnected if the rings of a polygon and the points where they touch
+ * form a cycle.</p>
+ *
+ * <p>The memory used is proportional to the number of chains and touch points,
+ * not the number of segment intersections. The chains, intersections and
+ * nesting tests for each ring can be computed in parallel.</p>
+ *
+ * <p>The validator assumes the rings are closed and have enough points. Self
+ * touching rings that form holes are reported as invalid.</p>
+ */
+public class IndexedPolygonalValidator {
+
+  /**
+   * Intersect a chain with the chains it overlaps that have a higher id,
+   * recording the errors and touch points found.
+   */
+  private class ChainIntersector implements MonotoneChainOverlapAction {
+    private final LineIntersector lineIntersector = new RobustLineIntersector();
+
+    private final List<RingNode> nodes = new ArrayList<>();
+
+    private final List<RingNode> errors = new ArrayList<>();
+
+    private int ringIndex1;
+
+    private int ringIndex2;
+
+    private void intersect(final int chainIndex) {
+      final MonotoneChain chain = IndexedPolygonalValidator.this.chains[chainIndex];
+      final double minY = chain.getMinY();
+      final double maxY = chain.getMaxY();
+      this.ringIndex1 = IndexedPolygonalValidator.this.chainRings[chainIndex];
+      IndexedPolygonalValidator.this.chainIndex.query(chain.getMinX(), chain.getMaxX(),
+        chain2 -> {
+          final int chainIndex2 = chain2.getId();
+          if (chainIndex2 > chainIndex && chain2.getMinY() <= maxY
+            && minY <= chain2.getMaxY()) {
+            this.ringIndex2 = IndexedPolygonalValidator.this.chainRings[chainIndex2];
+            chain.computeOverlaps(chain2, this);
+          }
+        });
+    }
+
+    @Override
+    public void overlap(final MonotoneChain chain1, final int segmentIndex1,
+      final MonotoneChain chain2, final int segmentIndex2) {
+      final int ringIndex1 = this.ringIndex1;
+      final int ringIndex2 = this.ringIndex2;
+      final LinearRing ring1 = IndexedPolygonalValidator.this.rings[ringIndex1];
+      final LinearRing ring2 = IndexedPolygonalValidator.this.rings[ringIndex2];
+      final double x1 = ring1.getX(segmentIndex1);
+      final double y1 = ring1.getY(segmentIndex1);
+      final double x2 = ring1.getX(segmentIndex1 + 1);
+      final double y2 = ring1.getY(segmentIndex1 + 1);
+      final double x3 = ring2.getX(segmentIndex2);
+      final double y3 = ring2.getY(segmentIndex2);
+      final double x4 = ring2.getX(segmentIndex2 + 1);
+      final double y4 = ring2.getY(segmentIndex2 + 1);
+      if (x1 == x2 && y1 == y2 || x3 == x4 && y3 == y4) {
+        // zero length segments are handled by the segments either side
+        return;
+      }
+      final LineIntersector lineIntersector = this.lineIntersector;
+      if (lineIntersector.computeIntersectionLine(x1, y1, x2, y2, x3, y3, x4, y4)) {
+        final Point intersection = lineIntersector.getIntersection(0);
+        final double x = intersection.getX();
+        final double y = intersection.getY();
+        final boolean sameRing = ringIndex1 == ringIndex2;
+        if (lineIntersector.getIntersectionCount() == 2 || lineIntersector.isProper()) {
+          this.errors.add(new RingNode(ringIndex1, ringIndex2, x, y,
+            TopologyValidationError.SELF_INTERSECTION));
+        } else if (sameRing) {
+          if (!isAdjacent(ring1, segmentIndex1, segmentIndex2, x, y)) {
+            this.errors.add(new RingNode(ringIndex1, ringIndex2, x, y,
+              TopologyValidationError.RING_SELF_INTERSECTION));
+          }
+        } else if (isCrossing(ring1, segmentIndex1, ring2, segmentIndex2, x, y)) {
+          this.errors.add(new RingNode(ringIndex1, ringIndex2, x, y,
+            TopologyValidationError.SELF_INTERSECTION));
+        } else {
+          this.nodes.add(new RingNode(ringIndex1, ringIndex2, x, y, -1));
+        }
+      }
+    }
+  }
+
+  /**
+   * A point where two rings intersect, with the error type or -1 if the rings
+   * touch.
+   */
+  private static class RingNode {
+    private final int ringIndex1;
+
+    private final int ringIndex2;
+
+    private final double x;
+
+    private final double y;
+
+    private final int errorType;
+
+    private RingNode(final int ringIndex1, final int ringIndex2, final double x, final double y,
+      final int errorType) {
+      this.ringIndex1 = ringIndex1;
+      this.ringIndex2 = ringIndex2;
+      this.x = x;
+      this.y = y;
+      this.errorType = errorType;
+    }
+
+    private Point newPoint() {
+      return new PointDoubleXY(this.x, this.y);
+    }
+  }
+
+  /**
+   * Compare the angle of the points p and q around the origin, measured
+   * counter-clockwise from the positive x axis.
+   */
+  private static int compareAngle(final double originX, final double originY, final double px,
+    final double py, final double qx, final double qy) {
+    final int quadrantP = Quadrant.quadrant(px - originX, py - originY);
+    final int quadrantQ = Quadrant.quadrant(qx - originX, qy - originY);
+    if (quadrantP > quadrantQ) {
+      return 1;
+    } else if (quadrantP < quadrantQ) {
+      return -1;
+    } else {
+      return CGAlgorithmsDD.orientationIndex(originX, originY, qx, qy, px, py);
+    }
+  }
+
+  /**
+   * Get the side of the line from the origin to p relative to the sector from
+   * e0 to e1 (e0 has the smaller angle).
+   *
+   * @return 1 if inside the sector, -1 if outside and 0 if on one of the edges.
+   */
+  private static int compareBetween(final double originX, final double originY,
+    final double px, final double py, final double[] sector) {
+    final int compare0 = compareAngle(originX, originY, px, py, sector[0], sector[1]);
+    if (compare0 == 0) {
+      return 0;
+    }
+    final int compare1 = compareAngle(originX, originY, px, py, sector[2], sector[3]);
+    if (compare1 == 0) {
+      return 0;
+    } else if (compare0 > 0 && compare1 < 0) {
+      return 1;
+    } else {
+      return -1;
+    }
+  }
+
+  private static int find(final int[] parents, int index) {
+    while (parents[index] != index) {
+      parents[index] = parents[parents[index]];
+      index = parents[index];
+    }
+    return index;
+  }
+
+  /**
+   * Get the previous and next points on the ring that are not equal to the
+   * node point on the given segment.
+   *
+   * @return [previousX, previousY, nextX, nextY]
+   */
+  private static double[] getNodeEdges(final LinearRing ring, final int segmentIndex,
+    final double x, final double y) {
+    final int segmentCount = ring.getVertexCount() - 1;
+    int previousIndex;
+    int nextIndex;
+    if (ring.equalsVertex(segmentIndex, x, y)) {
+      previousIndex = segmentIndex;
+      nextIndex = segmentIndex;
+    } else if (ring.equalsVertex(segmentIndex + 1, x, y)) {
+      previousIndex = segmentIndex + 1;
+      nextIndex = segmentIndex + 1;
+    } else {
+      return new double[] {
+        ring.getX(segmentIndex), ring.getY(segmentIndex), ring.getX(segmentIndex + 1),
+        ring.getY(segmentIndex + 1)
+      };
+    }
+    do {
+      previousIndex = (previousIndex + segmentCount - 1) % segmentCount;
+    } while (ring.equalsVertex(previousIndex, x, y));
+    do {
+      nextIndex = (nextIndex + 1) % segmentCount;
+    } while (ring.equalsVertex(nextIndex, x, y));
+    return new double[] {
+      ring.getX(previousIndex), ring.getY(previousIndex), ring.getX(nextIndex),
+      ring.getY(nextIndex)
+    };
+  }
+
+  /**
+   * Check if the segments are adjacent in the ring, ignoring zero length
+   * segments between them.
+   */
+  private static boolean isAdjacent(final LinearRing ring, final int segmentIndex1,
+    final int segmentIndex2, final double x, final double y) {
+    final int fromIndex = Math.min(segmentIndex1, segmentIndex2);
+    final int toIndex = Math.max(segmentIndex1, segmentIndex2);
+    boolean adjacent = true;
+    for (int vertexIndex = fromIndex + 1; adjacent && vertexIndex <= toIndex; vertexIndex++) {
+      adjacent = ring.equalsVertex(vertexIndex, x, y);
+    }
+    if (adjacent) {
+      return true;
+    } else {
+      final int vertexCount = ring.getVertexCount();
+      for (int vertexIndex = toIndex + 1; vertexIndex < vertexCount; vertexIndex++) {
+        if (!ring.equalsVertex(vertexIndex, x, y)) {
+          return false;
+        }
+      }
+      for (int vertexIndex = 1; vertexIndex <= fromIndex; vertexIndex++) {
+        if (!ring.equalsVertex(vertexIndex, x, y)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Check if the edges of ring2 at the node cross from one side of the edges of
+   * ring1 to the other.
+   */
+  private static boolean isCrossing(final LinearRing ring1, final int segmentIndex1,
+    final LinearRing ring2, final int segmentIndex2, final double x, final double y) {
+    final double[] edges1 = getNodeEdges(ring1, segmentIndex1, x, y);
+    final double[] edges2 = getNodeEdges(ring2, segmentIndex2, x, y);
+    if (compareAngle(x, y, edges1[0], edges1[1], edges1[2], edges1[3]) > 0) {
+      final double[] sector = {
+        edges1[2], edges1[3], edges1[0], edges1[1]
+      };
+      return isCrossing(x, y, sector, edges2);
+    } else {
+      return isCrossing(x, y, edges1, edges2);
+    }
+  }
+
+  private static boolean isCrossing(final double x, final double y, final double[] sector,
+    final double[] edges) {
+    final int compare0 = compareBetween(x, y, edges[0], edges[1], sector);
+    if (compare0 == 0) {
+      return false;
+    }
+    final int compare1 = compareBetween(x, y, edges[2], edges[3], sector);
+    if (compare1 == 0) {
+      return false;
+    }
+    return compare0 != compare1;
+  }
+
+  private final LinearRing[] rings;
+
+  /** The index of the polygon for each ring. */
+  private final int[] ringPolygons;
+
+  /** The index of the shell ring for each polygon. */
+  private final int[] polygonShells;
+
+  private final BoundingBox[] ringBoundingBoxes;
+
+  private final AtomicReferenceArray<IndexedPointInAreaLocator> locators;
+
+  private MonotoneChain[] chains;
+
+  private int[] chainRings;
+
+  private SortedPackedIntervalRTree<MonotoneChain> chainIndex;
+
+  private SortedPackedIntervalRTree<Integer> ringIndex;
+
+  private final Map<Point, List<Integer>> touchNodes = new TreeMap<>();
+
+  private final boolean parallel;
+
+  private final boolean shortCircuit;
+
+  public IndexedPolygonalValidator(final Polygonal polygonal, final boolean parallel,
+    final boolean shortCircuit) {
+    this.parallel = parallel;
+    this.shortCircuit = shortCircuit;
+    final List<LinearRing> rings = new ArrayList<>();
+    final List<Integer> ringPolygons = new ArrayList<>();
+    final List<Polygon> polygons = polygonal.getPolygons();
+    this.polygonShells = new int[polygons.size()];
+    for (int polygonIndex = 0; polygonIndex < polygons.size(); polygonIndex++) {
+      final Polygon polygon = polygons.get(polygonIndex);
+      this.polygonShells[polygonIndex] = rings.size();
+      for (final LinearRing ring : polygon.rings()) {
+        rings.add(ring);
+        ringPolygons.add(polygonIndex);
+      }
+    }
+    final int ringCount = rings.size();
+    this.rings = rings.toArray(new LinearRing[ringCount]);
+    this.ringPolygons = new int[ringCount];
+    this.ringBoundingBoxes = new BoundingBox[ringCount];
+    for (int ringIndex = 0; ringIndex < ringCount; ringIndex++) {
+      this.ringPolygons[ringIndex] = ringPolygons.get(ringIndex);
+      this.ringBoundingBoxes[ringIndex] = this.rings[ringIndex].getBoundingBox();
+    }
+    this.locators = new AtomicReferenceArray<>(ringCount);
+  }
+
+  private void addError(final List<GeometryValidationError> errors, final int errorType,
+    final Point point) {
+    if (!this.shortCircuit || errors.isEmpty()) {
+      errors.add(new TopologyValidationError(errorType, point));
+    }
+  }
+
+  /**
+   * Check that the rings of each polygon and the points where they touch don't
+   * form a cycle, which would disconnect the interior.
+   */
+  private void checkConnectedInteriors(final List<GeometryValidationError> errors) {
+    final int ringCount = this.rings.length;
+    int size = ringCount;
+    for (final List<Integer> nodeRings : this.touchNodes.values()) {
+      size += nodeRings.size();
+    }
+    final int[] parents = new int[size];
+    for (int i = 0; i < size; i++) {
+      parents[i] = i;
+    }
+    int nodeIndex = ringCount - 1;
+    for (final Map.Entry<Point, List<Integer>> entry : this.touchNodes.entrySet()) {
+      final List<Integer> nodeRings = entry.getValue();
+      // The rings of a polygon are consecutive so sorting groups them by polygon
+      Collections.sort(nodeRings);
+      int previousRingIndex = -1;
+      int previousPolygonIndex = -1;
+      for (final int ringIndex : nodeRings) {
+        if (ringIndex != previousRingIndex) {
+          previousRingIndex = ringIndex;
+          final int polygonIndex = this.ringPolygons[ringIndex];
+          if (polygonIndex != previousPolygonIndex) {
+            // Rings of other polygons at the node don't affect this polygon
+            previousPolygonIndex = polygonIndex;
+            nodeIndex++;
+          }
+          final int ringRoot = find(parents, ringIndex);
+          final int nodeRoot = find(parents, nodeIndex);
+          if (ringRoot == nodeRoot) {
+            addError(errors, TopologyValidationError.DISCONNECTED_INTERIOR, entry.getKey());
+            if (this.shortCircuit) {
+              return;
+            }
+          } else {
+            parents[ringRoot] = nodeRoot;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Check that each hole is inside its shell and not inside another hole, and
+   * that no shell is inside another polygon.
+   */
+  private void checkNesting(final List<GeometryValidationError> errors) {
+    final SortedPackedIntervalRTree<Integer> ringIndex = new SortedPackedIntervalRTree<>();
+    for (int i = 0; i < this.rings.length; i++) {
+      final BoundingBox boundingBox = this.ringBoundingBoxes[i];
+      ringIndex.insert(boundingBox.getMinX(), boundingBox.getMaxX(), i);
+    }
+    this.ringIndex = ringIndex;
+    final List<TopologyValidationError> ringErrors = ringStream(this.rings.length)
+      .mapToObj(this::checkNesting)
+      .filter(Objects::nonNull)
+      .collect(Collectors.toList());
+    for (final TopologyValidationError error : ringErrors) {
+      addError(errors, error.getErrorType(), error.getCoordinate());
+    }
+  }
+
+  private TopologyValidationError checkNesting(final int ringIndex) {
+    final Point point = getTestPoint(ringIndex);
+    if (point == null) {
+      // the disconnected interior test will find any error
+      return null;
+    }
+    final double x = point.getX();
+    final double y = point.getY();
+    final List<Integer> containingRings = new ArrayList<>();
+    this.ringIndex.query(x, x, otherRingIndex -> {
+      if (otherRingIndex != ringIndex) {
+        final BoundingBox boundingBox = this.ringBoundingBoxes[otherRingIndex];
+        if (boundingBox.getMinY() <= y && y <= boundingBox.getMaxY()) {
+          final Location location = getLocator(otherRingIndex).locate(x, y);
+          if (location == Location.INTERIOR) {
+            containingRings.add(otherRingIndex);
+          }
+        }
+      }
+    });
+    final int polygonIndex = this.ringPolygons[ringIndex];
+    final int shellIndex = this.polygonShells[polygonIndex];
+    if (ringIndex == shellIndex) {
+      for (final int otherRingIndex : containingRings) {
+        final int otherPolygonIndex = this.ringPolygons[otherRingIndex];
+        if (otherRingIndex == this.polygonShells[otherPolygonIndex]) {
+          boolean inHole = false;
+          for (final int holeIndex : containingRings) {
+            if (holeIndex != otherRingIndex && this.ringPolygons[holeIndex] == otherPolygonIndex) {
+              inHole = true;
+            }
+          }
+          if (!inHole) {
+            return new TopologyValidationError(TopologyValidationError.NESTED_SHELLS, point);
+          }
+        }
+      }
+    } else {
+      if (!containingRings.contains(shellIndex)) {
+        return new TopologyValidationError(TopologyValidationError.HOLE_OUTSIDE_SHELL, point);
+      }
+      for (final int otherRingIndex : containingRings) {
+        if (otherRingIndex != shellIndex && this.ringPolygons[otherRingIndex] == polygonIndex) {
+          return new TopologyValidationError(TopologyValidationError.NESTED_HOLES, point);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Check for crossing and overlapping segments, and rings that touch
+   * themselves. The points where different rings touch are saved for the
+   * nesting and connected interior tests.
+   */
+  private void checkSelfIntersections(final List<GeometryValidationError> errors) {
+    final MonotoneChain[][] ringChains = ringStream(this.rings.length)
+      .mapToObj(ringIndex -> MonotoneChain.getChainsArray(this.rings[ringIndex], null))
+      .toArray(MonotoneChain[][]::new);
+    int chainCount = 0;
+    for (final MonotoneChain[] chains : ringChains) {
+      chainCount += chains.length;
+    }
+    this.chains = new MonotoneChain[chainCount];
+    this.chainRings = new int[chainCount];
+    final SortedPackedIntervalRTree<MonotoneChain> chainIndex = new SortedPackedIntervalRTree<>();
+    int chainIndexValue = 0;
+    for (int ringIndex = 0; ringIndex < ringChains.length; ringIndex++) {
+      for (final MonotoneChain chain : ringChains[ringIndex]) {
+        chain.setId(chainIndexValue);
+        this.chains[chainIndexValue] = chain;
+        this.chainRings[chainIndexValue] = ringIndex;
+        chainIndex.insert(chain.getMinX(), chain.getMaxX(), chain);
+        chainIndexValue++;
+      }
+    }
+    this.chainIndex = chainIndex;
+
+    final List<ChainIntersector> intersectors = ringStream(chainCount).mapToObj(chainIndex2 -> {
+      final ChainIntersector intersector = new ChainIntersector();
+      intersector.intersect(chainIndex2);
+      if (intersector.errors.isEmpty() && intersector.nodes.isEmpty()) {
+        return null;
+      } else {
+        return intersector;
+      }
+    }).filter(Objects::nonNull).collect(Collectors.toList());
+
+    for (final ChainIntersector intersector : intersectors) {
+      for (final RingNode node : intersector.errors) {
+        addError(errors, node.errorType, node.newPoint());
+      }
+      for (final RingNode node : intersector.nodes) {
+        final List<Integer> nodeRings = this.touchNodes.computeIfAbsent(node.newPoint(),
+          point -> new ArrayList<>());
+        nodeRings.add(node.ringIndex1);
+        nodeRings.add(node.ringIndex2);
+      }
+    }
+    // Release the chains as the later tests only use the touch points
+    this.chains = null;
+    this.chainRings = null;
+    this.chainIndex = null;
+  }
+
+  private IndexedPointInAreaLocator getLocator(final int ringIndex) {
+    IndexedPointInAreaLocator locator = this.locators.get(ringIndex);
+    if (locator == null) {
+      locator = new IndexedPointInAreaLocator(this.rings[ringIndex]);
+      if (!this.locators.compareAndSet(ringIndex, null, locator)) {
+        locator = this.locators.get(ringIndex);
+      }
+    }
+    return locator;
+  }
+
+  /**
+   * Get a vertex, or if all the vertices are touch points the midpoint of a
+   * segment, of the ring that doesn't touch another ring.
+   */
+  private Point getTestPoint(final int ringIndex) {
+    final LinearRing ring = this.rings[ringIndex];
+    final int vertexCount = ring.getVertexCount();
+    for (int vertexIndex = 0; vertexIndex < vertexCount - 1; vertexIndex++) {
+      final Point point = new PointDoubleXY(ring.getX(vertexIndex), ring.getY(vertexIndex));
+      if (!this.touchNodes.containsKey(point)) {
+        return point;
+      }
+    }
+    for (int vertexIndex = 0; vertexIndex < vertexCount - 1; vertexIndex++) {
+      final double x = (ring.getX(vertexIndex) + ring.getX(vertexIndex + 1)) / 2;
+      final double y = (ring.getY(vertexIndex) + ring.getY(vertexIndex + 1)) / 2;
+      final Point point = new PointDoubleXY(x, y);
+      if (!this.touchNodes.containsKey(point)) {
+        return point;
+      }
+    }
+    return null;
+  }
+
+  private IntStream ringStream(final int count) {
+    final IntStream stream = IntStream.range(0, count);
+    if (this.parallel) {
+      return stream.parallel();
+    } else {
+      return stream;
+    }
+  }
+
+  /**
+   * Validate the polygonal geometry.
+   *
+   * @return The validation errors, empty if the geometry is valid.
+   */
+  public List<GeometryValidationError> validate() {
+    final List<GeometryValidationError> errors = new ArrayList<>();
+    checkSelfIntersections(errors);
+    if (errors.isEmpty()) {
+      checkNesting(errors);
+      if (errors.isEmpty()) {
+        checkConnectedInteriors(errors);
+      }
+    }
+    return errors;
+  }
+}
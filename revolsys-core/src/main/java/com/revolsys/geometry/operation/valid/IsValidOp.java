@@ -36,6 +36,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import com.revolsys.geometry.algorithm.LineIntersector;
 import com.revolsys.geometry.algorithm.MCPointInRing;
@@ -66,6 +69,12 @@ import com.revolsys.util.Strings;
  * @version 1.7
  */
 public class IsValidOp {
+  /**
+   * The vertex count at or above which {@link #validate(Stream, Function, BiConsumer)} uses the
+   * {@link IndexedPolygonalValidator} for polygonal geometries.
+   */
+  public static final int INDEXED_VERTEX_COUNT = 10000;
+
   /**
    * Find a point from the list of testCoords
    * that is NOT a node in the edge for the list of searchCoords
@@ -101,6 +110,32 @@ public class IsValidOp {
     return isValidOp.isValid();
   }
 
+  /**
+   * Validate the geometries for a stream of values in parallel. Polygonal geometries with at
+   * least {@link #INDEXED_VERTEX_COUNT} vertices are validated using the indexed mode.
+   * The invalidAction may be called from multiple threads.
+   *
+   * @param values The values to validate.
+   * @param geometryFunction The function to get the geometry from a value.
+   * @param invalidAction The action to call with the errors for each invalid value.
+   */
+  public static <V> void validate(final Stream<V> values,
+    final Function<? super V, Geometry> geometryFunction,
+    final BiConsumer<? super V, List<GeometryValidationError>> invalidAction) {
+    values.parallel().forEach(value -> {
+      final Geometry geometry = geometryFunction.apply(value);
+      if (geometry != null) {
+        final IsValidOp validOp = new IsValidOp(geometry);
+        if (geometry.getVertexCount() >= INDEXED_VERTEX_COUNT) {
+          validOp.setIndexed(true);
+        }
+        if (!validOp.isValid()) {
+          invalidAction.accept(value, validOp.getErrors());
+        }
+      }
+    });
+  }
+
   private final List<GeometryValidationError> errors = new ArrayList<>();
 
   private final Geometry geometry; // the base Geometry to be validated
@@ -113,6 +148,10 @@ public class IsValidOp {
 
   private boolean shortCircuit = true;
 
+  private boolean indexed = false;
+
+  private boolean parallel = false;
+
   public IsValidOp(final Geometry geometry) {
     this.geometry = geometry;
   }
@@ -257,6 +296,36 @@ public class IsValidOp {
     }
   }
 
+  /**
+   * Check the rings are closed and have enough points, then check the self intersection,
+   * ring nesting and connected interiors using the {@link IndexedPolygonalValidator}.
+   */
+  private boolean checkIndexedPolygonal(final Polygonal polygonal) {
+    boolean valid = true;
+    for (final Polygon polygon : polygonal.polygons()) {
+      for (final LinearRing ring : polygon.rings()) {
+        if (checkClosedRing(ring)) {
+          valid &= checkTooFewVertices(ring, 4);
+        } else {
+          valid = false;
+        }
+        if (isErrorReturn()) {
+          return false;
+        }
+      }
+    }
+    if (valid) {
+      final IndexedPolygonalValidator validator = new IndexedPolygonalValidator(polygonal,
+        this.parallel, this.shortCircuit);
+      final List<GeometryValidationError> errors = validator.validate();
+      if (!errors.isEmpty()) {
+        this.errors.addAll(errors);
+        valid = false;
+      }
+    }
+    return valid;
+  }
+
   private boolean checkInvalidCoordinates(final Geometry geometry) {
     boolean valid = true;
     for (final Vertex vertex : geometry.vertices()) {
@@ -567,6 +636,9 @@ public class IsValidOp {
   }
 
   private boolean checkValidMultiPolygon(final Polygonal polygonal) {
+    if (isIndexedPolygonal()) {
+      return checkIndexedPolygonal(polygonal);
+    }
     boolean valid = true;
     for (final Polygon polygon : polygonal.polygons()) {
       valid &= checkClosedRings(polygon);
@@ -616,6 +688,9 @@ public class IsValidOp {
    * Sets the validErr flag.
    */
   private boolean checkValidPolygon(final Polygon g) {
+    if (isIndexedPolygonal()) {
+      return checkIndexedPolygonal(g);
+    }
     boolean valid = true;
     valid &= checkClosedRings(g);
     if (isErrorReturn()) {
@@ -684,10 +759,25 @@ public class IsValidOp {
     }
   }
 
+  /**
+   * The indexed mode is only used if self touching rings forming holes are invalid.
+   */
+  private boolean isIndexedPolygonal() {
+    return this.indexed && !this.isSelfTouchingRingFormingHoleValid;
+  }
+
+  public boolean isIndexed() {
+    return this.indexed;
+  }
+
   private boolean isErrorReturn() {
     return this.shortCircuit && hasError();
   }
 
+  public boolean isParallel() {
+    return this.parallel;
+  }
+
   /**
    * Computes the validity of the geometry,
    * and returns <tt>true</tt> if it is valid.
@@ -699,6 +789,26 @@ public class IsValidOp {
     return checkValidGeometry(this.geometry);
   }
 
+  /**
+   * Sets whether polygonal geometries are validated using the {@link IndexedPolygonalValidator}
+   * which uses monotone chains and interval trees instead of a {@link GeometryGraph}. This is
+   * much faster and uses less memory for polygons with a large number of vertices and holes.
+   *
+   * @param indexed True if the indexed validation should be used.
+   */
+  public void setIndexed(final boolean indexed) {
+    this.indexed = indexed;
+  }
+
+  /**
+   * Sets whether the indexed validation processes the rings in parallel.
+   *
+   * @param parallel True if the rings should be validated in parallel.
+   */
+  public void setParallel(final boolean parallel) {
+    this.parallel = parallel;
+  }
+
   /**
    * Sets whether polygons using <b>Self-Touching Rings</b> to form
    * holes are reported as valid.
@@ -15,7 +15,20 @@ import com.revolsys.geometry.model.Polygon;
 import com.revolsys.geometry.model.Polygonal;
 import com.revolsys.geometry.model.Punctual;
 
+/**
+ * Read geometries from WKB in a {@link ByteBuffer}. Supports ISO WKB (Z, M and
+ * ZM types using the 1000, 2000 and 3000 type offsets) and PostGIS EWKB (Z, M
+ * and SRID flags in the high bits of the type).
+ */
 public class WkbByteBufferReader {
+  private static final int EWKB_M = 0x40000000;
+
+  private static final int EWKB_SRID = 0x20000000;
+
+  private static final int EWKB_TYPE_MASK = 0x1FFFFFFF;
+
+  private static final int EWKB_Z = 0x80000000;
+
   private static final IntHashMap<BiFunction<GeometryFactory, ByteBuffer, Geometry>> READERS = new IntHashMap<>();
 
   static {
@@ -99,12 +112,27 @@ public class WkbByteBufferReader {
     }
     data.order(byteOrder);
 
-    final int geometryType = data.getInt();
+    final int typeCode = data.getInt();
+    int geometryType = typeCode & EWKB_TYPE_MASK;
+    if ((typeCode & EWKB_Z) != 0) {
+      geometryType += 1000;
+    }
+    if ((typeCode & EWKB_M) != 0) {
+      geometryType += 2000;
+    }
+    GeometryFactory readGeometryFactory = geometryFactory;
+    if ((typeCode & EWKB_SRID) != 0) {
+      final int coordinateSystemId = data.getInt();
+      if (coordinateSystemId > 0
+        && geometryFactory.getHorizontalCoordinateSystemId() != coordinateSystemId) {
+        readGeometryFactory = geometryFactory.convertSrid(coordinateSystemId);
+      }
+    }
     final BiFunction<GeometryFactory, ByteBuffer, Geometry> reader = READERS.get(geometryType);
     if (reader == null) {
       throw new IllegalArgumentException("Unsupported WKB geometryType=" + geometryType);
     } else {
-      return (G)reader.apply(geometryFactory, data);
+      return (G)reader.apply(readGeometryFactory, data);
     }
   }
 
@@ -2,6 +2,7 @@ package com.revolsys.gis.grid;
 
 import java.nio.file.Path;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.Geometry;
@@ -9,6 +10,7 @@ import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geometry.model.GeometryFactoryProxy;
 import com.revolsys.geometry.model.Point;
 import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.operation.RectangleClipper;
 import com.revolsys.io.map.MapSerializer;
 import com.revolsys.record.io.format.json.JsonObject;
 import com.revolsys.record.io.format.json.JsonObjectHash;
@@ -79,6 +81,31 @@ public interface RectangularMapGrid extends GeometryFactoryProxy, MapSerializer
       .createRelative(fileName);
   }
 
+  /**
+   * Clip the geometry to each of the tiles it intersects in one pass over the
+   * geometry's coordinates. The action is called with each tile and the
+   * clipped geometry in the geometry's coordinate system.
+   *
+   * @param geometry The geometry to clip.
+   * @param action The action to call for each tile.
+   */
+  default void forEachTileIntersection(final Geometry geometry,
+    final BiConsumer<RectangularMapTile, Geometry> action) {
+    if (geometry != null && !geometry.isEmpty()) {
+      if (geometry.isSameCoordinateSystem(this)) {
+        final List<RectangularMapTile> tiles = getTiles(geometry.getBoundingBox());
+        RectangleClipper.clip(geometry, tiles, action);
+      } else {
+        final GeometryFactory geometryFactory = geometry.getGeometryFactory();
+        final Geometry projectedGeometry = geometry.convertGeometry(getGeometryFactory());
+        final List<RectangularMapTile> tiles = getTiles(projectedGeometry.getBoundingBox());
+        RectangleClipper.clip(projectedGeometry, tiles, (tile, tileGeometry) -> {
+          action.accept(tile, tileGeometry.convertGeometry(geometryFactory));
+        });
+      }
+    }
+  }
+
   default BoundingBox getBoundingBox(final String mapTileName, final int srid) {
     final GeometryFactory geometryFactory = GeometryFactory.floating3d(srid);
     final RectangularMapTile mapTile = getTileByName(mapTileName);
@@ -3,6 +3,8 @@ package com.revolsys.gis.parallel;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.LineString;
 import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.operation.overlay.OverlayFastPath;
+import com.revolsys.geometry.operation.overlay.OverlayOp;
 import com.revolsys.geometry.util.LineStringUtil;
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.parallel.process.BaseInOutProcess;
@@ -23,7 +25,17 @@ public class ClipGeometryProcess extends BaseInOutProcess<Record, Record> {
   protected void process(final Channel<Record> in, final Channel<Record> out, final Record object) {
     final Geometry geometry = object.getGeometry();
     if (geometry != null) {
-      final Geometry intersection = geometry.intersection(this.clipPolygon);
+      final Polygon clipPolygon = this.clipPolygon;
+      Geometry intersection;
+      if (clipPolygon.isRectangle() && geometry.isSameCoordinateSystem(clipPolygon)) {
+        intersection = geometry.intersectionBbox(clipPolygon.getBoundingBox());
+      } else {
+        intersection = OverlayFastPath.overlayShortcut(geometry, clipPolygon,
+          OverlayOp.INTERSECTION);
+        if (intersection == null) {
+          intersection = geometry.intersection(clipPolygon);
+        }
+      }
       if (!intersection.isEmpty() && intersection.getClass() == geometry.getClass()) {
         if (intersection instanceof LineString) {
           final LineString original = (LineString)geometry;
@@ -40,10 +52,20 @@ public class ClipGeometryProcess extends BaseInOutProcess<Record, Record> {
   }
 
   /**
+   * The clip polygon is prepared so that records it covers are not overlaid,
+   * using {@link OverlayFastPath#overlayShortcut(Geometry, Geometry, int)} to
+   * keep the record's geometry.
+   * Records are clipped to a rectangular clip polygon using
+   * {@link Geometry#intersectionBbox(com.revolsys.geometry.model.BoundingBox)}.
+   *
    * @param clipPolygon the clipPolygon to set
    */
   public void setClipPolygon(final Polygon clipPolygon) {
-    this.clipPolygon = clipPolygon;
+    if (clipPolygon == null) {
+      this.clipPolygon = null;
+    } else {
+      this.clipPolygon = clipPolygon.prepare();
+    }
   }
 
 }
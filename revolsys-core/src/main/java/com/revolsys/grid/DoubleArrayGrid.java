@@ -120,6 +120,11 @@ public class DoubleArrayGrid extends AbstractGrid {
     }
   }
 
+  @Override
+  public boolean isConcurrentReadSupported() {
+    return true;
+  }
+
   @Override
   public DoubleArrayGrid newGrid(final GeometryFactory geometryFactory, final double x,
     final double y, final int width, final int height, final double cellSize) {
@@ -118,6 +118,11 @@ public class FloatArrayGrid extends AbstractGrid {
     }
   }
 
+  @Override
+  public boolean isConcurrentReadSupported() {
+    return true;
+  }
+
   @Override
   public FloatArrayGrid newGrid(final GeometryFactory geometryFactory, final double x,
     final double y, final int width, final int height, final double cellSize) {
@@ -14,6 +14,7 @@ import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.BoundingBoxProxy;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
 import com.revolsys.geometry.model.Point;
 import com.revolsys.geometry.model.Polygon;
 import com.revolsys.geometry.model.Polygonal;
@@ -61,6 +62,38 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
       * (q11 * x2x * y2y + q21 * xx1 * y2y + q12 * x2x * yy1 + q22 * xx1 * yy1);
   }
 
+  /**
+   * Interpolate the value from the 2x2 grid cells using
+   * <a href="https://en.wikipedia.org/wiki/Bilinear_interpolation">Bilinear Interpolation</a>.
+   * If z21 or z12 is not finite z11 is used, if z22 is not finite z21 is used.
+   *
+   * @param z11 The value of the cell (0,0).
+   * @param z21 The value of the cell (1,0).
+   * @param z12 The value of the cell (0,1).
+   * @param z22 The value of the cell (1,1).
+   * @param xPercent The percent of the cell width from cell (0,0).
+   * @param yPercent The percent of the cell height from cell (0,0).
+   * @return The interpolated value.
+   */
+  static double bilinearInterpolate(final double z11, double z21, double z12, double z22,
+    final double xPercent, final double yPercent) {
+    if (!Double.isFinite(z21)) {
+      z21 = z11;
+    }
+    if (!Double.isFinite(z12)) {
+      z12 = z11;
+    }
+    if (!Double.isFinite(z22)) {
+      z22 = z21;
+    }
+    // Calculation is simplified as only the percent is required.
+    final double x2x = 1 - xPercent;
+    final double y2y = 1 - yPercent;
+
+    return z11 * x2x * y2y + z21 * xPercent * y2y + z12 * x2x * yPercent
+      + z22 * xPercent * yPercent;
+  }
+
   /**
    *
    * 
@@ -479,29 +512,12 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
     final double yGrid = (y - minY) / gridCellHeight;
     final int gridY = (int)Math.floor(yGrid);
     final double z11 = getValue(gridX, gridY);
-    double z21 = getValue(gridX + 1, gridY);
-    if (!Double.isFinite(z21)) {
-      z21 = z11;
-    }
+    final double z21 = getValue(gridX + 1, gridY);
     final double z12 = getValue(gridX, gridY + 1);
-    if (!Double.isFinite(z12)) {
-      z21 = z11;
-    }
-    double z22 = getValue(gridX + 1, gridY + 1);
-    if (!Double.isFinite(z22)) {
-      z22 = z21;
-    }
-    // Calculation is simplified as only the percent is required.
+    final double z22 = getValue(gridX + 1, gridY + 1);
     final double xPercent = xGrid - gridX;
     final double yPercent = yGrid - gridY;
-    final double x2x = 1 - xPercent;
-    final double y2y = 1 - yPercent;
-
-    return z11 * x2x * y2y + z21 * xPercent * y2y + z12 * x2x * yPercent
-      + z22 * xPercent * yPercent;
-    // MathUtil.bilinearInterpolation(double, double, double, double, double,
-    // double, double,
-    // double, double, double)
+    return bilinearInterpolate(z11, z21, z12, z22, xPercent, yPercent);
   }
 
   default double getValueCubic(final int gridX, final int gridY, final double xPercent) {
@@ -534,6 +550,59 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
     return getValue(gridX, gridY);
   }
 
+  /**
+   * Get the values for the locations using the interpolation method. The grid
+   * extent is read once for all the locations and large arrays are processed
+   * in parallel if {@link #isConcurrentReadSupported()}.
+   *
+   * @param interpolation The interpolation method.
+   * @param coordinates The coordinates of the locations (x1,y1,...,xN,yN).
+   * @param axisCount The number of coordinates for each location.
+   * @param values The array to write the values to.
+   * @return The values.
+   */
+  default double[] getValues(final GridInterpolation interpolation, final double[] coordinates,
+    final int axisCount, final double[] values) {
+    final int count = coordinates.length / axisCount;
+    new GridValueSampler(this, interpolation, coordinates, coordinates, 1, axisCount)
+      .getValues(values, count, isConcurrentReadSupported());
+    return values;
+  }
+
+  /**
+   * Get the values for the locations using the interpolation method. The grid
+   * extent is read once for all the locations and large arrays are processed
+   * in parallel if {@link #isConcurrentReadSupported()}.
+   *
+   * @param interpolation The interpolation method.
+   * @param xCoordinates The x coordinates of the locations.
+   * @param yCoordinates The y coordinates of the locations.
+   * @param values The array to write the values to.
+   * @return The values.
+   */
+  default double[] getValues(final GridInterpolation interpolation, final double[] xCoordinates,
+    final double[] yCoordinates, final double[] values) {
+    final int count = xCoordinates.length;
+    new GridValueSampler(this, interpolation, xCoordinates, yCoordinates, 0, 1).getValues(values,
+      count, isConcurrentReadSupported());
+    return values;
+  }
+
+  /**
+   * Get the values at the vertices of the line using the interpolation method.
+   * The line is converted to the coordinate system of the grid.
+   *
+   * @param interpolation The interpolation method.
+   * @param line The line.
+   * @return The values, one for each vertex.
+   */
+  default double[] getValues(final GridInterpolation interpolation, final LineString line) {
+    final GeometryFactory geometryFactory = getGeometryFactory();
+    final double[] coordinates = line.convertCoordinates(geometryFactory, 2);
+    final double[] values = new double[line.getVertexCount()];
+    return getValues(interpolation, coordinates, 2, values);
+  }
+
   default double getX(final int i) {
     final double minX = getGridMinX();
     final double gridCellWidth = getGridCellWidth();
@@ -562,6 +631,18 @@ public interface Grid extends ObjectWithProperties, BoundingBoxProxy {
     return Double.isFinite(elevation);
   }
 
+  /**
+   * Can {@link #getValueFast(int, int)} be called from multiple threads at the
+   * same time. Used to decide if the bulk methods such as
+   * {@link #getValues(GridInterpolation, double[], double[], double[])} can be
+   * run in parallel.
+   *
+   * @return True if the values can be read concurrently.
+   */
+  default boolean isConcurrentReadSupported() {
+    return false;
+  }
+
   boolean isEmpty();
 
   default boolean isNull(final double x, final double y) {
@@ -0,0 +1,20 @@
+package com.revolsys.grid;
+
+/**
+ * The method used to calculate a value from the grid cells around a location.
+ *
+ * @see Grid#getValues(GridInterpolation, double[], double[], double[])
+ */
+public enum GridInterpolation {
+  /** The grid cell the location is in, see {@link Grid#getValue(double, double)}. */
+  CELL,
+
+  /** The nearest grid cell, see {@link Grid#getValueNearestNeighbour(double, double)}. */
+  NEAREST_NEIGHBOUR,
+
+  /** The 2x2 grid cells, see {@link Grid#getValueBilinear(double, double)}. */
+  BILINEAR,
+
+  /** The 4x4 grid cells, see {@link Grid#getValueBicubic(double, double)}. */
+  BICUBIC;
+}
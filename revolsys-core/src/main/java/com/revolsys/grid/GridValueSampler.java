@@ -0,0 +1,230 @@
+package com.revolsys.grid;
+
+import java.util.stream.IntStream;
+
+/**
+ * Calculate the values of a {@link Grid} for an array of locations. The grid
+ * extent and cell size are read once and the cells are read using
+ * {@link Grid#getValueFast(int, int)}, except around the edge of the grid
+ * where {@link Grid#getValue(int, int)} is used. The values are the same as
+ * calling the single location methods on {@link Grid} for each location.
+ */
+final class GridValueSampler {
+
+  private static final int BLOCK_SIZE = 4096;
+
+  private final Grid grid;
+
+  private final int gridWidth;
+
+  private final int gridHeight;
+
+  private final double gridMinX;
+
+  private final double gridMinY;
+
+  private final double gridCellWidth;
+
+  private final double gridCellHeight;
+
+  private final GridInterpolation interpolation;
+
+  private final double[] xCoordinates;
+
+  private final double[] yCoordinates;
+
+  private final int yOffset;
+
+  private final int axisCount;
+
+  /**
+   * @param grid The grid.
+   * @param interpolation The interpolation method.
+   * @param xCoordinates The array containing the x coordinates.
+   * @param yCoordinates The array containing the y coordinates.
+   * @param yOffset The offset of the first y coordinate in yCoordinates.
+   * @param axisCount The number of coordinates for each location in the arrays.
+   */
+  GridValueSampler(final Grid grid, final GridInterpolation interpolation,
+    final double[] xCoordinates, final double[] yCoordinates, final int yOffset,
+    final int axisCount) {
+    this.grid = grid;
+    this.interpolation = interpolation;
+    this.gridWidth = grid.getGridWidth();
+    this.gridHeight = grid.getGridHeight();
+    this.gridMinX = grid.getGridMinX();
+    this.gridMinY = grid.getGridMinY();
+    this.gridCellWidth = grid.getGridCellWidth();
+    this.gridCellHeight = grid.getGridCellHeight();
+    this.xCoordinates = xCoordinates;
+    this.yCoordinates = yCoordinates;
+    this.yOffset = yOffset;
+    this.axisCount = axisCount;
+  }
+
+  private double getValue(final int gridX, final int gridY) {
+    if (gridX >= 0 && gridX < this.gridWidth && gridY >= 0 && gridY < this.gridHeight) {
+      return this.grid.getValueFast(gridX, gridY);
+    } else {
+      return this.grid.getValue(gridX, gridY);
+    }
+  }
+
+  private double getValueCubic(final int gridX, final int gridY, final double xPercent) {
+    final double z1;
+    final double z2;
+    final double z3;
+    final double z4;
+    if (gridX >= 1 && gridX + 2 < this.gridWidth && gridY >= 0 && gridY < this.gridHeight) {
+      final Grid grid = this.grid;
+      z1 = grid.getValueFast(gridX - 1, gridY);
+      z2 = grid.getValueFast(gridX, gridY);
+      z3 = grid.getValueFast(gridX + 1, gridY);
+      z4 = grid.getValueFast(gridX + 2, gridY);
+    } else {
+      z1 = getValue(gridX - 1, gridY);
+      z2 = getValue(gridX, gridY);
+      z3 = getValue(gridX + 1, gridY);
+      z4 = getValue(gridX + 2, gridY);
+    }
+    return Grid.cubicInterpolate(z1, z2, z3, z4, xPercent);
+  }
+
+  /**
+   * Calculate the values for the locations, splitting the locations into
+   * blocks processed in parallel if there is more than one block.
+   *
+   * @param values The array to write the values to.
+   * @param count The number of locations.
+   * @param parallel Whether the blocks can be processed in parallel.
+   */
+  void getValues(final double[] values, final int count, final boolean parallel) {
+    if (parallel && count > BLOCK_SIZE) {
+      final int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      IntStream.range(0, blockCount).parallel().forEach(blockIndex -> {
+        final int startIndex = blockIndex * BLOCK_SIZE;
+        final int endIndex = Math.min(startIndex + BLOCK_SIZE, count);
+        getValues(values, startIndex, endIndex);
+      });
+    } else {
+      getValues(values, 0, count);
+    }
+  }
+
+  private void getValues(final double[] values, final int startIndex, final int endIndex) {
+    switch (this.interpolation) {
+      case CELL:
+        getValuesCell(values, startIndex, endIndex);
+      break;
+      case NEAREST_NEIGHBOUR:
+        getValuesNearestNeighbour(values, startIndex, endIndex);
+      break;
+      case BILINEAR:
+        getValuesBilinear(values, startIndex, endIndex);
+      break;
+      case BICUBIC:
+        getValuesBicubic(values, startIndex, endIndex);
+      break;
+      default:
+        throw new IllegalArgumentException("Unsupported interpolation: " + this.interpolation);
+    }
+  }
+
+  private void getValuesBicubic(final double[] values, final int startIndex, final int endIndex) {
+    final double[] xCoordinates = this.xCoordinates;
+    final double[] yCoordinates = this.yCoordinates;
+    final int axisCount = this.axisCount;
+    int coordinateIndex = startIndex * axisCount;
+    for (int i = startIndex; i < endIndex; i++) {
+      final double x = xCoordinates[coordinateIndex];
+      final double y = yCoordinates[coordinateIndex + this.yOffset];
+      coordinateIndex += axisCount;
+
+      final double xGrid = (x - this.gridMinX) / this.gridCellWidth;
+      final int gridX = (int)Math.floor(xGrid);
+      final double xPercent = xGrid - gridX;
+
+      final double yGrid = (y - this.gridMinY) / this.gridCellHeight;
+      final int gridY = (int)Math.floor(yGrid);
+      final double yPercent = yGrid - gridY;
+
+      final double z1 = getValueCubic(gridX, gridY - 1, xPercent);
+      final double z2 = getValueCubic(gridX, gridY, xPercent);
+      final double z3 = getValueCubic(gridX, gridY + 1, xPercent);
+      final double z4 = getValueCubic(gridX, gridY + 2, xPercent);
+
+      values[i] = Grid.cubicInterpolate(z1, z2, z3, z4, yPercent);
+    }
+  }
+
+  private void getValuesBilinear(final double[] values, final int startIndex, final int endIndex) {
+    final Grid grid = this.grid;
+    final double[] xCoordinates = this.xCoordinates;
+    final double[] yCoordinates = this.yCoordinates;
+    final int axisCount = this.axisCount;
+    final int maxGridX = this.gridWidth - 1;
+    final int maxGridY = this.gridHeight - 1;
+    int coordinateIndex = startIndex * axisCount;
+    for (int i = startIndex; i < endIndex; i++) {
+      final double x = xCoordinates[coordinateIndex];
+      final double y = yCoordinates[coordinateIndex + this.yOffset];
+      coordinateIndex += axisCount;
+
+      final double xGrid = (x - this.gridMinX) / this.gridCellWidth;
+      final int gridX = (int)Math.floor(xGrid);
+      final double yGrid = (y - this.gridMinY) / this.gridCellHeight;
+      final int gridY = (int)Math.floor(yGrid);
+      final double z11;
+      final double z21;
+      final double z12;
+      final double z22;
+      if (gridX >= 0 && gridX < maxGridX && gridY >= 0 && gridY < maxGridY) {
+        z11 = grid.getValueFast(gridX, gridY);
+        z21 = grid.getValueFast(gridX + 1, gridY);
+        z12 = grid.getValueFast(gridX, gridY + 1);
+        z22 = grid.getValueFast(gridX + 1, gridY + 1);
+      } else {
+        z11 = getValue(gridX, gridY);
+        z21 = getValue(gridX + 1, gridY);
+        z12 = getValue(gridX, gridY + 1);
+        z22 = getValue(gridX + 1, gridY + 1);
+      }
+      final double xPercent = xGrid - gridX;
+      final double yPercent = yGrid - gridY;
+      values[i] = Grid.bilinearInterpolate(z11, z21, z12, z22, xPercent, yPercent);
+    }
+  }
+
+  private void getValuesCell(final double[] values, final int startIndex, final int endIndex) {
+    final double[] xCoordinates = this.xCoordinates;
+    final double[] yCoordinates = this.yCoordinates;
+    final int axisCount = this.axisCount;
+    int coordinateIndex = startIndex * axisCount;
+    for (int i = startIndex; i < endIndex; i++) {
+      final double x = xCoordinates[coordinateIndex];
+      final double y = yCoordinates[coordinateIndex + this.yOffset];
+      coordinateIndex += axisCount;
+
+      final int gridX = (int)Math.floor((x - this.gridMinX) / this.gridCellWidth);
+      final int gridY = (int)Math.floor((y - this.gridMinY) / this.gridCellHeight);
+      values[i] = getValue(gridX, gridY);
+    }
+  }
+
+  private void getValuesNearestNeighbour(final double[] values, final int startIndex,
+    final int endIndex) {
+    final double[] xCoordinates = this.xCoordinates;
+    final double[] yCoordinates = this.yCoordinates;
+    final int axisCount = this.axisCount;
+    int coordinateIndex = startIndex * axisCount;
+    for (int i = startIndex; i < endIndex; i++) {
+      final double x = xCoordinates[coordinateIndex];
+      final double y = yCoordinates[coordinateIndex + this.yOffset];
+      coordinateIndex += axisCount;
+
+      final int gridX = (int)Math.round((x - this.gridMinX) / this.gridCellWidth);
+      final int gridY = (int)Math.round((y - this.gridMinY) / this.gridCellHeight);
+      values[i] = getValue(gridX, gridY);
+    }
+  }
+}
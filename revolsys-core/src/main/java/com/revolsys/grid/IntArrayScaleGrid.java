@@ -113,6 +113,11 @@ public class IntArrayScaleGrid extends AbstractGrid {
     }
   }
 
+  @Override
+  public boolean isConcurrentReadSupported() {
+    return true;
+  }
+
   @Override
   public IntArrayScaleGrid newGrid(final GeometryFactory geometryFactory, final double x,
     final double y, final int width, final int height, final double cellSize) {
@@ -0,0 +1,353 @@
+package com.revolsys.io.channels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+import com.revolsys.collection.map.SizeBoundedLruCache;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.FileUtil;
+
+/**
+ * A source of bytes read using ranged reads (e.g. HTTP range requests) that
+ * caches the bytes in fixed size blocks. Reads that need blocks that are not
+ * in the cache fetch all the missing consecutive blocks with one ranged read.
+ * {@link #prefetch(long[], long[])} fetches many ranges (e.g. the tiles of an
+ * image) coalescing ranges that are close together into a single ranged read.
+ *
+ * The first headerSize bytes are read when the source is created. For a
+ * cloud optimized GeoTIFF this contains all the image file directories so they
+ * can be read without any more requests.
+ *
+ * Use {@link #newChannel()} to create channels that read from the source. The
+ * source and channels can be used from multiple threads, each channel must
+ * only be used from one thread. Closing the source closes the reader.
+ */
+public class CachedRangeSource implements BaseCloseable {
+
+  private class CachedRangeChannel implements SeekableByteChannel {
+    private boolean open = true;
+
+    private long position;
+
+    @Override
+    public void close() {
+      this.open = false;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return this.open;
+    }
+
+    @Override
+    public long position() throws IOException {
+      return this.position;
+    }
+
+    @Override
+    public SeekableByteChannel position(final long position) throws IOException {
+      this.position = position;
+      return this;
+    }
+
+    @Override
+    public int read(final ByteBuffer buffer) throws IOException {
+      if (!this.open) {
+        throw new ClosedChannelException();
+      }
+      final int count = CachedRangeSource.this.read(this.position, buffer);
+      if (count > 0) {
+        this.position += count;
+      }
+      return count;
+    }
+
+    @Override
+    public long size() throws IOException {
+      return CachedRangeSource.this.size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) throws IOException {
+      throw new NonWritableChannelException();
+    }
+
+    @Override
+    public String toString() {
+      return CachedRangeSource.this.toString();
+    }
+
+    @Override
+    public int write(final ByteBuffer buffer) throws IOException {
+      throw new NonWritableChannelException();
+    }
+  }
+
+  /**
+   * Read a range of bytes from the underlying source.
+   */
+  public interface RangeReader extends Closeable {
+    /**
+     * Read the bytes starting at the offset into the remaining space in the
+     * buffer using a single read (e.g. one HTTP request).
+     *
+     * @param offset The offset to read from.
+     * @param buffer The buffer to read into.
+     * @return The number of bytes read, less than the remaining if the end of
+     *         the source was reached.
+     * @throws IOException If the bytes could not be read.
+     */
+    int readRange(long offset, ByteBuffer buffer) throws IOException;
+
+    /**
+     * @return The size of the source in bytes.
+     * @throws IOException If the size could not be read.
+     */
+    long size() throws IOException;
+  }
+
+  public static final int DEFAULT_BLOCK_SIZE = 16 * 1024;
+
+  public static final int DEFAULT_HEADER_SIZE = 16 * 1024;
+
+  public static final long DEFAULT_MAX_CACHE_SIZE = 64 * 1024 * 1024;
+
+  private final int blockSize;
+
+  private final SizeBoundedLruCache<Long, byte[]> blocks;
+
+  private long maxGap;
+
+  private final RangeReader reader;
+
+  private final long size;
+
+  public CachedRangeSource(final RangeReader reader) throws IOException {
+    this(reader, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_CACHE_SIZE, DEFAULT_HEADER_SIZE);
+  }
+
+  /**
+   * Construct a new source, reading the header.
+   *
+   * @param reader The reader for the underlying source.
+   * @param blockSize The size of the cached blocks.
+   * @param maxCacheSize The maximum number of bytes to cache.
+   * @param headerSize The number of bytes to read from the start of the source.
+   * @throws IOException If the header could not be read.
+   */
+  public CachedRangeSource(final RangeReader reader, final int blockSize, final long maxCacheSize,
+    final int headerSize) throws IOException {
+    this.reader = reader;
+    this.blockSize = blockSize;
+    this.maxGap = blockSize * 4L;
+    this.blocks = new SizeBoundedLruCache<>(maxCacheSize, block -> block.length);
+    final int headerBlockCount = Math.max(1, (headerSize + blockSize - 1) / blockSize);
+    final ByteBuffer header = ByteBuffer.allocate(headerBlockCount * blockSize);
+    final int count = Math.max(0, reader.readRange(0, header));
+    this.size = reader.size();
+    putBlocks(0, header.array(), count);
+  }
+
+  @Override
+  public void close() {
+    this.blocks.clear();
+    FileUtil.closeSilent(this.reader);
+  }
+
+  public int getBlockSize() {
+    return this.blockSize;
+  }
+
+  private byte[][] getBlocks(final long firstBlockIndex, final long lastBlockIndex)
+    throws IOException {
+    final int blockCount = (int)(lastBlockIndex - firstBlockIndex + 1);
+    final byte[][] blocks = new byte[blockCount][];
+    for (int i = 0; i < blockCount; i++) {
+      blocks[i] = this.blocks.get(firstBlockIndex + i);
+    }
+    int i = 0;
+    while (i < blockCount) {
+      if (blocks[i] == null) {
+        int j = i;
+        while (j + 1 < blockCount && blocks[j + 1] == null) {
+          j++;
+        }
+        final byte[][] readBlocks = readBlocks(firstBlockIndex + i, firstBlockIndex + j);
+        System.arraycopy(readBlocks, 0, blocks, i, readBlocks.length);
+        i = j + 1;
+      } else {
+        i++;
+      }
+    }
+    return blocks;
+  }
+
+  /**
+   * @return The maximum number of bytes between two ranges for them to be read
+   *         using a single ranged read.
+   */
+  public long getMaxGap() {
+    return this.maxGap;
+  }
+
+  /**
+   * Construct a new channel that reads from this source. Closing the channel
+   * doesn't close the source.
+   *
+   * @return The channel.
+   */
+  public SeekableByteChannel newChannel() {
+    return new CachedRangeChannel();
+  }
+
+  /**
+   * Fetch the ranges that are not already cached, coalescing ranges that
+   * overlap or are within {@link #getMaxGap()} bytes of each other into a
+   * single ranged read.
+   *
+   * @param offsets The offset of each range.
+   * @param lengths The length of each range.
+   * @throws IOException If the ranges could not be read.
+   */
+  public void prefetch(final long[] offsets, final long[] lengths) throws IOException {
+    final int rangeCount = Math.min(offsets.length, lengths.length);
+    final long[][] ranges = new long[rangeCount][];
+    int count = 0;
+    for (int i = 0; i < rangeCount; i++) {
+      final long offset = offsets[i];
+      final long end = Math.min(offset + lengths[i], this.size);
+      if (offset >= 0 && offset < end) {
+        ranges[count++] = new long[] {
+          offset, end
+        };
+      }
+    }
+    Arrays.sort(ranges, 0, count, (a, b) -> Long.compare(a[0], b[0]));
+    long mergedStart = -1;
+    long mergedEnd = -1;
+    for (int i = 0; i < count; i++) {
+      final long[] range = ranges[i];
+      if (mergedStart >= 0 && range[0] <= mergedEnd + this.maxGap) {
+        mergedEnd = Math.max(mergedEnd, range[1]);
+      } else {
+        if (mergedStart >= 0) {
+          prefetchRange(mergedStart, mergedEnd);
+        }
+        mergedStart = range[0];
+        mergedEnd = range[1];
+      }
+    }
+    if (mergedStart >= 0) {
+      prefetchRange(mergedStart, mergedEnd);
+    }
+  }
+
+  private void prefetchRange(final long start, final long end) throws IOException {
+    final long firstBlockIndex = start / this.blockSize;
+    final long lastBlockIndex = (end - 1) / this.blockSize;
+    long firstMissing = -1;
+    long lastMissing = -1;
+    for (long blockIndex = firstBlockIndex; blockIndex <= lastBlockIndex; blockIndex++) {
+      if (this.blocks.get(blockIndex) == null) {
+        if (firstMissing == -1) {
+          firstMissing = blockIndex;
+        }
+        lastMissing = blockIndex;
+      }
+    }
+    if (firstMissing != -1) {
+      readBlocks(firstMissing, lastMissing);
+    }
+  }
+
+  private void putBlocks(final long firstBlockIndex, final byte[] bytes, final int length) {
+    final int blockSize = this.blockSize;
+    long blockIndex = firstBlockIndex;
+    for (int offset = 0; offset < length; offset += blockSize) {
+      final int blockLength = Math.min(blockSize, length - offset);
+      final byte[] block = Arrays.copyOfRange(bytes, offset, offset + blockLength);
+      this.blocks.put(blockIndex++, block);
+    }
+  }
+
+  /**
+   * Read bytes starting at the position into the buffer.
+   *
+   * @param position The position to read from.
+   * @param buffer The buffer to read into.
+   * @return The number of bytes read or -1 if the position is at or after the
+   *         end of the source.
+   * @throws IOException If the bytes could not be read.
+   */
+  public int read(final long position, final ByteBuffer buffer) throws IOException {
+    if (position >= this.size) {
+      return -1;
+    }
+    final int length = (int)Math.min(buffer.remaining(), this.size - position);
+    if (length > 0) {
+      final int blockSize = this.blockSize;
+      final long firstBlockIndex = position / blockSize;
+      final long lastBlockIndex = (position + length - 1) / blockSize;
+      final byte[][] blocks = getBlocks(firstBlockIndex, lastBlockIndex);
+      int remaining = length;
+      int blockOffset = (int)(position - firstBlockIndex * blockSize);
+      for (final byte[] block : blocks) {
+        final int count = Math.min(remaining, block.length - blockOffset);
+        if (count <= 0) {
+          break;
+        }
+        buffer.put(block, blockOffset, count);
+        remaining -= count;
+        blockOffset = 0;
+      }
+      return length - remaining;
+    }
+    return length;
+  }
+
+  private byte[][] readBlocks(final long firstBlockIndex, final long lastBlockIndex)
+    throws IOException {
+    final int blockSize = this.blockSize;
+    final long offset = firstBlockIndex * blockSize;
+    final long end = Math.min((lastBlockIndex + 1) * blockSize, this.size);
+    final ByteBuffer buffer = ByteBuffer.allocate((int)(end - offset));
+    final int count = Math.max(0, this.reader.readRange(offset, buffer));
+    final byte[] bytes = buffer.array();
+    final byte[][] blocks = new byte[(int)(lastBlockIndex - firstBlockIndex + 1)][];
+    for (int i = 0; i < blocks.length; i++) {
+      final int blockOffset = i * blockSize;
+      final int blockLength = Math.max(0, Math.min(blockSize, count - blockOffset));
+      blocks[i] = Arrays.copyOfRange(bytes, blockOffset, blockOffset + blockLength);
+    }
+    for (int i = 0; i < blocks.length; i++) {
+      if (blocks[i].length > 0) {
+        this.blocks.put(firstBlockIndex + i, blocks[i]);
+      }
+    }
+    return blocks;
+  }
+
+  /**
+   * Set the maximum number of bytes between two ranges for them to be read
+   * using a single ranged read in {@link #prefetch(long[], long[])}.
+   *
+   * @param maxGap The maximum gap in bytes.
+   */
+  public void setMaxGap(final long maxGap) {
+    this.maxGap = Math.max(0, maxGap);
+  }
+
+  public long size() {
+    return this.size;
+  }
+
+  @Override
+  public String toString() {
+    return this.reader.toString();
+  }
+}
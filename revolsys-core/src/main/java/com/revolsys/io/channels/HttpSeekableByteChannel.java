@@ -1,6 +1,8 @@
 package com.revolsys.io.channels;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.ByteBuffer;
@@ -8,7 +10,8 @@ import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 
-public class HttpSeekableByteChannel implements SeekableByteChannel {
+public class HttpSeekableByteChannel
+  implements SeekableByteChannel, CachedRangeSource.RangeReader {
 
   private final URL url;
 
@@ -16,7 +19,7 @@ public class HttpSeekableByteChannel implements SeekableByteChannel {
 
   private long position;
 
-  private long length;
+  private long length = -1;
 
   public HttpSeekableByteChannel(final URL url) {
     this.url = url;
@@ -24,8 +27,10 @@ public class HttpSeekableByteChannel implements SeekableByteChannel {
 
   @Override
   public void close() throws IOException {
-    this.channel.close();
-    this.channel = null;
+    if (this.channel != null) {
+      this.channel.close();
+      this.channel = null;
+    }
   }
 
   private ReadableByteChannel getChannel() throws IOException {
@@ -36,13 +41,8 @@ public class HttpSeekableByteChannel implements SeekableByteChannel {
         connection.addRequestProperty("Range", range);
       }
       this.channel = Channels.newChannel(connection.getInputStream());
-      final String contentRange = connection.getHeaderField("Content-Range");
-      if (contentRange == null) {
-        final String contentLength = connection.getHeaderField("Content-Length");
-        this.length = Long.parseLong(contentLength);
-      } else {
-        this.length = Long.parseLong(contentRange.substring(contentRange.indexOf('/') + 1));
-      }
+      // The open-ended range is to the end of the resource
+      setLength(connection, this.position, true);
     }
     return this.channel;
   }
@@ -79,11 +79,125 @@ public class HttpSeekableByteChannel implements SeekableByteChannel {
     return value;
   }
 
+  /**
+   * Read the bytes starting at the offset into the buffer using a single HTTP
+   * range request.
+   *
+   * @param offset The offset to read from.
+   * @param buffer The buffer to read into.
+   * @return The number of bytes read.
+   */
+  @Override
+  public int readRange(final long offset, final ByteBuffer buffer) throws IOException {
+    final int length = buffer.remaining();
+    if (length == 0) {
+      return 0;
+    }
+    final URLConnection connection = this.url.openConnection();
+    final String range = "bytes=" + offset + "-" + (offset + length - 1);
+    connection.addRequestProperty("Range", range);
+    try (
+      InputStream in = connection.getInputStream()) {
+      final boolean partial = connection.getHeaderField("Content-Range") != null;
+      setLength(connection, offset, false);
+      if (!partial && offset > 0) {
+        // Server ignored the range so skip to the offset
+        long skipCount = offset;
+        while (skipCount > 0) {
+          final long skipped = in.skip(skipCount);
+          if (skipped <= 0) {
+            return 0;
+          }
+          skipCount -= skipped;
+        }
+      }
+      final ReadableByteChannel channel = Channels.newChannel(in);
+      int count = 0;
+      while (buffer.hasRemaining()) {
+        final int readCount = channel.read(buffer);
+        if (readCount == -1) {
+          break;
+        } else {
+          count += readCount;
+        }
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Get the length of the resource from the Content-Length of a HEAD request.
+   */
+  private void requestLength() throws IOException {
+    final URLConnection connection = this.url.openConnection();
+    if (connection instanceof HttpURLConnection) {
+      final HttpURLConnection httpConnection = (HttpURLConnection)connection;
+      httpConnection.setRequestMethod("HEAD");
+      try {
+        setLength(connection.getContentLengthLong());
+      } finally {
+        httpConnection.disconnect();
+      }
+    } else {
+      setLength(connection.getContentLengthLong());
+    }
+  }
+
+  private void setLength(final long length) {
+    if (length >= 0) {
+      this.length = length;
+    }
+  }
+
+  /**
+   * Set the length from the Content-Range complete length or the
+   * Content-Length if the response isn't partial. If the complete length is
+   * unknown (e.g. bytes 0-99/*) the Content-Length is only used if the range
+   * was to the end of the resource.
+   *
+   * @param connection The connection.
+   * @param offset The start of the requested range.
+   * @param toEnd True if the range was to the end of the resource.
+   */
+  private void setLength(final URLConnection connection, final long offset,
+    final boolean toEnd) {
+    final String contentRange = connection.getHeaderField("Content-Range");
+    final long contentLength = connection.getContentLengthLong();
+    if (contentRange == null) {
+      setLength(contentLength);
+    } else {
+      final String completeLength = contentRange.substring(contentRange.lastIndexOf('/') + 1)
+        .trim();
+      if ("*".equals(completeLength)) {
+        if (toEnd && contentLength >= 0) {
+          setLength(offset + contentLength);
+        }
+      } else {
+        setLength(Long.parseLong(completeLength));
+      }
+    }
+  }
+
+  /**
+   * Get the length of the resource. If the length isn't known from a previous
+   * response a HEAD request is used, so a GET of the whole resource isn't
+   * started just to read the length.
+   *
+   * @return The length or -1 if it is unknown.
+   */
   @Override
   public long size() throws IOException {
+    if (this.length == -1) {
+      requestLength();
+    }
     return this.length;
   }
 
+  @Override
+  public String toString() {
+    return this.url.toString();
+  }
+
   @Override
   public SeekableByteChannel truncate(final long size) throws IOException {
     throw new UnsupportedOperationException();
@@ -0,0 +1,120 @@
+package com.revolsys.io.channels;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.EndOfFileException;
+import com.revolsys.io.file.Paths;
+
+/**
+ * Read-only access to a file using a memory-mapped window. Only a window of
+ * the file is mapped at any one time, a new window is mapped when a range
+ * outside the current window is requested. This allows files larger than 2GB
+ * to be read without copying the bytes through streams.
+ *
+ * The buffer returned by {@link #getBuffer(long, int)} is shared and is only
+ * valid until the next call to getBuffer.
+ */
+public class MappedFileWindow implements BaseCloseable {
+
+  public static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+  private MappedByteBuffer buffer;
+
+  private long bufferOffset;
+
+  private final ByteOrder byteOrder;
+
+  private FileChannel channel;
+
+  private final Path path;
+
+  private final long size;
+
+  private final int windowSize;
+
+  public MappedFileWindow(final Path path, final ByteOrder byteOrder) {
+    this(path, byteOrder, DEFAULT_WINDOW_SIZE);
+  }
+
+  public MappedFileWindow(final Path path, final ByteOrder byteOrder, final int windowSize) {
+    this.path = path;
+    this.byteOrder = byteOrder;
+    this.windowSize = windowSize;
+    try {
+      this.channel = FileChannel.open(path, Paths.OPEN_OPTIONS_READ_SET,
+        Paths.FILE_ATTRIBUTES_NONE);
+      this.size = this.channel.size();
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to open: " + path, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    final FileChannel channel = this.channel;
+    this.channel = null;
+    this.buffer = null;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to close: " + this.path, e);
+      }
+    }
+  }
+
+  /**
+   * Get the buffer with the position set to the offset and the limit set to the
+   * end of the range.
+   *
+   * @param offset The offset in the file.
+   * @param length The number of bytes.
+   * @return The buffer.
+   * @throws EndOfFileException If the range extends past the end of the file.
+   */
+  public ByteBuffer getBuffer(final long offset, final int length) {
+    final long endOffset = offset + length;
+    if (offset < 0 || length < 0 || endOffset > this.size) {
+      throw new EndOfFileException(this.path + " offset=" + offset + " length=" + length);
+    }
+    MappedByteBuffer buffer = this.buffer;
+    if (buffer == null || offset < this.bufferOffset
+      || endOffset > this.bufferOffset + buffer.capacity()) {
+      final long mapSize = Math.min(Math.max(this.windowSize, length), this.size - offset);
+      try {
+        buffer = this.channel.map(MapMode.READ_ONLY, offset, mapSize);
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to map: " + this.path, e);
+      }
+      buffer.order(this.byteOrder);
+      this.buffer = buffer;
+      this.bufferOffset = offset;
+    }
+    final int position = (int)(offset - this.bufferOffset);
+    buffer.limit(position + length);
+    buffer.position(position);
+    return buffer;
+  }
+
+  public Path getPath() {
+    return this.path;
+  }
+
+  public long size() {
+    return this.size;
+  }
+
+  @Override
+  public String toString() {
+    return this.path.toString();
+  }
+}
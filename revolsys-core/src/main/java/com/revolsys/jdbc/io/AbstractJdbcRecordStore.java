@@ -93,12 +93,16 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
 
   private List<String> excludeTablePatterns = new ArrayList<>();
 
+  private int fetchSize = 0;
+
   private final Map<String, JdbcFieldAdder> fieldDefinitionAdders = new HashMap<>();
 
   private boolean flushBetweenTypes;
 
   private boolean lobAsString = false;
 
+  private boolean prefetch = false;
+
   private String primaryKeySql;
 
   private String primaryKeyTableCondition;
@@ -321,6 +325,18 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return this.excludeTablePaths;
   }
 
+  /**
+   * Get the number of rows to fetch from the database in each round trip for
+   * queries that don't set a fetch size. The value 0 calculates the fetch size
+   * from the width of the fields in the query.
+   *
+   * @return The fetch size.
+   */
+  @Override
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   public JdbcFieldDefinition getField(final String schemaName, final String tableName,
     final String columnName) {
     final String typePath = PathUtil.toPath(schemaName, tableName);
@@ -546,6 +562,17 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return this.lobAsString;
   }
 
+  /**
+   * Check if query iterators read and convert the next batch of records in a
+   * background thread while the current batch is being processed.
+   *
+   * @return True if records are prefetched.
+   */
+  @Override
+  public boolean isPrefetch() {
+    return this.prefetch;
+  }
+
   public boolean isQuoteNames() {
     return this.quoteNames;
   }
@@ -916,6 +943,10 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     this.excludeTablePatterns = new ArrayList<>(Arrays.asList(excludeTablePatterns));
   }
 
+  public void setFetchSize(final int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
   public void setFlushBetweenTypes(final boolean flushBetweenTypes) {
     this.flushBetweenTypes = flushBetweenTypes;
   }
@@ -924,6 +955,10 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     this.lobAsString = lobAsString;
   }
 
+  public void setPrefetch(final boolean prefetch) {
+    this.prefetch = prefetch;
+  }
+
   public void setPrimaryKeySql(final String primaryKeySql) {
     this.primaryKeySql = primaryKeySql;
   }
@@ -5,19 +5,31 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.jeometry.common.exception.Exceptions;
 import org.jeometry.common.io.PathName;
+import org.jeometry.common.logging.Logs;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.UncategorizedSQLException;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.Point;
 import com.revolsys.io.FileUtil;
 import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.parallel.ThreadInterruptedException;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.RecordState;
@@ -29,7 +41,81 @@ import com.revolsys.util.Booleans;
 import com.revolsys.util.count.LabelCountMap;
 import com.revolsys.util.count.LabelCounters;
 
+/**
+ * Iterate over the records returned from a query.
+ *
+ * The number of rows fetched in each round trip to the database is taken from
+ * {@link Query#getFetchSize()}, then {@link JdbcRecordStore#getFetchSize()}. If
+ * neither is set the fetch size is calculated so that a fetch is approximately
+ * {@link #FETCH_BYTES} based on an estimate of the width of the fields.
+ *
+ * If prefetch is enabled (using {@link JdbcRecordStore#isPrefetch()} or the
+ * "prefetch" property) the records are read and converted (including parsing
+ * the geometries) in a background thread one batch of fetch size records ahead
+ * of the consumer. If the prefetch thread doesn't stop when the iterator is
+ * closed, the prefetch thread closes the statement, result set and connection
+ * when it stops so they are never used by two threads at once.
+ */
 public class JdbcQueryIterator extends AbstractIterator<Record> implements RecordReader {
+  public static final int FETCH_BYTES = 1024 * 1024;
+
+  public static final int FETCH_SIZE_MAX = 10000;
+
+  public static final int FETCH_SIZE_MIN = 10;
+
+  private static final List<Record> PREFETCH_END = Collections.emptyList();
+
+  /** The maximum time in milliseconds close waits for the prefetch thread to stop. */
+  private static final long PREFETCH_CLOSE_TIMEOUT = 5000;
+
+  private static final int PREFETCH_QUEUE_SIZE = 2;
+
+  /**
+   * Get the fetch size so that each fetch is approximately {@link #FETCH_BYTES}
+   * using an estimate of the number of bytes for each field.
+   *
+   * @param fields The fields in the query.
+   * @return The fetch size.
+   */
+  public static int getFetchSize(final List<FieldDefinition> fields) {
+    long rowBytes = 16;
+    for (final FieldDefinition field : fields) {
+      rowBytes += getFieldBytes(field);
+    }
+    final long fetchSize = FETCH_BYTES / rowBytes;
+    if (fetchSize < FETCH_SIZE_MIN) {
+      return FETCH_SIZE_MIN;
+    } else if (fetchSize > FETCH_SIZE_MAX) {
+      return FETCH_SIZE_MAX;
+    } else {
+      return (int)fetchSize;
+    }
+  }
+
+  private static int getFieldBytes(final FieldDefinition field) {
+    final Class<?> typeClass = field.getTypeClass();
+    if (typeClass == null) {
+      return 256;
+    } else if (Point.class.isAssignableFrom(typeClass)) {
+      return 64;
+    } else if (Geometry.class.isAssignableFrom(typeClass)) {
+      return 4096;
+    } else if (Number.class.isAssignableFrom(typeClass)
+      || Boolean.class.isAssignableFrom(typeClass)
+      || Date.class.isAssignableFrom(typeClass)) {
+      return 8;
+    } else if (CharSequence.class.isAssignableFrom(typeClass)) {
+      final int length = field.getLength();
+      if (length > 0 && length < 256) {
+        return length;
+      } else {
+        return 256;
+      }
+    } else {
+      return 1024;
+    }
+  }
+
   public static Record getNextRecord(final JdbcRecordStore recordStore,
     final RecordDefinition recordDefinition, final List<FieldDefinition> fields,
     final RecordFactory<Record> recordFactory, final ResultSet resultSet,
@@ -60,7 +146,7 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
 
   private final int currentQueryIndex = -1;
 
-  private final int fetchSize = 10;
+  private int fetchSize;
 
   private List<FieldDefinition> fields = new ArrayList<>();
 
@@ -80,12 +166,37 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
 
   private LabelCounters labelCountMap;
 
+  private boolean prefetch;
+
+  private Iterator<Record> prefetchBatch;
+
+  private volatile boolean prefetchClosed;
+
+  private volatile Throwable prefetchException;
+
+  /**
+   * True while the prefetch thread is running. The thread or closeDo that
+   * changes it to false first hands the closing of the JDBC resources to the
+   * other.
+   */
+  private final AtomicBoolean prefetchRunning = new AtomicBoolean();
+
+  private BlockingQueue<List<Record>> prefetchQueue;
+
+  private Thread prefetchThread;
+
   public JdbcQueryIterator(final JdbcRecordStore recordStore, final Query query,
     final Map<String, Object> properties) {
     super();
 
     final boolean autoCommit = Booleans.getBoolean(properties.get("autoCommit"));
     this.internStrings = Booleans.getBoolean(properties.get("internStrings"));
+    final Object prefetch = properties.get("prefetch");
+    if (prefetch == null) {
+      this.prefetch = recordStore.isPrefetch();
+    } else {
+      this.prefetch = Booleans.getBoolean(prefetch);
+    }
     this.connection = recordStore.getJdbcConnection(autoCommit);
     this.recordFactory = query.getRecordFactory();
     if (this.recordFactory == null) {
@@ -101,8 +212,35 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
 
   @Override
   public synchronized void closeDo() {
-    JdbcUtils.close(this.statement, this.resultSet);
-    FileUtil.closeSilent(this.connection);
+    final Thread prefetchThread = this.prefetchThread;
+    this.prefetchThread = null;
+    this.prefetchClosed = true;
+    if (prefetchThread != null && prefetchThread != Thread.currentThread()) {
+      // Cancel the statement as a driver may ignore the interrupt while fetching
+      final PreparedStatement statement = this.statement;
+      if (statement != null) {
+        try {
+          statement.cancel();
+        } catch (final SQLException | RuntimeException e) {
+          Logs.warn(this, "Unable to cancel the prefetch query", e);
+        }
+      }
+      prefetchThread.interrupt();
+      try {
+        prefetchThread.join(PREFETCH_CLOSE_TIMEOUT);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    this.prefetchBatch = null;
+    this.prefetchQueue = null;
+    if (this.prefetchRunning.compareAndSet(true, false)) {
+      // The prefetch thread may still be using the result set
+      Logs.error(this, "Prefetch thread did not stop, it will close the result set when it stops");
+    } else {
+      JdbcUtils.close(this.statement, this.resultSet);
+      FileUtil.closeSilent(this.connection);
+    }
     this.fields = null;
     this.connection = null;
     this.recordFactory = null;
@@ -123,8 +261,31 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     }
   }
 
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
+  private int getFetchSize(final RecordDefinition recordDefinition) {
+    final int queryFetchSize = this.query.getFetchSize();
+    if (queryFetchSize > 0) {
+      return queryFetchSize;
+    } else {
+      final int recordStoreFetchSize = this.recordStore.getFetchSize();
+      if (recordStoreFetchSize > 0) {
+        return recordStoreFetchSize;
+      } else if (recordDefinition == null) {
+        return FETCH_SIZE_MIN;
+      } else {
+        return getFetchSize(this.query.getFields(recordDefinition));
+      }
+    }
+  }
+
   @Override
   protected Record getNext() throws NoSuchElementException {
+    if (this.prefetchQueue != null) {
+      return getNextPrefetch();
+    }
     try {
       if (this.resultSet != null && !this.query.isCancelled() && this.resultSet.next()) {
         final Record record = getNextRecord(this.recordStore, this.recordDefinition, this.fields,
@@ -138,25 +299,7 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
         throw new NoSuchElementException();
       }
     } catch (final SQLException e) {
-      final boolean cancelled = this.query.isCancelled();
-      DataAccessException e2;
-      if (cancelled) {
-        e2 = null;
-      } else {
-        final JdbcConnection connection = this.connection;
-        final String sql = getErrorMessage();
-        if (connection == null) {
-          e2 = new UncategorizedSQLException("Get Next", sql, e);
-        } else {
-          e2 = connection.getException("Get Next", sql, e);
-        }
-      }
-      close();
-      if (cancelled) {
-        throw new NoSuchElementException();
-      } else {
-        throw e2;
-      }
+      throw getNextException(e);
     } catch (final RuntimeException e) {
       close();
       throw e;
@@ -166,6 +309,61 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     }
   }
 
+  private RuntimeException getNextException(final SQLException e) {
+    final boolean cancelled = this.query.isCancelled();
+    DataAccessException e2;
+    if (cancelled) {
+      e2 = null;
+    } else {
+      final JdbcConnection connection = this.connection;
+      final String sql = getErrorMessage();
+      if (connection == null) {
+        e2 = new UncategorizedSQLException("Get Next", sql, e);
+      } else {
+        e2 = connection.getException("Get Next", sql, e);
+      }
+    }
+    close();
+    if (cancelled) {
+      return new NoSuchElementException();
+    } else {
+      return e2;
+    }
+  }
+
+  private Record getNextPrefetch() {
+    while (this.prefetchBatch == null || !this.prefetchBatch.hasNext()) {
+      final List<Record> batch;
+      try {
+        batch = this.prefetchQueue.take();
+      } catch (final InterruptedException e) {
+        close();
+        throw new ThreadInterruptedException(e);
+      }
+      if (batch == PREFETCH_END) {
+        final Throwable exception = this.prefetchException;
+        if (exception instanceof SQLException) {
+          throw getNextException((SQLException)exception);
+        }
+        close();
+        if (exception == null) {
+          throw new NoSuchElementException();
+        } else if (exception instanceof Error) {
+          throw (Error)exception;
+        } else {
+          throw Exceptions.wrap(exception);
+        }
+      } else {
+        this.prefetchBatch = batch.iterator();
+      }
+    }
+    final Record record = this.prefetchBatch.next();
+    if (this.labelCountMap != null) {
+      this.labelCountMap.addCount(record);
+    }
+    return record;
+  }
+
   @Override
   public RecordDefinition getRecordDefinition() {
     if (this.recordDefinition == null) {
@@ -209,6 +407,7 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     final String sql = getSql(this.query);
     try {
       this.statement = this.connection.prepareStatement(sql);
+      this.fetchSize = getFetchSize(this.recordDefinition);
       this.statement.setFetchSize(this.fetchSize);
 
       this.resultSet = this.recordStore.getResultSet(this.statement, this.query);
@@ -217,6 +416,8 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
       if (this.recordDefinition == null) {
         this.recordDefinition = this.recordStore.getRecordDefinition(tableName, resultSetMetaData,
           dbTableName);
+        this.fetchSize = getFetchSize(this.recordDefinition);
+        this.resultSet.setFetchSize(this.fetchSize);
       }
       this.fields = this.query.getFields(this.recordDefinition);
 
@@ -239,16 +440,112 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
   @Override
   protected void initDo() {
     this.resultSet = getResultSet();
+    if (this.prefetch) {
+      this.prefetchQueue = new ArrayBlockingQueue<>(PREFETCH_QUEUE_SIZE);
+      final Thread thread = new Thread(this::prefetchRecords,
+        "JdbcQueryIterator prefetch " + this.query.getTypeName());
+      thread.setDaemon(true);
+      this.prefetchThread = thread;
+      this.prefetchRunning.set(true);
+      thread.start();
+    }
   }
 
   public boolean isInternStrings() {
     return this.internStrings;
   }
 
+  public boolean isPrefetch() {
+    return this.prefetch;
+  }
+
+  /**
+   * Read the records in batches of fetch size records in the prefetch thread
+   * until the end of the result set, the query is cancelled or the iterator is
+   * closed. Any exception is passed to the consumer after the last batch. If
+   * closeDo timed out waiting for this thread the JDBC resources are closed
+   * when the thread stops.
+   */
+  private void prefetchRecords() {
+    final JdbcConnection connection = this.connection;
+    final PreparedStatement statement = this.statement;
+    final ResultSet resultSet = this.resultSet;
+    try {
+      prefetchRecords(resultSet);
+    } finally {
+      if (!this.prefetchRunning.compareAndSet(true, false)) {
+        JdbcUtils.close(statement, resultSet);
+        FileUtil.closeSilent(connection);
+      }
+    }
+  }
+
+  private void prefetchRecords(final ResultSet resultSet) {
+    final BlockingQueue<List<Record>> queue = this.prefetchQueue;
+    final int fetchSize = this.fetchSize;
+    final Query query = this.query;
+    final JdbcRecordStore recordStore = this.recordStore;
+    final JdbcRecordDefinition recordDefinition = this.recordDefinition;
+    final List<FieldDefinition> fields = this.fields;
+    final RecordFactory<Record> recordFactory = this.recordFactory;
+    final boolean internStrings = this.internStrings;
+    final Thread thread = Thread.currentThread();
+    try {
+      List<Record> batch = new ArrayList<>(fetchSize);
+      while (!thread.isInterrupted() && !query.isCancelled() && resultSet.next()) {
+        final Record record = getNextRecord(recordStore, recordDefinition, fields, recordFactory,
+          resultSet, internStrings);
+        batch.add(record);
+        if (batch.size() >= fetchSize) {
+          if (!prefetchPut(queue, batch)) {
+            return;
+          }
+          batch = new ArrayList<>(fetchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        if (!prefetchPut(queue, batch)) {
+          return;
+        }
+      }
+    } catch (final InterruptedException e) {
+      return;
+    } catch (final Throwable e) {
+      if (this.prefetchClosed) {
+        return;
+      }
+      this.prefetchException = e;
+    }
+    try {
+      prefetchPut(queue, PREFETCH_END);
+    } catch (final InterruptedException e) {
+    }
+  }
+
+  /**
+   * Add the batch to the queue, waiting until there is space or the iterator is
+   * closed.
+   *
+   * @return True if the batch was added, false if the iterator was closed.
+   */
+  private boolean prefetchPut(final BlockingQueue<List<Record>> queue, final List<Record> batch)
+    throws InterruptedException {
+    while (!this.prefetchClosed) {
+      if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public void setInternStrings(final boolean internStrings) {
     this.internStrings = internStrings;
   }
 
+  public void setPrefetch(final boolean prefetch) {
+    this.prefetch = prefetch;
+  }
+
   protected void setQuery(final Query query) {
     this.query = query;
   }
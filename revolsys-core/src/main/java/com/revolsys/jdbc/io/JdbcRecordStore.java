@@ -36,6 +36,8 @@ public interface JdbcRecordStore extends RecordStore {
     }
   }
 
+  int getFetchSize();
+
   String getGeneratePrimaryKeySql(JdbcRecordDefinition recordDefinition);
 
   JdbcConnection getJdbcConnection();
@@ -56,6 +58,8 @@ public interface JdbcRecordStore extends RecordStore {
 
   boolean isIdFieldRowid(RecordDefinition recordDefinition);
 
+  boolean isPrefetch();
+
   default void lockTable(final String typePath) {
     try (
       final JdbcConnection connection = getJdbcConnection()) {
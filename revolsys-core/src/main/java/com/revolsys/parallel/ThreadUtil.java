@@ -1,7 +1,62 @@
 package com.revolsys.parallel;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.ForkJoinWorkerThread;
+
 public class ThreadUtil {
 
+  /**
+   * Wait on the monitor, the caller must be synchronized on the monitor. If
+   * the current thread is a {@link ForkJoinPool} worker the wait is done using
+   * {@link ForkJoinPool#managedBlock(ManagedBlocker)} so the pool can start a
+   * spare thread while this one is blocked.
+   *
+   * @param monitor The monitor to wait on.
+   * @param milliSeconds The maximum time to wait, 0 to wait until notified.
+   * @throws InterruptedException If the thread was interrupted.
+   */
+  public static void monitorWait(final Object monitor, final long milliSeconds)
+    throws InterruptedException {
+    monitorWait(monitor, milliSeconds, 0);
+  }
+
+  /**
+   * Wait on the monitor, the caller must be synchronized on the monitor. If
+   * the current thread is a {@link ForkJoinPool} worker the wait is done using
+   * {@link ForkJoinPool#managedBlock(ManagedBlocker)} so the pool can start a
+   * spare thread while this one is blocked.
+   *
+   * @param monitor The monitor to wait on.
+   * @param milliSeconds The maximum time to wait, 0 to wait until notified.
+   * @param nanoSeconds The additional time to wait.
+   * @throws InterruptedException If the thread was interrupted.
+   */
+  public static void monitorWait(final Object monitor, final long milliSeconds,
+    final int nanoSeconds) throws InterruptedException {
+    if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+      ForkJoinPool.managedBlock(new ManagedBlocker() {
+        private boolean released = false;
+
+        @Override
+        public boolean block() throws InterruptedException {
+          if (!this.released) {
+            this.released = true;
+            monitor.wait(milliSeconds, nanoSeconds);
+          }
+          return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+          return this.released;
+        }
+      });
+    } else {
+      monitor.wait(milliSeconds, nanoSeconds);
+    }
+  }
+
   public static boolean isInterrupted() {
     return Thread.currentThread().isInterrupted();
   }
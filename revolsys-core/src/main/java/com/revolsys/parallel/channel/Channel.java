@@ -3,6 +3,7 @@ package com.revolsys.parallel.channel;
 import java.util.Iterator;
 
 import com.revolsys.parallel.ThreadInterruptedException;
+import com.revolsys.parallel.ThreadUtil;
 import com.revolsys.parallel.channel.store.ZeroBuffer;
 
 public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
@@ -137,7 +138,7 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
         if (this.data.getState() == ChannelValueStore.EMPTY) {
           try {
             try {
-              this.monitor.wait(timeout);
+              ThreadUtil.monitorWait(this.monitor, timeout);
             } catch (final InterruptedException e) {
               throw new ThreadInterruptedException(e);
             }
@@ -220,7 +221,7 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
         if (this.data.getState() == ChannelValueStore.FULL) {
           try {
             try {
-              this.monitor.wait();
+              ThreadUtil.monitorWait(this.monitor, 0);
             } catch (final InterruptedException e) {
               throw new ThreadInterruptedException(e);
             }
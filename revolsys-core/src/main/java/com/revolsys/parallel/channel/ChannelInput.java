@@ -1,6 +1,25 @@
 package com.revolsys.parallel.channel;
 
+import java.util.Collection;
+
 public interface ChannelInput<T> extends Iterable<T> {
+  /**
+   * Read at least one value from the channel, waiting if required, and then
+   * any more values that are available without waiting up to maxCount values.
+   *
+   * @param values The collection to add the values to.
+   * @param maxCount The maximum number of values to read.
+   * @return The number of values read.
+   */
+  default int drainTo(final Collection<? super T> values, final int maxCount) {
+    if (maxCount <= 0) {
+      return 0;
+    } else {
+      values.add(read());
+      return 1;
+    }
+  }
+
   /**
    * Reads an Object from the Channel. This method also ensures only one of the
    * readers can actually be reading at any time. All other readers are blocked
@@ -10,6 +10,17 @@ public interface ChannelOutput<T> {
    */
   void write(final T value);
 
+  /**
+   * Write all the values to the channel in order.
+   *
+   * @param values The values to write to the Channel.
+   */
+  default void writeAll(final Iterable<? extends T> values) {
+    for (final T value : values) {
+      write(value);
+    }
+  }
+
   void writeConnect();
 
   void writeDisconnect();
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import com.revolsys.parallel.ThreadInterruptedException;
+import com.revolsys.parallel.ThreadUtil;
 
 public class MultiInputSelector {
   private int enabledChannels = 0;
@@ -161,7 +162,7 @@ public class MultiInputSelector {
         if (!this.scheduled) {
           try {
             try {
-              this.monitor.wait(Math.min(msecs, this.maxWait), nsecs);
+              ThreadUtil.monitorWait(this.monitor, Math.min(msecs, this.maxWait), nsecs);
             } catch (final InterruptedException e) {
               throw new ThreadInterruptedException(e);
             }
@@ -182,7 +183,7 @@ public class MultiInputSelector {
           try {
             if (!this.scheduled) {
               try {
-                this.monitor.wait(Math.min(msecs, this.maxWait), nsecs);
+                ThreadUtil.monitorWait(this.monitor, Math.min(msecs, this.maxWait), nsecs);
               } catch (final InterruptedException e) {
                 throw new ThreadInterruptedException(e);
               }
@@ -10,6 +10,7 @@ import java.util.Queue;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.revolsys.parallel.ThreadInterruptedException;
+import com.revolsys.parallel.ThreadUtil;
 
 public class NamedChannelBundle<T> {
 
@@ -181,7 +182,7 @@ public class NamedChannelBundle<T> {
           if (timeout == 0) {
             while (queue == null && readerNotifyCount == this.readerNotifyCount) {
               try {
-                this.monitor.wait();
+                ThreadUtil.monitorWait(this.monitor, 0);
               } catch (final InterruptedException e) {
                 throw new ThreadInterruptedException(e);
               }
@@ -196,7 +197,7 @@ public class NamedChannelBundle<T> {
             while (queue == null && waitTime > 0 && readerNotifyCount == this.readerNotifyCount) {
               final long milliSeconds = waitTime;
               try {
-                this.monitor.wait(milliSeconds);
+                ThreadUtil.monitorWait(this.monitor, milliSeconds);
               } catch (final InterruptedException e) {
                 throw new ThreadInterruptedException(e);
               }
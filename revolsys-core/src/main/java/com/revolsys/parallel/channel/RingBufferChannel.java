@@ -0,0 +1,493 @@
+package com.revolsys.parallel.channel;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.revolsys.parallel.ThreadInterruptedException;
+import com.revolsys.parallel.ThreadUtil;
+
+/**
+ * A bounded channel that stores the values in a lock-free ring buffer
+ * that supports multiple readers and writers. Values are read and written
+ * without synchronization while the buffer is neither empty or full. Readers
+ * and writers only synchronize on the monitor to wait when the buffer is empty
+ * or full, and writers only notify the monitor if there are waiting readers (and
+ * vice versa).
+ *
+ * Use {@link #writeAll(Iterable)} and {@link #drainTo(Collection, int)} to
+ * transfer a batch of values with a single notification.
+ *
+ * @param <T> The type of value.
+ */
+public class RingBufferChannel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
+
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private static int getCapacity(final int capacity) {
+    if (capacity < 2) {
+      return 2;
+    } else if (capacity > 1 << 30) {
+      return 1 << 30;
+    } else {
+      return Integer.highestOneBit(capacity - 1) << 1;
+    }
+  }
+
+  private final AtomicReferenceArray<T> buffer;
+
+  private final int capacity;
+
+  private volatile boolean closed = false;
+
+  private final AtomicLong head = new AtomicLong();
+
+  private final int mask;
+
+  /** The monitor readers and writers wait on when the buffer is empty or full. */
+  private final Object monitor = new Object();
+
+  private final String name;
+
+  private int numReaders = 0;
+
+  private int numWriters = 0;
+
+  private volatile MultiInputSelector selector;
+
+  /** The sequence number of each slot, used to check if a slot can be read or written. */
+  private final AtomicLongArray sequences;
+
+  private final AtomicLong tail = new AtomicLong();
+
+  private volatile int waitingReaderCount = 0;
+
+  private volatile int waitingWriterCount = 0;
+
+  private volatile boolean writeClosed = false;
+
+  public RingBufferChannel() {
+    this(null, DEFAULT_CAPACITY);
+  }
+
+  public RingBufferChannel(final int capacity) {
+    this(null, capacity);
+  }
+
+  public RingBufferChannel(final String name) {
+    this(name, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Construct a new channel.
+   *
+   * @param name The name of the channel.
+   * @param capacity The maximum number of values in the channel, rounded up to a
+   *          power of 2.
+   */
+  public RingBufferChannel(final String name, final int capacity) {
+    this.name = name;
+    this.capacity = getCapacity(capacity);
+    this.mask = this.capacity - 1;
+    this.buffer = new AtomicReferenceArray<>(this.capacity);
+    this.sequences = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      this.sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Close the channel, waking any blocked readers and writers.
+   */
+  public void close() {
+    this.closed = true;
+    synchronized (this.monitor) {
+      this.monitor.notifyAll();
+    }
+  }
+
+  @Override
+  public boolean disable() {
+    this.selector = null;
+    return !isEmpty();
+  }
+
+  /**
+   * Read at least one value from the channel, waiting if required, and then any
+   * more values that are available without waiting up to maxCount values.
+   *
+   * @param values The collection to add the values to.
+   * @param maxCount The maximum number of values to read.
+   * @return The number of values read.
+   */
+  @Override
+  public int drainTo(final Collection<? super T> values, final int maxCount) {
+    if (maxCount <= 0) {
+      return 0;
+    } else {
+      values.add(read());
+      int count = 1;
+      while (count < maxCount) {
+        final T value = poll();
+        if (value == null) {
+          break;
+        } else {
+          values.add(value);
+          count++;
+        }
+      }
+      if (count > 1) {
+        signalWriters();
+      }
+      return count;
+    }
+  }
+
+  @Override
+  public boolean enable(final MultiInputSelector selector) {
+    this.selector = selector;
+    if (isEmpty()) {
+      return false;
+    } else {
+      this.selector = null;
+      return true;
+    }
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public boolean isClosed() {
+    if (!this.closed) {
+      if (this.writeClosed) {
+        if (isEmpty()) {
+          this.closed = true;
+        }
+      }
+    }
+    return this.closed;
+  }
+
+  public boolean isEmpty() {
+    return this.head.get() >= this.tail.get();
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new ChannelInputIterator<>(this);
+  }
+
+  /**
+   * Add the value to the buffer if there is space.
+   *
+   * @param value The value.
+   * @return True if the value was added, false if the buffer was full.
+   */
+  private boolean offer(final T value) {
+    final int mask = this.mask;
+    long position = this.tail.get();
+    while (true) {
+      final int index = (int)(position & mask);
+      final long sequence = this.sequences.get(index);
+      final long difference = sequence - position;
+      if (difference == 0) {
+        if (this.tail.compareAndSet(position, position + 1)) {
+          this.buffer.lazySet(index, value);
+          this.sequences.set(index, position + 1);
+          return true;
+        } else {
+          position = this.tail.get();
+        }
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = this.tail.get();
+      }
+    }
+  }
+
+  /**
+   * Remove the next value from the buffer if there is one.
+   *
+   * @return The value or null if the buffer was empty.
+   */
+  private T poll() {
+    final int mask = this.mask;
+    long position = this.head.get();
+    while (true) {
+      final int index = (int)(position & mask);
+      final long sequence = this.sequences.get(index);
+      final long difference = sequence - (position + 1);
+      if (difference == 0) {
+        if (this.head.compareAndSet(position, position + 1)) {
+          final T value = this.buffer.get(index);
+          this.buffer.lazySet(index, null);
+          this.sequences.set(index, position + mask + 1);
+          return value;
+        } else {
+          position = this.head.get();
+        }
+      } else if (difference < 0) {
+        return null;
+      } else {
+        position = this.head.get();
+      }
+    }
+  }
+
+  /**
+   * Reads an Object from the Channel, waiting until a value is available.
+   *
+   * @return The object returned from the Channel.
+   */
+  @Override
+  public T read() {
+    return read(0);
+  }
+
+  /**
+   * Reads an Object from the Channel. If no data is available to be read after
+   * the timeout the method will return null. A timeout of 0 waits until a value
+   * is available.
+   *
+   * @param timeout The maximum time to wait in milliseconds.
+   * @return The object returned from the Channel.
+   */
+  @Override
+  public T read(final long timeout) {
+    T value = poll();
+    if (value == null) {
+      synchronized (this.monitor) {
+        this.waitingReaderCount++;
+        try {
+          if (timeout == 0) {
+            value = readWait();
+          } else {
+            value = poll();
+            if (value == null) {
+              if (isClosed()) {
+                throw new ClosedException();
+              }
+              try {
+                ThreadUtil.monitorWait(this.monitor, timeout);
+              } catch (final InterruptedException e) {
+                close();
+                throw new ClosedException(new ThreadInterruptedException(e));
+              }
+              value = poll();
+              if (value == null) {
+                if (isClosed()) {
+                  throw new ClosedException();
+                } else {
+                  return null;
+                }
+              }
+            }
+          }
+        } finally {
+          this.waitingReaderCount--;
+        }
+      }
+    }
+    signalWriters();
+    return value;
+  }
+
+  @Override
+  public void readConnect() {
+    synchronized (this.monitor) {
+      if (isClosed()) {
+        throw new IllegalStateException("Cannot connect to a closed channel");
+      } else {
+        this.numReaders++;
+      }
+    }
+  }
+
+  @Override
+  public void readDisconnect() {
+    synchronized (this.monitor) {
+      if (!this.closed) {
+        this.numReaders--;
+        if (this.numReaders <= 0) {
+          close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Wait until a value is available or the channel is closed. Must be called
+   * while synchronized on the monitor.
+   *
+   * @return The value.
+   */
+  private T readWait() {
+    while (true) {
+      final T value = poll();
+      if (value != null) {
+        return value;
+      } else if (isClosed()) {
+        throw new ClosedException();
+      }
+      try {
+        ThreadUtil.monitorWait(this.monitor, 0);
+      } catch (final InterruptedException e) {
+        close();
+        throw new ClosedException(new ThreadInterruptedException(e));
+      }
+    }
+  }
+
+  private void signalReaders() {
+    final MultiInputSelector selector = this.selector;
+    if (selector != null) {
+      selector.schedule();
+    }
+    if (this.waitingReaderCount > 0) {
+      synchronized (this.monitor) {
+        this.monitor.notifyAll();
+      }
+    }
+  }
+
+  private void signalWriters() {
+    if (this.waitingWriterCount > 0) {
+      synchronized (this.monitor) {
+        this.monitor.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * The number of values in the buffer.
+   *
+   * @return The number of values in the buffer.
+   */
+  public int size() {
+    final long size = this.tail.get() - this.head.get();
+    if (size < 0) {
+      return 0;
+    } else {
+      return (int)Math.min(size, this.capacity);
+    }
+  }
+
+  @Override
+  public String toString() {
+    final String name = this.name;
+    if (name == null) {
+      return "RingBufferChannel(" + size() + "/" + this.capacity + ")";
+    } else {
+      return name;
+    }
+  }
+
+  /**
+   * Writes an Object to the Channel, waiting if the channel is full.
+   *
+   * @param value The object to write to the Channel.
+   */
+  @Override
+  public void write(final T value) {
+    if (value == null) {
+      throw new NullPointerException("Cannot write null to a channel");
+    } else if (this.closed) {
+      throw new ClosedException();
+    } else if (!offer(value)) {
+      writeWait(value);
+    }
+    signalReaders();
+  }
+
+  /**
+   * Write all the values to the channel in order, waiting if the channel is
+   * full. The readers are notified once when the values have been written (or
+   * when the channel becomes full).
+   *
+   * @param values The values to write to the Channel.
+   */
+  @Override
+  public void writeAll(final Iterable<? extends T> values) {
+    boolean written = false;
+    for (final T value : values) {
+      if (value == null) {
+        throw new NullPointerException("Cannot write null to a channel");
+      } else if (this.closed) {
+        throw new ClosedException();
+      } else if (!offer(value)) {
+        if (written) {
+          signalReaders();
+        }
+        writeWait(value);
+      }
+      written = true;
+    }
+    if (written) {
+      signalReaders();
+    }
+  }
+
+  @Override
+  public void writeConnect() {
+    synchronized (this.monitor) {
+      if (this.writeClosed) {
+        throw new IllegalStateException("Cannot connect to a closed channel");
+      } else {
+        this.numWriters++;
+      }
+    }
+  }
+
+  @Override
+  public void writeDisconnect() {
+    synchronized (this.monitor) {
+      if (!this.writeClosed) {
+        this.numWriters--;
+        if (this.numWriters <= 0) {
+          this.writeClosed = true;
+          final MultiInputSelector selector = this.selector;
+          if (selector != null) {
+            selector.closeChannel();
+          }
+          this.monitor.notifyAll();
+        }
+      }
+    }
+  }
+
+  /**
+   * Wait until there is space in the buffer to write the value or the channel
+   * is closed.
+   *
+   * @param value The value.
+   */
+  private void writeWait(final T value) {
+    synchronized (this.monitor) {
+      this.waitingWriterCount++;
+      try {
+        while (!offer(value)) {
+          if (this.closed) {
+            throw new ClosedException();
+          }
+          try {
+            ThreadUtil.monitorWait(this.monitor, 0);
+          } catch (final InterruptedException e) {
+            close();
+            throw new ClosedException(new ThreadInterruptedException(e));
+          }
+        }
+      } finally {
+        this.waitingWriterCount--;
+      }
+    }
+  }
+}
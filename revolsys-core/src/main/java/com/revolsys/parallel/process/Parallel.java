@@ -17,6 +17,10 @@ public class Parallel extends AbstractMultipleProcess {
   @Override
   public void run() {
     final ProcessNetwork network = new ProcessNetwork();
+    final ProcessNetwork parentNetwork = getProcessNetwork();
+    if (parentNetwork != null) {
+      network.setExecutor(parentNetwork.getExecutor());
+    }
     network.setProcesses(getProcesses());
     network.startAndWait();
   }
@@ -5,9 +5,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -16,17 +17,47 @@ import org.jeometry.common.logging.Logs;
 
 import com.revolsys.collection.map.ThreadSharedProperties;
 import com.revolsys.parallel.ThreadInterruptedException;
+import com.revolsys.parallel.ThreadUtil;
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.spring.TargetBeanProcess;
 
+/**
+ * A network of processes that are connected by channels.
+ *
+ * By default each process is run in a new thread. If an executor is set (see
+ * {@link #setExecutor(ExecutorService)} and {@link #setUseSharedPool(boolean)})
+ * the processes are run as tasks on the executor so large networks start fast
+ * and threads are reused. With a {@link ForkJoinPool} the channel reads and
+ * writes use {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)} so
+ * a process blocked on a channel doesn't stop the pool running other processes.
+ * Processes run on an executor are not in the network's thread group, instead
+ * the worker uses the group's {@link ThreadSharedProperties} while it runs the
+ * process. Processes are stopped by interrupting them.
+ */
 public class ProcessNetwork {
 
   private static ThreadLocal<ProcessNetwork> PROCESS_NETWORK = new ThreadLocal<>();
 
+  private static ForkJoinPool sharedPool;
+
   public static ProcessNetwork forThread() {
     return PROCESS_NETWORK.get();
   }
 
+  /**
+   * Get the pool shared by all process networks that use the shared pool.
+   *
+   * @return The shared pool.
+   */
+  public static synchronized ForkJoinPool getSharedPool() {
+    if (sharedPool == null) {
+      final int parallelism = Runtime.getRuntime().availableProcessors();
+      sharedPool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+        null, true);
+    }
+    return sharedPool;
+  }
+
   public static void processTasks(final int processCount, final Channel<Runnable> tasks) {
     final ProcessNetwork processNetwork = new ProcessNetwork();
     for (int i = 0; i < processCount; i++) {
@@ -69,12 +100,17 @@ public class ProcessNetwork {
 
   private int count = 0;
 
+  private ExecutorService executor;
+
   private String name = "processNetwork";
 
   private ProcessNetwork parent;
 
   private final Map<Process, Thread> processes = new HashMap<>();
 
+  /** The pool worker running each executor process, null until the task starts. */
+  private final Map<Process, Thread> executorProcesses = new HashMap<>();
+
   private boolean running = false;
 
   private boolean stopping = false;
@@ -164,9 +200,14 @@ public class ProcessNetwork {
     synchronized (this.sync) {
       this.running = false;
       this.processes.clear();
+      this.executorProcesses.clear();
     }
   }
 
+  public ExecutorService getExecutor() {
+    return this.executor;
+  }
+
   public String getName() {
     return this.name;
   }
@@ -215,6 +256,7 @@ public class ProcessNetwork {
     synchronized (this.sync) {
       if (this.processes != null) {
         this.processes.remove(process);
+        this.executorProcesses.remove(process);
         this.count--;
       }
 
@@ -232,10 +274,55 @@ public class ProcessNetwork {
     }
   }
 
+  /**
+   * Run the process on the current pool worker. The worker is only recorded while the process
+   * is running so {@link #stop()} never interrupts a worker that has moved on to another task.
+   */
+  private void runExecutorProcess(final Process process, final String name,
+    final Map<Object, Object> properties, final Runnable runnable) {
+    final Thread currentThread = Thread.currentThread();
+    final String threadName = currentThread.getName();
+    final Map<Object, Object> oldProperties = ThreadSharedProperties
+      .setThreadProperties(properties);
+    try {
+      synchronized (this.sync) {
+        if (this.executorProcesses.containsKey(process)) {
+          this.executorProcesses.put(process, currentThread);
+        }
+        if (this.stopping) {
+          currentThread.interrupt();
+        }
+      }
+      if (name != null) {
+        currentThread.setName(name);
+      }
+      runnable.run();
+    } finally {
+      synchronized (this.sync) {
+        this.executorProcesses.remove(process);
+        this.sync.notifyAll();
+      }
+      // Clear any interrupt from stop() before the worker is released to the pool
+      Thread.interrupted();
+      currentThread.setName(threadName);
+      ThreadSharedProperties.setThreadProperties(oldProperties);
+    }
+  }
+
   public void setAutoStart(final boolean autoStart) {
     this.autoStart = autoStart;
   }
 
+  /**
+   * Set the executor used to run the processes instead of a thread per
+   * process.
+   *
+   * @param executor The executor or null to use a thread per process.
+   */
+  public void setExecutor(final ExecutorService executor) {
+    this.executor = executor;
+  }
+
   public void setName(final String name) {
     this.name = name;
   }
@@ -250,6 +337,14 @@ public class ProcessNetwork {
     }
   }
 
+  public void setUseSharedPool(final boolean useSharedPool) {
+    if (useSharedPool) {
+      this.executor = getSharedPool();
+    } else if (this.executor == sharedPool) {
+      this.executor = null;
+    }
+  }
+
   public void start() {
     if (this.parent == null) {
       synchronized (this.sync) {
@@ -291,15 +386,29 @@ public class ProcessNetwork {
               }
             }
           };
-          if (name == null) {
-            thread = new Thread(this.threadGroup, runnable);
-          } else {
-            thread = new Thread(this.threadGroup, runnable, name);
-          }
-          this.processes.put(runProcess, thread);
-          if (!thread.isAlive()) {
-            thread.start();
+          final ExecutorService executor = this.executor;
+          if (executor == null) {
+            if (name == null) {
+              thread = new Thread(this.threadGroup, runnable);
+            } else {
+              thread = new Thread(this.threadGroup, runnable, name);
+            }
+            this.processes.put(runProcess, thread);
+            if (!thread.isAlive()) {
+              thread.start();
+              this.count++;
+            }
+          } else if (!this.executorProcesses.containsKey(runProcess)) {
+            ThreadGroup threadGroup = this.threadGroup;
+            if (threadGroup == null) {
+              threadGroup = Thread.currentThread().getThreadGroup();
+            }
+            final Map<Object, Object> properties = ThreadSharedProperties
+              .getThreadGroupProperties(threadGroup);
+            this.executorProcesses.put(runProcess, null);
+            this.processes.put(runProcess, null);
             this.count++;
+            executor.execute(() -> runExecutorProcess(runProcess, name, properties, runnable));
           }
         }
       }
@@ -313,49 +422,66 @@ public class ProcessNetwork {
     }
   }
 
-  @SuppressWarnings("deprecation")
   @PreDestroy
   public void stop() {
-    final List<Thread> threads;
-    synchronized (this.sync) {
-      this.stopping = true;
-      this.sync.notifyAll();
-      threads = new ArrayList<>(this.processes.values());
-    }
+    final long maxWait = System.currentTimeMillis() + 10000;
+    final List<Thread> threads = new ArrayList<>();
     boolean interrupted = false;
     try {
-      final long maxWait = System.currentTimeMillis() + 10000;
-      while (!threads.isEmpty() && System.currentTimeMillis() < maxWait) {
-        for (final Iterator<Thread> threadIter = threads.iterator(); threadIter.hasNext();) {
-          final Thread thread = threadIter.next();
-          if (thread == null || !thread.isAlive() || Thread.currentThread() == thread) {
-            threadIter.remove();
-          } else {
-            try {
-              thread.interrupt();
-            } catch (final Exception e) {
-              if (e instanceof InterruptedException) {
-                interrupted = true;
-              }
-            }
-            if (!thread.isAlive()) {
-              threadIter.remove();
+      synchronized (this.sync) {
+        this.stopping = true;
+        this.sync.notifyAll();
+        for (final Thread thread : this.processes.values()) {
+          if (thread != null) {
+            threads.add(thread);
+          }
+        }
+        // Interrupt each running executor process once, the worker clears its entry under
+        // the same lock before it is released to the pool
+        final Thread currentThread = Thread.currentThread();
+        for (final Thread thread : this.executorProcesses.values()) {
+          if (thread != null && thread != currentThread) {
+            thread.interrupt();
+          }
+        }
+        try {
+          while (!this.executorProcesses.isEmpty()
+            && !this.executorProcesses.containsValue(currentThread)) {
+            final long waitTime = maxWait - System.currentTimeMillis();
+            if (waitTime <= 0) {
+              Logs.warn(this, "Processes did not stop after being interrupted: "
+                + this.executorProcesses.keySet());
+              break;
+            } else {
+              ThreadUtil.monitorWait(this.sync, waitTime);
             }
           }
+        } catch (final InterruptedException e) {
+          interrupted = true;
         }
       }
 
       for (final Thread thread : threads) {
-        if (thread.isAlive()) {
+        if (Thread.currentThread() != thread && thread.isAlive()) {
+          thread.interrupt();
+        }
+      }
+      for (final Thread thread : threads) {
+        final long waitTime = maxWait - System.currentTimeMillis();
+        if (!interrupted && waitTime > 0 && Thread.currentThread() != thread) {
           try {
-            thread.stop();
-          } catch (final Exception e) {
-            if (e instanceof InterruptedException) {
-              interrupted = true;
-            }
+            thread.join(waitTime);
+          } catch (final InterruptedException e) {
+            interrupted = true;
           }
         }
       }
+
+      for (final Thread thread : threads) {
+        if (Thread.currentThread() != thread && thread.isAlive()) {
+          Logs.warn(this, "Process did not stop after being interrupted: " + thread.getName());
+        }
+      }
       if (interrupted) {
         Thread.currentThread().interrupt();
       }
@@ -375,7 +501,7 @@ public class ProcessNetwork {
         try {
           while (!this.stopping && this.count > 0) {
             try {
-              this.sync.wait();
+              ThreadUtil.monitorWait(this.sync, 0);
             } catch (final InterruptedException e) {
               throw new ThreadInterruptedException(e);
             }
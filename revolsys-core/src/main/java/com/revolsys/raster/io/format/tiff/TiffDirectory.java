@@ -1,5 +1,6 @@
 package com.revolsys.raster.io.format.tiff;
 
+import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.ref.WeakReference;
 import java.nio.ByteOrder;
@@ -8,6 +9,9 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.io.channels.CachedRangeSource;
 import com.revolsys.io.channels.ChannelReader;
 import com.revolsys.io.channels.ChannelWriter;
 import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
@@ -48,6 +52,8 @@ public class TiffDirectory {
 
   private final boolean bigTiff;
 
+  private CachedRangeSource rangeSource;
+
   public TiffDirectory(final Resource resource, final ChannelReader in, final int index,
     final long offset, final boolean bigTiff) {
     this.resource = resource;
@@ -317,7 +323,11 @@ public class TiffDirectory {
   }
 
   public ChannelReader newChannelReader() {
-    return this.resource.newChannelReader();
+    if (this.rangeSource == null) {
+      return this.resource.newChannelReader();
+    } else {
+      return new ChannelReader(this.rangeSource.newChannel());
+    }
   }
 
   public TiffImage newImage() {
@@ -352,6 +362,35 @@ public class TiffDirectory {
     }
   }
 
+  /**
+   * Fetch the strips or tiles using as few ranged reads as possible if the
+   * file is read using a {@link CachedRangeSource} (e.g. a cloud optimized
+   * GeoTIFF), otherwise do nothing.
+   *
+   * @param offsets The strip or tile offsets.
+   * @param counts The strip or tile byte counts.
+   * @param partIndexes The index of the strips or tiles to fetch.
+   */
+  public void prefetch(final long[] offsets, final long[] counts, final int... partIndexes) {
+    final CachedRangeSource rangeSource = this.rangeSource;
+    if (rangeSource != null) {
+      final long[] partOffsets = new long[partIndexes.length];
+      final long[] partCounts = new long[partIndexes.length];
+      for (int i = 0; i < partIndexes.length; i++) {
+        final int partIndex = partIndexes[i];
+        if (partIndex < offsets.length && partIndex < counts.length) {
+          partOffsets[i] = offsets[partIndex];
+          partCounts[i] = counts[partIndex];
+        }
+      }
+      try {
+        rangeSource.prefetch(partOffsets, partCounts);
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to read: " + this.resource, e);
+      }
+    }
+  }
+
   public void readDirectory(final ChannelReader in) {
     in.seek(this.offset);
     long recordCount;
@@ -391,6 +430,10 @@ public class TiffDirectory {
     this.nextDirectory = nextDirectory;
   }
 
+  void setRangeSource(final CachedRangeSource rangeSource) {
+    this.rangeSource = rangeSource;
+  }
+
   protected RuntimeException throwRequired(final TiffTag tag) {
     return new IllegalArgumentException(tag + " not found in file");
   }
@@ -9,6 +9,8 @@ import com.revolsys.raster.io.format.tiff.code.TiffExtensionTag;
 import com.revolsys.raster.io.format.tiff.code.TiffPhotogrametricInterpretation;
 import com.revolsys.raster.io.format.tiff.code.TiffTag;
 import com.revolsys.raster.io.format.tiff.directory.entry.AbstractTiffDirectoryEntry;
+import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryAscii;
+import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryDoubleArray;
 import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryUnsignedIntArray;
 import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryUnsignedLongArray;
 import com.revolsys.raster.io.format.tiff.directory.entry.TiffDirectoryEntryUnsignedShortArray;
@@ -27,6 +29,8 @@ public class TiffDirectoryBuilder extends TiffDirectory {
 
   private int tileHeight;
 
+  private long offset = -1;
+
   public TiffDirectoryBuilder(final TiffFileBuilder fileBuilder,
     final TiffPhotogrametricInterpretation photogrametricInterpretation) {
     super(fileBuilder.getResource(), fileBuilder.getDirectoryCount(), fileBuilder.getByteOrder(),
@@ -45,6 +49,35 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return this.fileBuilder;
   }
 
+  public int getImageHeight() {
+    return this.imageHeight;
+  }
+
+  public int getImageWidth() {
+    return this.imageWidth;
+  }
+
+  @Override
+  public long getOffset() {
+    return this.offset;
+  }
+
+  public int getTileCountX() {
+    return (this.imageWidth + this.tileWidth - 1) / this.tileWidth;
+  }
+
+  public int getTileCountY() {
+    return (this.imageHeight + this.tileHeight - 1) / this.tileHeight;
+  }
+
+  public int getTileHeight() {
+    return this.tileHeight;
+  }
+
+  public int getTileWidth() {
+    return this.tileWidth;
+  }
+
   public int getSize() {
     final int recordCount = getEntryCount();
     if (isBigTiff()) {
@@ -73,6 +106,27 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return entry;
   }
 
+  /**
+   * Reserve the space in the file for the values of the entries that can't be
+   * stored inline in the directory.
+   */
+  void reserveEntries() {
+    for (final TiffDirectoryEntry entry : getEntries()) {
+      if (!entry.isInline()) {
+        if (entry.getOffset() == -1) {
+          final int entrySize = entry.getSizeBytes();
+          final long offset = this.fileBuilder.reserveSpace(entrySize);
+          ((AbstractTiffDirectoryEntry<?>)entry).setOffset(offset);
+        }
+      }
+    }
+  }
+
+  public TiffDirectoryBuilder setAscii(final TiffTag tag, final String value) {
+    newEntryValue(tag, TiffDirectoryEntryAscii::new, value);
+    return this;
+  }
+
   public TiffDirectoryBuilder setBitsPerSample(final int... value) {
     setUnsignedShort(TiffBaselineTag.SamplesPerPixel, value.length);
     setUnsignedShort(TiffBaselineTag.BitsPerSample, value);
@@ -84,6 +138,11 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return this;
   }
 
+  public TiffDirectoryBuilder setDouble(final TiffTag tag, final double... value) {
+    newEntryValue(tag, TiffDirectoryEntryDoubleArray::new, value);
+    return this;
+  }
+
   public TiffDirectoryBuilder setImageHeight(final int height) {
     this.imageHeight = height;
     if (height < 1 << 16) {
@@ -105,12 +164,29 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     return this;
   }
 
+  void setOffset(final long offset) {
+    this.offset = offset;
+    this.writtenSize = getSize();
+  }
+
   protected void setPhotogrametricInterpretation(
     final TiffPhotogrametricInterpretation photogrametricInterpretation) {
     setUnsignedShort(TiffBaselineTag.PhotometricInterpretation,
       photogrametricInterpretation.getId());
   }
 
+  /**
+   * Set the offset and compressed size of a tile that was written to the file.
+   *
+   * @param tileIndex The index of the tile (tileY * tileCountX + tileX).
+   * @param offset The offset of the tile in the file.
+   * @param byteCount The number of bytes in the tile.
+   */
+  public void setTile(final int tileIndex, final long offset, final long byteCount) {
+    getEntryRequired(TiffExtensionTag.TileOffsets).<long[]> getValue()[tileIndex] = offset;
+    getEntryRequired(TiffExtensionTag.TileByteCounts).<long[]> getValue()[tileIndex] = byteCount;
+  }
+
   public TiffDirectoryBuilder setTileHeight(final int tileHeight) {
     this.tileHeight = tileHeight;
     setUnsignedShort(TiffExtensionTag.TileLength, tileHeight);
@@ -173,14 +249,8 @@ public class TiffDirectoryBuilder extends TiffDirectory {
     } else {
       out.putUnsignedShort(recordCount);
     }
+    reserveEntries();
     for (final TiffDirectoryEntry entry : getEntries()) {
-      if (!entry.isInline()) {
-        if (entry.getOffset() == -1) {
-          final int entrySize = entry.getSizeBytes();
-          final long offset = this.fileBuilder.reserveSpace(entrySize);
-          ((AbstractTiffDirectoryEntry<?>)entry).setOffset(offset);
-        }
-      }
       entry.writeEntry(this, out);
     }
   }
@@ -7,6 +7,7 @@ import java.util.NoSuchElementException;
 import java.util.Queue;
 
 import com.revolsys.io.BaseCloseable;
+import com.revolsys.io.channels.CachedRangeSource;
 import com.revolsys.io.channels.ChannelReader;
 import com.revolsys.spring.resource.Resource;
 
@@ -32,9 +33,28 @@ public class TiffDirectoryIterator
 
   private TiffDirectory lastDirectory;
 
+  private final CachedRangeSource rangeSource;
+
   public TiffDirectoryIterator(final Resource resource) {
+    this(resource, null);
+  }
+
+  /**
+   * Construct a new iterator that reads the directories and the image data
+   * using the range source instead of the resource.
+   *
+   * @param resource The resource.
+   * @param rangeSource The range source or null to read from the resource.
+   */
+  public TiffDirectoryIterator(final Resource resource, final CachedRangeSource rangeSource) {
     this.resource = resource;
-    final ChannelReader in = resource.newChannelReader();
+    this.rangeSource = rangeSource;
+    final ChannelReader in;
+    if (rangeSource == null) {
+      in = resource.newChannelReader();
+    } else {
+      in = new ChannelReader(rangeSource.newChannel());
+    }
     this.in = in;
     final byte b1 = in.getByte();
     final byte b2 = in.getByte();
@@ -91,6 +111,7 @@ public class TiffDirectoryIterator
     } else {
       final TiffDirectory directory = new TiffDirectory(this.resource, this.in, this.index++,
         this.directoryOffset, this.bigTiff);
+      directory.setRangeSource(this.rangeSource);
       this.directoryOffset = directory.getNextOffset();
       if (this.lastDirectory != null) {
         this.lastDirectory.setNextDirectory(directory);
@@ -26,8 +26,14 @@ public class TiffFileBuilder implements BaseCloseable {
 
   private final ChannelWriter out;
 
+  private boolean directoriesReserved = false;
+
   public TiffFileBuilder(final Path file) {
-    this.resource = Resource.getResource(file);
+    this(Resource.getResource(file));
+  }
+
+  public TiffFileBuilder(final Resource resource) {
+    this.resource = resource;
     this.out = this.resource.newChannelWriter();
   }
 
@@ -49,6 +55,14 @@ public class TiffFileBuilder implements BaseCloseable {
     return this.byteOrder;
   }
 
+  private int getHeaderSize() {
+    if (isBigTiff()) {
+      return 16;
+    } else {
+      return 8;
+    }
+  }
+
   public List<TiffDirectoryBuilder> getDirectories() {
     return Collections.unmodifiableList(this.directories);
   }
@@ -83,16 +97,33 @@ public class TiffFileBuilder implements BaseCloseable {
   }
 
   public <B extends TiffDirectoryBuilder> List<B> newImageWithOverviews(
-    final Function<TiffFileBuilder, B> constructor, int width, int height) {
+    final Function<TiffFileBuilder, B> constructor, final int width, final int height) {
+    return newImageWithOverviews(constructor, width, height, 512);
+  }
+
+  /**
+   * Create a new image and the reduced resolution overview images. Each
+   * overview is half the width and height of the previous image until the
+   * overview fits in a single tile.
+   *
+   * @param constructor The constructor for the directory builders.
+   * @param width The image width.
+   * @param height The image height.
+   * @param tileSize The tile width and height.
+   * @return The image followed by the overviews.
+   */
+  public <B extends TiffDirectoryBuilder> List<B> newImageWithOverviews(
+    final Function<TiffFileBuilder, B> constructor, int width, int height, final int tileSize) {
     final List<B> directories = new ArrayList<>();
     boolean running = true;
     while (running) {
       final B directory = newImage(constructor, width, height);
+      directory.setTileSize(tileSize);
       if (!directories.isEmpty()) {
         directory.setUnsignedInt(TiffBaselineTag.NewSubfileType, 1);
       }
       directories.add(directory);
-      if (width <= 512 && height <= 512) {
+      if (width <= tileSize && height <= tileSize) {
         running = false;
       } else {
         width = (int)Math.ceil(width / 2.0);
@@ -102,6 +133,28 @@ public class TiffFileBuilder implements BaseCloseable {
     return directories;
   }
 
+  /**
+   * Reserve the space for the directories and the entry values at the start of
+   * the file so they can be read with a single read (e.g. a cloud optimized
+   * GeoTIFF). This is done before the first tile is written, all the entries
+   * must be set before that. If a directory is changed after this is done it is
+   * written to the end of the file.
+   */
+  private void reserveDirectories() {
+    if (!this.directoriesReserved) {
+      this.directoriesReserved = true;
+      if (this.size == 0) {
+        this.size = getHeaderSize();
+      }
+      for (final TiffDirectoryBuilder directory : this.directories) {
+        directory.setOffset(reserveSpace(directory.getSize()));
+      }
+      for (final TiffDirectoryBuilder directory : this.directories) {
+        directory.reserveEntries();
+      }
+    }
+  }
+
   long reserveSpace(final int size) {
     final long offset = this.size;
     this.size += size;
@@ -114,16 +167,16 @@ public class TiffFileBuilder implements BaseCloseable {
 
   public void setByteOrder(final ByteOrder byteOrder) {
     this.byteOrder = byteOrder;
+    this.out.setByteOrder(byteOrder);
   }
 
   private void writeDirectories(final ChannelWriter out) {
+    reserveDirectories();
     for (final TiffDirectoryBuilder directory : this.directories) {
       long offset = directory.getOffset();
-      if (offset == -1 && directory.getIndex() == 0) {
-        reserveSpace(4);
-      }
       if (offset == -1 || directory.isSizeIncreased()) {
         offset = reserveSpace(directory.getSize());
+        directory.setOffset(offset);
       }
       writeOffsetOrCount(out, offset);
       out.seek(offset);
@@ -154,14 +207,28 @@ public class TiffFileBuilder implements BaseCloseable {
     } else {
       out.putShort((short)42); // magic
     }
-    if (this.size == 0) {
-      this.size = out.position();
-    }
-
     writeDirectories(out);
     writeDirectoryEntries(out);
   }
 
+  /**
+   * Write the bytes of a strip or tile to the end of the file. The first call
+   * reserves the space for the directories at the start of the file.
+   *
+   * @param bytes The bytes to write.
+   * @param length The number of bytes to write.
+   * @return The offset of the bytes in the file.
+   */
+  public long writeImageData(final byte[] bytes, final int length) {
+    reserveDirectories();
+    final long offset = reserveSpace(length);
+    if (this.out.position() != offset) {
+      this.out.seek(offset);
+    }
+    this.out.putBytes(bytes, length);
+    return offset;
+  }
+
   public void writeOffsetOrCount(final ChannelWriter out, final long value) {
     if (isBigTiff()) {
       out.putUnsignedLong(value);
@@ -1,5 +1,6 @@
 package com.revolsys.raster.io.format.tiff;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -19,6 +20,8 @@ import com.revolsys.collection.map.Maps;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.io.AbstractIoFactory;
+import com.revolsys.io.channels.CachedRangeSource;
+import com.revolsys.io.channels.HttpSeekableByteChannel;
 import com.revolsys.raster.GeoreferencedImage;
 import com.revolsys.raster.GeoreferencedImageReadFactory;
 import com.revolsys.raster.GeoreferencedImageWriter;
@@ -32,6 +35,7 @@ import com.revolsys.raster.io.format.tiff.image.TiffCommonsImagingImage;
 import com.revolsys.raster.io.format.tiff.image.TiffImage;
 import com.revolsys.raster.io.format.tiff.image.TiffMultiResolutionImage;
 import com.revolsys.spring.resource.Resource;
+import com.revolsys.spring.resource.UrlResource;
 
 public class TiffImageFactory extends AbstractIoFactory
   implements GeoreferencedImageReadFactory, GeoreferencedImageWriterFactory {
@@ -102,6 +106,28 @@ public class TiffImageFactory extends AbstractIoFactory
     return GeoTiffCoordinateTransformationCode.getCoordinateOperationMethod(projectionId);
   }
 
+  /**
+   * Construct a new range source to read a TIFF over HTTP as a cloud optimized
+   * GeoTIFF. The image file directories are read with the first request and the
+   * tiles for each map view are read using as few range requests as possible.
+   *
+   * @param resource The resource.
+   * @return The range source or null if the resource is not a HTTP URL.
+   */
+  public static CachedRangeSource newCloudOptimizedSource(final Resource resource) {
+    if (resource instanceof UrlResource) {
+      final UrlResource urlResource = (UrlResource)resource;
+      if (urlResource.getProtocol().startsWith("http")) {
+        try {
+          return new CachedRangeSource(new HttpSeekableByteChannel(urlResource.getURL()));
+        } catch (final IOException e) {
+          Logs.error(TiffImageFactory.class, "Unable to read header: " + resource, e);
+        }
+      }
+    }
+    return null;
+  }
+
   public TiffImageFactory() {
     super("TIFF/GeoTIFF");
     addMediaTypeAndFileExtension("image/tiff", "tif");
@@ -115,8 +141,9 @@ public class TiffImageFactory extends AbstractIoFactory
 
   @Override
   public GeoreferencedImage readGeoreferencedImage(final Resource resource) {
+    final CachedRangeSource rangeSource = newCloudOptimizedSource(resource);
     try (
-      TiffDirectoryIterator iterator = new TiffDirectoryIterator(resource)) {
+      TiffDirectoryIterator iterator = new TiffDirectoryIterator(resource, rangeSource)) {
       final List<TiffImage> images = new ArrayList<>();
       BoundingBox boundingBox = BoundingBox.empty();
       for (final TiffDirectory directory : iterator) {
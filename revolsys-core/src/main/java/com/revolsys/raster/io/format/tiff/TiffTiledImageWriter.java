@@ -0,0 +1,418 @@
+package com.revolsys.raster.io.format.tiff;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.raster.io.format.tiff.builder.TiffImageBuilderRgb;
+import com.revolsys.raster.io.format.tiff.code.TiffBaselineTag;
+import com.revolsys.raster.io.format.tiff.code.TiffCompression;
+import com.revolsys.raster.io.format.tiff.compression.TiffLzwOutputStream;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * Write an 8-bit RGB or RGBA image to a tiled TIFF/GeoTIFF file using
+ * {@link TiffFileBuilder}. The pixels are read from a {@link PixelReader} one
+ * row of tiles at a time and the tiles in the row are compressed in parallel,
+ * so the full image is never held in memory. Reduced resolution overviews are
+ * created from the rows of tiles as they are written.
+ *
+ * The directories are written at the start of the file followed by the tiles so
+ * the file can be read as a cloud optimized GeoTIFF.
+ */
+public class TiffTiledImageWriter {
+
+  private class Level {
+    private final TiffDirectoryBuilder directory;
+
+    private final int width;
+
+    private final int tileCountX;
+
+    private int tileY = 0;
+
+    private int[] rows;
+
+    private int rowCount = 0;
+
+    private Level nextLevel;
+
+    private Level(final TiffDirectoryBuilder directory) {
+      this.directory = directory;
+      this.width = directory.getImageWidth();
+      this.tileCountX = directory.getTileCountX();
+    }
+
+    /**
+     * Add the rows from the previous level reduced to half the width and
+     * height by averaging each 2x2 block of pixels.
+     */
+    private void addReducedRows(final int[] pixels, final int pixelsWidth, final int pixelsHeight) {
+      if (this.rows == null) {
+        this.rows = new int[this.width * TiffTiledImageWriter.this.tileSize];
+      }
+      for (int y = 0; y < pixelsHeight; y += 2) {
+        final int offset1 = y * pixelsWidth;
+        final int offset2 = Math.min(y + 1, pixelsHeight - 1) * pixelsWidth;
+        int index = this.rowCount * this.width;
+        for (int x = 0; x < this.width; x++) {
+          final int x1 = x * 2;
+          final int x2 = Math.min(x1 + 1, pixelsWidth - 1);
+          this.rows[index++] = average(pixels[offset1 + x1], pixels[offset1 + x2],
+            pixels[offset2 + x1], pixels[offset2 + x2]);
+        }
+        this.rowCount++;
+        if (this.rowCount == TiffTiledImageWriter.this.tileSize) {
+          writeTileRow(this.rows, this.rowCount);
+          this.rowCount = 0;
+        }
+      }
+    }
+
+    private void finish() {
+      if (this.rowCount > 0) {
+        writeTileRow(this.rows, this.rowCount);
+        this.rowCount = 0;
+      }
+      this.rows = null;
+      if (this.nextLevel != null) {
+        this.nextLevel.finish();
+      }
+    }
+
+    private void writeTileRow(final int[] pixels, final int rowCount) {
+      final byte[][] tiles = encodeTiles(pixels, this.width, rowCount, this.tileCountX);
+      final int tileIndex = this.tileY * this.tileCountX;
+      for (int tileX = 0; tileX < tiles.length; tileX++) {
+        final byte[] tile = tiles[tileX];
+        final long offset = TiffTiledImageWriter.this.fileBuilder.writeImageData(tile,
+          tile.length);
+        this.directory.setTile(tileIndex + tileX, offset, tile.length);
+      }
+      this.tileY++;
+      if (this.nextLevel != null) {
+        this.nextLevel.addReducedRows(pixels, this.width, rowCount);
+      }
+    }
+  }
+
+  /**
+   * Read the pixels for a region of the image.
+   */
+  public interface PixelReader {
+    /**
+     * Read the ARGB pixel values for the region into the pixels array. The
+     * pixels are stored row by row with width pixels per row.
+     *
+     * @param x The x pixel of the top left corner of the region.
+     * @param y The y pixel of the top left corner of the region.
+     * @param width The width of the region.
+     * @param height The height of the region.
+     * @param pixels The array to read the pixels into.
+     */
+    void getPixels(int x, int y, int width, int height, int[] pixels);
+  }
+
+  private static int average(final int pixel1, final int pixel2, final int pixel3,
+    final int pixel4) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      final int sum = (pixel1 >>> shift & 0xff) + (pixel2 >>> shift & 0xff)
+        + (pixel3 >>> shift & 0xff) + (pixel4 >>> shift & 0xff);
+      result |= (sum + 2 >> 2) << shift;
+    }
+    return result;
+  }
+
+  private boolean alpha = true;
+
+  private BoundingBox boundingBox;
+
+  private TiffCompression compression = TiffCompression.ADOBE_DEFLATE;
+
+  private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+  private TiffFileBuilder fileBuilder;
+
+  private final int height;
+
+  private boolean overviews = true;
+
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  private final Resource resource;
+
+  private int tileSize = 512;
+
+  private final int width;
+
+  public TiffTiledImageWriter(final Resource resource, final int width, final int height) {
+    this.resource = resource;
+    this.width = width;
+    this.height = height;
+  }
+
+  private byte[] encodeTile(final int[] pixels, final int pixelsWidth, final int rowCount,
+    final int tileX, final byte[] tileBytes, final Deflater deflater) throws IOException {
+    final int tileSize = this.tileSize;
+    final int samplesPerPixel = this.alpha ? 4 : 3;
+    final int x1 = tileX * tileSize;
+    final int columnCount = Math.min(tileSize, pixelsWidth - x1);
+    for (int y = 0; y < tileSize; y++) {
+      int byteIndex = y * tileSize * samplesPerPixel;
+      if (y < rowCount) {
+        int pixelIndex = y * pixelsWidth + x1;
+        for (int x = 0; x < columnCount; x++) {
+          final int pixel = pixels[pixelIndex++];
+          tileBytes[byteIndex++] = (byte)(pixel >>> 16);
+          tileBytes[byteIndex++] = (byte)(pixel >>> 8);
+          tileBytes[byteIndex++] = (byte)pixel;
+          if (this.alpha) {
+            tileBytes[byteIndex++] = (byte)(pixel >>> 24);
+          }
+        }
+      }
+      final int rowEnd = (y + 1) * tileSize * samplesPerPixel;
+      while (byteIndex < rowEnd) {
+        tileBytes[byteIndex++] = 0;
+      }
+    }
+    switch (this.compression) {
+      case NONE:
+        return tileBytes.clone();
+      case LZW: {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(tileBytes.length / 2);
+        final TiffLzwOutputStream lzwOut = new TiffLzwOutputStream(out);
+        lzwOut.write(tileBytes, 0, tileBytes.length);
+        lzwOut.finish();
+        return out.toByteArray();
+      }
+      case ADOBE_DEFLATE:
+      case DEFLATE: {
+        deflater.reset();
+        deflater.setInput(tileBytes);
+        deflater.finish();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(tileBytes.length / 2);
+        final byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+          final int count = deflater.deflate(buffer);
+          out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+      }
+      default:
+        throw new IllegalArgumentException("Compression " + this.compression + " not supported");
+    }
+  }
+
+  /**
+   * Compress the tiles for a row of tiles. If the {@link #getParallelism()} is
+   * greater than 1 the tiles are split into that many ranges of consecutive
+   * tiles which are compressed in parallel.
+   */
+  private byte[][] encodeTiles(final int[] pixels, final int pixelsWidth, final int rowCount,
+    final int tileCount) {
+    final byte[][] tiles = new byte[tileCount][];
+    final int rangeCount = Math.max(1, Math.min(this.parallelism, tileCount));
+    if (rangeCount == 1) {
+      encodeTiles(pixels, pixelsWidth, rowCount, tiles, 0, tileCount);
+    } else {
+      IntStream.range(0, rangeCount).parallel().forEach(rangeIndex -> {
+        final int startIndex = (int)((long)tileCount * rangeIndex / rangeCount);
+        final int endIndex = (int)((long)tileCount * (rangeIndex + 1) / rangeCount);
+        encodeTiles(pixels, pixelsWidth, rowCount, tiles, startIndex, endIndex);
+      });
+    }
+    return tiles;
+  }
+
+  private void encodeTiles(final int[] pixels, final int pixelsWidth, final int rowCount,
+    final byte[][] tiles, final int startIndex, final int endIndex) {
+    final int samplesPerPixel = this.alpha ? 4 : 3;
+    final byte[] tileBytes = new byte[this.tileSize * this.tileSize * samplesPerPixel];
+    final Deflater deflater = new Deflater(this.compressionLevel);
+    try {
+      for (int tileX = startIndex; tileX < endIndex; tileX++) {
+        tiles[tileX] = encodeTile(pixels, pixelsWidth, rowCount, tileX, tileBytes, deflater);
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to write: " + this.resource, e);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  public BoundingBox getBoundingBox() {
+    return this.boundingBox;
+  }
+
+  public TiffCompression getCompression() {
+    return this.compression;
+  }
+
+  public int getCompressionLevel() {
+    return this.compressionLevel;
+  }
+
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  public int getTileSize() {
+    return this.tileSize;
+  }
+
+  public boolean isAlpha() {
+    return this.alpha;
+  }
+
+  public boolean isOverviews() {
+    return this.overviews;
+  }
+
+  private List<TiffImageBuilderRgb> newImages(final TiffFileBuilder fileBuilder) {
+    final List<TiffImageBuilderRgb> images;
+    if (this.overviews) {
+      images = fileBuilder.newImageWithOverviews(TiffImageBuilderRgb.newBits(8), this.width,
+        this.height, this.tileSize);
+    } else {
+      final TiffImageBuilderRgb image = fileBuilder.newImage(TiffImageBuilderRgb.newBits(8),
+        this.width, this.height);
+      image.setTileSize(this.tileSize);
+      images = Collections.singletonList(image);
+    }
+    for (final TiffImageBuilderRgb image : images) {
+      image.setCompression(this.compression);
+      if (this.alpha) {
+        image.setBitsPerSample(8, 8, 8, 8);
+        image.setUnsignedShort(TiffBaselineTag.ExtraSamples, 2);
+      }
+    }
+    if (this.boundingBox != null) {
+      final double resolutionX = this.boundingBox.getWidth() / this.width;
+      final double resolutionY = this.boundingBox.getHeight() / this.height;
+      new GeoTiffKeysBuilder(this.boundingBox.getGeometryFactory()).setEntries(images.get(0),
+        this.boundingBox, resolutionX, resolutionY);
+    }
+    return images;
+  }
+
+  /**
+   * Set if the image has an alpha channel (default true).
+   */
+  public TiffTiledImageWriter setAlpha(final boolean alpha) {
+    this.alpha = alpha;
+    return this;
+  }
+
+  /**
+   * Set the bounding box used to write the GeoTIFF tags, null for a plain TIFF.
+   */
+  public TiffTiledImageWriter setBoundingBox(final BoundingBox boundingBox) {
+    this.boundingBox = boundingBox;
+    return this;
+  }
+
+  /**
+   * Set the compression, one of {@link TiffCompression#NONE},
+   * {@link TiffCompression#LZW}, {@link TiffCompression#ADOBE_DEFLATE}
+   * (default) or {@link TiffCompression#DEFLATE}.
+   */
+  public TiffTiledImageWriter setCompression(final TiffCompression compression) {
+    switch (compression) {
+      case NONE:
+      case LZW:
+      case ADOBE_DEFLATE:
+      case DEFLATE:
+        this.compression = compression;
+      break;
+      default:
+        throw new IllegalArgumentException("Compression " + compression + " not supported");
+    }
+    return this;
+  }
+
+  /**
+   * Set the deflate compression level (0-9 or -1 for the default).
+   */
+  public TiffTiledImageWriter setCompressionLevel(final int compressionLevel) {
+    this.compressionLevel = compressionLevel;
+    return this;
+  }
+
+  /**
+   * Set if the reduced resolution overviews are written (default true).
+   */
+  public TiffTiledImageWriter setOverviews(final boolean overviews) {
+    this.overviews = overviews;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of tiles to compress in parallel.
+   *
+   * @param parallelism The parallelism, 1 to compress on the current thread.
+   */
+  public TiffTiledImageWriter setParallelism(final int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+    return this;
+  }
+
+  /**
+   * Set the tile width and height, must be a multiple of 16 (e.g. 256 or 512).
+   */
+  public TiffTiledImageWriter setTileSize(final int tileSize) {
+    if (tileSize < 16 || tileSize % 16 != 0) {
+      throw new IllegalArgumentException("Tile size must be a multiple of 16: " + tileSize);
+    }
+    this.tileSize = tileSize;
+    return this;
+  }
+
+  public void writeImage(final BufferedImage image) {
+    writeImage(
+      (x, y, width, height, pixels) -> image.getRGB(x, y, width, height, pixels, 0, width));
+  }
+
+  /**
+   * Write the image reading the pixels one row of tiles at a time.
+   *
+   * @param reader The reader for the image's pixels.
+   */
+  public void writeImage(final PixelReader reader) {
+    try (
+      TiffFileBuilder fileBuilder = new TiffFileBuilder(this.resource)) {
+      this.fileBuilder = fileBuilder;
+      final List<TiffImageBuilderRgb> images = newImages(fileBuilder);
+      Level firstLevel = null;
+      Level previousLevel = null;
+      for (final TiffImageBuilderRgb image : images) {
+        final Level level = new Level(image);
+        if (previousLevel == null) {
+          firstLevel = level;
+        } else {
+          previousLevel.nextLevel = level;
+        }
+        previousLevel = level;
+      }
+
+      final int tileSize = this.tileSize;
+      final int[] pixels = new int[this.width * tileSize];
+      for (int y = 0; y < this.height; y += tileSize) {
+        final int rowCount = Math.min(tileSize, this.height - y);
+        reader.getPixels(0, y, this.width, rowCount, pixels);
+        firstLevel.writeTileRow(pixels, rowCount);
+      }
+      firstLevel.finish();
+    } finally {
+      this.fileBuilder = null;
+    }
+  }
+}
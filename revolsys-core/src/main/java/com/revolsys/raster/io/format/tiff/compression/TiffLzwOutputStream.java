@@ -0,0 +1,144 @@
+package com.revolsys.raster.io.format.tiff.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compress bytes using the TIFF variant of LZW (MSB first codes, code width
+ * increased one code early) that can be read using {@link TiffLzwInputStream}.
+ */
+public class TiffLzwOutputStream extends OutputStream {
+
+  private static final int CODE_CLEAR = 256;
+
+  private static final int CODE_EOI = 257;
+
+  private static final int CODE_FIRST = 258;
+
+  private static final int CODE_MAX = 4095;
+
+  private static final int HASH_SIZE = 8192;
+
+  private int bitCount = 9;
+
+  private int maxCode = 511;
+
+  private int nextBits = 0;
+
+  private int nextCode = CODE_FIRST;
+
+  private int nextData = 0;
+
+  private final OutputStream out;
+
+  private int prefixCode = -1;
+
+  private final int[] tableCodes = new int[HASH_SIZE];
+
+  private final int[] tableKeys = new int[HASH_SIZE];
+
+  public TiffLzwOutputStream(final OutputStream out) throws IOException {
+    this.out = out;
+    putCode(CODE_CLEAR);
+    clearTable();
+  }
+
+  private void addCode(final int key, final int hashIndex) throws IOException {
+    this.tableKeys[hashIndex] = key;
+    this.tableCodes[hashIndex] = this.nextCode++;
+    incrementCode();
+  }
+
+  private void clearTable() {
+    Arrays.fill(this.tableKeys, -1);
+    this.nextCode = CODE_FIRST;
+    this.bitCount = 9;
+    this.maxCode = 511;
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    this.out.close();
+  }
+
+  /**
+   * Write the remaining codes and the end of information code without closing
+   * the underlying output stream.
+   *
+   * @throws IOException If the bytes could not be written.
+   */
+  public void finish() throws IOException {
+    if (this.prefixCode != -1) {
+      putCode(this.prefixCode);
+      this.prefixCode = -1;
+      this.nextCode++;
+      incrementCode();
+    }
+    putCode(CODE_EOI);
+    if (this.nextBits > 0) {
+      this.out.write(this.nextData << 8 - this.nextBits & 0xff);
+      this.nextBits = 0;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    this.out.flush();
+  }
+
+  private void incrementCode() throws IOException {
+    if (this.nextCode == CODE_MAX - 1) {
+      putCode(CODE_CLEAR);
+      clearTable();
+    } else if (this.nextCode > this.maxCode) {
+      this.bitCount++;
+      this.maxCode = (1 << this.bitCount) - 1;
+    }
+  }
+
+  private void putCode(final int code) throws IOException {
+    this.nextData = this.nextData << this.bitCount | code;
+    this.nextBits += this.bitCount;
+    while (this.nextBits >= 8) {
+      this.nextBits -= 8;
+      this.out.write(this.nextData >> this.nextBits & 0xff);
+    }
+    this.nextData &= (1 << this.nextBits) - 1;
+  }
+
+  @Override
+  public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+    final int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      write(bytes[i]);
+    }
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    final int value = b & 0xff;
+    final int prefixCode = this.prefixCode;
+    if (prefixCode == -1) {
+      this.prefixCode = value;
+    } else {
+      final int key = prefixCode << 8 | value;
+      int hashIndex = key * 0x9E3779B1 >>> 19;
+      while (true) {
+        final int tableKey = this.tableKeys[hashIndex];
+        if (tableKey == key) {
+          this.prefixCode = this.tableCodes[hashIndex];
+          return;
+        } else if (tableKey == -1) {
+          break;
+        } else {
+          hashIndex = hashIndex + 1 & HASH_SIZE - 1;
+        }
+      }
+      putCode(prefixCode);
+      this.prefixCode = value;
+      addCode(key, hashIndex);
+    }
+  }
+}
@@ -4,10 +4,18 @@ import java.util.Arrays;
 
 import com.revolsys.io.channels.ChannelReader;
 import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.raster.io.format.tiff.TiffDirectory;
 import com.revolsys.raster.io.format.tiff.code.TiffFieldType;
 
 public class TiffDirectoryEntryDoubleArray extends AbstractTiffDirectoryEntry<double[]> {
 
+  public TiffDirectoryEntryDoubleArray() {
+  }
+
+  public TiffDirectoryEntryDoubleArray(final TiffDirectory directory, final double[] value) {
+    super(directory, value, value.length);
+  }
+
   @Override
   public double getDouble(final int index) {
     return this.value[index];
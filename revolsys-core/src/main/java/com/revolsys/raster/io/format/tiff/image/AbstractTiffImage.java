@@ -14,6 +14,8 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
 import java.util.zip.InflaterInputStream;
 
 import org.jeometry.common.exception.Exceptions;
@@ -22,6 +24,7 @@ import org.jeometry.common.number.Doubles;
 import org.jeometry.common.number.Integers;
 import org.jeometry.common.number.Longs;
 
+import com.revolsys.collection.map.SizeBoundedLruCache;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.io.channels.ChannelReader;
@@ -43,9 +46,51 @@ import com.revolsys.raster.io.format.tiff.compression.TiffDecompressorInputStrea
 import com.revolsys.raster.io.format.tiff.compression.TiffLzwInputStream;
 import com.revolsys.raster.io.format.tiff.compression.TiffPackbitsInputStream;
 import com.revolsys.raster.io.format.tiff.compression.TiffThunderscanInputStream;
-
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * The base class for TIFF images. The strips or tiles of the image are
+ * decompressed in parallel when the whole image is read, see
+ * {@link #setParallelism(int)}. Tiles read for a map view are stored in a
+ * shared cache (see {@link #getTileCache()}) so they are only decompressed once
+ * while they are in use. The cached tile images are shared by all the map tiles
+ * for the same TIFF tile and must be treated as read-only.
+ */
 public abstract class AbstractTiffImage extends AbstractGeoreferencedImage implements TiffImage {
 
+  private static final class TileKey {
+    private final String imageId;
+
+    private final int tileIndex;
+
+    private TileKey(final String imageId, final int tileIndex) {
+      this.imageId = imageId;
+      this.tileIndex = tileIndex;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      } else if (obj instanceof TileKey) {
+        final TileKey other = (TileKey)obj;
+        return this.tileIndex == other.tileIndex && this.imageId.equals(other.imageId);
+      } else {
+        return false;
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * this.imageId.hashCode() + this.tileIndex;
+    }
+
+    @Override
+    public String toString() {
+      return this.imageId + "/" + this.tileIndex;
+    }
+  }
+
   private class TiffImageTiledMapTile extends GeoreferencedImageMapTile {
     private final int tileX;
 
@@ -85,11 +130,20 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
       return result;
     }
 
+    /**
+     * Get the tile's image from the tile cache. The image is shared with other
+     * map tiles for the same TIFF tile so it must not be modified.
+     */
     @Override
     protected BufferedImage loadBuffferedImage() {
+      final int tileIndex = this.tileY * AbstractTiffImage.this.tileCountX + this.tileX;
+      final TileKey key = new TileKey(AbstractTiffImage.this.tileCacheId, tileIndex);
+      return TILE_CACHE.getOrLoad(key, k -> readTile(tileIndex));
+    }
+
+    private BufferedImage readTile(final int tileIndex) {
       try (
         ChannelReader in = AbstractTiffImage.this.directory.newChannelReader()) {
-        final int tileIndex = this.tileY * AbstractTiffImage.this.tileCountX + this.tileX;
         final int actualTileWidth = getWidthPixels();
         final int actualTileHeight = getHeightPixels();
         final BufferedImage bufferedImage = newBufferedImage(actualTileWidth, actualTileHeight);
@@ -104,6 +158,13 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
 
   }
 
+  /** The number of parts to prefetch at a time when reading a cloud optimized GeoTIFF. */
+  private static final int PREFETCH_PART_COUNT = 16;
+
+  private static final SizeBoundedLruCache<TileKey, BufferedImage> TILE_CACHE = new SizeBoundedLruCache<>(
+    Math.min(256L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 8),
+    AbstractTiffImage::getImageSize);
+
   private static Map<GeoTiffKey, Object> getGeoKeys(final TiffDirectory directory) {
     final Map<GeoTiffKey, Object> geoKeys = new LinkedHashMap<>();
 
@@ -140,6 +201,25 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     return geoKeys;
   }
 
+  private static long getImageSize(final BufferedImage image) {
+    final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+    final int dataType = dataBuffer.getDataType();
+    return (long)dataBuffer.getSize() * dataBuffer.getNumBanks()
+      * DataBuffer.getDataTypeSize(dataType) / 8;
+  }
+
+  /**
+   * Get the cache of decompressed tiles shared by all TIFF images. The maximum
+   * size in bytes defaults to the smaller of 256MB and 1/8 of the maximum heap
+   * size. The cached images are returned to every map tile that uses them so
+   * they must not be modified.
+   *
+   * @return The tile cache.
+   */
+  public static SizeBoundedLruCache<?, BufferedImage> getTileCache() {
+    return TILE_CACHE;
+  }
+
   private final TiffCompression compression;
 
   private final TiffDirectory directory;
@@ -176,8 +256,21 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
 
   private final int tileCountY;
 
+  private final String tileCacheId;
+
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
   public AbstractTiffImage(final TiffDirectory directory) {
     this.directory = directory;
+    final Resource resource = directory.getResource();
+    if (resource == null) {
+      this.tileCacheId = Integer.toHexString(System.identityHashCode(this));
+    } else if (resource.isFile()) {
+      this.tileCacheId = resource + "#" + directory.getIndex() + "@" + resource.getLastModified();
+    } else {
+      // Avoid an extra request to get the last modified time for URLs
+      this.tileCacheId = resource + "#" + directory.getIndex();
+    }
     final int width = directory.getInt(TiffBaselineTag.ImageWidth, -1);
     setImageWidth(width);
     final int height = directory.getInt(TiffBaselineTag.ImageLength, -1);
@@ -327,6 +420,14 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
             tiles.add(tile);
           }
         }
+        final int[] tileIndexes = new int[tiles.size()];
+        int i = 0;
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+          for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+            tileIndexes[i++] = tileY * this.tileCountX + tileX;
+          }
+        }
+        this.directory.prefetch(this.tileOffsets, this.tileByteCounts, tileIndexes);
       }
       return tiles;
     } else {
@@ -334,6 +435,10 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     }
   }
 
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
   public TiffPhotogrametricInterpretation getPhotometricInterpretation() {
     return this.photometricInterpretation;
   }
@@ -343,15 +448,12 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     RenderedImage image = super.getRenderedImage();
     if (image == null) {
       BufferedImage bufferedImage;
-      try (
-        ChannelReader in = this.directory.newChannelReader()) {
-        if (isTiled()) {
-          bufferedImage = newBufferedImageTiles(in);
-        } else if (this.stripOffsets.length > 0) {
-          bufferedImage = newBufferedImageStrips(in);
-        } else {
-          throw new IllegalArgumentException("Data must be in strips or tiles: " + this.directory);
-        }
+      if (isTiled()) {
+        bufferedImage = newBufferedImageTiles();
+      } else if (this.stripOffsets.length > 0) {
+        bufferedImage = newBufferedImageStrips();
+      } else {
+        throw new IllegalArgumentException("Data must be in strips or tiles: " + this.directory);
       }
       image = bufferedImage;
       setRenderedImage(image);
@@ -392,24 +494,23 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
 
   protected abstract BufferedImage newBufferedImage(int imageWidth, int imageHeight);
 
-  private BufferedImage newBufferedImageStrips(final ChannelReader in) {
+  private BufferedImage newBufferedImageStrips() {
     final BufferedImage bufferedImage = newBufferedImage();
     final int imageWidth = getImageWidth();
     final int imageHeight = getImageHeight();
-    for (int stripIndex = 0; stripIndex < this.stripCount; stripIndex++) {
+    readParts(this.stripOffsets, this.stripByteCounts, this.stripCount, (in, stripIndex) -> {
       final int imageY = stripIndex * this.rowsPerStrip;
-      final int index = stripIndex;
       int stripHeight = this.rowsPerStrip;
       if (stripIndex == this.stripCount - 1) {
         stripHeight = imageHeight - imageY;
       }
-      readImagePart(in, bufferedImage, this.stripOffsets, this.stripByteCounts, index, 0, imageY,
-        imageWidth, stripHeight, imageWidth);
-    }
+      readImagePart(in, bufferedImage, this.stripOffsets, this.stripByteCounts, stripIndex, 0,
+        imageY, imageWidth, stripHeight, imageWidth);
+    });
     return bufferedImage;
   }
 
-  private BufferedImage newBufferedImageTiles(final ChannelReader in) {
+  private BufferedImage newBufferedImageTiles() {
     final BufferedImage bufferedImage = newBufferedImage();
     final int imageWidth = getImageWidth();
     final int imageHeight = getImageHeight();
@@ -422,26 +523,26 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     if (lastTileHeight == 0) {
       lastTileHeight = this.tileHeightPixels;
     }
-    int tileIndex = 0;
-    for (int tileY = 0; tileY < this.tileCountY; tileY++) {
+    final int lastTileWidthPixels = lastTileWidth;
+    final int lastTileHeightPixels = lastTileHeight;
+    final int tileCount = this.tileCountX * this.tileCountY;
+    readParts(this.tileOffsets, this.tileByteCounts, tileCount, (in, tileIndex) -> {
+      final int tileX = tileIndex % this.tileCountX;
+      final int tileY = tileIndex / this.tileCountX;
+      final int imageX = tileX * this.tileWidthPixels;
       final int imageY = tileY * this.tileHeightPixels;
       int actualTileHeight = this.tileHeightPixels;
       if (tileY == this.tileCountY - 1) {
-        actualTileHeight = lastTileHeight;
+        actualTileHeight = lastTileHeightPixels;
       }
-      for (int tileX = 0; tileX < this.tileCountX; tileX++) {
-        final int imageX = tileX * this.tileWidthPixels;
-        int actualTileWidth = this.tileWidthPixels;
-        if (tileX == this.tileCountX - 1) {
-          actualTileWidth = lastTileWidth;
-        }
-
-        readImagePart(in, bufferedImage, this.tileOffsets, this.tileByteCounts, tileIndex, imageX,
-          imageY, this.tileWidthPixels, actualTileHeight, actualTileWidth);
-
-        tileIndex++;
+      int actualTileWidth = this.tileWidthPixels;
+      if (tileX == this.tileCountX - 1) {
+        actualTileWidth = lastTileWidthPixels;
       }
-    }
+
+      readImagePart(in, bufferedImage, this.tileOffsets, this.tileByteCounts, tileIndex, imageX,
+        imageY, this.tileWidthPixels, actualTileHeight, actualTileWidth);
+    });
     return bufferedImage;
   }
 
@@ -628,6 +729,46 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     }
   }
 
+  /**
+   * Read the strips or tiles. If the {@link #getParallelism()} is greater than
+   * 1 the parts are split into that many ranges of consecutive parts which are
+   * read in parallel, each using a separate {@link ChannelReader}. The action
+   * must only write to the pixels in the part so it can be called concurrently.
+   *
+   * @param offsets The part offsets.
+   * @param counts The part byte counts.
+   * @param partCount The number of parts.
+   * @param action The action to read a part.
+   */
+  private void readParts(final long[] offsets, final long[] counts, final int partCount,
+    final ObjIntConsumer<ChannelReader> action) {
+    final int rangeCount = Math.max(1, Math.min(this.parallelism, partCount));
+    if (rangeCount == 1) {
+      readParts(offsets, counts, 0, partCount, action);
+    } else {
+      IntStream.range(0, rangeCount).parallel().forEach(rangeIndex -> {
+        final int startIndex = (int)((long)partCount * rangeIndex / rangeCount);
+        final int endIndex = (int)((long)partCount * (rangeIndex + 1) / rangeCount);
+        readParts(offsets, counts, startIndex, endIndex, action);
+      });
+    }
+  }
+
+  private void readParts(final long[] offsets, final long[] counts, final int startIndex,
+    final int endIndex, final ObjIntConsumer<ChannelReader> action) {
+    try (
+      ChannelReader in = this.directory.newChannelReader()) {
+      for (int partIndex = startIndex; partIndex < endIndex; partIndex++) {
+        if ((partIndex - startIndex) % PREFETCH_PART_COUNT == 0) {
+          final int prefetchEndIndex = Math.min(partIndex + PREFETCH_PART_COUNT, endIndex);
+          this.directory.prefetch(offsets, counts,
+            IntStream.range(partIndex, prefetchEndIndex).toArray());
+        }
+        action.accept(in, partIndex);
+      }
+    }
+  }
+
   @Override
   public void setBoundingBox(final BoundingBox boundingBox) {
     super.setBoundingBox(boundingBox);
@@ -644,6 +785,16 @@ public abstract class AbstractTiffImage extends AbstractGeoreferencedImage imple
     }
   }
 
+  /**
+   * Set the maximum number of strips or tiles to decompress in parallel when
+   * reading the whole image.
+   *
+   * @param parallelism The parallelism, 1 to read on the current thread.
+   */
+  public void setParallelism(final int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
   @Override
   public String toString() {
     return this.photometricInterpretation + " " + this.directory.getIndex() + ": "
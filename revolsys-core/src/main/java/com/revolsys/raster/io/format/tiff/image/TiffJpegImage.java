@@ -7,6 +7,8 @@ import java.io.InputStream;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReadParam;
@@ -23,29 +25,58 @@ import com.revolsys.raster.io.format.tiff.compression.TiffDecompressor;
 
 public class TiffJpegImage extends AbstractTiffImage {
 
+  /**
+   * A JPEG reader and the image to read the parts into. The readers are not
+   * thread safe so each thread reading a part uses a separate reader.
+   */
+  private class JpegPartReader {
+    private final ImageReader reader;
+
+    private final ImageReadParam param;
+
+    private Reference<BufferedImage> partImageReference = new WeakReference<>(null);
+
+    private JpegPartReader() {
+      final Iterator<ImageReader> iter = ImageIO.getImageReadersByFormatName("jpeg");
+      if (iter.hasNext()) {
+        this.reader = iter.next();
+        this.param = this.reader.getDefaultReadParam();
+      } else {
+        throw new IllegalStateException("Cannot find a jpeg reader");
+      }
+    }
+
+    private BufferedImage getPartImage() {
+      BufferedImage partImage = this.partImageReference.get();
+      if (partImage == null) {
+        final int tileWidth = getTileWidth();
+        if (tileWidth > 0) {
+          final int tileHeight = getTileHeight();
+          partImage = newBufferedImage(tileWidth, tileHeight);
+        } else {
+          final int imageWidth = getImageWidth();
+          final int rowsPerStrip = getRowsPerStrip();
+          partImage = newBufferedImage(imageWidth, rowsPerStrip);
+        }
+        this.partImageReference = new WeakReference<>(partImage);
+      }
+      return partImage;
+    }
+  }
+
   protected static final int EOI = 0xD9;
 
   protected static final int SOI = 0xD8;
 
   private final byte[] jpegTables;
 
-  private ImageReader JPEGReader;
-
-  private ImageReadParam JPEGParam;
-
-  private Reference<BufferedImage> partImageReference = new WeakReference<>(null);
+  private final Queue<JpegPartReader> partReaders = new ConcurrentLinkedQueue<>();
 
   private int jpegTablesLength;
 
   public TiffJpegImage(final TiffDirectory directory) {
     super(directory);
-    final Iterator<ImageReader> iter = ImageIO.getImageReadersByFormatName("jpeg");
-    if (iter.hasNext()) {
-      this.JPEGReader = iter.next();
-      this.JPEGParam = this.JPEGReader.getDefaultReadParam();
-    } else {
-      throw new IllegalStateException("Cannot find a jpeg reader");
-    }
+    this.partReaders.add(new JpegPartReader());
     this.jpegTables = directory.getByteArray(TiffExtensionTag.JPEGTables, null);
     if (this.jpegTables != null) {
       int dataOffset = this.jpegTables.length;
@@ -59,23 +90,6 @@ public class TiffJpegImage extends AbstractTiffImage {
     }
   }
 
-  private synchronized BufferedImage getPartImage() {
-    BufferedImage partImage = this.partImageReference.get();
-    if (partImage == null) {
-      final int tileWidth = getTileWidth();
-      if (tileWidth > 0) {
-        final int tileHeight = getTileHeight();
-        partImage = newBufferedImage(tileWidth, tileHeight);
-      } else {
-        final int imageWidth = getImageWidth();
-        final int rowsPerStrip = getRowsPerStrip();
-        partImage = newBufferedImage(imageWidth, rowsPerStrip);
-      }
-      this.partImageReference = new WeakReference<>(partImage);
-    }
-    return partImage;
-  }
-
   @Override
   protected BufferedImage newBufferedImage(final int imageWidth, final int imageHeight) {
     return new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_3BYTE_BGR);
@@ -85,6 +99,10 @@ public class TiffJpegImage extends AbstractTiffImage {
   protected void readImagePartDo(final BufferedImage bufferedImage,
     final TiffDecompressor decompressor, final int imageX, final int imageY, final int dataWidth,
     final int dataHeight, final int cropWidth) {
+    JpegPartReader partReader = this.partReaders.poll();
+    if (partReader == null) {
+      partReader = new JpegPartReader();
+    }
     try {
       final InputStream partIn = decompressor.getInputStream();
       ImageInputStream is;
@@ -102,11 +120,11 @@ public class TiffJpegImage extends AbstractTiffImage {
         is = new MemoryCacheImageInputStream(mergedIn);
       }
 
-      this.JPEGReader.setInput(is, false, true);
-      final BufferedImage partImage = getPartImage();
-      this.JPEGParam.setDestination(partImage);
+      partReader.reader.setInput(is, false, true);
+      final BufferedImage partImage = partReader.getPartImage();
+      partReader.param.setDestination(partImage);
 
-      this.JPEGReader.read(0, this.JPEGParam);
+      partReader.reader.read(0, partReader.param);
       int y = imageY;
       for (int yIndex = 0; yIndex < dataHeight; yIndex++) {
         int x = imageX;
@@ -121,6 +139,8 @@ public class TiffJpegImage extends AbstractTiffImage {
       }
     } catch (final IOException e) {
       throw Exceptions.wrap(e);
+    } finally {
+      this.partReaders.add(partReader);
     }
   }
 }
@@ -0,0 +1,45 @@
+package com.revolsys.record.io;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.record.Record;
+
+/**
+ * A {@link RecordReader} that can also read a record by its index in the file.
+ */
+public interface RandomAccessRecordReader extends RecordReader {
+
+  /**
+   * Get the record at the index.
+   *
+   * @param index The index of the record, including deleted records.
+   * @return The record or null if the record was deleted.
+   */
+  Record getRecord(int index);
+
+  /**
+   * @return The number of records, including deleted records, or -1 if not known.
+   */
+  int getRecordCount();
+
+  /**
+   * Get the index of the records whose geometry may intersect the bounding box
+   * using a spatial index. The records must still be checked against the
+   * bounding box. Readers may require {@link #setMemoryMapped(boolean)} to be
+   * set to true before the reader is opened.
+   *
+   * @param boundingBox The bounding box.
+   * @return The record indexes in ascending order or null if there is no spatial
+   *         index.
+   */
+  default int[] getRecordIndexes(final BoundingBox boundingBox) {
+    return null;
+  }
+
+  /**
+   * Set if the files are read using memory-mapped buffers, required for random
+   * access. Must be set before the reader is opened.
+   *
+   * @param memoryMapped True if the files are to be memory-mapped.
+   */
+  void setMemoryMapped(boolean memoryMapped);
+}
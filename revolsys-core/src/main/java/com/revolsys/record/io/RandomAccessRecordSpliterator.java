@@ -0,0 +1,140 @@
+package com.revolsys.record.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.record.Record;
+
+/**
+ * A {@link Spliterator} over a range of record indexes. The range is split in
+ * half so the records can be read using a parallel stream. Each split reads
+ * its records using its own {@link RandomAccessRecordReader} created by the
+ * reader factory, which is closed when the split is finished or the root
+ * spliterator is closed.
+ */
+public class RandomAccessRecordSpliterator implements Spliterator<Record>, BaseCloseable {
+
+  private static final int MIN_SPLIT_SIZE = 1000;
+
+  private int endIndex;
+
+  private int index;
+
+  private RandomAccessRecordReader reader;
+
+  private final Supplier<? extends RandomAccessRecordReader> readerFactory;
+
+  private final List<RandomAccessRecordReader> readers;
+
+  public RandomAccessRecordSpliterator(
+    final Supplier<? extends RandomAccessRecordReader> readerFactory, final int startIndex,
+    final int endIndex) {
+    this(readerFactory, new ArrayList<>(), startIndex, endIndex);
+  }
+
+  private RandomAccessRecordSpliterator(
+    final Supplier<? extends RandomAccessRecordReader> readerFactory,
+    final List<RandomAccessRecordReader> readers, final int startIndex, final int endIndex) {
+    this.readerFactory = readerFactory;
+    this.readers = readers;
+    this.index = startIndex;
+    this.endIndex = endIndex;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL | IMMUTABLE;
+  }
+
+  /**
+   * Close the readers for this and all the spliterators split from it.
+   */
+  @Override
+  public void close() {
+    synchronized (this.readers) {
+      for (final RandomAccessRecordReader reader : this.readers) {
+        reader.close();
+      }
+      this.readers.clear();
+    }
+    this.reader = null;
+  }
+
+  private void closeReader() {
+    final RandomAccessRecordReader reader = this.reader;
+    if (reader != null) {
+      this.reader = null;
+      synchronized (this.readers) {
+        this.readers.remove(reader);
+      }
+      reader.close();
+    }
+  }
+
+  @Override
+  public long estimateSize() {
+    return this.endIndex - this.index;
+  }
+
+  @Override
+  public void forEachRemaining(final Consumer<? super Record> action) {
+    try {
+      while (this.index < this.endIndex) {
+        final Record record = getReader().getRecord(this.index++);
+        if (record != null) {
+          action.accept(record);
+        }
+      }
+    } finally {
+      closeReader();
+    }
+  }
+
+  private RandomAccessRecordReader getReader() {
+    RandomAccessRecordReader reader = this.reader;
+    if (reader == null) {
+      reader = this.readerFactory.get();
+      synchronized (this.readers) {
+        this.readers.add(reader);
+      }
+      this.reader = reader;
+    }
+    return reader;
+  }
+
+  @Override
+  public boolean tryAdvance(final Consumer<? super Record> action) {
+    while (this.index < this.endIndex) {
+      final Record record = getReader().getRecord(this.index++);
+      if (record != null) {
+        action.accept(record);
+        return true;
+      }
+    }
+    closeReader();
+    return false;
+  }
+
+  @Override
+  public Spliterator<Record> trySplit() {
+    final int count = this.endIndex - this.index;
+    if (count < MIN_SPLIT_SIZE * 2) {
+      return null;
+    } else {
+      final int startIndex = this.index;
+      final int middleIndex = startIndex + count / 2;
+      this.index = middleIndex;
+      return new RandomAccessRecordSpliterator(this.readerFactory, this.readers, startIndex,
+        middleIndex);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.index + ".." + this.endIndex;
+  }
+}
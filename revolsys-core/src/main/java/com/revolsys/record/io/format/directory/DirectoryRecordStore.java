@@ -14,14 +14,17 @@ import java.util.TreeMap;
 import org.jeometry.common.io.PathName;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.io.FileUtil;
 import com.revolsys.io.PathUtil;
 import com.revolsys.io.filter.ExtensionFilenameFilter;
 import com.revolsys.properties.ObjectWithProperties;
 import com.revolsys.record.Record;
+import com.revolsys.record.io.RandomAccessRecordReader;
 import com.revolsys.record.io.RecordReader;
 import com.revolsys.record.io.RecordWriter;
 import com.revolsys.record.query.Query;
+import com.revolsys.record.query.functions.EnvelopeIntersects;
 import com.revolsys.record.schema.AbstractRecordStore;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
@@ -41,6 +44,8 @@ public class DirectoryRecordStore extends AbstractRecordStore {
 
   private final Map<RecordDefinition, Resource> resourcesByRecordDefinition = new HashMap<>();
 
+  private boolean spatialIndex = true;
+
   private final Map<Resource, String> typePathByResource = new HashMap<>();
 
   private final Map<String, RecordWriter> writers = new HashMap<>();
@@ -230,12 +235,27 @@ public class DirectoryRecordStore extends AbstractRecordStore {
     }
   }
 
+  public boolean isSpatialIndex() {
+    return this.spatialIndex;
+  }
+
   @Override
   public AbstractIterator<Record> newIterator(final Query query,
     final Map<String, Object> properties) {
     final PathName path = query.getTypePath();
     final RecordReader reader = getRecords(path);
     reader.setProperties(properties);
+    if (this.spatialIndex && reader instanceof RandomAccessRecordReader) {
+      final BoundingBox boundingBox = EnvelopeIntersects.getBoundingBox(query.getWhereCondition());
+      if (boundingBox != null) {
+        final RandomAccessRecordReader randomAccessReader = (RandomAccessRecordReader)reader;
+        randomAccessReader.setMemoryMapped(true);
+        final int[] recordIndexes = randomAccessReader.getRecordIndexes(boundingBox);
+        if (recordIndexes != null) {
+          return new RecordReaderQueryIterator(randomAccessReader, query, recordIndexes);
+        }
+      }
+    }
     return new RecordReaderQueryIterator(reader, query);
   }
 
@@ -299,6 +319,16 @@ public class DirectoryRecordStore extends AbstractRecordStore {
     this.fileExtensions = fileExtensions;
   }
 
+  /**
+   * Set if bounding box queries use the file's persistent spatial index (e.g.
+   * the .rtree file for a shapefile), building it if required.
+   *
+   * @param spatialIndex True if the spatial index is used.
+   */
+  public void setSpatialIndex(final boolean spatialIndex) {
+    this.spatialIndex = spatialIndex;
+  }
+
   protected void superDelete(final Record record) {
     super.deleteRecord(record);
   }
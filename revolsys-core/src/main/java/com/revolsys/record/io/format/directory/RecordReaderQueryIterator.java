@@ -5,21 +5,42 @@ import java.util.NoSuchElementException;
 
 import com.revolsys.collection.iterator.AbstractIterator;
 import com.revolsys.record.Record;
+import com.revolsys.record.io.RandomAccessRecordReader;
 import com.revolsys.record.io.RecordReader;
 import com.revolsys.record.query.Condition;
 import com.revolsys.record.query.Query;
 
 public class RecordReaderQueryIterator extends AbstractIterator<Record> {
 
+  private int indexPosition = 0;
+
   private Iterator<Record> iterator;
 
   private final RecordReader reader;
 
+  private final int[] recordIndexes;
+
   private final Condition whereCondition;
 
+  /**
+   * Construct a new iterator that only reads the records with the indexes (e.g.
+   * from a spatial index) and checks them against the query's where condition.
+   *
+   * @param reader The reader.
+   * @param query The query.
+   * @param recordIndexes The indexes of the records to read.
+   */
+  public RecordReaderQueryIterator(final RandomAccessRecordReader reader, final Query query,
+    final int[] recordIndexes) {
+    this.reader = reader;
+    this.whereCondition = query.getWhereCondition();
+    this.recordIndexes = recordIndexes;
+  }
+
   public RecordReaderQueryIterator(final RecordReader reader, final Query query) {
     this.reader = reader;
     this.whereCondition = query.getWhereCondition();
+    this.recordIndexes = null;
   }
 
   @Override
@@ -29,17 +50,31 @@ public class RecordReaderQueryIterator extends AbstractIterator<Record> {
 
   @Override
   protected Record getNext() throws NoSuchElementException {
-    while (true) {
-      final Record record = this.iterator.next();
-      if (this.whereCondition.test(record)) {
-        return record;
+    if (this.recordIndexes == null) {
+      while (true) {
+        final Record record = this.iterator.next();
+        if (this.whereCondition.test(record)) {
+          return record;
+        }
       }
+    } else {
+      final RandomAccessRecordReader reader = (RandomAccessRecordReader)this.reader;
+      while (this.indexPosition < this.recordIndexes.length) {
+        final int index = this.recordIndexes[this.indexPosition++];
+        final Record record = reader.getRecord(index);
+        if (record != null && this.whereCondition.test(record)) {
+          return record;
+        }
+      }
+      throw new NoSuchElementException();
     }
   }
 
   @Override
   public synchronized void init() {
     this.reader.open();
-    this.iterator = this.reader.iterator();
+    if (this.recordIndexes == null) {
+      this.iterator = this.reader.iterator();
+    }
   }
 }
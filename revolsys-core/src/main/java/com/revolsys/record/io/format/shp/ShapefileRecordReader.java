@@ -2,13 +2,19 @@ package com.revolsys.record.io.format.shp;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.io.PathName;
 import org.jeometry.common.logging.Logs;
 
 import com.revolsys.collection.iterator.AbstractIterator;
+import com.revolsys.geometry.index.hprtree.HprTreeFile;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.ClockDirection;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryDataTypes;
@@ -16,28 +22,38 @@ import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.io.EndOfFileException;
 import com.revolsys.io.FileUtil;
 import com.revolsys.io.IoConstants;
+import com.revolsys.io.channels.MappedFileWindow;
 import com.revolsys.io.endian.EndianInput;
 import com.revolsys.io.endian.EndianInputStream;
-import com.revolsys.io.endian.EndianMappedByteBuffer;
 import com.revolsys.io.endian.LittleEndianRandomAccessFile;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.Records;
-import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RandomAccessRecordReader;
+import com.revolsys.record.io.RandomAccessRecordSpliterator;
 import com.revolsys.record.io.format.xbase.XbaseRecordReader;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordDefinitionImpl;
 import com.revolsys.spring.resource.Resource;
 import com.revolsys.util.Property;
 
-public class ShapefileRecordReader extends AbstractIterator<Record> implements RecordReader {
+public class ShapefileRecordReader extends AbstractIterator<Record>
+  implements RandomAccessRecordReader {
   private boolean closeFile = true;
 
   private GeometryFactory geometryFactory;
 
   private EndianInput in;
 
-  private EndianMappedByteBuffer indexIn;
+  private MappedFileWindow indexIn;
+
+  private HprTreeFile spatialIndex;
+
+  private MappedFileWindow mappedFile;
+
+  private long mappedOffset;
+
+  private boolean memoryMapped = false;
 
   private final String name;
 
@@ -74,7 +90,7 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
   }
 
   public void forceClose() {
-    FileUtil.closeSilent(this.in, this.indexIn);
+    FileUtil.closeSilent(this.in, this.indexIn, this.mappedFile, this.spatialIndex);
     if (this.xbaseRecordReader != null) {
       this.xbaseRecordReader.forceClose();
     }
@@ -82,6 +98,8 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     this.geometryFactory = null;
     this.in = null;
     this.indexIn = null;
+    this.mappedFile = null;
+    this.spatialIndex = null;
     this.recordDefinition = null;
     this.resource = null;
     this.xbaseRecordReader = null;
@@ -116,13 +134,7 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     } catch (final IOException e) {
       throw new RuntimeException("Error reading geometry " + this.resource, e);
     }
-    if (this.returnRecordDefinition == null) {
-      return record;
-    } else {
-      final Record copy = this.recordFactory.newRecord(this.returnRecordDefinition);
-      copy.setValues(record);
-      return copy;
-    }
+    return getReturnRecord(record);
   }
 
   @Override
@@ -134,6 +146,94 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     return this.position;
   }
 
+  /**
+   * Get the record at the index using the .shx file for random access. Only
+   * supported if the reader is {@link #isMemoryMapped()}.
+   *
+   * @param index The index of the record.
+   * @return The record or null if the record was deleted from the .dbf file.
+   */
+  @Override
+  public Record getRecord(final int index) {
+    open();
+    if (this.indexIn == null) {
+      throw new IllegalStateException(
+        "Random access requires memoryMapped=true and a .shx file: " + this.resource);
+    }
+    final int recordCount = getRecordCount();
+    if (index < 0 || index >= recordCount) {
+      throw new IndexOutOfBoundsException(index + " not in 0.." + recordCount);
+    }
+    final ByteBuffer indexBuffer = this.indexIn.getBuffer(100 + index * 8L, 8);
+    final long offset = Integer.toUnsignedLong(indexBuffer.getInt()) * 2;
+    final int recordLength = indexBuffer.getInt();
+    final Record record;
+    if (this.xbaseRecordReader == null) {
+      record = this.recordFactory.newRecord(this.recordDefinition);
+    } else {
+      record = this.xbaseRecordReader.getRecord(index);
+      if (record == null) {
+        return null;
+      }
+    }
+    try {
+      final Geometry geometry = readGeometry(offset + 8, recordLength);
+      record.setGeometryValue(geometry);
+    } catch (final IllegalArgumentException e) {
+      Logs.error(this, "Error reading geometry from:" + this.resource + "\n" + record, e);
+    }
+    return getReturnRecord(record);
+  }
+
+  /**
+   * @return The number of records in the .shx file or -1 if the reader is not
+   *         memory-mapped or there is no .shx file.
+   */
+  @Override
+  public int getRecordCount() {
+    open();
+    if (this.indexIn == null) {
+      return -1;
+    } else {
+      return (int)((this.indexIn.size() - 100) / 8);
+    }
+  }
+
+  /**
+   * Get the index of the records whose bounding box intersects the bounding box
+   * using the .rtree spatial index, see {@link ShapefileSpatialIndex}. The index
+   * is built if it doesn't exist or the .shp file has changed. Only supported
+   * if the reader is {@link #isMemoryMapped()}, as the records are read using
+   * {@link #getRecord(int)}.
+   *
+   * @param boundingBox The bounding box.
+   * @return The record indexes in ascending order or null if the reader isn't
+   *         memory-mapped or the index couldn't be used.
+   */
+  @Override
+  public int[] getRecordIndexes(final BoundingBox boundingBox) {
+    open();
+    if (this.indexIn == null) {
+      return null;
+    } else {
+      synchronized (this) {
+        if (this.spatialIndex == null) {
+          this.spatialIndex = ShapefileSpatialIndex.getIndex(this.resource);
+          if (this.spatialIndex == null) {
+            return null;
+          }
+        }
+      }
+      final BoundingBox queryBoundingBox = boundingBox.bboxToCs(this.geometryFactory);
+      if (queryBoundingBox.isEmpty()) {
+        return new int[0];
+      } else {
+        return this.spatialIndex.query(queryBoundingBox.getMinX(), queryBoundingBox.getMinY(),
+          queryBoundingBox.getMaxX(), queryBoundingBox.getMaxY());
+      }
+    }
+  }
+
   @Override
   public RecordDefinition getRecordDefinition() {
     open();
@@ -145,6 +245,16 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     return this.recordFactory;
   }
 
+  private Record getReturnRecord(final Record record) {
+    if (this.returnRecordDefinition == null) {
+      return record;
+    } else {
+      final Record copy = this.recordFactory.newRecord(this.returnRecordDefinition);
+      copy.setValues(record);
+      return copy;
+    }
+  }
+
   public PathName getTypeName() {
     return this.typeName;
   }
@@ -152,24 +262,41 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
   @Override
   protected synchronized void initDo() {
     if (this.in == null) {
+      // Partition readers use the record definition from the parent reader
+      final boolean sharedRecordDefinition = this.recordDefinition != null;
       try {
-        try {
-          if (this.resource.isFile()) {
-            final File file = this.resource.getFile();
-            this.in = new LittleEndianRandomAccessFile(file, "r");
-          } else {
+        if (this.memoryMapped && this.resource.isFile()) {
+          this.mappedFile = new MappedFileWindow(this.resource.getPath(), ByteOrder.BIG_ENDIAN);
+          final Resource indexResource = this.resource.newResourceChangeExtension("shx");
+          if (indexResource != null && indexResource.isFile() && indexResource.exists()) {
+            this.indexIn = new MappedFileWindow(indexResource.getPath(), ByteOrder.BIG_ENDIAN);
+          }
+        } else {
+          try {
+            if (this.resource.isFile()) {
+              final File file = this.resource.getFile();
+              this.in = new LittleEndianRandomAccessFile(file, "r");
+            } else {
+              this.in = new EndianInputStream(this.resource.getInputStream());
+            }
+          } catch (final IllegalArgumentException | UnsupportedOperationException e) {
             this.in = new EndianInputStream(this.resource.getInputStream());
           }
-        } catch (final IllegalArgumentException | UnsupportedOperationException e) {
-          this.in = new EndianInputStream(this.resource.getInputStream());
         }
 
         final Resource xbaseResource = this.resource.newResourceChangeExtension("dbf");
         if (xbaseResource != null && xbaseResource.exists()) {
-          this.xbaseRecordReader = new XbaseRecordReader(xbaseResource, this.recordFactory,
-            () -> updateRecordDefinition());
+          if (sharedRecordDefinition) {
+            this.xbaseRecordReader = new XbaseRecordReader(xbaseResource, this.recordFactory);
+            this.xbaseRecordReader
+              .setRecordDefinition((RecordDefinitionImpl)this.recordDefinition);
+          } else {
+            this.xbaseRecordReader = new XbaseRecordReader(xbaseResource, this.recordFactory,
+              () -> updateRecordDefinition());
+          }
           this.xbaseRecordReader.setTypeName(this.typeName);
           this.xbaseRecordReader.setCloseFile(this.closeFile);
+          this.xbaseRecordReader.setMemoryMapped(this.memoryMapped);
         }
         loadHeader();
         int axisCount;
@@ -211,10 +338,12 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
         if (this.xbaseRecordReader != null) {
           this.xbaseRecordReader.hasNext();
         }
-        if (this.recordDefinition == null) {
-          this.recordDefinition = Records.newGeometryRecordDefinition();
+        if (!sharedRecordDefinition) {
+          if (this.recordDefinition == null) {
+            this.recordDefinition = Records.newGeometryRecordDefinition();
+          }
+          this.recordDefinition.setGeometryFactory(this.geometryFactory);
         }
-        this.recordDefinition.setGeometryFactory(this.geometryFactory);
       } catch (final IOException e) {
         throw new RuntimeException("Error initializing mappedFile " + this.resource, e);
       }
@@ -225,6 +354,64 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     return this.closeFile;
   }
 
+  public boolean isMemoryMapped() {
+    return this.memoryMapped;
+  }
+
+  private ShapefileRecordReader newPartitionReader() {
+    try {
+      final ShapefileRecordReader reader = new ShapefileRecordReader(this.resource,
+        this.recordFactory);
+      reader.setMemoryMapped(true);
+      reader.setTypeName(this.typeName);
+      reader.setProperty(IoConstants.GEOMETRY_FACTORY, this.geometryFactory);
+      // Use the same record definitions for the records from all partitions.
+      // They were initialized when this reader was opened, so they aren't
+      // modified by the partition readers.
+      reader.recordDefinition = this.recordDefinition;
+      reader.returnRecordDefinition = this.returnRecordDefinition;
+      return reader;
+    } catch (final IOException e) {
+      throw new RuntimeException("Unable to create reader for " + this.resource, e);
+    }
+  }
+
+  /**
+   * Construct a new spliterator that splits the records into ranges using the
+   * .shx file so they can be read in parallel. Each range is read using a
+   * separate memory-mapped reader.
+   *
+   * @return The spliterator or null if the resource is not a file or there is
+   *         no .shx file.
+   */
+  public RandomAccessRecordSpliterator newPartitionedSpliterator() {
+    open();
+    if (this.resource.isFile()) {
+      final Resource indexResource = this.resource.newResourceChangeExtension("shx");
+      if (indexResource != null && indexResource.isFile() && indexResource.exists()) {
+        final long indexSize = indexResource.getPath().toFile().length();
+        final int recordCount = (int)((indexSize - 100) / 8);
+        return new RandomAccessRecordSpliterator(this::newPartitionReader, 0, recordCount);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get a parallel stream of the records. If the resource is a file with a .shx
+   * file the records are split into ranges read by separate memory-mapped
+   * readers. The stream must be closed if it is not fully consumed.
+   */
+  @Override
+  public Stream<Record> parallelStream() {
+    final RandomAccessRecordSpliterator spliterator = newPartitionedSpliterator();
+    if (spliterator == null) {
+      return RandomAccessRecordReader.super.parallelStream();
+    } else {
+      return StreamSupport.stream(spliterator, true).onClose(spliterator::close);
+    }
+  }
+
   /**
    * Load the header record from the shape mappedFile.
    *
@@ -232,6 +419,13 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
    */
   @SuppressWarnings("unused")
   private void loadHeader() throws IOException {
+    if (this.mappedFile != null) {
+      final ByteBuffer header = this.mappedFile.getBuffer(0, 100);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      this.shapeType = header.getInt(32);
+      this.mappedOffset = 100;
+      return;
+    }
     this.in.readInt();
     this.in.skipBytes(20);
     final int fileLength = this.in.readInt();
@@ -247,39 +441,112 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     final double maxM = this.in.readLEDouble();
   }
 
+  private Geometry newEmptyGeometry() {
+    switch (this.shapeType) {
+      case ShapefileConstants.POINT_SHAPE:
+      case ShapefileConstants.POINT_M_SHAPE:
+      case ShapefileConstants.POINT_Z_SHAPE:
+      case ShapefileConstants.POINT_ZM_SHAPE:
+      case ShapefileConstants.MULTI_POINT_SHAPE:
+      case ShapefileConstants.MULTI_POINT_M_SHAPE:
+      case ShapefileConstants.MULTI_POINT_Z_SHAPE:
+      case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
+        return this.geometryFactory.point();
+
+      case ShapefileConstants.POLYLINE_SHAPE:
+      case ShapefileConstants.POLYLINE_M_SHAPE:
+      case ShapefileConstants.POLYLINE_Z_SHAPE:
+      case ShapefileConstants.POLYLINE_ZM_SHAPE:
+        return this.geometryFactory.lineString();
+
+      case ShapefileConstants.POLYGON_SHAPE:
+      case ShapefileConstants.POLYGON_M_SHAPE:
+      case ShapefileConstants.POLYGON_Z_SHAPE:
+      case ShapefileConstants.POLYGON_ZM_SHAPE:
+        return this.geometryFactory.polygon();
+      default:
+        throw new IllegalArgumentException(
+          "Shapefile shape type not supported: " + this.shapeType);
+    }
+  }
+
+  /**
+   * Read the geometry from the memory-mapped file.
+   *
+   * @param contentOffset The offset of the record content after the record header.
+   * @param recordLength The length of the record content in 16-bit words.
+   * @return The geometry.
+   */
+  private Geometry readGeometry(final long contentOffset, final int recordLength) {
+    final ByteBuffer buffer = this.mappedFile.getBuffer(contentOffset, recordLength * 2);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    final int shapeType = buffer.getInt();
+    final ShapefileGeometryHandler handler = ShapefileGeometryHandler.SHP_INSTANCE;
+    final GeometryFactory geometryFactory = this.geometryFactory;
+    switch (shapeType) {
+      case ShapefileConstants.NULL_SHAPE:
+        return newEmptyGeometry();
+      case ShapefileConstants.POINT_SHAPE:
+        return handler.readPoint(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POINT_M_SHAPE:
+        return handler.readPointM(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POINT_Z_SHAPE:
+        return handler.readPointZ(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POINT_ZM_SHAPE:
+        return handler.readPointZM(geometryFactory, buffer, recordLength);
+
+      case ShapefileConstants.MULTI_POINT_SHAPE:
+        return handler.readMultipoint(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.MULTI_POINT_M_SHAPE:
+        return handler.readMultipointM(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.MULTI_POINT_Z_SHAPE:
+        return handler.readMultipointZ(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
+        return handler.readMultipointZM(geometryFactory, buffer, recordLength);
+
+      case ShapefileConstants.POLYLINE_SHAPE:
+        return handler.readPolyline(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYLINE_M_SHAPE:
+        return handler.readPolylineM(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYLINE_Z_SHAPE:
+        return handler.readPolylineZ(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYLINE_ZM_SHAPE:
+        return handler.readPolylineZM(geometryFactory, buffer, recordLength);
+
+      case ShapefileConstants.POLYGON_SHAPE:
+        return handler.readPolygon(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYGON_M_SHAPE:
+        return handler.readPolygonM(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYGON_Z_SHAPE:
+        return handler.readPolygonZ(geometryFactory, buffer, recordLength);
+      case ShapefileConstants.POLYGON_ZM_SHAPE:
+        return handler.readPolygonZM(geometryFactory, buffer, recordLength);
+      default:
+        throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
+    }
+  }
+
   @SuppressWarnings("unused")
   private Geometry readGeometry() throws IOException {
+    if (this.mappedFile != null) {
+      final long offset = this.mappedOffset;
+      if (offset + 8 > this.mappedFile.size()) {
+        throw new EndOfFileException();
+      }
+      final ByteBuffer header = this.mappedFile.getBuffer(offset, 8);
+      header.order(ByteOrder.BIG_ENDIAN);
+      final int recordNumber = header.getInt();
+      final int recordLength = header.getInt();
+      this.mappedOffset = offset + 8 + recordLength * 2L;
+      return readGeometry(offset + 8, recordLength);
+    }
     final int recordNumber = this.in.readInt();
     final int recordLength = this.in.readInt();
     final int shapeType = this.in.readLEInt();
     final ShapefileGeometryUtil util = ShapefileGeometryUtil.SHP_INSTANCE;
     switch (shapeType) {
       case ShapefileConstants.NULL_SHAPE:
-        switch (this.shapeType) {
-          case ShapefileConstants.POINT_SHAPE:
-          case ShapefileConstants.POINT_M_SHAPE:
-          case ShapefileConstants.POINT_Z_SHAPE:
-          case ShapefileConstants.POINT_ZM_SHAPE:
-          case ShapefileConstants.MULTI_POINT_SHAPE:
-          case ShapefileConstants.MULTI_POINT_M_SHAPE:
-          case ShapefileConstants.MULTI_POINT_Z_SHAPE:
-          case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
-            return this.geometryFactory.point();
-
-          case ShapefileConstants.POLYLINE_SHAPE:
-          case ShapefileConstants.POLYLINE_M_SHAPE:
-          case ShapefileConstants.POLYLINE_Z_SHAPE:
-          case ShapefileConstants.POLYLINE_ZM_SHAPE:
-            return this.geometryFactory.lineString();
-
-          case ShapefileConstants.POLYGON_SHAPE:
-          case ShapefileConstants.POLYGON_M_SHAPE:
-          case ShapefileConstants.POLYGON_Z_SHAPE:
-          case ShapefileConstants.POLYGON_ZM_SHAPE:
-            return this.geometryFactory.polygon();
-          default:
-            throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
-        }
+        return newEmptyGeometry();
       case ShapefileConstants.POINT_SHAPE:
         return util.readPoint(this.geometryFactory, this.in, recordLength);
       case ShapefileConstants.POINT_M_SHAPE:
@@ -327,6 +594,18 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  /**
+   * Set if the .shp, .shx and .dbf files are read using memory-mapped buffers
+   * instead of streams. Only used if the resource is a file. Must be set before
+   * the reader is opened.
+   *
+   * @param memoryMapped True if the files are to be memory-mapped.
+   */
+  @Override
+  public void setMemoryMapped(final boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
   public void setRecordDefinition(final RecordDefinition recordDefinition) {
     this.returnRecordDefinition = recordDefinition;
     ((RecordDefinitionImpl)recordDefinition).setPolygonRingDirection(ClockDirection.CLOCKWISE);
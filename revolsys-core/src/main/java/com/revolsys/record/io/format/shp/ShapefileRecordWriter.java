@@ -113,6 +113,7 @@ public class ShapefileRecordWriter extends XbaseRecordWriter {
     if (recordDefinition != null) {
       this.geometryFieldName = recordDefinition.getGeometryFieldName();
       if (this.geometryFieldName != null) {
+        ShapefileSpatialIndex.delete(this.resource);
 
         this.out = new ResourceEndianOutput(this.resource);
         writeHeader(this.out);
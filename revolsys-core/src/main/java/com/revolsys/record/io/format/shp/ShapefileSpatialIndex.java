@@ -0,0 +1,187 @@
+package com.revolsys.record.io.format.shp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.index.hprtree.HprTreeFile;
+import com.revolsys.io.channels.MappedFileWindow;
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * A persistent spatial index of the bounding box of each record in a shapefile
+ * stored in a .rtree sidecar file next to the .shp file. The index is built on
+ * first use from the .shp and .shx files and rebuilt if the size or last
+ * modified time of the .shp file has changed. Building or deleting the index
+ * locks the index file's path, so indexes for different files can be built at
+ * the same time.
+ */
+public final class ShapefileSpatialIndex {
+
+  /**
+   * The lock for an index file and the number of threads using it, removed when
+   * no threads are using it.
+   */
+  private static final class PathLock {
+    private int useCount;
+  }
+
+  public static final String FILE_EXTENSION = "rtree";
+
+  private static final Map<Path, PathLock> LOCKS = new HashMap<>();
+
+  private static HprTreeFile build(final Path path, final Path shpPath, final Path shxPath,
+    final long sourceSize, final long sourceTime) {
+    try (
+      MappedFileWindow shpFile = new MappedFileWindow(shpPath, ByteOrder.LITTLE_ENDIAN,
+        Integer.MAX_VALUE);
+      MappedFileWindow shxFile = new MappedFileWindow(shxPath, ByteOrder.BIG_ENDIAN,
+        Integer.MAX_VALUE)) {
+      final int recordCount = (int)((shxFile.size() - 100) / 8);
+      final long shpSize = shpFile.size();
+      HprTreeFile.write(path, recordCount, (index, bounds) -> {
+        final ByteBuffer indexBuffer = shxFile.getBuffer(100 + index * 8L, 8);
+        final long offset = Integer.toUnsignedLong(indexBuffer.getInt()) * 2 + 8;
+        if (offset + 4 > shpSize) {
+          return false;
+        }
+        final int shapeType = shpFile.getBuffer(offset, 4).getInt();
+        switch (shapeType) {
+          case ShapefileConstants.NULL_SHAPE:
+            return false;
+          case ShapefileConstants.POINT_SHAPE:
+          case ShapefileConstants.POINT_M_SHAPE:
+          case ShapefileConstants.POINT_Z_SHAPE:
+          case ShapefileConstants.POINT_ZM_SHAPE: {
+            final ByteBuffer buffer = shpFile.getBuffer(offset + 4, 16);
+            final double x = buffer.getDouble();
+            final double y = buffer.getDouble();
+            bounds[0] = x;
+            bounds[1] = y;
+            bounds[2] = x;
+            bounds[3] = y;
+          }
+          break;
+          default: {
+            final ByteBuffer buffer = shpFile.getBuffer(offset + 4, 32);
+            for (int i = 0; i < 4; i++) {
+              bounds[i] = buffer.getDouble();
+            }
+          }
+          break;
+        }
+        for (final double bound : bounds) {
+          if (!Double.isFinite(bound)) {
+            return false;
+          }
+        }
+        return true;
+      }, HprTreeFile.DEFAULT_NODE_SIZE, sourceSize, sourceTime);
+    }
+    return HprTreeFile.open(path);
+  }
+
+  /**
+   * Delete the spatial index for the shapefile.
+   *
+   * @param shpResource The .shp file.
+   */
+  public static void delete(final Resource shpResource) {
+    final Path path = getIndexPath(shpResource);
+    if (path != null) {
+      withLock(path, () -> {
+        try {
+          Files.deleteIfExists(path);
+        } catch (final IOException e) {
+          Logs.debug(ShapefileSpatialIndex.class, "Unable to delete spatial index: " + path, e);
+        }
+        return null;
+      });
+    }
+  }
+
+  /**
+   * Get the spatial index for the shapefile, building the index if it doesn't
+   * exist or is out of date. The caller must close the index.
+   *
+   * @param shpResource The .shp file.
+   * @return The index or null if the shapefile is not a file, doesn't have a
+   *         .shx file or the index could not be built.
+   */
+  public static HprTreeFile getIndex(final Resource shpResource) {
+    final Path path = getIndexPath(shpResource);
+    if (path != null) {
+      final Path shpPath = shpResource.getPath();
+      final Resource shxResource = shpResource.newResourceChangeExtension("shx");
+      if (shxResource != null && shxResource.isFile() && shxResource.exists()) {
+        final Path shxPath = shxResource.getPath();
+        return withLock(path, () -> {
+          try {
+            final long sourceSize = Files.size(shpPath);
+            final long sourceTime = Files.getLastModifiedTime(shpPath).toMillis();
+            final HprTreeFile index = HprTreeFile.open(path);
+            if (index != null) {
+              if (index.getSourceSize() == sourceSize && index.getSourceTime() == sourceTime) {
+                return index;
+              } else {
+                index.close();
+              }
+            }
+            return build(path, shpPath, shxPath, sourceSize, sourceTime);
+          } catch (final Exception e) {
+            Logs.error(ShapefileSpatialIndex.class, "Unable to build spatial index: " + path, e);
+            return null;
+          }
+        });
+      }
+    }
+    return null;
+  }
+
+  private static Path getIndexPath(final Resource shpResource) {
+    if (shpResource != null && shpResource.isFile()) {
+      final Resource indexResource = shpResource.newResourceChangeExtension(FILE_EXTENSION);
+      if (indexResource != null) {
+        return indexResource.getPath();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Run the action holding the lock for the path.
+   */
+  private static <V> V withLock(final Path path, final Supplier<V> action) {
+    final Path key = path.toAbsolutePath().normalize();
+    PathLock lock;
+    synchronized (LOCKS) {
+      lock = LOCKS.get(key);
+      if (lock == null) {
+        lock = new PathLock();
+        LOCKS.put(key, lock);
+      }
+      lock.useCount++;
+    }
+    try {
+      synchronized (lock) {
+        return action.get();
+      }
+    } finally {
+      synchronized (LOCKS) {
+        if (--lock.useCount == 0) {
+          LOCKS.remove(key);
+        }
+      }
+    }
+  }
+
+  private ShapefileSpatialIndex() {
+  }
+}
@@ -11,6 +11,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
@@ -21,13 +23,16 @@ import org.jeometry.common.logging.Logs;
 import com.revolsys.collection.iterator.AbstractIterator;
 import com.revolsys.io.Buffers;
 import com.revolsys.io.FileUtil;
+import com.revolsys.io.channels.MappedFileWindow;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
-import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RandomAccessRecordReader;
+import com.revolsys.record.io.RandomAccessRecordSpliterator;
 import com.revolsys.record.schema.RecordDefinitionImpl;
 import com.revolsys.spring.resource.Resource;
 
-public class XbaseRecordReader extends AbstractIterator<Record> implements RecordReader {
+public class XbaseRecordReader extends AbstractIterator<Record>
+  implements RandomAccessRecordReader {
   public static final char CHARACTER_TYPE = 'C';
 
   private static final Map<Character, DataType> DATA_TYPES = new HashMap<>();
@@ -63,8 +68,14 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   private int deletedCount = 0;
 
+  private int headerSize;
+
   private ReadableByteChannel in;
 
+  private MappedFileWindow mappedFile;
+
+  private boolean memoryMapped = false;
+
   private Runnable initCallback;
 
   private int recordCount;
@@ -77,6 +88,8 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   private RecordFactory recordFactory;
 
+  private long recordOffset;
+
   private short recordSize;
 
   private Resource resource;
@@ -85,6 +98,8 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   private final ByteBuffer buffer1 = ByteBuffer.allocate(1);
 
+  private byte[] stringBytes;
+
   private boolean exists = false;
 
   public XbaseRecordReader(final Resource resource, final RecordFactory recordFactory)
@@ -119,9 +134,10 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
   }
 
   public void forceClose() {
-    FileUtil.closeSilent(this.in);
+    FileUtil.closeSilent(this.in, this.mappedFile);
     this.recordFactory = null;
     this.in = null;
+    this.mappedFile = null;
     this.initCallback = null;
     this.recordDefinition = null;
     this.recordBuffer = null;
@@ -186,14 +202,8 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
       this.currentDeletedCount = 0;
       int deleteFlag = ' ';
       do {
-        this.recordBuffer.clear();
-        final int readCount = Buffers.readAll(this.in, this.recordBuffer);
-        if (readCount == -1) {
-          throw new NoSuchElementException();
-        } else if (readCount == 1 && readCount != this.recordSize) {
+        if (!readRecordBuffer()) {
           throw new NoSuchElementException();
-        } else if (readCount != this.recordSize) {
-          throw new IllegalStateException("Unexpected end of mappedFile");
         } else {
           deleteFlag = this.recordBuffer.get();
           if (deleteFlag == -1) {
@@ -229,11 +239,43 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return number;
   }
 
+  /**
+   * Get the record at the index using random access. Only supported if the
+   * reader is {@link #isMemoryMapped()}.
+   *
+   * @param index The index of the record, including deleted records.
+   * @return The record or null if the record was deleted.
+   */
+  @Override
+  public Record getRecord(final int index) {
+    open();
+    if (this.mappedFile == null) {
+      throw new IllegalStateException("Random access requires memoryMapped=true: " + this.resource);
+    } else if (index < 0 || index >= this.recordCount) {
+      throw new IndexOutOfBoundsException(index + " not in 0.." + this.recordCount);
+    } else {
+      final long offset = this.headerSize + (long)index * this.recordSize;
+      this.recordBuffer = this.mappedFile.getBuffer(offset, this.recordSize);
+      final int deleteFlag = this.recordBuffer.get();
+      if (deleteFlag == ' ') {
+        try {
+          return loadRecord();
+        } catch (final IOException e) {
+          throw new RuntimeException(e.getMessage(), e);
+        }
+      } else {
+        return null;
+      }
+    }
+  }
+
   public int getPosition() {
     return this.position;
   }
 
+  @Override
   public int getRecordCount() {
+    open();
     return this.recordCount;
   }
 
@@ -244,9 +286,9 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
   }
 
   private String getString(final int len) {
-    final byte[] bytes = new byte[len];
+    final byte[] bytes = this.stringBytes;
     this.recordBuffer.get(bytes, 0, len);
-    final String text = new String(bytes, this.charset);
+    final String text = new String(bytes, 0, len, this.charset);
     return text.trim();
   }
 
@@ -265,12 +307,23 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
         this.exists = true;
         loadHeader();
       }
-      readRecordDefinition();
+      if (this.recordDefinition == null || !isMappedFile()) {
+        readRecordDefinition();
+      }
       if (this.initCallback != null) {
         this.initCallback.run();
       }
       if (this.exists) {
-        this.recordBuffer = ByteBuffer.allocateDirect(this.recordSize);
+        this.stringBytes = new byte[this.recordSize];
+        if (isMappedFile()) {
+          FileUtil.closeSilent(this.in);
+          this.in = null;
+          this.mappedFile = new MappedFileWindow(this.resource.getPath(),
+            ByteOrder.LITTLE_ENDIAN);
+          this.recordOffset = this.headerSize;
+        } else {
+          this.recordBuffer = ByteBuffer.allocateDirect(this.recordSize);
+        }
       }
     } catch (final IOException e) {
       throw new RuntimeException("Error initializing mappedFile ", e);
@@ -281,6 +334,58 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return this.closeFile;
   }
 
+  private boolean isMappedFile() {
+    return this.memoryMapped && this.resource.isFile();
+  }
+
+  public boolean isMemoryMapped() {
+    return this.memoryMapped;
+  }
+
+  private XbaseRecordReader newPartitionReader() {
+    try {
+      final XbaseRecordReader reader = new XbaseRecordReader(this.resource, this.recordFactory);
+      reader.setMemoryMapped(true);
+      reader.setTypeName(this.typeName);
+      // Use the same record definition for the records from all partitions
+      reader.setRecordDefinition(this.recordDefinition);
+      return reader;
+    } catch (final IOException e) {
+      throw new RuntimeException("Unable to create reader for " + this.resource, e);
+    }
+  }
+
+  /**
+   * Construct a new spliterator that splits the records into ranges so they can
+   * be read in parallel. Each range is read using a separate memory-mapped
+   * reader.
+   *
+   * @return The spliterator or null if the resource is not a file.
+   */
+  public RandomAccessRecordSpliterator newPartitionedSpliterator() {
+    open();
+    if (this.exists && this.resource.isFile()) {
+      return new RandomAccessRecordSpliterator(this::newPartitionReader, 0, this.recordCount);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Get a parallel stream of the records. If the resource is a file the records
+   * are split into ranges read by separate memory-mapped readers. The stream
+   * must be closed if it is not fully consumed.
+   */
+  @Override
+  public Stream<Record> parallelStream() {
+    final RandomAccessRecordSpliterator spliterator = newPartitionedSpliterator();
+    if (spliterator == null) {
+      return RandomAccessRecordReader.super.parallelStream();
+    } else {
+      return StreamSupport.stream(spliterator, true).onClose(spliterator::close);
+    }
+  }
+
   /**
    * Load the header record from the shape mappedFile.
    *
@@ -297,7 +402,7 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
       final int d = header.get();
       // properties.put(new QName("date"), new Date(y, m - 1, d));
       this.recordCount = header.getInt();
-      final short headerSize = header.getShort();
+      this.headerSize = header.getShort() & 0xFFFF;
 
       this.recordSize = header.getShort();
     } else {
@@ -331,6 +436,31 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return record;
   }
 
+  private boolean readRecordBuffer() throws IOException {
+    if (this.mappedFile == null) {
+      this.recordBuffer.clear();
+      final int readCount = Buffers.readAll(this.in, this.recordBuffer);
+      if (readCount == -1) {
+        return false;
+      } else if (readCount == 1 && readCount != this.recordSize) {
+        return false;
+      } else if (readCount != this.recordSize) {
+        throw new IllegalStateException("Unexpected end of mappedFile");
+      } else {
+        return true;
+      }
+    } else {
+      final long offset = this.recordOffset;
+      if (offset + this.recordSize > this.mappedFile.size()) {
+        return false;
+      } else {
+        this.recordBuffer = this.mappedFile.getBuffer(offset, this.recordSize);
+        this.recordOffset = offset + this.recordSize;
+        return true;
+      }
+    }
+  }
+
   private void readRecordDefinition() throws IOException {
     this.recordDefinition = new RecordDefinitionImpl(this.typeName);
     if (this.exists) {
@@ -387,6 +517,30 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     this.closeFile = closeFile;
   }
 
+  /**
+   * Set if the file is read using a memory-mapped buffer instead of a stream.
+   * Only used if the resource is a file. Must be set before the reader is
+   * opened.
+   *
+   * @param memoryMapped True if the file is to be memory-mapped.
+   */
+  @Override
+  public void setMemoryMapped(final boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
+  /**
+   * Set the record definition to use instead of reading it from the file
+   * header, so the records from multiple readers of the same file share the
+   * record definition. Only used if the reader is {@link #isMemoryMapped()}
+   * and the resource is a file. Must be set before the reader is opened.
+   *
+   * @param recordDefinition The record definition.
+   */
+  public void setRecordDefinition(final RecordDefinitionImpl recordDefinition) {
+    this.recordDefinition = recordDefinition;
+  }
+
   public void setTypeName(final PathName typeName) {
     this.typeName = typeName;
   }
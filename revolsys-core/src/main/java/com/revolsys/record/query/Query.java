@@ -157,6 +157,8 @@ public class Query extends BaseObjectWithProperties
 
   private RecordFactory<Record> recordFactory;
 
+  private int fetchSize = 0;
+
   private List<String> fieldNames = new ArrayList<>();
 
   private String fromClause;
@@ -377,6 +379,16 @@ public class Query extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * Get the number of rows to fetch from the database in each round trip. The
+   * value 0 uses the record store's fetch size.
+   *
+   * @return The fetch size.
+   */
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   public String getFromClause() {
     return this.fromClause;
   }
@@ -480,6 +492,15 @@ public class Query extends BaseObjectWithProperties
     return this;
   }
 
+  public Query setFetchSize(final int fetchSize) {
+    if (fetchSize < 0) {
+      this.fetchSize = 0;
+    } else {
+      this.fetchSize = fetchSize;
+    }
+    return this;
+  }
+
   public Query setFieldNames(final List<String> fieldNames) {
     this.fieldNames = Lists.toArray(fieldNames);
     return this;
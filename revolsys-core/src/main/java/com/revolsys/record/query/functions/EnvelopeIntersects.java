@@ -6,13 +6,59 @@ import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.record.Record;
 import com.revolsys.record.query.AbstractBinaryQueryValue;
+import com.revolsys.record.query.And;
+import com.revolsys.record.query.Column;
 import com.revolsys.record.query.Condition;
 import com.revolsys.record.query.Query;
 import com.revolsys.record.query.QueryValue;
+import com.revolsys.record.query.Value;
 import com.revolsys.record.schema.RecordStore;
 
 public class EnvelopeIntersects extends AbstractBinaryQueryValue implements Condition {
 
+  /**
+   * Get the bounding box that a record's geometry must intersect to match the
+   * condition. This is the bounding box from an {@link EnvelopeIntersects}
+   * condition on a column and a bounding box (or geometry) value, or the first
+   * one of those within an {@link And} condition.
+   *
+   * @param condition The condition.
+   * @return The bounding box or null if the condition doesn't restrict the
+   *         bounding box.
+   */
+  public static BoundingBox getBoundingBox(final QueryValue condition) {
+    if (condition instanceof EnvelopeIntersects) {
+      final EnvelopeIntersects intersects = (EnvelopeIntersects)condition;
+      final QueryValue left = intersects.getLeft();
+      final QueryValue right = intersects.getRight();
+      if (left instanceof Column && right instanceof Value) {
+        return getBoundingBox((Value)right);
+      } else if (left instanceof Value && right instanceof Column) {
+        return getBoundingBox((Value)left);
+      }
+    } else if (condition instanceof And) {
+      for (final QueryValue childCondition : condition.getQueryValues()) {
+        final BoundingBox boundingBox = getBoundingBox(childCondition);
+        if (boundingBox != null) {
+          return boundingBox;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static BoundingBox getBoundingBox(final Value queryValue) {
+    final Object value = queryValue.getValue();
+    if (value instanceof BoundingBox) {
+      return (BoundingBox)value;
+    } else if (value instanceof Geometry) {
+      final Geometry geometry = (Geometry)value;
+      return geometry.getBoundingBox();
+    } else {
+      return null;
+    }
+  }
+
   public EnvelopeIntersects(final QueryValue boundingBox1Value,
     final QueryValue boundingBox2Value) {
     super(boundingBox1Value, boundingBox2Value);
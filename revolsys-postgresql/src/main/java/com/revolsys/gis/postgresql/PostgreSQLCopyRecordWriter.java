@@ -0,0 +1,575 @@
+package com.revolsys.gis.postgresql;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.date.Dates;
+import org.jeometry.common.logging.Logs;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import com.revolsys.collection.map.Maps;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbWriter;
+import com.revolsys.gis.postgresql.type.PostgreSQLGeometryJdbcFieldDefinition;
+import com.revolsys.io.AbstractRecordWriter;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
+import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.jdbc.io.JdbcRecordDefinition;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordState;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
+import com.revolsys.record.schema.RecordStore;
+import com.revolsys.transaction.Transaction;
+import com.revolsys.util.count.CategoryLabelCountMap;
+
+/**
+ * Insert records into a single PostgreSQL table using
+ * <code>COPY ... FROM STDIN (FORMAT binary)</code>. The values are encoded
+ * using the binary format for the column's PostgreSQL type, geometries are
+ * encoded as EWKB directly from the coordinates.
+ *
+ * Records are streamed to the server as they are written. The COPY is ended
+ * (and a new one started for the next record) after {@link #getFlushSize()}
+ * records or when {@link #flush()} is called. If a record can't be written the
+ * current COPY is cancelled and the records written since the last flush are
+ * discarded.
+ *
+ * Only inserts are supported, values for primary keys are not generated.
+ */
+public class PostgreSQLCopyRecordWriter extends AbstractRecordWriter {
+
+  @FunctionalInterface
+  private interface CopyValueWriter {
+    /**
+     * Write the length and bytes for a non-null value.
+     *
+     * @return The number of bytes written.
+     */
+    int write(ChannelWriter out, Object value);
+  }
+
+  private static final byte[] COPY_SIGNATURE = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xFF, '\r', '\n', 0
+  };
+
+  private static final long POSTGRES_EPOCH_DAYS = LocalDate.of(2000, 1, 1).toEpochDay();
+
+  private static final long POSTGRES_EPOCH_SECONDS = POSTGRES_EPOCH_DAYS * 24 * 60 * 60;
+
+  private static final Map<String, CopyValueWriter> VALUE_WRITER_BY_TYPE = Maps
+    .<String, CopyValueWriter> buildHash() //
+    .add("bool", PostgreSQLCopyRecordWriter::writeBoolean)
+    .add("int2", PostgreSQLCopyRecordWriter::writeShort)
+    .add("int4", PostgreSQLCopyRecordWriter::writeInt)
+    .add("int8", PostgreSQLCopyRecordWriter::writeLong)
+    .add("float4", PostgreSQLCopyRecordWriter::writeFloat)
+    .add("float8", PostgreSQLCopyRecordWriter::writeDouble)
+    .add("numeric", PostgreSQLCopyRecordWriter::writeNumeric)
+    .add("varchar", PostgreSQLCopyRecordWriter::writeString)
+    .add("text", PostgreSQLCopyRecordWriter::writeString)
+    .add("bpchar", PostgreSQLCopyRecordWriter::writeString)
+    .add("name", PostgreSQLCopyRecordWriter::writeString)
+    .add("date", PostgreSQLCopyRecordWriter::writeDate)
+    .add("timestamp", PostgreSQLCopyRecordWriter::writeTimestamp)
+    .add("timestamptz", PostgreSQLCopyRecordWriter::writeTimestampTz)
+    .add("uuid", PostgreSQLCopyRecordWriter::writeUuid)
+    .add("bytea", PostgreSQLCopyRecordWriter::writeBytes)
+    .getMap();
+
+  private static int writeBoolean(final ChannelWriter out, final Object value) {
+    final Boolean booleanValue = DataTypes.BOOLEAN.toObject(value);
+    out.putInt(1);
+    if (booleanValue) {
+      out.putByte((byte)1);
+    } else {
+      out.putByte((byte)0);
+    }
+    return 5;
+  }
+
+  private static int writeBytes(final ChannelWriter out, final Object value) {
+    final byte[] bytes = (byte[])value;
+    out.putInt(bytes.length);
+    out.putBytes(bytes);
+    return 4 + bytes.length;
+  }
+
+  private static int writeDate(final ChannelWriter out, final Object value) {
+    final LocalDate date = Dates.getSqlDate(value).toLocalDate();
+    out.putInt(4);
+    out.putInt((int)(date.toEpochDay() - POSTGRES_EPOCH_DAYS));
+    return 8;
+  }
+
+  private static int writeDouble(final ChannelWriter out, final Object value) {
+    final Double doubleValue = DataTypes.DOUBLE.toObject(value);
+    out.putInt(8);
+    out.putDouble(doubleValue);
+    return 12;
+  }
+
+  private static int writeFloat(final ChannelWriter out, final Object value) {
+    final Float floatValue = DataTypes.FLOAT.toObject(value);
+    out.putInt(4);
+    out.putFloat(floatValue);
+    return 8;
+  }
+
+  private static int writeInt(final ChannelWriter out, final Object value) {
+    final Integer intValue = DataTypes.INT.toObject(value);
+    out.putInt(4);
+    out.putInt(intValue);
+    return 8;
+  }
+
+  private static int writeLong(final ChannelWriter out, final Object value) {
+    final Long longValue = DataTypes.LONG.toObject(value);
+    out.putInt(8);
+    out.putLong(longValue);
+    return 12;
+  }
+
+  /**
+   * Write a numeric as base 10000 digits with the weight (base 10000 exponent
+   * of the first digit), sign and display scale.
+   */
+  private static int writeNumeric(final ChannelWriter out, final Object value) {
+    final BigDecimal number = DataTypes.DECIMAL.toObject(value);
+    final int displayScale = Math.max(0, number.scale());
+    final int digitScale = (displayScale + 3) / 4 * 4;
+    final String text = number.abs().setScale(digitScale).unscaledValue().toString();
+    final int textLength = text.length();
+    final int digitCount = (textLength + 3) / 4;
+    final short[] digits = new short[digitCount];
+    int charIndex = 0;
+    for (int digitIndex = 0; digitIndex < digitCount; digitIndex++) {
+      final int endIndex = textLength - (digitCount - digitIndex - 1) * 4;
+      int digit = 0;
+      for (; charIndex < endIndex; charIndex++) {
+        digit = digit * 10 + text.charAt(charIndex) - '0';
+      }
+      digits[digitIndex] = (short)digit;
+    }
+    int weight = digitCount - digitScale / 4 - 1;
+    int nonZeroDigitCount = digitCount;
+    while (nonZeroDigitCount > 0 && digits[nonZeroDigitCount - 1] == 0) {
+      nonZeroDigitCount--;
+    }
+    if (nonZeroDigitCount == 0) {
+      weight = 0;
+    }
+    final int size = 8 + nonZeroDigitCount * 2;
+    out.putInt(size);
+    out.putShort((short)nonZeroDigitCount);
+    out.putShort((short)weight);
+    if (number.signum() < 0) {
+      out.putShort((short)0x4000);
+    } else {
+      out.putShort((short)0);
+    }
+    out.putShort((short)displayScale);
+    for (int digitIndex = 0; digitIndex < nonZeroDigitCount; digitIndex++) {
+      out.putShort(digits[digitIndex]);
+    }
+    return 4 + size;
+  }
+
+  private static int writeShort(final ChannelWriter out, final Object value) {
+    final Short shortValue = DataTypes.SHORT.toObject(value);
+    out.putInt(2);
+    out.putShort(shortValue);
+    return 6;
+  }
+
+  private static int writeString(final ChannelWriter out, final Object value) {
+    final byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+    out.putInt(bytes.length);
+    out.putBytes(bytes);
+    return 4 + bytes.length;
+  }
+
+  private static int writeTimestamp(final ChannelWriter out, final Object value) {
+    final LocalDateTime timestamp = Dates.getTimestamp(value).toLocalDateTime();
+    final long seconds = timestamp.toEpochSecond(ZoneOffset.UTC) - POSTGRES_EPOCH_SECONDS;
+    out.putInt(8);
+    out.putLong(seconds * 1000000 + timestamp.getNano() / 1000);
+    return 12;
+  }
+
+  private static int writeTimestampTz(final ChannelWriter out, final Object value) {
+    final Timestamp timestamp = Dates.getTimestamp(value);
+    final Instant instant = timestamp.toInstant();
+    final long seconds = instant.getEpochSecond() - POSTGRES_EPOCH_SECONDS;
+    out.putInt(8);
+    out.putLong(seconds * 1000000 + instant.getNano() / 1000);
+    return 12;
+  }
+
+  private static int writeUuid(final ChannelWriter out, final Object value) {
+    UUID uuid;
+    if (value instanceof UUID) {
+      uuid = (UUID)value;
+    } else {
+      uuid = UUID.fromString(value.toString());
+    }
+    out.putInt(16);
+    out.putLong(uuid.getMostSignificantBits());
+    out.putLong(uuid.getLeastSignificantBits());
+    return 20;
+  }
+
+  /**
+   * Write the length and binary COPY encoding of a non-null value for a
+   * (non-geometry) PostgreSQL column type.
+   *
+   * @param out The writer to write to.
+   * @param columnType The PostgreSQL type name (e.g. int4, numeric, timestamp).
+   * @param value The value.
+   * @return The number of bytes written.
+   */
+  public static int writeValue(final ChannelWriter out, final String columnType,
+    final Object value) {
+    final CopyValueWriter valueWriter = VALUE_WRITER_BY_TYPE.get(columnType);
+    if (valueWriter == null) {
+      throw new IllegalArgumentException("COPY not supported for type " + columnType);
+    } else {
+      return valueWriter.write(out, value);
+    }
+  }
+
+  private int bufferSize = 65536;
+
+  private long byteCount;
+
+  private JdbcConnection connection;
+
+  private long copyRecordCount;
+
+  private final String copySql;
+
+  private PGCopyOutputStream copyStream;
+
+  private final String[] fieldNames;
+
+  private int flushSize = 100000;
+
+  private ChannelWriter out;
+
+  private long recordCount;
+
+  private PostgreSQLRecordStore recordStore;
+
+  private final JdbcRecordDefinition recordDefinition;
+
+  private long startTime;
+
+  private CategoryLabelCountMap statistics;
+
+  private final CopyValueWriter[] valueWriters;
+
+  public PostgreSQLCopyRecordWriter(final PostgreSQLRecordStore recordStore,
+    final RecordDefinitionProxy recordDefinition) {
+    super(recordDefinition);
+    this.recordStore = recordStore;
+    this.recordDefinition = recordStore.getRecordDefinition(recordDefinition.getPathName());
+    if (this.recordDefinition == null) {
+      throw new IllegalArgumentException("Table not found: " + recordDefinition.getPathName());
+    }
+    this.statistics = recordStore.getStatistics();
+    this.connection = recordStore.getJdbcConnection();
+    final DataSource dataSource = this.connection.getDataSource();
+    if (dataSource != null) {
+      try {
+        this.connection.setAutoCommit(false);
+      } catch (final SQLException e) {
+        throw new RuntimeException("Unable to create connection", e);
+      }
+    }
+    final boolean hasRowIdField = recordStore.isIdFieldRowid(this.recordDefinition);
+    final List<JdbcFieldDefinition> fields = new ArrayList<>();
+    final StringBuilder columnNames = new StringBuilder();
+    for (final FieldDefinition field : this.recordDefinition.getFields()) {
+      if (!(hasRowIdField && field.isIdField())) {
+        if (!fields.isEmpty()) {
+          columnNames.append(',');
+        }
+        field.appendColumnName(columnNames, false);
+        fields.add((JdbcFieldDefinition)field);
+      }
+    }
+    final String tableName = this.recordDefinition.getDbTableQualifiedName();
+    this.copySql = "COPY " + tableName + " (" + columnNames + ") FROM STDIN (FORMAT binary)";
+
+    this.fieldNames = new String[fields.size()];
+    this.valueWriters = new CopyValueWriter[fields.size()];
+    final String sql = "SELECT " + columnNames + " FROM " + tableName + " LIMIT 0";
+    try (
+      Statement statement = this.connection.createStatement();
+      ResultSet resultSet = statement.executeQuery(sql)) {
+      final ResultSetMetaData metaData = resultSet.getMetaData();
+      for (int i = 0; i < fields.size(); i++) {
+        final JdbcFieldDefinition field = fields.get(i);
+        this.fieldNames[i] = field.getName();
+        this.valueWriters[i] = newValueWriter(field, metaData.getColumnTypeName(i + 1));
+      }
+    } catch (final SQLException e) {
+      FileUtil.closeSilent(this.connection);
+      throw this.connection.getException("Get column types", sql, e);
+    } catch (final RuntimeException e) {
+      FileUtil.closeSilent(this.connection);
+      throw e;
+    }
+    if (this.statistics != null) {
+      this.statistics.connect();
+    }
+  }
+
+  private void cancelCopy() {
+    final PGCopyOutputStream copyStream = this.copyStream;
+    this.copyStream = null;
+    this.out = null;
+    this.copyRecordCount = 0;
+    if (copyStream != null) {
+      try {
+        copyStream.cancelCopy();
+      } catch (final SQLException e) {
+        Logs.error(this, "Unable to cancel copy: " + this.copySql, e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (this.recordStore != null) {
+      try {
+        flush();
+        if (this.statistics != null) {
+          this.statistics.disconnect();
+          this.statistics = null;
+        }
+      } finally {
+        cancelCopy();
+        this.recordStore = null;
+        if (this.connection != null) {
+          final DataSource dataSource = this.connection.getDataSource();
+          try {
+            if (dataSource != null && !Transaction.isHasCurrentTransaction()) {
+              this.connection.commit();
+            }
+          } catch (final SQLException e) {
+            throw new RuntimeException("Failed to commit data:", e);
+          } finally {
+            FileUtil.closeSilent(this.connection);
+            this.connection = null;
+          }
+        }
+      }
+    }
+  }
+
+  public synchronized void commit() {
+    flush();
+    JdbcUtils.commit(this.connection);
+  }
+
+  /**
+   * End the current COPY so that the records written so far are inserted into
+   * the table.
+   */
+  @Override
+  public synchronized void flush() {
+    final PGCopyOutputStream copyStream = this.copyStream;
+    if (copyStream != null) {
+      final ChannelWriter out = this.out;
+      try {
+        out.putShort((short)-1);
+        this.byteCount += 2;
+        out.flush();
+        copyStream.endCopy();
+      } catch (final SQLException | IOException e) {
+        cancelCopy();
+        throw new RuntimeException("Unable to copy records to " + this.recordDefinition, e);
+      }
+      if (this.statistics != null) {
+        this.statistics.addCount("Insert", this.recordDefinition, this.copyRecordCount);
+      }
+      if (Logs.isDebugEnabled(this)) {
+        Logs.debug(this, getStatisticsMessage());
+      }
+      this.copyStream = null;
+      this.out = null;
+      this.copyRecordCount = 0;
+    }
+  }
+
+  public int getBufferSize() {
+    return this.bufferSize;
+  }
+
+  /**
+   * Get the number of bytes of COPY data written, including the binary format
+   * headers.
+   *
+   * @return The number of bytes.
+   */
+  public long getByteCount() {
+    return this.byteCount;
+  }
+
+  public int getFlushSize() {
+    return this.flushSize;
+  }
+
+  public long getRecordCount() {
+    return this.recordCount;
+  }
+
+  /**
+   * Get the average number of records written per second since the first
+   * record was written.
+   *
+   * @return The records per second.
+   */
+  public double getRecordsPerSecond() {
+    final long elapsedTime = System.currentTimeMillis() - this.startTime;
+    if (this.recordCount == 0 || elapsedTime <= 0) {
+      return 0;
+    } else {
+      return this.recordCount * 1000.0 / elapsedTime;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <R extends RecordStore> R getRecordStore() {
+    return (R)this.recordStore;
+  }
+
+  public String getStatisticsMessage() {
+    final long elapsedTime = System.currentTimeMillis() - this.startTime;
+    return this.recordDefinition.getPath() + " records=" + this.recordCount + " bytes="
+      + this.byteCount + " time=" + elapsedTime + "ms records/s="
+      + Math.round(getRecordsPerSecond());
+  }
+
+  private CopyValueWriter newValueWriter(final JdbcFieldDefinition field,
+    final String columnType) {
+    if (field instanceof PostgreSQLGeometryJdbcFieldDefinition) {
+      final DataType dataType = field.getDataType();
+      final PostgreSQLEwkbWriter ewkbWriter = new PostgreSQLEwkbWriter(dataType,
+        field.getGeometryFactory());
+      return (out, value) -> {
+        final Geometry geometry = ewkbWriter.prepareGeometry((Geometry)value);
+        final int geometryType = ewkbWriter.getTargetGeometryType(geometry);
+        final int size = ewkbWriter.getSize(geometry, geometryType);
+        out.putInt(size);
+        ewkbWriter.write(out, geometry, geometryType);
+        return 4 + size;
+      };
+    } else {
+      final CopyValueWriter valueWriter = VALUE_WRITER_BY_TYPE.get(columnType);
+      if (valueWriter == null) {
+        throw new IllegalArgumentException("COPY not supported for " + this.recordDefinition
+          + "." + field.getName() + " of type " + columnType);
+      } else {
+        return valueWriter;
+      }
+    }
+  }
+
+  /**
+   * Set the size of the buffer used to send the COPY data to the server.
+   *
+   * @param bufferSize The buffer size in bytes.
+   */
+  public void setBufferSize(final int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Set the number of records to write in each COPY before the COPY is ended.
+   *
+   * @param flushSize The number of records.
+   */
+  public void setFlushSize(final int flushSize) {
+    if (flushSize < 1) {
+      throw new IllegalArgumentException("flushSize must be > 0: " + flushSize);
+    }
+    this.flushSize = flushSize;
+  }
+
+  private void startCopy() throws SQLException {
+    if (this.startTime == 0) {
+      this.startTime = System.currentTimeMillis();
+    }
+    final PGConnection pgConnection = this.connection.unwrap(PGConnection.class);
+    this.copyStream = new PGCopyOutputStream(pgConnection, this.copySql, this.bufferSize);
+    final ChannelWriter out = new ChannelWriter(this.copyStream);
+    out.putBytes(COPY_SIGNATURE);
+    out.putInt(0); // Flags
+    out.putInt(0); // Header extension length
+    this.byteCount += COPY_SIGNATURE.length + 8;
+    this.out = out;
+  }
+
+  @Override
+  public String toString() {
+    return "COPY " + this.recordDefinition.getPath();
+  }
+
+  @Override
+  public synchronized void write(final Record record) {
+    if (record.getState() != RecordState.DELETED) {
+      try {
+        if (this.copyStream == null) {
+          startCopy();
+        }
+        final ChannelWriter out = this.out;
+        final CopyValueWriter[] valueWriters = this.valueWriters;
+        out.putShort((short)valueWriters.length);
+        long byteCount = 2;
+        for (int i = 0; i < valueWriters.length; i++) {
+          final Object value = record.getValue(this.fieldNames[i]);
+          if (value == null) {
+            out.putInt(-1);
+            byteCount += 4;
+          } else {
+            byteCount += valueWriters[i].write(out, value);
+          }
+        }
+        this.byteCount += byteCount;
+        this.recordCount++;
+        this.copyRecordCount++;
+      } catch (final RuntimeException | SQLException e) {
+        cancelCopy();
+        throw new RuntimeException("Unable to write\n" + record, e);
+      }
+      if (this.copyRecordCount >= this.flushSize) {
+        flush();
+      }
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.revolsys.gis.postgresql;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
@@ -13,6 +14,7 @@ import org.jeometry.common.data.identifier.Identifier;
 import org.jeometry.common.data.type.CollectionDataType;
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
+import org.postgresql.PGStatement;
 import org.postgresql.jdbc.PgConnection;
 
 import com.revolsys.collection.ResultPager;
@@ -42,6 +44,7 @@ import com.revolsys.record.query.QueryValue;
 import com.revolsys.record.query.functions.EnvelopeIntersects;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionProxy;
 import com.revolsys.record.schema.RecordStore;
 import com.revolsys.util.Property;
 
@@ -55,6 +58,8 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return new PostgreSQLJdbcQueryIterator((PostgreSQLRecordStore)recordStore, query, properties);
   }
 
+  private boolean binaryGeometry = false;
+
   private boolean useSchemaSequencePrefix = true;
 
   public PostgreSQLRecordStore() {
@@ -172,6 +177,22 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return "PostgreSQL";
   }
 
+  /**
+   * Force binary transfer of the results if binary geometry is enabled so that
+   * the EWKB bytes are not sent as hex text. The driver applies this to every
+   * column whose type it can receive as binary, not just the geometry.
+   */
+  @Override
+  public ResultSet getResultSet(final PreparedStatement statement, final Query query)
+    throws SQLException {
+    final RecordDefinition recordDefinition = query.getRecordDefinition();
+    if (this.binaryGeometry && recordDefinition != null && recordDefinition.hasGeometryField()) {
+      final PGStatement pgStatement = statement.unwrap(PGStatement.class);
+      pgStatement.setPrepareThreshold(-1);
+    }
+    return super.getResultSet(statement, query);
+  }
+
   @Override
   protected String getSequenceName(final JdbcRecordDefinition recordDefinition) {
     final JdbcRecordStoreSchema schema = recordDefinition.getSchema();
@@ -305,10 +326,27 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return POSTGRESQL_INTERNAL_SCHEMAS.contains(schemaName);
   }
 
+  public boolean isBinaryGeometry() {
+    return this.binaryGeometry;
+  }
+
   public boolean isUseSchemaSequencePrefix() {
     return this.useSchemaSequencePrefix;
   }
 
+  /**
+   * Construct a new writer that inserts records into the table using a binary
+   * COPY. This is much faster than {@link #newRecordWriter(RecordDefinitionProxy)}
+   * for bulk loading but only supports inserts.
+   *
+   * @param recordDefinition The table to insert the records into.
+   * @return The writer.
+   */
+  public PostgreSQLCopyRecordWriter newCopyRecordWriter(
+    final RecordDefinitionProxy recordDefinition) {
+    return new PostgreSQLCopyRecordWriter(this, recordDefinition);
+  }
+
   @Override
   protected JdbcFieldDefinition newRowIdFieldDefinition() {
     return new PostgreSQLOidFieldDefinition();
@@ -319,6 +357,20 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return new PostgreSQLJdbcQueryResultPager(this, getProperties(), query);
   }
 
+  /**
+   * Set if geometries are fetched as EWKB using binary transfer or as the hex
+   * text representation (default). Binary transfer is forced for the whole
+   * query, so the other columns the driver supports in binary (numbers, dates,
+   * bytea) are also sent as binary. Use the driver's
+   * {@code binaryTransferDisable} connection property to exclude types if
+   * required.
+   *
+   * @param binaryGeometry True if geometries are fetched as binary.
+   */
+  public void setBinaryGeometry(final boolean binaryGeometry) {
+    this.binaryGeometry = binaryGeometry;
+  }
+
   public void setUseSchemaSequencePrefix(final boolean useSchemaSequencePrefix) {
     this.useSchemaSequencePrefix = useSchemaSequencePrefix;
   }
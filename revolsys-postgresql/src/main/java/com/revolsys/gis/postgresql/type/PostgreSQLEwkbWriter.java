@@ -0,0 +1,267 @@
+package com.revolsys.gis.postgresql.type;
+
+import org.jeometry.common.data.type.DataType;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Lineal;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.Punctual;
+import com.revolsys.io.channels.ChannelWriter;
+
+/**
+ * Write geometries in the PostGIS big endian EWKB format directly from the
+ * geometry coordinates. The size of the EWKB can be calculated before writing
+ * so it can be written with a length prefix without an intermediate buffer.
+ *
+ * Single part geometries are written as multi part geometries (and multi part
+ * geometries with one part as single part geometries) to match the field's
+ * data type.
+ */
+public class PostgreSQLEwkbWriter {
+
+  private static final int EWKB_M = 0x40000000;
+
+  private static final int EWKB_SRID = 0x20000000;
+
+  private static final int EWKB_Z = 0x80000000;
+
+  private static final int TYPE_GEOMETRY_COLLECTION = 7;
+
+  private static final int TYPE_LINE_STRING = 2;
+
+  private static final int TYPE_MULTI_LINE_STRING = 5;
+
+  private static final int TYPE_MULTI_POINT = 4;
+
+  private static final int TYPE_MULTI_POLYGON = 6;
+
+  private static final int TYPE_POINT = 1;
+
+  private static final int TYPE_POLYGON = 3;
+
+  private static int getGeometryType(final Geometry geometry) {
+    if (geometry instanceof Point) {
+      return TYPE_POINT;
+    } else if (geometry instanceof LineString) {
+      return TYPE_LINE_STRING;
+    } else if (geometry instanceof Polygon) {
+      return TYPE_POLYGON;
+    } else if (geometry instanceof Punctual) {
+      return TYPE_MULTI_POINT;
+    } else if (geometry instanceof Lineal) {
+      return TYPE_MULTI_LINE_STRING;
+    } else if (geometry instanceof Polygonal) {
+      return TYPE_MULTI_POLYGON;
+    } else {
+      return TYPE_GEOMETRY_COLLECTION;
+    }
+  }
+
+  private final int axisCount;
+
+  private final DataType dataType;
+
+  private final GeometryFactory geometryFactory;
+
+  private final int srid;
+
+  private final int typeFlags;
+
+  public PostgreSQLEwkbWriter(final DataType dataType, final GeometryFactory geometryFactory) {
+    this.dataType = dataType;
+    this.geometryFactory = geometryFactory;
+    this.axisCount = geometryFactory.getAxisCount();
+    this.srid = geometryFactory.getHorizontalCoordinateSystemId();
+    int typeFlags = 0;
+    if (this.axisCount > 3) {
+      typeFlags |= EWKB_Z | EWKB_M;
+    } else if (this.axisCount > 2) {
+      typeFlags |= EWKB_Z;
+    }
+    this.typeFlags = typeFlags;
+  }
+
+  private int getCoordinatesSize(final int vertexCount) {
+    return vertexCount * this.axisCount * 8;
+  }
+
+  private int getPartSize(final Geometry geometry, final int geometryType) {
+    int size = 1 + 4;
+    switch (geometryType) {
+      case TYPE_POINT:
+        size += getCoordinatesSize(1);
+      break;
+      case TYPE_LINE_STRING:
+        size += 4 + getCoordinatesSize(((LineString)geometry).getVertexCount());
+      break;
+      case TYPE_POLYGON:
+        final Polygon polygon = (Polygon)geometry;
+        size += 4;
+        for (int ringIndex = 0; ringIndex < polygon.getRingCount(); ringIndex++) {
+          size += 4 + getCoordinatesSize(polygon.getRing(ringIndex).getVertexCount());
+        }
+      break;
+      default:
+        size += 4;
+        for (int partIndex = 0; partIndex < geometry.getGeometryCount(); partIndex++) {
+          final Geometry partGeometry = geometry.getGeometry(partIndex);
+          size += getPartSize(partGeometry, getGeometryType(partGeometry));
+        }
+      break;
+    }
+    return size;
+  }
+
+  /**
+   * Get the number of bytes that {@link #write(ChannelWriter, Geometry, int)}
+   * will write for the geometry.
+   *
+   * @param geometry The geometry returned from {@link #prepareGeometry(Geometry)}.
+   * @param geometryType The geometry type returned from {@link #getTargetGeometryType(Geometry)}.
+   * @return The size in bytes.
+   */
+  public int getSize(final Geometry geometry, final int geometryType) {
+    int size = getPartSize(geometry, geometryType);
+    if (this.srid > 0) {
+      size += 4;
+    }
+    return size;
+  }
+
+  /**
+   * Get the EWKB geometry type to write the geometry as for the field's data
+   * type.
+   *
+   * @param geometry The geometry returned from {@link #prepareGeometry(Geometry)}.
+   * @return The EWKB geometry type.
+   */
+  public int getTargetGeometryType(final Geometry geometry) {
+    final int geometryType = getGeometryType(geometry);
+    if (this.dataType == GeometryDataTypes.MULTI_POINT) {
+      return TYPE_MULTI_POINT;
+    } else if (this.dataType == GeometryDataTypes.MULTI_LINE_STRING) {
+      return TYPE_MULTI_LINE_STRING;
+    } else if (this.dataType == GeometryDataTypes.MULTI_POLYGON) {
+      return TYPE_MULTI_POLYGON;
+    } else {
+      return geometryType;
+    }
+  }
+
+  /**
+   * Convert the geometry to the field's geometry factory and for single part
+   * fields extract the part from a multi part geometry with one part.
+   *
+   * @param geometry The geometry.
+   * @return The geometry to write.
+   */
+  public Geometry prepareGeometry(final Geometry geometry) {
+    Geometry convertedGeometry = geometry.convertGeometry(this.geometryFactory);
+    if (this.dataType == GeometryDataTypes.POINT || this.dataType == GeometryDataTypes.LINE_STRING
+      || this.dataType == GeometryDataTypes.LINEAR_RING
+      || this.dataType == GeometryDataTypes.POLYGON) {
+      if (convertedGeometry.isGeometryCollection()) {
+        if (convertedGeometry.getGeometryCount() == 1) {
+          convertedGeometry = convertedGeometry.getGeometry(0);
+        } else {
+          throw new IllegalArgumentException(this.dataType + " must only have one part not "
+            + convertedGeometry.getGeometryCount());
+        }
+      }
+    }
+    return convertedGeometry;
+  }
+
+  private void write(final ChannelWriter out, final Geometry geometry, final int geometryType,
+    final boolean part) {
+    out.putByte((byte)0);
+    if (part || this.srid <= 0) {
+      out.putInt(geometryType | this.typeFlags);
+    } else {
+      out.putInt(geometryType | this.typeFlags | EWKB_SRID);
+      out.putInt(this.srid);
+    }
+    switch (geometryType) {
+      case TYPE_POINT:
+        writePoint(out, (Point)geometry);
+      break;
+      case TYPE_LINE_STRING:
+        writeLineString(out, (LineString)geometry, false);
+      break;
+      case TYPE_POLYGON:
+        writePolygon(out, (Polygon)geometry);
+      break;
+      default:
+        final int partCount = geometry.getGeometryCount();
+        out.putInt(partCount);
+        for (int partIndex = 0; partIndex < partCount; partIndex++) {
+          final Geometry partGeometry = geometry.getGeometry(partIndex);
+          write(out, partGeometry, getGeometryType(partGeometry), true);
+        }
+      break;
+    }
+  }
+
+  /**
+   * Write the geometry.
+   *
+   * @param out The writer to write to.
+   * @param geometry The geometry returned from {@link #prepareGeometry(Geometry)}.
+   * @param geometryType The geometry type returned from {@link #getTargetGeometryType(Geometry)}.
+   */
+  public void write(final ChannelWriter out, final Geometry geometry, final int geometryType) {
+    write(out, geometry, geometryType, false);
+  }
+
+  private void writeLineString(final ChannelWriter out, final LineString line,
+    final boolean reverse) {
+    final int axisCount = this.axisCount;
+    final int vertexCount = line.getVertexCount();
+    out.putInt(vertexCount);
+    if (reverse) {
+      for (int vertexIndex = vertexCount - 1; vertexIndex >= 0; vertexIndex--) {
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          out.putDouble(line.getCoordinate(vertexIndex, axisIndex));
+        }
+      }
+    } else {
+      for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          out.putDouble(line.getCoordinate(vertexIndex, axisIndex));
+        }
+      }
+    }
+  }
+
+  private void writePoint(final ChannelWriter out, final Point point) {
+    final int axisCount = this.axisCount;
+    if (point.isEmpty()) {
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        out.putDouble(Double.NaN);
+      }
+    } else {
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        out.putDouble(point.getCoordinate(axisIndex));
+      }
+    }
+  }
+
+  private void writePolygon(final ChannelWriter out, final Polygon polygon) {
+    final int ringCount = polygon.getRingCount();
+    out.putInt(ringCount);
+    for (int ringIndex = 0; ringIndex < ringCount; ringIndex++) {
+      final LineString ring = polygon.getRing(ringIndex);
+      final boolean clockwise = ring.isClockwise();
+      if (ringIndex == 0) {
+        writeLineString(out, ring, clockwise);
+      } else {
+        writeLineString(out, ring, !clockwise);
+      }
+    }
+  }
+}
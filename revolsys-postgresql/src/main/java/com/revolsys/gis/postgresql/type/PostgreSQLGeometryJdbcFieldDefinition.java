@@ -1,5 +1,6 @@
 package com.revolsys.gis.postgresql.type;
 
+import java.nio.ByteBuffer;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -11,7 +12,11 @@ import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryDataTypes;
 import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.wkb.WkbByteBufferReader;
+import com.revolsys.gis.postgresql.PostgreSQLRecordStore;
 import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordStore;
 import com.revolsys.util.Property;
 
 public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
@@ -29,6 +34,22 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
     setGeometryFactory(geometryFactory.convertAxisCount(axisCount));
   }
 
+  /**
+   * Select the geometry as EWKB bytes if binary geometry is enabled for the
+   * record store, avoiding the hex text encoding of the geometry.
+   */
+  @Override
+  public void appendSelectColumnName(final StringBuilder sql, final String tablePrefix) {
+    if (isBinaryGeometry()) {
+      sql.append("ST_AsEWKB(");
+      super.appendSelectColumnName(sql, tablePrefix);
+      sql.append(") AS ");
+      appendColumnName(sql);
+    } else {
+      super.appendSelectColumnName(sql, tablePrefix);
+    }
+  }
+
   @Override
   public JdbcFieldDefinition clone() {
     final GeometryFactory geometryFactory = getGeometryFactory();
@@ -68,6 +89,17 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
     return value;
   }
 
+  private boolean isBinaryGeometry() {
+    final RecordDefinition recordDefinition = getRecordDefinition();
+    if (recordDefinition != null) {
+      final RecordStore recordStore = recordDefinition.getRecordStore();
+      if (recordStore instanceof PostgreSQLRecordStore) {
+        return ((PostgreSQLRecordStore)recordStore).isBinaryGeometry();
+      }
+    }
+    return false;
+  }
+
   @Override
   public void setGeometryFactory(final GeometryFactory geometryFactory) {
     if (geometryFactory != null) {
@@ -102,7 +134,16 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
   }
 
   public Object toJava(final Object object) throws SQLException {
-    if (object instanceof PostgreSQLGeometryWrapper) {
+    if (object instanceof byte[]) {
+      final GeometryFactory geometryFactory = getGeometryFactory();
+      final ByteBuffer data = ByteBuffer.wrap((byte[])object);
+      final Geometry geometry = WkbByteBufferReader.readGeometry(geometryFactory, data);
+      if (geometryFactory.isSameCoordinateSystem(geometry.getGeometryFactory())) {
+        return geometry;
+      } else {
+        return geometry.convertGeometry(geometryFactory);
+      }
+    } else if (object instanceof PostgreSQLGeometryWrapper) {
       final PostgreSQLGeometryWrapper geometryType = (PostgreSQLGeometryWrapper)object;
       final GeometryFactory geometryFactory = getGeometryFactory();
       final Geometry geometry = geometryType.getGeometry(geometryFactory);
@@ -6,13 +6,17 @@ import org.junit.runners.Suite.SuiteClasses;
 
 import com.revolsys.core.test.elevation.test.ElevationTestSuite;
 import com.revolsys.core.test.geometry.test.GeometryTestSuite;
+import com.revolsys.core.test.jdbc.JdbcTestSuite;
+import com.revolsys.core.test.parallel.ParallelTestSuite;
 import com.revolsys.core.test.record.io.test.RecordIoTestSuite;
 
 @RunWith(Suite.class)
 @SuiteClasses({
   GeometryTestSuite.class, //
   ElevationTestSuite.class, //
-  RecordIoTestSuite.class
+  RecordIoTestSuite.class, //
+  ParallelTestSuite.class, //
+  JdbcTestSuite.class
 })
 public class AllTestSuite {
 }
@@ -0,0 +1,118 @@
+package com.revolsys.core.test.collection.map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.SizeBoundedLruCache;
+
+public class SizeBoundedLruCacheTest {
+
+  @Test
+  public void testConcurrentLoad() throws InterruptedException {
+    final int keyCount = 10;
+    final int threadCount = 16;
+    final SizeBoundedLruCache<Integer, int[]> cache = new SizeBoundedLruCache<>(1024 * 1024,
+      value -> value.length * 4L);
+    final AtomicIntegerArray loadCounts = new AtomicIntegerArray(keyCount);
+    final AtomicReferenceArray<int[]> values = new AtomicReferenceArray<>(keyCount);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      final Thread thread = new Thread(() -> {
+        try {
+          start.await();
+          for (int key = 0; key < keyCount; key++) {
+            final int[] value = cache.getOrLoad(key, k -> {
+              loadCounts.incrementAndGet(k);
+              try {
+                // Keep the load running so the other threads request the key
+                Thread.sleep(20);
+              } catch (final InterruptedException e) {
+              }
+              return new int[] {
+                k
+              };
+            });
+            Assert.assertEquals("Value", key, value[0]);
+            values.compareAndSet(key, null, value);
+            Assert.assertSame("Same value " + key, values.get(key), value);
+          }
+        } catch (final Throwable e) {
+          error.set(e);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (final Thread thread : threads) {
+      thread.join(60000);
+      Assert.assertFalse("Finished", thread.isAlive());
+    }
+    Assert.assertNull("Error", error.get());
+    for (int key = 0; key < keyCount; key++) {
+      Assert.assertEquals("Load count " + key, 1, loadCounts.get(key));
+    }
+    Assert.assertEquals("Request count", keyCount * threadCount,
+      cache.getHitCount() + cache.getMissCount());
+    Assert.assertEquals("Size", keyCount, cache.size());
+  }
+
+  @Test
+  public void testLoadException() {
+    final SizeBoundedLruCache<Integer, int[]> cache = new SizeBoundedLruCache<>(1024,
+      value -> value.length * 4L);
+    try {
+      cache.getOrLoad(1, k -> {
+        throw new IllegalStateException("Load failed");
+      });
+      Assert.fail("Expected exception");
+    } catch (final RuntimeException e) {
+      Throwable cause = e;
+      while (cause != null && !(cause instanceof IllegalStateException)) {
+        cause = cause.getCause();
+      }
+      Assert.assertNotNull("Loader exception " + e, cause);
+      Assert.assertEquals("Message", "Load failed", cause.getMessage());
+    }
+    // A failed load is not cached so the next request loads the value
+    final int[] value = cache.getOrLoad(1, k -> new int[] {
+      k
+    });
+    Assert.assertEquals("Value", 1, value[0]);
+    Assert.assertSame("Cached", value, cache.get(1));
+  }
+
+  @Test
+  public void testMaxSize() {
+    final SizeBoundedLruCache<Integer, int[]> cache = new SizeBoundedLruCache<>(4096,
+      value -> value.length * 4L);
+    for (int i = 0; i < 10; i++) {
+      cache.getOrLoad(i, k -> new int[256]);
+      if (i > 0) {
+        // Keep key 0 the most recently used
+        cache.get(0);
+      }
+    }
+    Assert.assertEquals("Count", 4, cache.size());
+    Assert.assertEquals("Size", 4096, cache.getSize());
+    Assert.assertEquals("Eviction count", 6, cache.getEvictionCount());
+    Assert.assertNotNull("Recently used", cache.get(0));
+    Assert.assertNull("Least recently used", cache.get(1));
+
+    // Values larger than the cache are not cached
+    cache.getOrLoad(100, k -> new int[2048]);
+    Assert.assertNull("Too large", cache.get(100));
+
+    cache.setMaxSize(0);
+    Assert.assertEquals("Size", 0, cache.getSize());
+  }
+}
@@ -0,0 +1,84 @@
+package com.revolsys.core.test.collection.map;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.StripedSizeBoundedLruCache;
+
+public class StripedSizeBoundedLruCacheTest {
+
+  @Test
+  public void testConcurrentLoad() {
+    final StripedSizeBoundedLruCache<Integer, int[]> cache = new StripedSizeBoundedLruCache<>(
+      1024 * 1024, value -> value.length * 4L, 8);
+    final AtomicInteger loadCount = new AtomicInteger();
+    IntStream.range(0, 100000).parallel().forEach(i -> {
+      final int key = i % 100;
+      final int[] value = cache.getOrLoad(key, k -> {
+        loadCount.incrementAndGet();
+        return new int[] {
+          k
+        };
+      });
+      Assert.assertEquals("Value", key, value[0]);
+    });
+    Assert.assertEquals("Load count", 100, loadCount.get());
+    // Threads waiting for another thread to load the value are also misses
+    Assert.assertTrue("Miss count", cache.getMissCount() >= 100);
+    Assert.assertEquals("Request count", 100000, cache.getHitCount() + cache.getMissCount());
+    Assert.assertEquals("Eviction count", 0, cache.getEvictionCount());
+  }
+
+  /**
+   * Values larger than a stripe's share of a small maximum size are cached once
+   * the number of stripes is reduced.
+   */
+  @Test
+  public void testEnsureValueSize() {
+    final StripedSizeBoundedLruCache<Integer, int[]> cache = new StripedSizeBoundedLruCache<>(
+      4096, value -> value.length * 4L, 16);
+    Assert.assertEquals("Stripe count", 16, cache.getStripeCount());
+    cache.getOrLoad(1, k -> new int[256]);
+    Assert.assertNull("Too large for stripe", cache.get(1));
+
+    cache.ensureValueSize(1024);
+    Assert.assertEquals("Stripe count", 4, cache.getStripeCount());
+    cache.clearStatistics();
+    final int[] value = cache.getOrLoad(1, k -> new int[256]);
+    Assert.assertSame("Cached", value, cache.getOrLoad(1, k -> new int[256]));
+    Assert.assertEquals("Hit count", 1, cache.getHitCount());
+    Assert.assertEquals("Miss count", 1, cache.getMissCount());
+
+    // A smaller maximum size reduces the number of stripes so the value still fits
+    cache.setMaxSize(2048);
+    Assert.assertEquals("Stripe count", 2, cache.getStripeCount());
+    Assert.assertSame("Cached", cache.getOrLoad(1, k -> new int[256]),
+      cache.getOrLoad(1, k -> new int[256]));
+
+    // Larger than the maximum size uses one stripe
+    cache.ensureValueSize(8192);
+    Assert.assertEquals("Stripe count", 1, cache.getStripeCount());
+  }
+
+  @Test
+  public void testMaxSize() {
+    final StripedSizeBoundedLruCache<Integer, int[]> cache = new StripedSizeBoundedLruCache<>(
+      4 * 4096, value -> value.length * 4L, 4);
+    Assert.assertEquals("Stripe count", 4, cache.getStripeCount());
+    for (int i = 0; i < 100; i++) {
+      cache.getOrLoad(i, k -> new int[256]);
+    }
+    Assert.assertTrue("Size " + cache.getSize(), cache.getSize() <= cache.getMaxSize());
+    Assert.assertEquals("Eviction count", 100 - cache.size(), cache.getEvictionCount());
+
+    cache.setMaxSize(0);
+    Assert.assertEquals("Size", 0, cache.getSize());
+    Assert.assertEquals("Eviction count", 100, cache.getEvictionCount());
+
+    cache.clearStatistics();
+    Assert.assertEquals("Miss count", 0, cache.getMissCount());
+  }
+}
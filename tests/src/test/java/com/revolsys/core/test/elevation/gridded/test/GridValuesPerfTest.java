@@ -0,0 +1,68 @@
+package com.revolsys.core.test.elevation.gridded.test;
+
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.IntArrayScaleGriddedElevationModel;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.util.Stopwatch;
+import com.revolsys.grid.GridInterpolation;
+
+/**
+ * Compare the time to get the values for random locations using the single
+ * location methods and the bulk getValues methods.
+ */
+public class GridValuesPerfTest {
+
+  private static final int RUN_COUNT = 3;
+
+  public static void main(final String args[]) {
+    final GeometryFactory geometryFactory = GeometryFactory.fixed3d(3005, 1000.0, 1000.0, 1000.0);
+    final GriddedElevationModel model = new IntArrayScaleGriddedElevationModel(geometryFactory, 0,
+      0, 2000, 2000, 1);
+    for (int gridY = 0; gridY < model.getGridHeight(); gridY++) {
+      for (int gridX = 0; gridX < model.getGridWidth(); gridX++) {
+        model.setValue(gridX, gridY, Math.sin(gridX / 50.0) * Math.cos(gridY / 70.0) * 100);
+      }
+    }
+    for (final int count : new int[] {
+      10000, 1000000, 10000000
+    }) {
+      final GridValuesPerfTest test = new GridValuesPerfTest(model, count);
+      for (int i = 0; i < RUN_COUNT; i++) {
+        test.run();
+      }
+    }
+  }
+
+  private final GriddedElevationModel model;
+
+  private final double[] xCoordinates;
+
+  private final double[] yCoordinates;
+
+  private final double[] values;
+
+  public GridValuesPerfTest(final GriddedElevationModel model, final int count) {
+    this.model = model;
+    this.xCoordinates = GridValuesTest.newCoordinates(count, 1, 0, 2000);
+    this.yCoordinates = GridValuesTest.newCoordinates(count + 1, 1, 0, 2000);
+    this.values = new double[count];
+  }
+
+  public void run() {
+    for (final GridInterpolation interpolation : GridInterpolation.values()) {
+      Stopwatch stopwatch = new Stopwatch();
+      double sum = 0;
+      for (int i = 0; i < this.values.length; i++) {
+        sum += GridValuesTest.getValue(this.model, interpolation, this.xCoordinates[i],
+          this.yCoordinates[i]);
+      }
+      final long pointTime = stopwatch.stop();
+
+      stopwatch = new Stopwatch();
+      this.model.getValues(interpolation, this.xCoordinates, this.yCoordinates, this.values);
+      final long bulkTime = stopwatch.stop();
+      System.out.println(this.values.length + "\t" + interpolation + "\tpoint=" + pointTime
+        + "ms\tbulk=" + bulkTime + "ms\t" + sum);
+    }
+  }
+}
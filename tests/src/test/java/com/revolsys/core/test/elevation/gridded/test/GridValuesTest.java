@@ -0,0 +1,88 @@
+package com.revolsys.core.test.elevation.gridded.test;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.grid.Grid;
+import com.revolsys.grid.GridInterpolation;
+
+/**
+ * Check the bulk {@link Grid#getValues(GridInterpolation, double[], double[], double[])}
+ * methods return the same values as the single location methods.
+ */
+public class GridValuesTest {
+
+  static double getValue(final Grid grid, final GridInterpolation interpolation, final double x,
+    final double y) {
+    switch (interpolation) {
+      case CELL:
+        return grid.getValue(x, y);
+      case NEAREST_NEIGHBOUR:
+        return grid.getValueNearestNeighbour(x, y);
+      case BILINEAR:
+        return grid.getValueBilinear(x, y);
+      case BICUBIC:
+        return grid.getValueBicubic(x, y);
+      default:
+        throw new IllegalArgumentException(interpolation.toString());
+    }
+  }
+
+  static double[] newCoordinates(final int count, final int axisCount, final double min,
+    final double max) {
+    final Random random = new Random(count);
+    final double[] coordinates = new double[count * axisCount];
+    for (int i = 0; i < coordinates.length; i++) {
+      coordinates[i] = min + random.nextDouble() * (max - min);
+    }
+    return coordinates;
+  }
+
+  @Test
+  public void testLineString() {
+    final GriddedElevationModel model = GriddedElevationModelTest
+      .newIntArrayModelNaNOnDiagonal(3005);
+    final double[] coordinates = newCoordinates(1000, 3, 0, 255);
+    final LineString line = model.getGeometryFactory().lineString(3, coordinates);
+    for (final GridInterpolation interpolation : GridInterpolation.values()) {
+      final double[] values = model.getValues(interpolation, line);
+      Assert.assertEquals("Value count", line.getVertexCount(), values.length);
+      for (int i = 0; i < values.length; i++) {
+        final double expected = getValue(model, interpolation, line.getX(i), line.getY(i));
+        Assert.assertEquals(interpolation + " " + i, expected, values[i], 0);
+      }
+    }
+  }
+
+  @Test
+  public void testValues() {
+    final GriddedElevationModel model = GriddedElevationModelTest
+      .newIntArrayModelNaNOnDiagonal(3005);
+    // Enough locations to be split into parallel blocks, some outside the grid
+    final int count = 20000;
+    final double[] xCoordinates = newCoordinates(count, 1, -3, 258);
+    final double[] yCoordinates = newCoordinates(count + 1, 1, -3, 258);
+    final double[] coordinates = new double[count * 2];
+    for (int i = 0; i < count; i++) {
+      coordinates[i * 2] = xCoordinates[i];
+      coordinates[i * 2 + 1] = yCoordinates[i];
+    }
+    for (final GridInterpolation interpolation : GridInterpolation.values()) {
+      final double[] values = model.getValues(interpolation, xCoordinates, yCoordinates,
+        new double[count]);
+      final double[] values2 = model.getValues(interpolation, coordinates, 2, new double[count]);
+      for (int i = 0; i < count; i++) {
+        final double x = xCoordinates[i];
+        final double y = yCoordinates[i];
+        final double expected = getValue(model, interpolation, x, y);
+        final String message = interpolation + " POINT(" + x + " " + y + ")";
+        Assert.assertEquals(message, expected, values[i], 0);
+        Assert.assertEquals(message, expected, values2[i], 0);
+      }
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.revolsys.core.test.elevation.gridded.test;
+
+import java.awt.image.DataBufferInt;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.rasterizer.ColorGradientGriddedElevationModelRasterizer;
+import com.revolsys.elevation.gridded.rasterizer.GriddedElevationModelRasterizer;
+import com.revolsys.elevation.gridded.rasterizer.HillShadeGriddedElevationModelRasterizer;
+import com.revolsys.elevation.gridded.rasterizer.SlopeColorGradientGriddedElevationModelRasterizer;
+
+/**
+ * Check the banded (and parallel) rasterize returns the same pixels as
+ * rasterizing each cell.
+ */
+public class GriddedElevationModelRasterizerTest {
+
+  private static void assertRasterize(final GriddedElevationModelRasterizer rasterizer) {
+    final int width = rasterizer.getWidth();
+    final int height = rasterizer.getHeight();
+    final DataBufferInt imageBuffer = new DataBufferInt(width * height);
+    rasterizer.rasterize(imageBuffer);
+    for (int index = 0; index < width * height; index++) {
+      final int expected = rasterizer.getValue(index);
+      Assert.assertEquals(rasterizer.getName() + " " + index, expected, imageBuffer.getElem(index));
+    }
+  }
+
+  @Test
+  public void testColorGradient() {
+    final GriddedElevationModel model = GriddedElevationModelTest
+      .newIntArrayModelNaNOnDiagonal(3005);
+    assertRasterize(new ColorGradientGriddedElevationModelRasterizer(model));
+  }
+
+  @Test
+  public void testHillShade() {
+    final GriddedElevationModel model = GriddedElevationModelTest
+      .newIntArrayModelNaNOnDiagonal(3005);
+    assertRasterize(new HillShadeGriddedElevationModelRasterizer(model));
+  }
+
+  @Test
+  public void testSlopeColorGradient() {
+    final GriddedElevationModel model = GriddedElevationModelTest
+      .newIntArrayModelNaNOnDiagonal(3005);
+    assertRasterize(new SlopeColorGradientGriddedElevationModelRasterizer(model));
+  }
+}
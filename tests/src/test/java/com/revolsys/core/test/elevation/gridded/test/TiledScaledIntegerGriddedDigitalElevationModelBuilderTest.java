@@ -0,0 +1,58 @@
+package com.revolsys.core.test.elevation.gridded.test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.elevation.gridded.scaledint.TiledScaledIntegerGriddedDigitalElevationModel;
+import com.revolsys.elevation.gridded.scaledint.TiledScaledIntegerGriddedDigitalElevationModelBuilder;
+import com.revolsys.geometry.model.GeometryFactory;
+
+public class TiledScaledIntegerGriddedDigitalElevationModelBuilderTest {
+
+  private static double getElevation(final double x, final double y) {
+    return 100 + x * 0.1 + y * 0.2;
+  }
+
+  /**
+   * Build a model from random points on a plane, with a small point buffer so
+   * the points are written to the temporary files. Cells inside the points
+   * must have the elevation of the plane including along the tile edges.
+   */
+  @Test
+  public void testBuildPlane() {
+    final GeometryFactory geometryFactory = GeometryFactory.fixed3d(3005, 1000.0, 1000.0, 1000.0);
+    final Path baseDirectory = Paths.get("target/test/elevation/tiled");
+    com.revolsys.io.file.Paths.deleteDirectories(baseDirectory);
+    final int gridTileSize = 50;
+    final double minX = 1000;
+    final double minY = 2000;
+    final double size = 200;
+    try (
+      TiledScaledIntegerGriddedDigitalElevationModelBuilder builder = new TiledScaledIntegerGriddedDigitalElevationModelBuilder(
+        baseDirectory, "plane", geometryFactory, gridTileSize, 1)) {
+      builder.setMaxBufferedPointCount(1000);
+      builder.addPoint(minX, minY, getElevation(minX, minY));
+      builder.addPoint(minX + size, minY, getElevation(minX + size, minY));
+      builder.addPoint(minX, minY + size, getElevation(minX, minY + size));
+      builder.addPoint(minX + size, minY + size, getElevation(minX + size, minY + size));
+      final Random random = new Random(1);
+      for (int i = 0; i < 20000; i++) {
+        final double x = minX + random.nextDouble() * size;
+        final double y = minY + random.nextDouble() * size;
+        builder.addPoint(x, y, getElevation(x, y));
+      }
+      final TiledScaledIntegerGriddedDigitalElevationModel model = builder.build();
+      for (int gridY = 2001; gridY < 2199; gridY++) {
+        for (int gridX = 1001; gridX < 1199; gridX++) {
+          final double elevation = model.getValue(gridX, gridY);
+          Assert.assertEquals(gridX + "," + gridY, getElevation(gridX, gridY), elevation, 0.002);
+        }
+      }
+      Assert.assertTrue("Outside", Double.isNaN(model.getValue(500, 500)));
+    }
+  }
+}
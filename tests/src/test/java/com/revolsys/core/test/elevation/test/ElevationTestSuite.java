@@ -5,12 +5,22 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.revolsys.core.test.elevation.gridded.test.EsriAsciiGriddedElevationModelTest;
+import com.revolsys.core.test.elevation.gridded.test.GridValuesTest;
+import com.revolsys.core.test.elevation.gridded.test.GriddedElevationModelRasterizerTest;
 import com.revolsys.core.test.elevation.gridded.test.ScaledIntegerGriddedDigitalElevationModelTest;
+import com.revolsys.core.test.elevation.gridded.test.TiledScaledIntegerGriddedDigitalElevationModelBuilderTest;
+import com.revolsys.core.test.evelvation.tin.test.IntDivideAndConquerDelaunayTinBuilderTest;
+import com.revolsys.core.test.evelvation.tin.test.MappedScaledIntegerTriangulatedIrregularNetworkTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({
   ScaledIntegerGriddedDigitalElevationModelTest.class, //
-  EsriAsciiGriddedElevationModelTest.class //
+  EsriAsciiGriddedElevationModelTest.class, //
+  GridValuesTest.class, //
+  GriddedElevationModelRasterizerTest.class, //
+  TiledScaledIntegerGriddedDigitalElevationModelBuilderTest.class, //
+  IntDivideAndConquerDelaunayTinBuilderTest.class, //
+  MappedScaledIntegerTriangulatedIrregularNetworkTest.class //
 })
 public class ElevationTestSuite {
 
@@ -0,0 +1,135 @@
+package com.revolsys.core.test.evelvation.tin.test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.elevation.tin.IntArrayScaleTriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.quadedge.intscale.IntDivideAndConquerDelaunayTinBuilder;
+import com.revolsys.geometry.model.GeometryFactory;
+
+public class IntDivideAndConquerDelaunayTinBuilderTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed3d(3005, 1000.0,
+    1000.0, 1000.0);
+
+  private static void assertDelaunay(final IntDivideAndConquerDelaunayTinBuilder builder,
+    final List<int[]> points) {
+    builder.forEachTriangleInt((x1, y1, z1, x2, y2, z2, x3, y3, z3) -> {
+      for (final int[] point : points) {
+        Assert.assertFalse("Point inside circumcircle",
+          inCircle(x1, y1, x2, y2, x3, y3, point[0], point[1]));
+      }
+    });
+  }
+
+  private static boolean inCircle(final long ax, final long ay, final long bx, final long by,
+    final long cx, final long cy, final long dx, final long dy) {
+    final BigInteger adx = BigInteger.valueOf(ax - dx);
+    final BigInteger ady = BigInteger.valueOf(ay - dy);
+    final BigInteger bdx = BigInteger.valueOf(bx - dx);
+    final BigInteger bdy = BigInteger.valueOf(by - dy);
+    final BigInteger cdx = BigInteger.valueOf(cx - dx);
+    final BigInteger cdy = BigInteger.valueOf(cy - dy);
+    final BigInteger alift = adx.multiply(adx).add(ady.multiply(ady));
+    final BigInteger blift = bdx.multiply(bdx).add(bdy.multiply(bdy));
+    final BigInteger clift = cdx.multiply(cdx).add(cdy.multiply(cdy));
+    return alift.multiply(bdx.multiply(cdy).subtract(cdx.multiply(bdy)))
+      .add(blift.multiply(cdx.multiply(ady).subtract(adx.multiply(cdy))))
+      .add(clift.multiply(adx.multiply(bdy).subtract(bdx.multiply(ady))))
+      .signum() > 0;
+  }
+
+  private static IntDivideAndConquerDelaunayTinBuilder newBuilder(final List<int[]> points,
+    final int parallelThreshold) {
+    final IntDivideAndConquerDelaunayTinBuilder builder = new IntDivideAndConquerDelaunayTinBuilder(
+      GEOMETRY_FACTORY).setParallelThreshold(parallelThreshold);
+    for (final int[] point : points) {
+      builder.insertVertex(point[0], point[1], point[2]);
+    }
+    return builder;
+  }
+
+  private static Set<String> toTriangles(final IntDivideAndConquerDelaunayTinBuilder builder) {
+    final Set<String> triangles = new HashSet<>();
+    builder.forEachTriangleInt((x1, y1, z1, x2, y2, z2, x3, y3, z3) -> {
+      final double area = ((double)x2 - x1) * ((double)y3 - y1)
+        - ((double)y2 - y1) * ((double)x3 - x1);
+      Assert.assertTrue("Counter clockwise", area > 0);
+      final List<String> vertices = new ArrayList<>();
+      vertices.add(x1 + "," + y1 + "," + z1);
+      vertices.add(x2 + "," + y2 + "," + z2);
+      vertices.add(x3 + "," + y3 + "," + z3);
+      vertices.sort(null);
+      triangles.add(vertices.toString());
+    });
+    return triangles;
+  }
+
+  @Test
+  public void testCollinearAndDuplicate() {
+    final List<int[]> points = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      points.add(new int[] {
+        i * 3, i * 2, i
+      });
+      points.add(new int[] {
+        i * 3, i * 2, -i
+      });
+    }
+    final IntDivideAndConquerDelaunayTinBuilder builder = newBuilder(points, 4);
+    Assert.assertEquals("Triangle Count", 0,
+      builder.newTriangulatedIrregularNetwork().getTriangleCount());
+    Assert.assertEquals("Vertex Count", 20, builder.getVertexCount());
+  }
+
+  /**
+   * A grid has 4 co-circular points for every cell so there are 2 triangles
+   * per cell.
+   */
+  @Test
+  public void testGrid() {
+    final List<int[]> points = new ArrayList<>();
+    for (int y = 0; y < 30; y++) {
+      for (int x = 0; x < 30; x++) {
+        points.add(new int[] {
+          x * 1000, y * 1000, x + y
+        });
+      }
+    }
+    final IntDivideAndConquerDelaunayTinBuilder builder = newBuilder(points, 50);
+    final IntArrayScaleTriangulatedIrregularNetwork tin = builder
+      .newTriangulatedIrregularNetwork();
+    Assert.assertEquals("Triangle Count", 29 * 29 * 2, tin.getTriangleCount());
+    assertDelaunay(builder, points);
+  }
+
+  /**
+   * The parallel triangulation must have the same triangles as the sequential
+   * one and all triangles must have an empty circumcircle.
+   */
+  @Test
+  public void testRandomParallel() {
+    final Random random = new Random(1);
+    final List<int[]> points = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      points.add(new int[] {
+        random.nextInt(1000000), random.nextInt(1000000), i
+      });
+    }
+    final IntDivideAndConquerDelaunayTinBuilder sequential = newBuilder(points,
+      Integer.MAX_VALUE);
+    final IntDivideAndConquerDelaunayTinBuilder parallel = newBuilder(points, 100);
+    final Set<String> triangles = toTriangles(sequential);
+    Assert.assertEquals("Triangles", triangles, toTriangles(parallel));
+    Assert.assertEquals("Triangle Count", triangles.size(),
+      parallel.newTriangulatedIrregularNetwork().getTriangleCount());
+    assertDelaunay(parallel, points);
+  }
+}
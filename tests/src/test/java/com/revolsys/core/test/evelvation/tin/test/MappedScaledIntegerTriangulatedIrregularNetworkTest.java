@@ -0,0 +1,67 @@
+package com.revolsys.core.test.evelvation.tin.test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.LinkedHashMapEx;
+import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.compactbinary.MappedScaledIntegerTriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.compactbinary.ScaledIntegerTriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.quadedge.intscale.IntDivideAndConquerDelaunayTinBuilder;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.file.Paths;
+import com.revolsys.spring.resource.PathResource;
+
+public class MappedScaledIntegerTriangulatedIrregularNetworkTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed3d(3005, 1000.0,
+    1000.0, 1000.0);
+
+  /**
+   * The mapped TIN must return the same elevations and triangles as the TIN
+   * loaded into memory and create the spatial index file.
+   */
+  @Test
+  public void testElevation() {
+    final Random random = new Random(1);
+    final IntDivideAndConquerDelaunayTinBuilder builder = new IntDivideAndConquerDelaunayTinBuilder(
+      GEOMETRY_FACTORY);
+    for (int i = 0; i < 5000; i++) {
+      builder.insertVertex(random.nextInt(1000000), random.nextInt(1000000),
+        random.nextInt(100000));
+    }
+    final TriangulatedIrregularNetwork tin = builder.newTriangulatedIrregularNetwork();
+
+    final Path directory = Paths.getPath("target/test/elevation/tin");
+    Paths.createDirectories(directory);
+    final PathResource resource = new PathResource(directory.resolve("mapped.sitin"));
+    tin.writeTriangulatedIrregularNetwork(resource);
+
+    final TriangulatedIrregularNetwork loadedTin = TriangulatedIrregularNetwork
+      .newTriangulatedIrregularNetwork(resource);
+    final TriangulatedIrregularNetwork tin2 = TriangulatedIrregularNetwork
+      .newTriangulatedIrregularNetwork(resource,
+        new LinkedHashMapEx(ScaledIntegerTriangulatedIrregularNetwork.PROPERTY_MAPPED, true));
+    Assert.assertTrue("Mapped", tin2 instanceof MappedScaledIntegerTriangulatedIrregularNetwork);
+    try (
+      MappedScaledIntegerTriangulatedIrregularNetwork mappedTin = (MappedScaledIntegerTriangulatedIrregularNetwork)tin2) {
+      Assert.assertEquals("Triangle Count", loadedTin.getTriangleCount(),
+        mappedTin.getTriangleCount());
+      for (int i = 0; i < 10000; i++) {
+        final double x = -50 + random.nextDouble() * 1100;
+        final double y = -50 + random.nextDouble() * 1100;
+        final double expected = loadedTin.getElevation(x, y);
+        Assert.assertEquals(x + "," + y, expected, mappedTin.getElevation(x, y), 1e-9);
+      }
+      final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(2, 100, 200, 150, 260);
+      Assert.assertEquals("Bounding Box Triangles", loadedTin.getTriangles(boundingBox).size(),
+        mappedTin.getTriangles(boundingBox).size());
+      Assert.assertTrue("Spatial Index", Files.exists(mappedTin.getSpatialIndexPath()));
+    }
+  }
+}
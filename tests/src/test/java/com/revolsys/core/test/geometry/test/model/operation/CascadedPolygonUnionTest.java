@@ -0,0 +1,74 @@
+package com.revolsys.core.test.geometry.test.model.operation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.operation.union.CascadedPolygonUnion;
+
+public class CascadedPolygonUnionTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(0, 1000.0,
+    1000.0);
+
+  /**
+   * Create a grid of overlapping irregular polygons, each overlapping its
+   * neighbours, with some gaps to create holes in the union.
+   */
+  private static List<Polygon> newPolygons(final int size) {
+    final List<Polygon> polygons = new ArrayList<>();
+    final int vertexCount = 12;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        if ((i * 7 + j * 3) % 11 != 0) {
+          final double[] coordinates = new double[vertexCount * 2 + 2];
+          for (int k = 0; k <= vertexCount; k++) {
+            final double angle = 2 * Math.PI * (k % vertexCount) / vertexCount;
+            final double radius = 6 + (i * 13 + j * 5 + k) % 4 * 0.5;
+            coordinates[k * 2] = i * 10 + radius * Math.cos(angle);
+            coordinates[k * 2 + 1] = j * 10 + radius * Math.sin(angle);
+          }
+          polygons.add(GEOMETRY_FACTORY.polygon(2, coordinates));
+        }
+      }
+    }
+    return polygons;
+  }
+
+  @Test
+  public void testDefaultSequential() {
+    final CascadedPolygonUnion union = new CascadedPolygonUnion(newPolygons(2));
+    Assert.assertEquals("Default Threshold", Integer.MAX_VALUE, union.getParallelThreshold());
+  }
+
+  @Test
+  public void testParallelEqualsSequential() {
+    final List<Polygon> polygons = newPolygons(40);
+    Assert.assertTrue("Polygon Count " + polygons.size(),
+      polygons.size() > CascadedPolygonUnion.DEFAULT_PARALLEL_THRESHOLD * 4);
+
+    final Polygonal sequential = CascadedPolygonUnion.union(polygons);
+    final Polygonal parallel = CascadedPolygonUnion.union(polygons, true);
+    Assert.assertFalse("Empty", sequential.isEmpty());
+    int holeCount = 0;
+    for (final Polygon polygon : sequential.polygons()) {
+      holeCount += polygon.getHoleCount();
+    }
+    Assert.assertTrue("Holes", holeCount > 0);
+    Assert.assertTrue("Parallel equalsTopo Sequential", parallel.equalsTopo(sequential));
+
+    final Geometry multiPolygon = GEOMETRY_FACTORY.polygonal(polygons);
+    final Geometry sequentialGeometry = multiPolygon.union();
+    final Geometry parallelGeometry = multiPolygon.union(true);
+    Assert.assertTrue("Geometry union(true) equalsTopo union()",
+      parallelGeometry.equalsTopo(sequentialGeometry));
+    Assert.assertTrue("Geometry union equalsTopo CascadedPolygonUnion",
+      parallelGeometry.equalsTopo(sequential));
+  }
+}
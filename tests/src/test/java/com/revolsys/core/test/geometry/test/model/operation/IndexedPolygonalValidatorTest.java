@@ -0,0 +1,146 @@
+package com.revolsys.core.test.geometry.test.model.operation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.operation.valid.GeometryValidationError;
+import com.revolsys.geometry.operation.valid.IsValidOp;
+import com.revolsys.geometry.operation.valid.TopologyValidationError;
+
+public class IndexedPolygonalValidatorTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(0);
+
+  private static final int VALID = -1;
+
+  /**
+   * Create a closed ring around a centre point with an optional wave along the ring.
+   */
+  private static double[] newRing(final double x, final double y, final double radius,
+    final double waveHeight, final int vertexCount) {
+    final double[] coordinates = new double[vertexCount * 2 + 2];
+    for (int i = 0; i <= vertexCount; i++) {
+      final double angle = 2 * Math.PI * (i % vertexCount) / vertexCount;
+      final double ringRadius = radius + waveHeight * Math.sin(angle * 500);
+      coordinates[i * 2] = x + ringRadius * Math.cos(angle);
+      coordinates[i * 2 + 1] = y + ringRadius * Math.sin(angle);
+    }
+    return coordinates;
+  }
+
+  /**
+   * Check the indexed validation returns the expected error type (or is valid) in sequential and
+   * parallel mode and has the same validity as the geometry graph validation.
+   */
+  private static void assertValid(final String message, final int expectedErrorType,
+    final String wkt) {
+    final Geometry geometry = GEOMETRY_FACTORY.geometry(wkt);
+    final boolean expectedValid = new IsValidOp(geometry).isValid();
+    for (final boolean parallel : new boolean[] {
+      false, true
+    }) {
+      final IsValidOp validOp = new IsValidOp(geometry);
+      validOp.setIndexed(true);
+      validOp.setParallel(parallel);
+      final boolean valid = validOp.isValid();
+      Assert.assertEquals(message + " valid", expectedValid, valid);
+      int errorType = VALID;
+      if (!valid) {
+        final GeometryValidationError error = validOp.getValidationError();
+        errorType = ((TopologyValidationError)error).getErrorType();
+      }
+      Assert.assertEquals(message + " error", expectedErrorType, errorType);
+    }
+  }
+
+  @Test
+  public void testConnectedInteriors() {
+    assertValid("Hole Touch Shell Twice", TopologyValidationError.DISCONNECTED_INTERIOR,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(0 5,5 0,5 5,0 5))");
+    assertValid("Hole Cycle", TopologyValidationError.DISCONNECTED_INTERIOR,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(0 5,3 4,3 6,0 5),(3 6,5 10,6 6,3 6))");
+    assertValid("Hole Chain", VALID,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(0 5,3 4,3 6,0 5),(3 6,5 8,6 6,3 6))");
+  }
+
+  @Test
+  public void testHoles() {
+    assertValid("Hole", VALID, "POLYGON((0 0,10 0,10 10,0 10,0 0),(2 2,4 2,4 4,2 4,2 2))");
+    assertValid("Hole Touch Shell", VALID,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(0 5,3 4,3 6,0 5))");
+    assertValid("Hole Touch Shell Edge", VALID,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(5 0,6 3,4 3,5 0))");
+    assertValid("Holes Touch Same Point", VALID,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(0 5,2 3,2 4,0 5),(0 5,2 4.5,2 5.5,0 5),(0 5,2 6,2 7,0 5))");
+    assertValid("Hole Outside Shell", TopologyValidationError.HOLE_OUTSIDE_SHELL,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(20 20,22 20,22 22,20 22,20 20))");
+    assertValid("Nested Holes", TopologyValidationError.NESTED_HOLES,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(1 1,9 1,9 9,1 9,1 1),(3 3,5 3,5 5,3 5,3 3))");
+    assertValid("Hole Cross Shell", TopologyValidationError.SELF_INTERSECTION,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(8 8,12 8,12 12,8 12,8 8))");
+    assertValid("Hole Cross Shell Vertex", TopologyValidationError.SELF_INTERSECTION,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(0 0,5 5,10 0,5 -5,0 0))");
+  }
+
+  @Test
+  public void testLarge() {
+    final int vertexCount = 100000;
+    final List<double[]> rings = new ArrayList<>();
+    rings.add(newRing(0, 0, 1000, 20, vertexCount));
+    for (int i = 0; i < 30; i++) {
+      for (int j = 0; j < 30; j++) {
+        rings.add(newRing(-580 + i * 40, -580 + j * 40, 10, 0, 50));
+      }
+    }
+    final Polygon polygon = GEOMETRY_FACTORY.polygon(2, rings.toArray(new double[0][]));
+    final IsValidOp validOp = new IsValidOp(polygon);
+    validOp.setIndexed(true);
+    validOp.setParallel(true);
+    Assert.assertTrue("Indexed", validOp.isValid());
+
+    rings.add(newRing(-580, -580, 5, 0, 50));
+    final Polygon nestedHoles = GEOMETRY_FACTORY.polygon(2, rings.toArray(new double[0][]));
+
+    final List<Geometry> geometries = Arrays.asList(polygon, nestedHoles);
+    final Map<Geometry, List<GeometryValidationError>> invalid = new ConcurrentHashMap<>();
+    IsValidOp.validate(geometries.stream(), geometry -> geometry, invalid::put);
+    Assert.assertEquals("Invalid Count", 1, invalid.size());
+    final List<GeometryValidationError> errors = invalid.get(nestedHoles);
+    Assert.assertNotNull("Nested Holes", errors);
+    Assert.assertEquals("Nested Holes Error", TopologyValidationError.NESTED_HOLES,
+      ((TopologyValidationError)errors.get(0)).getErrorType());
+  }
+
+  @Test
+  public void testMultiPolygons() {
+    assertValid("Nested Shells", TopologyValidationError.NESTED_SHELLS,
+      "MULTIPOLYGON(((0 0,10 0,10 10,0 10,0 0)),((2 2,4 2,4 4,2 4,2 2)))");
+    assertValid("Nested Shells Reverse", TopologyValidationError.NESTED_SHELLS,
+      "MULTIPOLYGON(((2 2,4 2,4 4,2 4,2 2)),((0 0,10 0,10 10,0 10,0 0)))");
+    assertValid("Shell In Hole", VALID,
+      "MULTIPOLYGON(((0 0,10 0,10 10,0 10,0 0),(1 1,9 1,9 9,1 9,1 1)),((3 3,5 3,5 5,3 5,3 3)))");
+    assertValid("Shells Touch", VALID,
+      "MULTIPOLYGON(((0 0,10 0,10 10,0 10,0 0)),((10 10,15 10,15 15,10 15,10 10)))");
+    assertValid("Shells Touch Twice", VALID,
+      "MULTIPOLYGON(((0 0,10 0,10 10,0 10,0 0)),((10 0,20 5,10 10,15 5,10 0)))");
+  }
+
+  @Test
+  public void testSelfIntersection() {
+    assertValid("Bow Tie", TopologyValidationError.SELF_INTERSECTION,
+      "POLYGON((0 0,10 10,10 0,0 10,0 0))");
+    assertValid("Self Touch", TopologyValidationError.RING_SELF_INTERSECTION,
+      "POLYGON((0 0,10 0,10 10,5 5,4 8,6 8,5 5,0 10,0 0))");
+    assertValid("Collinear", TopologyValidationError.SELF_INTERSECTION,
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(0 2,3 3,0 4,0 2))");
+  }
+}
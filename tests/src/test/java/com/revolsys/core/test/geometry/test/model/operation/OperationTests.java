@@ -6,7 +6,9 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
-  BufferTest.class, IntersectionTest.class
+  BufferTest.class, IntersectionTest.class, PreparedPolygonSpatialJoinTest.class,
+  OverlayFastPathTest.class, RectangleClipperTest.class, IndexedPolygonalValidatorTest.class,
+  CascadedPolygonUnionTest.class
 })
 public class OperationTests {
 
@@ -0,0 +1,114 @@
+package com.revolsys.core.test.geometry.test.model.operation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.prep.PreparedPolygonal;
+import com.revolsys.geometry.operation.overlay.OverlayFastPath;
+import com.revolsys.geometry.operation.overlay.OverlayOp;
+
+public class OverlayFastPathTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static final int[] OP_CODES = {
+    OverlayOp.INTERSECTION, OverlayOp.UNION, OverlayOp.DIFFERENCE, OverlayOp.SYMDIFFERENCE
+  };
+
+  /**
+   * Check the fast path result (if any) of
+   * {@link OverlayFastPath#overlay(Geometry, Geometry, int)} is the same as the
+   * full overlay and is a new geometry.
+   */
+  private static int assertOverlay(final Geometry geometry1, final Geometry geometry2) {
+    int fastPathCount = 0;
+    for (final int opCode : OP_CODES) {
+      final Geometry fastResult = OverlayFastPath.overlay(geometry1, geometry2, opCode);
+      if (fastResult != null) {
+        Assert.assertEquals("Intersection only", OverlayOp.INTERSECTION, opCode);
+        Assert.assertNotSame("New geometry", geometry1, fastResult);
+        Assert.assertNotSame("New geometry", geometry2, fastResult);
+        assertResult(geometry1, geometry2, opCode, fastResult);
+        fastPathCount++;
+      }
+    }
+    return fastPathCount;
+  }
+
+  private static void assertResult(final Geometry geometry1, final Geometry geometry2,
+    final int opCode, final Geometry fastResult) {
+    Assert.assertFalse("Prepared " + opCode, fastResult instanceof PreparedPolygonal);
+    final Geometry expected = new OverlayOp(geometry1, geometry2).getResultGeometry(opCode);
+    Assert.assertEquals("Empty " + opCode, expected.isEmpty(), fastResult.isEmpty());
+    if (!expected.isEmpty()) {
+      Assert.assertTrue("Equals " + opCode, expected.equalsTopo(fastResult));
+    }
+    Assert.assertEquals("Area " + opCode, expected.getArea(), fastResult.getArea(), 1e-6);
+  }
+
+  /**
+   * Check the fast path result (if any) of
+   * {@link OverlayFastPath#overlayShortcut(Geometry, Geometry, int)} is the same
+   * as the full overlay.
+   */
+  private static int assertOverlayShortcut(final Geometry geometry1,
+    final Geometry geometry2) {
+    int fastPathCount = 0;
+    for (final int opCode : OP_CODES) {
+      final Geometry fastResult = OverlayFastPath.overlayShortcut(geometry1, geometry2, opCode);
+      if (fastResult != null) {
+        assertResult(geometry1, geometry2, opCode, fastResult);
+        fastPathCount++;
+      }
+    }
+    return fastPathCount;
+  }
+
+  private static Polygonal newCircle(final double x, final double y, final double radius) {
+    return GEOMETRY_FACTORY.point(x, y).buffer(radius);
+  }
+
+  @Test
+  public void testCovered() {
+    final Polygonal circle = newCircle(50, 50, 10);
+    final Polygon rectangle = GEOMETRY_FACTORY.newBoundingBox(0, 0, 100, 100).toPolygon(1);
+    Assert.assertEquals("Rectangle", 1, assertOverlay(circle, rectangle));
+    Assert.assertEquals("Rectangle Reverse", 1, assertOverlay(rectangle, circle));
+    Assert.assertEquals("Rectangle Shortcut", 3, assertOverlayShortcut(circle, rectangle));
+    Assert.assertEquals("Rectangle Reverse Shortcut", 2,
+      assertOverlayShortcut(rectangle, circle));
+
+    final Polygonal bigCircle = newCircle(50, 50, 40);
+    final Polygonal preparedBigCircle = bigCircle.prepare();
+    Assert.assertEquals("Not Prepared", 0, assertOverlay(circle, bigCircle));
+    Assert.assertEquals("Prepared", 1, assertOverlay(circle, preparedBigCircle));
+    Assert.assertEquals("Prepared Reverse", 1, assertOverlay(preparedBigCircle, circle));
+    Assert.assertEquals("Prepared Shortcut", 3, assertOverlayShortcut(circle, preparedBigCircle));
+    Assert.assertEquals("Prepared Reverse Shortcut", 2,
+      assertOverlayShortcut(preparedBigCircle, circle));
+
+    final Polygonal overlapCircle = newCircle(80, 80, 5);
+    Assert.assertEquals("Overlap", 0, assertOverlay(overlapCircle, preparedBigCircle));
+    Assert.assertEquals("Overlap Shortcut", 0,
+      assertOverlayShortcut(overlapCircle, preparedBigCircle));
+  }
+
+  @Test
+  public void testDisjoint() {
+    final Polygonal circle1 = newCircle(0, 0, 10);
+    final Polygonal circle2 = newCircle(100, 100, 10);
+    Assert.assertEquals("Polygon", 1, assertOverlay(circle1, circle2));
+    Assert.assertEquals("Polygon Shortcut", 4, assertOverlayShortcut(circle1, circle2));
+    Assert.assertEquals("Prepared Shortcut", 4,
+      assertOverlayShortcut(circle1.prepare(), circle2.prepare()));
+
+    final Geometry line = GEOMETRY_FACTORY.lineString(2, 50.0, -50.0, 60.0, -40.0);
+    Assert.assertEquals("Line", 1, assertOverlay(line, circle2));
+    Assert.assertEquals("Line Shortcut", 1, assertOverlayShortcut(line, circle2));
+  }
+}
@@ -0,0 +1,106 @@
+package com.revolsys.core.test.geometry.test.model.operation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.operation.predicate.PreparedPolygonSpatialJoin;
+import com.revolsys.geometry.operation.predicate.SpatialPredicate;
+
+public class PreparedPolygonSpatialJoinTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static void assertJoin(final List<Polygonal> polygons,
+    final List<? extends Geometry> candidates, final SpatialPredicate predicate,
+    final long[] pairs) {
+    final List<Long> expectedPairs = new ArrayList<>();
+    for (int candidateId = 0; candidateId < candidates.size(); candidateId++) {
+      final Geometry candidate = candidates.get(candidateId);
+      for (int polygonId = 0; polygonId < polygons.size(); polygonId++) {
+        final Polygonal polygon = polygons.get(polygonId);
+        if (predicate.test(polygon, candidate)) {
+          expectedPairs.add(PreparedPolygonSpatialJoin.newPair(polygonId, candidateId));
+        }
+      }
+    }
+    final List<Long> actualPairs = new ArrayList<>();
+    for (final long pair : pairs) {
+      actualPairs.add(pair);
+    }
+    Assert.assertEquals(predicate.toString(), expectedPairs, actualPairs);
+  }
+
+  private static List<Polygonal> newPolygons(final Random random) {
+    final List<Polygonal> polygons = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      final double x = random.nextDouble() * 1000;
+      final double y = random.nextDouble() * 1000;
+      final double radius = 5 + random.nextDouble() * 40;
+      if (i % 5 == 0) {
+        polygons.add(
+          GEOMETRY_FACTORY.newBoundingBox(x, y, x + radius, y + radius * 2).toPolygon(1));
+      } else {
+        polygons.add(GEOMETRY_FACTORY.point(x, y).buffer(radius));
+      }
+    }
+    return polygons;
+  }
+
+  @Test
+  public void testLines() {
+    final Random random = new Random(1);
+    final List<Polygonal> polygons = newPolygons(random);
+    final List<Geometry> lines = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      final double x = random.nextDouble() * 1000;
+      final double y = random.nextDouble() * 1000;
+      lines.add(GEOMETRY_FACTORY.lineString(2, x, y, x + random.nextDouble() * 60 - 30,
+        y + random.nextDouble() * 60 - 30));
+    }
+    final PreparedPolygonSpatialJoin join = new PreparedPolygonSpatialJoin(polygons)
+      .setBlockSize(100);
+    for (final SpatialPredicate predicate : SpatialPredicate.values()) {
+      assertJoin(polygons, lines, predicate, join.join(lines, predicate));
+    }
+
+    final List<Long> streamPairs = new ArrayList<>();
+    join.setBlockSize(7)
+      .join(lines, SpatialPredicate.INTERSECTS,
+        (polygonId, candidateId) -> streamPairs
+          .add(PreparedPolygonSpatialJoin.newPair(polygonId, candidateId)));
+    final long[] pairs = join.join(lines, SpatialPredicate.INTERSECTS);
+    Assert.assertEquals("Stream Count", pairs.length, streamPairs.size());
+    for (int i = 0; i < pairs.length; i++) {
+      Assert.assertEquals("Stream Pair", pairs[i], streamPairs.get(i).longValue());
+    }
+  }
+
+  @Test
+  public void testPoints() {
+    final Random random = new Random(2);
+    final List<Polygonal> polygons = newPolygons(random);
+    final List<Point> points = new ArrayList<>();
+    final double[] coordinates = new double[10000 * 2];
+    for (int i = 0; i < 10000; i++) {
+      final Point point = GEOMETRY_FACTORY.point(random.nextDouble() * 1000,
+        random.nextDouble() * 1000);
+      points.add(point);
+      coordinates[i * 2] = point.getX();
+      coordinates[i * 2 + 1] = point.getY();
+    }
+    final PreparedPolygonSpatialJoin join = new PreparedPolygonSpatialJoin(polygons);
+    for (final SpatialPredicate predicate : SpatialPredicate.values()) {
+      assertJoin(polygons, points, predicate, join.join(points, predicate));
+      assertJoin(polygons, points, predicate, join.joinPoints(coordinates, predicate));
+    }
+  }
+}
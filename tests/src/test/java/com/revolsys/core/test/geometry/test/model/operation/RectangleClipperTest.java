@@ -0,0 +1,153 @@
+package com.revolsys.core.test.geometry.test.model.operation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.operation.RectangleClipper;
+import com.revolsys.geometry.operation.overlay.OverlayOp;
+
+public class RectangleClipperTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static void assertClip(final Geometry geometry, final BoundingBox boundingBox) {
+    final Geometry actual = RectangleClipper.clip(geometry, boundingBox);
+    final Polygon rectangle = boundingBox.toPolygon(1);
+    Geometry expected = new OverlayOp(geometry, rectangle)
+      .getResultGeometry(OverlayOp.INTERSECTION);
+    if (geometry instanceof Polygonal) {
+      // Ignore the points and lines where the polygon only touches the rectangle
+      expected = GEOMETRY_FACTORY.polygonal(expected.getGeometries(Polygon.class));
+    }
+    Assert.assertEquals("Empty " + boundingBox, expected.isEmpty(), actual.isEmpty());
+    Assert.assertEquals("Area " + boundingBox, expected.getArea(), actual.getArea(), 1e-3);
+    Assert.assertEquals("Length " + boundingBox, expected.getLength(), actual.getLength(), 1e-3);
+    if (geometry instanceof Polygonal) {
+      Assert.assertTrue("Polygonal " + boundingBox, actual instanceof Polygonal);
+      Assert.assertTrue("Valid " + boundingBox, actual.isValid());
+    }
+  }
+
+  private static void assertClipTiles(final Geometry geometry, final List<BoundingBox> tiles) {
+    final double[] area = new double[1];
+    RectangleClipper.clip(geometry, tiles, (tile, tileGeometry) -> {
+      Assert.assertTrue("Covered " + tile, tile.bboxCovers(tileGeometry));
+      assertClip(geometry, tile);
+      area[0] += tileGeometry.getArea();
+    });
+    Assert.assertEquals("Tile Area", geometry.getArea(), area[0], 1e-3);
+  }
+
+  private static List<BoundingBox> newTiles(final double minX, final double minY,
+    final double tileSize, final int tileCount) {
+    final List<BoundingBox> tiles = new ArrayList<>();
+    for (int i = 0; i < tileCount; i++) {
+      for (int j = 0; j < tileCount; j++) {
+        final double x = minX + i * tileSize;
+        final double y = minY + j * tileSize;
+        tiles.add(GEOMETRY_FACTORY.newBoundingBox(x, y, x + tileSize, y + tileSize));
+      }
+    }
+    return tiles;
+  }
+
+  /**
+   * Rings that touch or pass through a corner of the rectangle are clipped
+   * using the overlay.
+   */
+  @Test
+  public void testCornerTouching() {
+    final Polygonal diamond = GEOMETRY_FACTORY.polygon(2, new double[] {
+      10, 0, 20, 10, 10, 20, 0, 10, 10, 0
+    });
+    final Geometry squareWithHole = GEOMETRY_FACTORY.newBoundingBox(-10, -10, 30, 30)
+      .toPolygon(1)
+      .difference(diamond);
+    for (final Geometry polygon : new Geometry[] {
+      diamond, squareWithHole
+    }) {
+      // Edge only touches the (15,15) corner
+      assertClip(polygon, GEOMETRY_FACTORY.newBoundingBox(15, 15, 25, 25));
+      // Vertex only touches the (20,10) corner
+      assertClip(polygon, GEOMETRY_FACTORY.newBoundingBox(20, 10, 30, 20));
+      // Vertex on the (10,20) corner
+      assertClip(polygon, GEOMETRY_FACTORY.newBoundingBox(0, 20, 10, 30));
+      assertClip(polygon, GEOMETRY_FACTORY.newBoundingBox(5, 15, 10, 20));
+      // All corners on the edges of the diamond
+      assertClip(polygon, GEOMETRY_FACTORY.newBoundingBox(5, 5, 15, 15));
+      // Edge passes through the (5,5) corner
+      assertClip(polygon, GEOMETRY_FACTORY.newBoundingBox(5, 5, 25, 25));
+    }
+  }
+
+  /**
+   * Tiles aligned with the integer coordinates of the polygons, so vertices and
+   * edges are on the tile edges.
+   */
+  @Test
+  public void testGridAlignedTiles() {
+    final Polygonal circle = GEOMETRY_FACTORY.point(50, 50).buffer(40);
+    final Geometry squareWithHole = GEOMETRY_FACTORY.newBoundingBox(0, 0, 60, 60)
+      .toPolygon(1)
+      .difference(GEOMETRY_FACTORY.newBoundingBox(20, 20, 40, 40).toPolygon(1));
+    final Polygonal star = GEOMETRY_FACTORY.polygon(2, new double[] {
+      0, 0, 50, 30, 100, 0, 70, 50, 100, 100, 50, 70, 0, 100, 30, 50, 0, 0
+    });
+    final List<BoundingBox> tiles = newTiles(0, 0, 10, 10);
+    for (final Geometry polygon : new Geometry[] {
+      circle, squareWithHole, star
+    }) {
+      for (final BoundingBox tile : tiles) {
+        assertClip(polygon, tile);
+      }
+      assertClipTiles(polygon, tiles);
+      assertClipTiles(polygon, newTiles(0, 0, 20, 5));
+    }
+  }
+
+  @Test
+  public void testLines() {
+    final Geometry line = GEOMETRY_FACTORY.lineString(2, 0.0, 0.0, 50.0, 20.0, 10.0, 45.0, 60.0,
+      60.0, 5.0, 90.0);
+    for (final BoundingBox tile : newTiles(-2.5, -2.5, 15, 7)) {
+      assertClip(line, tile);
+    }
+  }
+
+  @Test
+  public void testPolygons() {
+    final Polygonal circle = GEOMETRY_FACTORY.point(50, 50).buffer(40);
+    final Geometry polygonWithHole = circle
+      .difference(GEOMETRY_FACTORY.point(45, 55).buffer(10));
+    final Polygonal star = GEOMETRY_FACTORY.polygon(2, new double[] {
+      0.3, 0.7, 50.1, 30.2, 100.3, 0.4, 70.3, 50.1, 100.2, 100.4, 50.2, 70.1, 0.1, 100.3, 30.4,
+      50.2, 0.3, 0.7
+    });
+    for (final Geometry polygon : new Geometry[] {
+      circle, polygonWithHole, star
+    }) {
+      for (final BoundingBox tile : newTiles(-3.5, -3.5, 12.5, 9)) {
+        assertClip(polygon, tile);
+      }
+      assertClip(polygon, GEOMETRY_FACTORY.newBoundingBox(40.5, 45.5, 50.5, 65.5));
+      assertClip(polygon, GEOMETRY_FACTORY.newBoundingBox(-10.5, 30.5, 110.5, 70.5));
+    }
+  }
+
+  @Test
+  public void testTiles() {
+    final Geometry polygon = GEOMETRY_FACTORY.point(50, 50)
+      .buffer(40)
+      .difference(GEOMETRY_FACTORY.point(45, 55).buffer(10));
+    assertClipTiles(polygon, newTiles(-0.5, -0.5, 20, 6));
+  }
+}
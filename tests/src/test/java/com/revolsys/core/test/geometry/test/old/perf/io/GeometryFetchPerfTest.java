@@ -0,0 +1,86 @@
+package com.revolsys.core.test.geometry.test.old.perf.io;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.core.test.geometry.test.old.perf.PerformanceTestCase;
+import com.revolsys.core.test.geometry.test.old.perf.PerformanceTestRunner;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.util.Stopwatch;
+import com.revolsys.gis.postgresql.PostgreSQLRecordStore;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.schema.RecordStore;
+
+/**
+ * Compare the time to read a PostGIS table with the geometries fetched as
+ * binary EWKB and as hex text. The database and table are set using the
+ * system properties.
+ *
+ * <pre>
+ * -Dpostgresql.url=jdbc:postgresql://localhost:5432/test -Dpostgresql.user=user
+ * -Dpostgresql.password=password -Dpostgresql.typePath=/SCHEMA/TABLE
+ * </pre>
+ */
+public class GeometryFetchPerfTest extends PerformanceTestCase {
+
+  public static void main(final String args[]) {
+    PerformanceTestRunner.run(GeometryFetchPerfTest.class);
+  }
+
+  private PostgreSQLRecordStore recordStore;
+
+  private String typePath;
+
+  public GeometryFetchPerfTest(final String name) {
+    super(name);
+    setRunIterations(3);
+  }
+
+  private void read(final boolean binaryGeometry) {
+    this.recordStore.setBinaryGeometry(binaryGeometry);
+    final Stopwatch stopwatch = new Stopwatch();
+    long recordCount = 0;
+    long vertexCount = 0;
+    try (
+      RecordReader reader = this.recordStore.getRecords(new Query(this.typePath))) {
+      for (final Record record : reader) {
+        recordCount++;
+        final Geometry geometry = record.getGeometry();
+        if (geometry != null) {
+          vertexCount += geometry.getVertexCount();
+        }
+      }
+    }
+    stopwatch.stop();
+    Logs.info(this, "binary=" + binaryGeometry + "\trecords=" + recordCount + "\tvertices="
+      + vertexCount + "\ttime=" + stopwatch.getTimeString());
+  }
+
+  public void runBinary() {
+    read(true);
+  }
+
+  public void runText() {
+    read(false);
+  }
+
+  @Override
+  public void setUp() {
+    final Map<String, Object> parameters = new HashMap<>();
+    parameters.put("url", System.getProperty("postgresql.url"));
+    parameters.put("user", System.getProperty("postgresql.user"));
+    parameters.put("password", System.getProperty("postgresql.password"));
+    this.typePath = System.getProperty("postgresql.typePath");
+    this.recordStore = RecordStore.newRecordStore(parameters);
+    this.recordStore.initialize();
+  }
+
+  @Override
+  public void tearDown() {
+    this.recordStore.close();
+  }
+}
@@ -0,0 +1,103 @@
+package com.revolsys.core.test.geometry.test.old.perf.operation.overlay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.operation.overlay.OverlayOp;
+import com.revolsys.geometry.util.Stopwatch;
+
+/**
+ * Compare the time to clip polygons by grid cells using the full overlay and
+ * the overlay with the fast path for disjoint and covered polygons.
+ */
+public class OverlayFastPathPerfTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(0);
+
+  private static final int ITERATIONS = 5;
+
+  public static void main(final String[] args) {
+    final OverlayFastPathPerfTest test = new OverlayFastPathPerfTest();
+    test.run(1000, 20, 100);
+    test.run(5000, 50, 50);
+  }
+
+  private List<Polygon> newCells(final int cellCount, final double cellSize) {
+    final List<Polygon> cells = new ArrayList<>();
+    for (int i = 0; i < cellCount; i++) {
+      for (int j = 0; j < cellCount; j++) {
+        final double x = i * cellSize;
+        final double y = j * cellSize;
+        final Polygon cell = GEOMETRY_FACTORY.newBoundingBox(x, y, x + cellSize, y + cellSize)
+          .toPolygon(1);
+        cells.add(cell.prepare());
+      }
+    }
+    return cells;
+  }
+
+  private List<Polygonal> newPolygons(final int polygonCount, final double extent) {
+    final Random random = new Random(1);
+    final List<Polygonal> polygons = new ArrayList<>();
+    for (int i = 0; i < polygonCount; i++) {
+      final double x = random.nextDouble() * extent;
+      final double y = random.nextDouble() * extent;
+      final double radius = 1 + random.nextDouble() * 10;
+      polygons.add(GEOMETRY_FACTORY.point(x, y).buffer(radius, 16));
+    }
+    return polygons;
+  }
+
+  private double overlay(final List<Polygonal> polygons, final List<Polygon> cells,
+    final boolean fastPath) {
+    double area = 0;
+    for (final Polygonal polygon : polygons) {
+      for (final Polygon cell : cells) {
+        if (polygon.bboxIntersects(cell)) {
+          Geometry intersection;
+          if (fastPath) {
+            intersection = OverlayOp.overlayOp(polygon, cell, OverlayOp.INTERSECTION);
+          } else {
+            final OverlayOp overlayOp = new OverlayOp(polygon, cell);
+            intersection = overlayOp.getResultGeometry(OverlayOp.INTERSECTION);
+          }
+          area += intersection.getArea();
+        }
+      }
+    }
+    return area;
+  }
+
+  public void run(final int polygonCount, final int cellCount, final double cellSize) {
+    final List<Polygon> cells = newCells(cellCount, cellSize);
+    final List<Polygonal> polygons = newPolygons(polygonCount, cellCount * cellSize);
+
+    // warm up
+    overlay(polygons, cells, false);
+    overlay(polygons, cells, true);
+
+    double overlayArea = 0;
+    final Stopwatch overlayTime = new Stopwatch();
+    for (int i = 0; i < ITERATIONS; i++) {
+      overlayArea = overlay(polygons, cells, false);
+    }
+    final long overlayMillis = overlayTime.stop();
+
+    double fastPathArea = 0;
+    final Stopwatch fastPathTime = new Stopwatch();
+    for (int i = 0; i < ITERATIONS; i++) {
+      fastPathArea = overlay(polygons, cells, true);
+    }
+    final long fastPathMillis = fastPathTime.stop();
+
+    System.out.println("# polygons: " + polygonCount + " # cells: " + cells.size()
+      + " Overlay: " + overlayMillis + " ms, Fast Path: " + fastPathMillis + " ms, Speedup: "
+      + (double)overlayMillis / Math.max(1, fastPathMillis) + ", Area Difference: "
+      + Math.abs(overlayArea - fastPathArea));
+  }
+}
@@ -13,6 +13,8 @@ public class UnionPerfTester {
 
   public static final int CASCADED = 1;
 
+  public static final int CASCADED_PARALLEL = 5;
+
   private static final GeometryFactory geometryFactory = GeometryFactory.floating2d(0);
 
   public static final int ITERATED = 2;
@@ -41,7 +43,7 @@ public class UnionPerfTester {
     this.polys = polys;
   }
 
-  public void run(final String testName, final int testType) {
+  public long run(final String testName, final int testType) {
     // System.out.println();
     // System.out.println("======= Union Algorithm: " + testName +
     // " ===========");
@@ -53,6 +55,9 @@ public class UnionPerfTester {
         case CASCADED:
           union = unionCascaded(this.polys);
         break;
+        case CASCADED_PARALLEL:
+          union = unionCascadedParallel(this.polys);
+        break;
         case ITERATED:
           union = unionAllSimple(this.polys);
         break;
@@ -65,11 +70,16 @@ public class UnionPerfTester {
 
     }
     // System.out.println("Finished in " + sw.getTimeString());
+    return sw.stop();
   }
 
   public void runAll() {
     // System.out.println("# items: " + this.polys.size());
-    run("Cascaded", CASCADED, this.polys);
+    final long sequentialTime = run("Cascaded", CASCADED);
+    final long parallelTime = run("Cascaded Parallel", CASCADED_PARALLEL);
+    System.out.println("# items: " + this.polys.size() + " Cascaded: " + sequentialTime
+      + " ms, Parallel: " + parallelTime + " ms, Speedup: "
+      + (double)sequentialTime / Math.max(1, parallelTime));
     // run("Buffer-0", BUFFER0, polys);
 
     run("Iterated", ITERATED, this.polys);
@@ -110,6 +120,10 @@ public class UnionPerfTester {
    */
 
   public Geometry unionCascaded(final List geoms) {
-    return CascadedPolygonUnion.union(geoms);
+    return CascadedPolygonUnion.union(geoms, false);
+  }
+
+  public Geometry unionCascadedParallel(final List geoms) {
+    return CascadedPolygonUnion.union(geoms, true);
   }
 }
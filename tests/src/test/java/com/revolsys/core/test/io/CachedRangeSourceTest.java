@@ -0,0 +1,219 @@
+package com.revolsys.core.test.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.revolsys.io.channels.CachedRangeSource;
+import com.revolsys.io.channels.HttpSeekableByteChannel;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test the number of HTTP range requests made by a {@link CachedRangeSource}
+ * using a local HTTP server.
+ */
+public class CachedRangeSourceTest {
+
+  private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+  private static final int SIZE = 1024 * 1024;
+
+  private boolean chunked;
+
+  private final byte[] data = new byte[SIZE];
+
+  private final AtomicInteger headCount = new AtomicInteger();
+
+  private final AtomicInteger requestCount = new AtomicInteger();
+
+  private HttpServer server;
+
+  private boolean unknownLength;
+
+  private URL url;
+
+  private void assertRead(final CachedRangeSource source, final long offset, final int length)
+    throws IOException {
+    try (
+      SeekableByteChannel channel = source.newChannel()) {
+      channel.position(offset);
+      final ByteBuffer buffer = ByteBuffer.allocate(length);
+      while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+      }
+      Assert.assertEquals("length", length, buffer.position());
+      for (int i = 0; i < length; i++) {
+        Assert.assertEquals("byte " + (offset + i), this.data[(int)offset + i], buffer.get(i));
+      }
+    }
+  }
+
+  private CachedRangeSource newSource() throws IOException {
+    return new CachedRangeSource(new HttpSeekableByteChannel(this.url));
+  }
+
+  @Before
+  public void startServer() throws IOException {
+    for (int i = 0; i < SIZE; i++) {
+      this.data[i] = (byte)(i * 31 + i / 256);
+    }
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    this.server.createContext("/image.tif", exchange -> {
+      this.requestCount.incrementAndGet();
+      if ("HEAD".equals(exchange.getRequestMethod())) {
+        this.headCount.incrementAndGet();
+        exchange.getResponseHeaders().add("Content-Length", Integer.toString(SIZE));
+        exchange.sendResponseHeaders(200, -1);
+        exchange.close();
+        return;
+      }
+      final String range = exchange.getRequestHeaders().getFirst("Range");
+      int start = 0;
+      int end = SIZE - 1;
+      int status = 200;
+      if (range != null) {
+        final Matcher matcher = RANGE.matcher(range);
+        if (matcher.matches()) {
+          start = Integer.parseInt(matcher.group(1));
+          if (!matcher.group(2).isEmpty()) {
+            end = Math.min(end, Integer.parseInt(matcher.group(2)));
+          }
+          status = 206;
+          final String completeLength = this.unknownLength ? "*" : Integer.toString(SIZE);
+          exchange.getResponseHeaders()
+            .add("Content-Range", "bytes " + start + "-" + end + "/" + completeLength);
+        }
+      }
+      final int length = end - start + 1;
+      // A response length of 0 uses chunked encoding without a Content-Length
+      exchange.sendResponseHeaders(status, this.chunked ? 0 : length);
+      try (
+        OutputStream out = exchange.getResponseBody()) {
+        out.write(this.data, start, length);
+      }
+    });
+    this.server.start();
+    this.url = new URL(
+      "http://127.0.0.1:" + this.server.getAddress().getPort() + "/image.tif");
+  }
+
+  @After
+  public void stopServer() {
+    this.server.stop(0);
+  }
+
+  @Test
+  public void testHeaderRead() throws IOException {
+    try (
+      CachedRangeSource source = newSource()) {
+      Assert.assertEquals("size", SIZE, source.size());
+      assertRead(source, 0, 8);
+      assertRead(source, 100, 2000);
+      assertRead(source, CachedRangeSource.DEFAULT_HEADER_SIZE - 10, 10);
+      Assert.assertEquals("Header requests", 1, this.requestCount.get());
+
+      assertRead(source, 500000, 40000);
+      Assert.assertEquals("Read requests", 2, this.requestCount.get());
+      assertRead(source, 510000, 1000);
+      Assert.assertEquals("Cached read requests", 2, this.requestCount.get());
+    }
+  }
+
+  @Test
+  public void testPrefetch() throws IOException {
+    try (
+      CachedRangeSource source = newSource()) {
+      this.requestCount.set(0);
+      // Adjacent tiles are coalesced into one request, the distant tile is separate
+      final long[] offsets = {
+        200000, 210000, 220000, 230000, 900000
+      };
+      final long[] lengths = {
+        10000, 10000, 10000, 5000, 20000
+      };
+      source.prefetch(offsets, lengths);
+      Assert.assertEquals("Prefetch requests", 2, this.requestCount.get());
+
+      for (int i = 0; i < offsets.length; i++) {
+        assertRead(source, offsets[i], (int)lengths[i]);
+      }
+      Assert.assertEquals("Read requests", 2, this.requestCount.get());
+
+      source.prefetch(offsets, lengths);
+      Assert.assertEquals("Cached prefetch requests", 2, this.requestCount.get());
+    }
+  }
+
+  @Test
+  public void testClose() throws IOException {
+    final HttpSeekableByteChannel channel = new HttpSeekableByteChannel(this.url);
+    final AtomicInteger closeCount = new AtomicInteger();
+    final CachedRangeSource source = new CachedRangeSource(new CachedRangeSource.RangeReader() {
+      @Override
+      public void close() throws IOException {
+        closeCount.incrementAndGet();
+        channel.close();
+      }
+
+      @Override
+      public int readRange(final long offset, final ByteBuffer buffer) throws IOException {
+        return channel.readRange(offset, buffer);
+      }
+
+      @Override
+      public long size() throws IOException {
+        return channel.size();
+      }
+    });
+    source.close();
+    Assert.assertEquals("Reader closed", 1, closeCount.get());
+  }
+
+  /**
+   * Get the size if the server returns an unknown complete length in the
+   * Content-Range (e.g. bytes 0-99/*).
+   */
+  @Test
+  public void testUnknownCompleteLength() throws IOException {
+    this.unknownLength = true;
+    try (
+      HttpSeekableByteChannel channel = new HttpSeekableByteChannel(this.url)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(100);
+      Assert.assertEquals("read", 100, channel.readRange(1000, buffer));
+      Assert.assertEquals("byte 1000", this.data[1000], buffer.get(0));
+
+      // Range to the end of the resource uses the offset + Content-Length
+      channel.position(1000);
+      buffer.clear();
+      Assert.assertTrue("read", channel.read(buffer) > 0);
+      Assert.assertEquals("Content-Length size", SIZE, channel.size());
+      Assert.assertEquals("HEAD requests", 0, this.headCount.get());
+    }
+
+    // Chunked responses have no Content-Length so a HEAD request is used
+    this.chunked = true;
+    this.requestCount.set(0);
+    try (
+      HttpSeekableByteChannel channel = new HttpSeekableByteChannel(this.url)) {
+      channel.position(1000);
+      Assert.assertEquals("HEAD size", SIZE, channel.size());
+      Assert.assertEquals("HEAD requests", 1, this.headCount.get());
+      Assert.assertEquals("No GET request", 1, this.requestCount.get());
+    }
+    try (
+      CachedRangeSource source = newSource()) {
+      Assert.assertEquals("source size", SIZE, source.size());
+      assertRead(source, 500000, 40000);
+    }
+  }
+}
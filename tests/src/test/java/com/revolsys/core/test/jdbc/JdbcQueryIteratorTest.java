@@ -0,0 +1,284 @@
+package com.revolsys.core.test.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.field.JdbcLongFieldDefinition;
+import com.revolsys.jdbc.io.JdbcQueryIterator;
+import com.revolsys.jdbc.io.JdbcRecordDefinition;
+import com.revolsys.jdbc.io.JdbcRecordStore;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.Query;
+
+/**
+ * Tests for {@link JdbcQueryIterator} using a mocked JDBC connection that
+ * returns a result set with one ID column with the values 0 to rowCount - 1.
+ */
+public class JdbcQueryIteratorTest {
+
+  /**
+   * A mocked result set. If failRow is set, next() throws an SQLException when
+   * that row is reached. If blockRow is set, next() blocks when that row is
+   * reached (ignoring interrupts like some drivers) until the statement is
+   * cancelled. If ignoreCancel is set cancelling the statement doesn't unblock
+   * next().
+   */
+  private static class MockResultSet implements InvocationHandler {
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    private int blockRow = -1;
+
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private int failRow = -1;
+
+    private boolean ignoreCancel;
+
+    private int row = -1;
+
+    private final int rowCount;
+
+    private MockResultSet(final int rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args)
+      throws Throwable {
+      final String name = method.getName();
+      if ("next".equals(name)) {
+        return next();
+      } else if ("getLong".equals(name)) {
+        return (long)this.row;
+      } else if ("close".equals(name)) {
+        this.closed.set(true);
+        return null;
+      } else {
+        return defaultValue(method.getReturnType());
+      }
+    }
+
+    private boolean next() throws SQLException {
+      this.row++;
+      if (this.row == this.failRow) {
+        throw new SQLException("Fail row " + this.row);
+      } else if (this.row == this.blockRow) {
+        this.blocked.countDown();
+        boolean interrupted = false;
+        while (true) {
+          try {
+            if (this.cancelled.await(10, TimeUnit.SECONDS)) {
+              break;
+            } else {
+              throw new SQLException("Not cancelled");
+            }
+          } catch (final InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+        throw new SQLException("Statement cancelled");
+      } else {
+        return this.row < this.rowCount;
+      }
+    }
+  }
+
+  private static final int FETCH_SIZE = 3;
+
+  private static Object defaultValue(final Class<?> returnType) {
+    if (returnType == boolean.class) {
+      return false;
+    } else if (returnType == int.class) {
+      return 0;
+    } else if (returnType == long.class) {
+      return 0L;
+    } else {
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T newProxy(final Class<T> interfaceClass, final InvocationHandler handler) {
+    return (T)Proxy.newProxyInstance(JdbcQueryIteratorTest.class.getClassLoader(), new Class<?>[] {
+      interfaceClass
+    }, handler);
+  }
+
+  private static JdbcQueryIterator newIterator(final MockResultSet resultSetHandler,
+    final boolean prefetch) {
+    final ResultSet resultSet = newProxy(ResultSet.class, resultSetHandler);
+    final PreparedStatement statement = newProxy(PreparedStatement.class,
+      (proxy, method, args) -> {
+        if ("cancel".equals(method.getName())) {
+          if (!resultSetHandler.ignoreCancel) {
+            resultSetHandler.cancelled.countDown();
+          }
+          return null;
+        } else if ("executeQuery".equals(method.getName())) {
+          return resultSet;
+        } else {
+          return defaultValue(method.getReturnType());
+        }
+      });
+    final Connection connection = newProxy(Connection.class, (proxy, method, args) -> {
+      if ("prepareStatement".equals(method.getName())) {
+        return statement;
+      } else {
+        return defaultValue(method.getReturnType());
+      }
+    });
+
+    final JdbcRecordDefinition recordDefinition = new JdbcRecordDefinition(null,
+      PathName.newPathName("/TEST/ROWS"), "ROWS");
+    recordDefinition.addField(new JdbcLongFieldDefinition("ID", "ID", Types.BIGINT, true, null,
+      Collections.emptyMap()));
+
+    final JdbcRecordStore recordStore = newProxy(JdbcRecordStore.class, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getJdbcConnection":
+          return new JdbcConnection(connection, null);
+        case "getRecordDefinition":
+          return recordDefinition;
+        case "getRecordFactory":
+          return ArrayRecord.FACTORY;
+        case "getResultSet":
+          return resultSet;
+        default:
+          return defaultValue(method.getReturnType());
+      }
+    });
+
+    final Query query = new Query(recordDefinition);
+    query.setFetchSize(FETCH_SIZE);
+    final Map<String, Object> properties = new HashMap<>();
+    properties.put("prefetch", prefetch);
+    return new JdbcQueryIterator(recordStore, query, properties) {
+      @Override
+      protected String getSql(final Query query) {
+        return "SELECT ID FROM ROWS";
+      }
+    };
+  }
+
+  private static List<Long> readIds(final JdbcQueryIterator iterator) {
+    final List<Long> ids = new ArrayList<>();
+    while (iterator.hasNext()) {
+      final Record record = iterator.next();
+      ids.add(record.getLong("ID"));
+    }
+    return ids;
+  }
+
+  private void assertOrder(final boolean prefetch, final int rowCount) {
+    final List<Long> expected = new ArrayList<>();
+    for (long i = 0; i < rowCount; i++) {
+      expected.add(i);
+    }
+    try (
+      JdbcQueryIterator iterator = newIterator(new MockResultSet(rowCount), prefetch)) {
+      Assert.assertEquals("Prefetch " + prefetch, prefetch, iterator.isPrefetch());
+      Assert.assertEquals("Records " + prefetch + " " + rowCount, expected, readIds(iterator));
+    }
+  }
+
+  @Test
+  public void testCloseDuringFetch() throws InterruptedException {
+    final MockResultSet resultSet = new MockResultSet(100);
+    resultSet.blockRow = FETCH_SIZE + 1;
+    final JdbcQueryIterator iterator = newIterator(resultSet, true);
+    Assert.assertEquals("First", Long.valueOf(0), iterator.next().getLong("ID"));
+    Assert.assertTrue("Blocked", resultSet.blocked.await(10, TimeUnit.SECONDS));
+
+    final long startTime = System.currentTimeMillis();
+    iterator.close();
+    final long closeTime = System.currentTimeMillis() - startTime;
+    Assert.assertTrue("Close time " + closeTime, closeTime < 2000);
+    Assert.assertEquals("Cancelled", 0, resultSet.cancelled.getCount());
+    Assert.assertTrue("Result set closed", resultSet.closed.get());
+  }
+
+  /**
+   * If the prefetch thread doesn't stop, close must not close the result set
+   * while the prefetch thread is using it, the prefetch thread closes it when it
+   * stops.
+   */
+  @Test
+  public void testCloseHandoff() throws InterruptedException {
+    final MockResultSet resultSet = new MockResultSet(100);
+    resultSet.blockRow = FETCH_SIZE + 1;
+    resultSet.ignoreCancel = true;
+    final JdbcQueryIterator iterator = newIterator(resultSet, true);
+    Assert.assertEquals("First", Long.valueOf(0), iterator.next().getLong("ID"));
+    Assert.assertTrue("Blocked", resultSet.blocked.await(10, TimeUnit.SECONDS));
+
+    iterator.close();
+    Assert.assertFalse("Result set closed during fetch", resultSet.closed.get());
+
+    resultSet.cancelled.countDown();
+    final long endTime = System.currentTimeMillis() + 10000;
+    while (!resultSet.closed.get() && System.currentTimeMillis() < endTime) {
+      Thread.sleep(10);
+    }
+    Assert.assertTrue("Result set closed by prefetch thread", resultSet.closed.get());
+  }
+
+  @Test
+  public void testOrder() {
+    for (final boolean prefetch : new boolean[] {
+      false, true
+    }) {
+      assertOrder(prefetch, 0);
+      assertOrder(prefetch, 1);
+      assertOrder(prefetch, FETCH_SIZE);
+      assertOrder(prefetch, 100);
+    }
+  }
+
+  @Test
+  public void testPrefetchException() {
+    final MockResultSet resultSet = new MockResultSet(100);
+    resultSet.failRow = 10;
+    try (
+      JdbcQueryIterator iterator = newIterator(resultSet, true)) {
+      for (long i = 0; i < 10; i++) {
+        Assert.assertEquals("Record " + i, Long.valueOf(i), iterator.next().getLong("ID"));
+      }
+      try {
+        iterator.next();
+        Assert.fail("Expected exception");
+      } catch (final RuntimeException e) {
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof SQLException)) {
+          cause = cause.getCause();
+        }
+        Assert.assertNotNull("SQLException " + e, cause);
+        Assert.assertEquals("Message", "Fail row 10", cause.getMessage());
+      }
+    }
+  }
+}
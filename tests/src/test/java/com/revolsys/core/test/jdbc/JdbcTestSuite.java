@@ -0,0 +1,12 @@
+package com.revolsys.core.test.jdbc;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+  JdbcQueryIteratorTest.class, PostgreSQLCopyRecordWriterTest.class, PostgreSQLEwkbWriterTest.class
+})
+public class JdbcTestSuite {
+}
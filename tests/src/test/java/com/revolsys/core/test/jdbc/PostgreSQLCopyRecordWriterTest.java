@@ -0,0 +1,92 @@
+package com.revolsys.core.test.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.gis.postgresql.PostgreSQLCopyRecordWriter;
+import com.revolsys.io.channels.ChannelWriter;
+
+/**
+ * Check the binary COPY encoders against the bytes PostgreSQL uses for the
+ * binary send format of each type.
+ */
+public class PostgreSQLCopyRecordWriterTest {
+
+  private static void assertBytes(final String columnType, final Object value,
+    final int... expected) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int size;
+    try (
+      ChannelWriter out = new ChannelWriter(bytes)) {
+      size = PostgreSQLCopyRecordWriter.writeValue(out, columnType, value);
+    }
+    final byte[] actual = bytes.toByteArray();
+    final String message = columnType + " " + value;
+    Assert.assertEquals(message + " size", actual.length, size);
+    Assert.assertEquals(message + " length", expected.length, actual.length - 4);
+    Assert.assertEquals(message + " length prefix", expected.length,
+      (actual[0] & 0xFF) << 24 | (actual[1] & 0xFF) << 16 | (actual[2] & 0xFF) << 8
+        | actual[3] & 0xFF);
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals(message + " byte " + i, (byte)expected[i], actual[i + 4]);
+    }
+  }
+
+  @Test
+  public void testDate() {
+    assertBytes("date", Date.valueOf("2000-01-01"), 0x00, 0x00, 0x00, 0x00);
+    assertBytes("date", Date.valueOf("1999-12-31"), 0xFF, 0xFF, 0xFF, 0xFF);
+    assertBytes("date", Date.valueOf("2020-01-01"), 0x00, 0x00, 0x1C, 0x89);
+  }
+
+  @Test
+  public void testNumeric() {
+    // ndigits, weight, sign, dscale, base 10000 digits
+    assertBytes("numeric", BigDecimal.ZERO, //
+      0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00);
+    assertBytes("numeric", new BigDecimal("0.00"), //
+      0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x02);
+    assertBytes("numeric", new BigDecimal("12345.678"), //
+      0x00, 0x03, 0x00, 0x01, 0x00, 0x00, 0x00, 0x03, //
+      0x00, 0x01, 0x09, 0x29, 0x1A, 0x7C);
+    assertBytes("numeric", new BigDecimal("-1.5"), //
+      0x00, 0x02, 0x00, 0x00, 0x40, 0x00, 0x00, 0x01, //
+      0x00, 0x01, 0x13, 0x88);
+    assertBytes("numeric", new BigDecimal("10000"), //
+      0x00, 0x01, 0x00, 0x01, 0x00, 0x00, 0x00, 0x00, //
+      0x00, 0x01);
+    assertBytes("numeric", new BigDecimal("1E+20"), //
+      0x00, 0x01, 0x00, 0x05, 0x00, 0x00, 0x00, 0x00, //
+      0x00, 0x01);
+    assertBytes("numeric", new BigDecimal("0.000000000123456789"), //
+      0x00, 0x03, 0xFF, 0xFD, 0x00, 0x00, 0x00, 0x12, //
+      0x00, 0x7B, 0x11, 0xD7, 0x22, 0xC4);
+    assertBytes("numeric", new BigDecimal("-0.000000000123456789"), //
+      0x00, 0x03, 0xFF, 0xFD, 0x40, 0x00, 0x00, 0x12, //
+      0x00, 0x7B, 0x11, 0xD7, 0x22, 0xC4);
+  }
+
+  @Test
+  public void testTimestamp() {
+    // microseconds since 2000-01-01 00:00:00
+    assertBytes("timestamp", Timestamp.valueOf("2000-01-01 00:00:00"), //
+      0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00);
+    assertBytes("timestamp", Timestamp.valueOf("2000-01-01 00:00:01.5"), //
+      0x00, 0x00, 0x00, 0x00, 0x00, 0x16, 0xE3, 0x60);
+    assertBytes("timestamp", Timestamp.valueOf("1999-12-31 23:59:59"), //
+      0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xF0, 0xBD, 0xC0);
+    assertBytes("timestamp", Timestamp.valueOf("1999-12-31 23:59:59.5"), //
+      0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xF8, 0x5E, 0xE0);
+
+    assertBytes("timestamptz", Timestamp.from(Instant.parse("2000-01-01T00:00:01.5Z")), //
+      0x00, 0x00, 0x00, 0x00, 0x00, 0x16, 0xE3, 0x60);
+    assertBytes("timestamptz", Timestamp.from(Instant.parse("1999-12-31T23:59:59Z")), //
+      0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xF0, 0xBD, 0xC0);
+  }
+}
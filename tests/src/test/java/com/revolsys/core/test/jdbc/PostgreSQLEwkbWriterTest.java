@@ -0,0 +1,138 @@
+package com.revolsys.core.test.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.jeometry.common.data.type.DataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.wkb.WkbByteBufferReader;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbWriter;
+import com.revolsys.io.channels.ChannelWriter;
+
+/**
+ * Write each geometry type as EWKB with 2, 3 (Z) and 4 (ZM) axes with and
+ * without an SRID and check the geometry read back using
+ * {@link WkbByteBufferReader} is equal.
+ */
+public class PostgreSQLEwkbWriterTest {
+
+  private static byte[] assertRoundTrip(final GeometryFactory geometryFactory,
+    final DataType dataType, final Geometry geometry, final Geometry expected) {
+    final PostgreSQLEwkbWriter writer = new PostgreSQLEwkbWriter(dataType, geometryFactory);
+    final Geometry preparedGeometry = writer.prepareGeometry(geometry);
+    final int geometryType = writer.getTargetGeometryType(preparedGeometry);
+    final int size = writer.getSize(preparedGeometry, geometryType);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (
+      ChannelWriter out = new ChannelWriter(bytes)) {
+      writer.write(out, preparedGeometry, geometryType);
+    }
+    final String message = dataType + " " + geometryFactory.getHorizontalCoordinateSystemId()
+      + " " + geometryFactory.getAxisCount();
+    Assert.assertEquals(message + " size", size, bytes.size());
+
+    final GeometryFactory readGeometryFactory = GeometryFactory.floating(0,
+      geometryFactory.getAxisCount());
+    final byte[] ewkb = bytes.toByteArray();
+    final Geometry actual = WkbByteBufferReader.readGeometry(readGeometryFactory,
+      ByteBuffer.wrap(ewkb));
+    Assert.assertEquals(message + " srid", geometryFactory.getHorizontalCoordinateSystemId(),
+      actual.getHorizontalCoordinateSystemId());
+    Assert.assertEquals(message + " axisCount", geometryFactory.getAxisCount(),
+      actual.getAxisCount());
+    Assert.assertEquals(message + " type", expected.getGeometryType(), actual.getGeometryType());
+    Assert.assertTrue(message + "\n" + expected + "\n" + actual,
+      expected.equals(geometryFactory.getAxisCount(), actual));
+    return ewkb;
+  }
+
+  private static void assertRoundTrip(final GeometryFactory geometryFactory) {
+    final int axisCount = geometryFactory.getAxisCount();
+    final Point point = geometryFactory.point(coordinates(axisCount, 1, 2));
+    final Point point2 = geometryFactory.point(coordinates(axisCount, 3, 4));
+    final LineString line = geometryFactory.lineString(axisCount,
+      coordinates(axisCount, 0, 0, 10, 5, 20, 0));
+    final LineString line2 = geometryFactory.lineString(axisCount,
+      coordinates(axisCount, 0, 10, 10, 15));
+    // Counter clockwise shells and clockwise holes as written by the writer
+    final Polygon polygon = geometryFactory.polygon(axisCount,
+      coordinates(axisCount, 0, 0, 10, 0, 10, 10, 0, 10, 0, 0),
+      coordinates(axisCount, 2, 2, 2, 4, 4, 4, 4, 2, 2, 2));
+    final Polygon polygon2 = geometryFactory.polygon(axisCount,
+      coordinates(axisCount, 20, 0, 30, 0, 30, 10, 20, 0));
+
+    assertRoundTrip(geometryFactory, GeometryDataTypes.POINT, point, point);
+    assertRoundTrip(geometryFactory, GeometryDataTypes.LINE_STRING, line, line);
+    assertRoundTrip(geometryFactory, GeometryDataTypes.POLYGON, polygon, polygon);
+
+    final Geometry multiPoint = geometryFactory.punctual(point, point2);
+    assertRoundTrip(geometryFactory, GeometryDataTypes.MULTI_POINT, multiPoint, multiPoint);
+    final Geometry multiLine = geometryFactory.lineal(line, line2);
+    assertRoundTrip(geometryFactory, GeometryDataTypes.MULTI_LINE_STRING, multiLine, multiLine);
+    final Geometry multiPolygon = geometryFactory.polygonal(polygon, polygon2);
+    assertRoundTrip(geometryFactory, GeometryDataTypes.MULTI_POLYGON, multiPolygon,
+      multiPolygon);
+
+    final Geometry collection = geometryFactory
+      .geometryCollection(Arrays.asList(point, line, polygon));
+    assertRoundTrip(geometryFactory, GeometryDataTypes.GEOMETRY_COLLECTION, collection,
+      collection);
+
+    // Single part geometries are written as multi part for multi part fields
+    final byte[] ewkb = assertRoundTrip(geometryFactory, GeometryDataTypes.MULTI_POLYGON,
+      polygon, polygon);
+    Assert.assertEquals("Multi Polygon Type", 6, ByteBuffer.wrap(ewkb, 1, 4).getInt() & 0xFF);
+  }
+
+  private static double[] coordinates(final int axisCount, final double... xy) {
+    final int vertexCount = xy.length / 2;
+    final double[] coordinates = new double[vertexCount * axisCount];
+    for (int i = 0; i < vertexCount; i++) {
+      coordinates[i * axisCount] = xy[i * 2];
+      coordinates[i * axisCount + 1] = xy[i * 2 + 1];
+      for (int axisIndex = 2; axisIndex < axisCount; axisIndex++) {
+        coordinates[i * axisCount + axisIndex] = xy[i * 2] + xy[i * 2 + 1] * 2
+          + axisIndex * 100;
+      }
+    }
+    return coordinates;
+  }
+
+  @Test
+  public void testRingOrientation() {
+    final GeometryFactory geometryFactory = GeometryFactory.floating(3005, 2);
+    final Polygon polygon = geometryFactory.polygon(2, //
+      new double[] {
+        0, 0, 0, 10, 10, 10, 10, 0, 0, 0
+      }, new double[] {
+        2, 2, 4, 2, 4, 4, 2, 4, 2, 2
+      });
+    final Polygon expected = geometryFactory.polygon(2, //
+      new double[] {
+        0, 0, 10, 0, 10, 10, 0, 10, 0, 0
+      }, new double[] {
+        2, 2, 2, 4, 4, 4, 4, 2, 2, 2
+      });
+    assertRoundTrip(geometryFactory, GeometryDataTypes.POLYGON, polygon, expected);
+  }
+
+  @Test
+  public void testRoundTrip() {
+    for (final int coordinateSystemId : new int[] {
+      0, 3005
+    }) {
+      for (int axisCount = 2; axisCount <= 4; axisCount++) {
+        assertRoundTrip(GeometryFactory.floating(coordinateSystemId, axisCount));
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.revolsys.core.test.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revolsys.geometry.util.Stopwatch;
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.channel.ChannelInput;
+import com.revolsys.parallel.channel.ChannelOutput;
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.RingBufferChannel;
+import com.revolsys.parallel.channel.store.Buffer;
+
+/**
+ * Compare the throughput of a {@link Channel} with a {@link Buffer} store and
+ * a {@link RingBufferChannel} with a single writer and reader thread.
+ */
+public class ChannelPerfTest {
+
+  private static final int BATCH_SIZE = 100;
+
+  private static final int CAPACITY = 1024;
+
+  private static final int RUN_COUNT = 3;
+
+  public static void main(final String args[]) {
+    for (final int size : new int[] {
+      100000, 1000000, 10000000
+    }) {
+      final ChannelPerfTest test = new ChannelPerfTest(size);
+      for (int i = 0; i < RUN_COUNT; i++) {
+        test.run();
+      }
+    }
+  }
+
+  private final int size;
+
+  public ChannelPerfTest(final int size) {
+    this.size = size;
+  }
+
+  private void assertCount(final long count) {
+    if (count != this.size) {
+      throw new IllegalStateException("Expected " + this.size + " values not " + count);
+    }
+  }
+
+  private long read(final ChannelInput<Integer> channel) {
+    channel.readConnect();
+    long count = 0;
+    try {
+      while (true) {
+        channel.read();
+        count++;
+      }
+    } catch (final ClosedException e) {
+    } finally {
+      channel.readDisconnect();
+    }
+    return count;
+  }
+
+  private long readBatch(final ChannelInput<Integer> channel) {
+    channel.readConnect();
+    long count = 0;
+    final List<Integer> values = new ArrayList<>(BATCH_SIZE);
+    try {
+      while (true) {
+        values.clear();
+        count += channel.drainTo(values, BATCH_SIZE);
+      }
+    } catch (final ClosedException e) {
+    } finally {
+      channel.readDisconnect();
+    }
+    return count;
+  }
+
+  public void run() {
+    Stopwatch stopwatch = new Stopwatch();
+    runBufferChannel();
+    stopwatch.stop();
+    System.out.println("Buffer\t" + this.size + "\t" + stopwatch.getTimeString());
+
+    stopwatch = new Stopwatch();
+    runRingBufferChannel();
+    stopwatch.stop();
+    System.out.println("RingBuffer\t" + this.size + "\t" + stopwatch.getTimeString());
+
+    stopwatch = new Stopwatch();
+    runRingBufferChannelBatch();
+    stopwatch.stop();
+    System.out.println("RingBufferBatch\t" + this.size + "\t" + stopwatch.getTimeString());
+  }
+
+  public void runBufferChannel() {
+    final Channel<Integer> channel = new Channel<>(new Buffer<>(CAPACITY));
+    startWriter(channel, false);
+    assertCount(read(channel));
+  }
+
+  public void runRingBufferChannel() {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(CAPACITY);
+    startWriter(channel, false);
+    assertCount(read(channel));
+  }
+
+  public void runRingBufferChannelBatch() {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(CAPACITY);
+    startWriter(channel, true);
+    assertCount(readBatch(channel));
+  }
+
+  private void startWriter(final ChannelOutput<Integer> channel, final boolean batch) {
+    channel.writeConnect();
+    final int size = this.size;
+    final Thread thread = new Thread(() -> {
+      try {
+        if (batch) {
+          final List<Integer> values = new ArrayList<>(BATCH_SIZE);
+          for (int i = 0; i < size; i++) {
+            values.add(i);
+            if (values.size() == BATCH_SIZE) {
+              channel.writeAll(values);
+              values.clear();
+            }
+          }
+          channel.writeAll(values);
+        } else {
+          for (int i = 0; i < size; i++) {
+            channel.write(i);
+          }
+        }
+      } finally {
+        channel.writeDisconnect();
+      }
+    });
+    thread.start();
+  }
+}
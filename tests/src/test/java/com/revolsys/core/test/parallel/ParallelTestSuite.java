@@ -0,0 +1,12 @@
+package com.revolsys.core.test.parallel;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({
+  ProcessNetworkTest.class, RingBufferChannelTest.class
+})
+public class ParallelTestSuite {
+}
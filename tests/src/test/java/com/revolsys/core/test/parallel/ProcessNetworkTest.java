@@ -0,0 +1,187 @@
+package com.revolsys.core.test.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.ThreadSharedProperties;
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.process.ProcessNetwork;
+
+public class ProcessNetworkTest {
+
+  private static final int STAGE_COUNT = 300;
+
+  private static final int VALUE_COUNT = 1000;
+
+  /**
+   * Run a pipeline of {@link #STAGE_COUNT} processes each adding one to the value and check the
+   * sum of the values read by the last process.
+   */
+  private static long runPipeline(final ProcessNetwork network) {
+    final List<Channel<Integer>> channels = new ArrayList<>();
+    for (int i = 0; i <= STAGE_COUNT; i++) {
+      final Channel<Integer> channel = new Channel<>(new Buffer<>(10));
+      channel.readConnect();
+      channel.writeConnect();
+      channels.add(channel);
+    }
+    network.addProcess(() -> {
+      final Channel<Integer> out = channels.get(0);
+      try {
+        for (int i = 0; i < VALUE_COUNT; i++) {
+          out.write(i);
+        }
+      } finally {
+        out.writeDisconnect();
+      }
+    });
+    for (int i = 0; i < STAGE_COUNT; i++) {
+      final Channel<Integer> in = channels.get(i);
+      final Channel<Integer> out = channels.get(i + 1);
+      network.addProcess(() -> {
+        try {
+          while (true) {
+            final int value = in.read();
+            out.write(value + 1);
+          }
+        } catch (final ClosedException e) {
+        } finally {
+          in.readDisconnect();
+          out.writeDisconnect();
+        }
+      });
+    }
+    final AtomicLong sum = new AtomicLong();
+    final AtomicLong count = new AtomicLong();
+    network.addProcess(() -> {
+      final Channel<Integer> in = channels.get(STAGE_COUNT);
+      try {
+        while (true) {
+          sum.addAndGet(in.read());
+          count.incrementAndGet();
+        }
+      } catch (final ClosedException e) {
+      } finally {
+        in.readDisconnect();
+      }
+    });
+    network.startAndWait();
+    Assert.assertEquals("Count", VALUE_COUNT, count.get());
+    return sum.get();
+  }
+
+  @Test
+  public void testPipelineExecutor() {
+    final ForkJoinPool pool = new ForkJoinPool(4, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+      null, true);
+    try {
+      final ProcessNetwork network = new ProcessNetwork();
+      network.setExecutor(pool);
+      final long expectedSum = (long)VALUE_COUNT * (VALUE_COUNT - 1) / 2
+        + (long)VALUE_COUNT * STAGE_COUNT;
+      Assert.assertEquals("Sum", expectedSum, runPipeline(network));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPipelineThreads() {
+    final ProcessNetwork network = new ProcessNetwork();
+    final long expectedSum = (long)VALUE_COUNT * (VALUE_COUNT - 1) / 2
+      + (long)VALUE_COUNT * STAGE_COUNT;
+    Assert.assertEquals("Sum", expectedSum, runPipeline(network));
+  }
+
+  /**
+   * Check a process run on an executor sees the network's thread shared properties and the
+   * worker's properties are restored afterwards.
+   */
+  @Test
+  public void testSharedPropertiesExecutor() {
+    final ForkJoinPool pool = new ForkJoinPool(1, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+      null, true);
+    final String name = getClass().getName() + ".property";
+    try {
+      ThreadSharedProperties.setProperty(name, "network");
+      final ProcessNetwork network = new ProcessNetwork();
+      network.setExecutor(pool);
+      network.init();
+      final AtomicReference<Object> value = new AtomicReference<>();
+      network.addProcess(() -> value.set(ThreadSharedProperties.getProperty(name)));
+      network.startAndWait();
+      Assert.assertEquals("Process property", "network", value.get());
+
+      final Object workerValue = pool.submit(() -> ThreadSharedProperties.getProperty(name))
+        .join();
+      Assert.assertNull("Worker property", workerValue);
+    } finally {
+      ThreadSharedProperties.setProperty(name, null);
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Stop a network of blocked processes on the shared pool and check the stop returns promptly
+   * and the pool workers are not left interrupted.
+   */
+  @Test
+  public void testStopSharedPool() throws InterruptedException {
+    final int processCount = 8;
+    final CountDownLatch started = new CountDownLatch(processCount);
+    final CountDownLatch finished = new CountDownLatch(processCount);
+
+    final ProcessNetwork network = new ProcessNetwork();
+    network.setUseSharedPool(true);
+    for (int i = 0; i < processCount; i++) {
+      final Channel<Integer> channel = new Channel<>();
+      channel.readConnect();
+      channel.writeConnect();
+      network.addProcess(() -> {
+        try {
+          started.countDown();
+          channel.read();
+        } catch (final ClosedException e) {
+        } finally {
+          finished.countDown();
+        }
+      });
+    }
+    network.start();
+    Assert.assertTrue("Started", started.await(10, TimeUnit.SECONDS));
+
+    final long startTime = System.currentTimeMillis();
+    network.stop();
+    final long stopTime = System.currentTimeMillis() - startTime;
+    Assert.assertTrue("Stop time " + stopTime, stopTime < 2000);
+    Assert.assertTrue("Finished", finished.await(10, TimeUnit.SECONDS));
+
+    // The workers are released to the pool without an interrupt
+    final AtomicBoolean interrupted = new AtomicBoolean();
+    final ForkJoinPool pool = ProcessNetwork.getSharedPool();
+    final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (int i = 0; i < processCount * 4; i++) {
+      tasks.add(pool.submit(() -> {
+        if (Thread.currentThread().isInterrupted()) {
+          interrupted.set(true);
+        }
+      }));
+    }
+    for (final ForkJoinTask<?> task : tasks) {
+      task.join();
+    }
+    Assert.assertFalse("Worker interrupted", interrupted.get());
+  }
+}
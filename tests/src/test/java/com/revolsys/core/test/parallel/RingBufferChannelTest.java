@@ -0,0 +1,225 @@
+package com.revolsys.core.test.parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.RingBufferChannel;
+
+public class RingBufferChannelTest {
+
+  /**
+   * Start a thread that runs the action and records the exception it threw.
+   */
+  private static Thread start(final Runnable action, final AtomicReference<Throwable> result) {
+    final Thread thread = new Thread(() -> {
+      try {
+        action.run();
+      } catch (final Throwable e) {
+        result.set(e);
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * Wait until the thread is blocked waiting on the channel's monitor.
+   */
+  private static void waitUntilBlocked(final Thread thread) throws InterruptedException {
+    final long maxWait = System.currentTimeMillis() + 5000;
+    while (thread.getState() != Thread.State.WAITING
+      && thread.getState() != Thread.State.TIMED_WAITING) {
+      Assert.assertTrue("Thread blocked", System.currentTimeMillis() < maxWait);
+      Thread.sleep(1);
+    }
+  }
+
+  @Test
+  public void testCapacity() {
+    Assert.assertEquals("Round up", 16, new RingBufferChannel<>(10).getCapacity());
+    Assert.assertEquals("Power of 2", 16, new RingBufferChannel<>(16).getCapacity());
+    Assert.assertEquals("Minimum", 2, new RingBufferChannel<>(0).getCapacity());
+  }
+
+  @Test
+  public void testCloseWakesReader() throws InterruptedException {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(4);
+    channel.readConnect();
+    channel.writeConnect();
+    final AtomicReference<Throwable> result = new AtomicReference<>();
+    final Thread reader = start(channel::read, result);
+    waitUntilBlocked(reader);
+    channel.close();
+    reader.join(5000);
+    Assert.assertFalse("Reader woken", reader.isAlive());
+    Assert.assertTrue("Closed", result.get() instanceof ClosedException);
+  }
+
+  @Test
+  public void testMultipleReadersWriters() throws InterruptedException {
+    final int writerCount = 4;
+    final int readerCount = 4;
+    final int valueCount = 100000;
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(64);
+    final AtomicIntegerArray counts = new AtomicIntegerArray(writerCount * valueCount);
+    final AtomicReference<Throwable> result = new AtomicReference<>();
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < readerCount; i++) {
+      channel.readConnect();
+      final boolean batch = i % 2 == 0;
+      threads.add(start(() -> {
+        final List<Integer> values = new ArrayList<>();
+        try {
+          while (true) {
+            if (batch) {
+              values.clear();
+              channel.drainTo(values, 10);
+              for (final Integer value : values) {
+                counts.incrementAndGet(value);
+              }
+            } else {
+              counts.incrementAndGet(channel.read());
+            }
+          }
+        } catch (final ClosedException e) {
+        } finally {
+          channel.readDisconnect();
+        }
+      }, result));
+    }
+    for (int i = 0; i < writerCount; i++) {
+      channel.writeConnect();
+      final int offset = i * valueCount;
+      final boolean batch = i % 2 == 0;
+      threads.add(start(() -> {
+        try {
+          final List<Integer> values = new ArrayList<>();
+          for (int j = 0; j < valueCount; j++) {
+            if (batch) {
+              values.add(offset + j);
+              if (values.size() == 7) {
+                channel.writeAll(values);
+                values.clear();
+              }
+            } else {
+              channel.write(offset + j);
+            }
+          }
+          channel.writeAll(values);
+        } finally {
+          channel.writeDisconnect();
+        }
+      }, result));
+    }
+    for (final Thread thread : threads) {
+      thread.join(60000);
+      Assert.assertFalse("Finished", thread.isAlive());
+    }
+    Assert.assertNull("Error", result.get());
+    for (int i = 0; i < counts.length(); i++) {
+      Assert.assertEquals("Count " + i, 1, counts.get(i));
+    }
+  }
+
+  @Test
+  public void testReadDisconnectWakesWriter() throws InterruptedException {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(2);
+    channel.readConnect();
+    channel.writeConnect();
+    channel.write(1);
+    channel.write(2);
+    final AtomicReference<Throwable> result = new AtomicReference<>();
+    final Thread writer = start(() -> channel.write(3), result);
+    waitUntilBlocked(writer);
+    channel.readDisconnect();
+    writer.join(5000);
+    Assert.assertFalse("Writer woken", writer.isAlive());
+    Assert.assertTrue("Closed", result.get() instanceof ClosedException);
+  }
+
+  @Test
+  public void testReadTimeout() {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(4);
+    channel.readConnect();
+    channel.writeConnect();
+    final long startTime = System.currentTimeMillis();
+    Assert.assertNull("Timeout", channel.read(50));
+    Assert.assertTrue("Waited", System.currentTimeMillis() - startTime >= 40);
+
+    channel.write(1);
+    Assert.assertEquals("Value", Integer.valueOf(1), channel.read(50));
+
+    channel.writeDisconnect();
+    try {
+      channel.read(50);
+      Assert.fail("Expected closed");
+    } catch (final ClosedException e) {
+    }
+  }
+
+  @Test
+  public void testWriteAllDrainTo() throws InterruptedException {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(16);
+    channel.readConnect();
+    channel.writeConnect();
+    channel.writeAll(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+    Assert.assertEquals("Size", 10, channel.size());
+
+    final List<Integer> values = new ArrayList<>();
+    Assert.assertEquals("Max Count 0", 0, channel.drainTo(values, 0));
+    Assert.assertEquals("Max Count 4", 4, channel.drainTo(values, 4));
+    Assert.assertEquals("First Batch", Arrays.asList(0, 1, 2, 3), values);
+    values.clear();
+    Assert.assertEquals("Available", 6, channel.drainTo(values, 100));
+    Assert.assertEquals("Second Batch", Arrays.asList(4, 5, 6, 7, 8, 9), values);
+    Assert.assertTrue("Empty", channel.isEmpty());
+
+    // A batch larger than the capacity blocks until the reader drains the channel
+    final List<Integer> largeBatch = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      largeBatch.add(i);
+    }
+    final AtomicReference<Throwable> result = new AtomicReference<>();
+    final Thread writer = start(() -> {
+      try {
+        channel.writeAll(largeBatch);
+      } finally {
+        channel.writeDisconnect();
+      }
+    }, result);
+    final List<Integer> readValues = new ArrayList<>();
+    try {
+      while (true) {
+        final int count = channel.drainTo(readValues, 16);
+        Assert.assertTrue("Batch size " + count, count >= 1 && count <= 16);
+      }
+    } catch (final ClosedException e) {
+    }
+    writer.join(5000);
+    Assert.assertNull("Error", result.get());
+    Assert.assertEquals("Order", largeBatch, readValues);
+  }
+
+  @Test
+  public void testWriteDisconnectWakesReader() throws InterruptedException {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(4);
+    channel.readConnect();
+    channel.writeConnect();
+    final AtomicReference<Throwable> result = new AtomicReference<>();
+    final List<Integer> values = new ArrayList<>();
+    final Thread reader = start(() -> channel.drainTo(values, 10), result);
+    waitUntilBlocked(reader);
+    channel.writeDisconnect();
+    reader.join(5000);
+    Assert.assertFalse("Reader woken", reader.isAlive());
+    Assert.assertTrue("Closed", result.get() instanceof ClosedException);
+    Assert.assertTrue("No values", values.isEmpty());
+  }
+}
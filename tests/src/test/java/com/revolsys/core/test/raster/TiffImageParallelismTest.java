@@ -0,0 +1,92 @@
+package com.revolsys.core.test.raster;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.io.file.Paths;
+import com.revolsys.raster.io.format.tiff.TiffDirectory;
+import com.revolsys.raster.io.format.tiff.TiffDirectoryIterator;
+import com.revolsys.raster.io.format.tiff.TiffTiledImageWriter;
+import com.revolsys.raster.io.format.tiff.code.TiffCompression;
+import com.revolsys.raster.io.format.tiff.image.AbstractTiffImage;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Read tiled TIFF files with a parallelism of 1 and N and check the rasters
+ * are the same.
+ */
+public class TiffImageParallelismTest {
+
+  private static final int HEIGHT = 700;
+
+  private static final int WIDTH = 1000;
+
+  private static BufferedImage newImage() {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        final int alpha = (x * 3 + y * 5) % 256;
+        image.setRGB(x, y, alpha << 24 | x % 256 << 16 | y % 256 << 8 | (x * y) & 0xff);
+      }
+    }
+    return image;
+  }
+
+  private static BufferedImage readImage(final TiffDirectory directory, final int parallelism) {
+    final AbstractTiffImage image = (AbstractTiffImage)directory.newImage();
+    image.setParallelism(parallelism);
+    Assert.assertEquals("Parallelism", parallelism, image.getParallelism());
+    return (BufferedImage)image.getRenderedImage();
+  }
+
+  private void assertParallelism(final TiffCompression compression, final int tileSize) {
+    final BufferedImage image = newImage();
+    final Path directory = Paths.getPath("target/test/raster/tiff");
+    Paths.createDirectories(directory);
+    final Path file = directory.resolve("parallel-" + compression + "-" + tileSize + ".tif");
+    final PathResource resource = new PathResource(file);
+    new TiffTiledImageWriter(resource, WIDTH, HEIGHT) //
+      .setCompression(compression) //
+      .setTileSize(tileSize) //
+      .setAlpha(true) //
+      .setOverviews(false) //
+      .writeImage(image);
+
+    try (
+      TiffDirectoryIterator iterator = new TiffDirectoryIterator(resource)) {
+      final TiffDirectory tiffDirectory = iterator.next();
+      final BufferedImage sequentialImage = readImage(tiffDirectory, 1);
+      final int parallelism = Math.max(4, Runtime.getRuntime().availableProcessors());
+      final BufferedImage parallelImage = readImage(tiffDirectory, parallelism);
+      Assert.assertNotSame("New Image", sequentialImage, parallelImage);
+      Assert.assertEquals("Width", WIDTH, parallelImage.getWidth());
+      Assert.assertEquals("Height", HEIGHT, parallelImage.getHeight());
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          Assert.assertEquals(compression + " " + tileSize + " " + x + "," + y,
+            sequentialImage.getRGB(x, y), parallelImage.getRGB(x, y));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDeflate() {
+    assertParallelism(TiffCompression.ADOBE_DEFLATE, 64);
+  }
+
+  @Test
+  public void testLzw() {
+    // A tile size larger than the image has fewer tiles than the parallelism
+    assertParallelism(TiffCompression.LZW, 128);
+    assertParallelism(TiffCompression.LZW, 1024);
+  }
+
+  @Test
+  public void testUncompressed() {
+    assertParallelism(TiffCompression.NONE, 256);
+  }
+}
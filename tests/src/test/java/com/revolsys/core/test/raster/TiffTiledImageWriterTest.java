@@ -0,0 +1,128 @@
+package com.revolsys.core.test.raster;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.io.file.Paths;
+import com.revolsys.raster.io.format.tiff.TiffTiledImageWriter;
+import com.revolsys.raster.io.format.tiff.code.TiffCompression;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Write tiled TIFF files with overviews and read them back using the JDK TIFF
+ * reader.
+ */
+public class TiffTiledImageWriterTest {
+
+  private static final int HEIGHT = 900;
+
+  private static final int WIDTH = 1300;
+
+  private static int average(final BufferedImage image, final int x, final int y) {
+    final int[] sums = new int[4];
+    for (int dy = 0; dy < 2; dy++) {
+      for (int dx = 0; dx < 2; dx++) {
+        final int pixel = image.getRGB(Math.min(x * 2 + dx, image.getWidth() - 1),
+          Math.min(y * 2 + dy, image.getHeight() - 1));
+        for (int i = 0; i < 4; i++) {
+          sums[i] += pixel >>> i * 8 & 0xff;
+        }
+      }
+    }
+    int result = 0;
+    for (int i = 0; i < 4; i++) {
+      result |= sums[i] + 2 >> 2 << i * 8;
+    }
+    return result;
+  }
+
+  private static BufferedImage newImage() {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        final int alpha = (x * 7 + y) % 256;
+        image.setRGB(x, y, alpha << 24 | x % 256 << 16 | y % 256 << 8 | (x ^ y) & 0xff);
+      }
+    }
+    return image;
+  }
+
+  private void assertWrite(final TiffCompression compression, final boolean alpha)
+    throws IOException {
+    final BufferedImage image = newImage();
+    final Path directory = Paths.getPath("target/test/raster/tiff");
+    Paths.createDirectories(directory);
+    final Path file = directory.resolve("tiled-" + compression + "-" + alpha + ".tif");
+    new TiffTiledImageWriter(new PathResource(file), WIDTH, HEIGHT) //
+      .setCompression(compression) //
+      .setTileSize(256) //
+      .setAlpha(alpha) //
+      .writeImage(image);
+
+    final ImageReader reader = ImageIO.getImageReadersByFormatName("tiff").next();
+    try (
+      ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+      reader.setInput(in);
+      final int[][] sizes = {
+        {
+          1300, 900
+        }, {
+          650, 450
+        }, {
+          325, 225
+        }, {
+          163, 113
+        }
+      };
+      Assert.assertEquals("Image count", sizes.length, reader.getNumImages(true));
+      for (int i = 0; i < sizes.length; i++) {
+        Assert.assertTrue("Tiled", reader.isImageTiled(i));
+        Assert.assertEquals("Tile width", 256, reader.getTileWidth(i));
+        Assert.assertEquals("Width", sizes[i][0], reader.getWidth(i));
+        Assert.assertEquals("Height", sizes[i][1], reader.getHeight(i));
+      }
+      final int alphaMask = alpha ? 0 : 0xff000000;
+      final BufferedImage actualImage = reader.read(0);
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          Assert.assertEquals(x + "," + y, image.getRGB(x, y) | alphaMask,
+            actualImage.getRGB(x, y));
+        }
+      }
+      final BufferedImage overview = reader.read(1);
+      for (int y = 0; y < overview.getHeight(); y++) {
+        for (int x = 0; x < overview.getWidth(); x++) {
+          Assert.assertEquals("Overview " + x + "," + y, average(image, x, y) | alphaMask,
+            overview.getRGB(x, y));
+        }
+      }
+    } finally {
+      reader.dispose();
+    }
+  }
+
+  @Test
+  public void testDeflate() throws IOException {
+    assertWrite(TiffCompression.ADOBE_DEFLATE, true);
+    assertWrite(TiffCompression.ADOBE_DEFLATE, false);
+  }
+
+  @Test
+  public void testLzw() throws IOException {
+    assertWrite(TiffCompression.LZW, true);
+    assertWrite(TiffCompression.LZW, false);
+  }
+
+  @Test
+  public void testUncompressed() throws IOException {
+    assertWrite(TiffCompression.NONE, true);
+  }
+}
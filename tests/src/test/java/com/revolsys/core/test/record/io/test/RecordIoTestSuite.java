@@ -1,11 +1,13 @@
 package com.revolsys.core.test.record.io.test;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.exception.Exceptions;
 import org.jeometry.common.io.PathName;
 import org.jeometry.common.logging.Logs;
 import org.jeometry.coordinatesystem.model.systems.EpsgId;
@@ -30,6 +32,7 @@ import com.revolsys.record.io.RecordReader;
 import com.revolsys.record.io.RecordReaderFactory;
 import com.revolsys.record.io.RecordWriter;
 import com.revolsys.record.io.RecordWriterFactory;
+import com.revolsys.record.io.format.shp.ShapefileRecordReader;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordDefinitionImpl;
@@ -151,6 +154,9 @@ public class RecordIoTestSuite {
       doRecordReadTest(resource, record);
 
       doGeometryReadTest(resource, record);
+      if ("shp".equals(fileExtension)) {
+        doShapefileMemoryMappedReadTest(resource, record);
+      }
       if (!file.delete()) {
         if (file.exists()) {
           Logs.error(RecordIoTestSuite.class, "Unable to delete: " + file);
@@ -267,4 +273,28 @@ public class RecordIoTestSuite {
       writer.write(record);
     }
   }
+
+  private static void doShapefileMemoryMappedReadTest(final PathResource resource,
+    final ArrayRecord record) {
+    try (
+      ShapefileRecordReader recordReader = new ShapefileRecordReader(resource,
+        ArrayRecord.FACTORY)) {
+      recordReader.setMemoryMapped(true);
+      final ClockDirection polygonRingDirection = recordReader.getPolygonRingDirection();
+      Assert.assertEquals("Record Count", 1, recordReader.getRecordCount());
+      final Geometry expectedGeometry = record.getGeometry();
+
+      final Record randomRecord = recordReader.getRecord(0);
+      assertGeometry(polygonRingDirection, expectedGeometry, randomRecord.getGeometry());
+      Assert.assertEquals("STRING", record.getValue("STRING"), randomRecord.getValue("STRING"));
+
+      final List<Record> records = recordReader.toList();
+      Assert.assertEquals("Record Count", 1, records.size());
+      final Record actualRecord = records.get(0);
+      assertGeometry(polygonRingDirection, expectedGeometry, actualRecord.getGeometry());
+      Assert.assertEquals("STRING", record.getValue("STRING"), actualRecord.getValue("STRING"));
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    }
+  }
 }
@@ -0,0 +1,101 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.coordinatesystem.model.systems.EpsgId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.file.Paths;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.format.shp.ShapefileRecordReader;
+import com.revolsys.record.io.format.xbase.XbaseRecordReader;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+import com.revolsys.spring.resource.PathResource;
+
+public class ShapefileParallelReadTest {
+
+  private static final int RECORD_COUNT = 10000;
+
+  private static PathResource writeShapefile() {
+    final Path directory = Paths.getPath("target/test/record/io/shp");
+    Paths.createDirectories(directory);
+    final PathResource resource = new PathResource(directory.resolve("parallel.shp"));
+    final GeometryFactory geometryFactory = GeometryFactory.floating2d(EpsgId.WGS84);
+    final RecordDefinition recordDefinition = new RecordDefinitionBuilder("parallel") //
+      .addField("id", DataTypes.INT) //
+      .addField("geometry", GeometryDataTypes.POINT) //
+      .setGeometryFactory(geometryFactory) //
+      .getRecordDefinition();
+    try (
+      RecordWriter writer = RecordWriter.newRecordWriter(recordDefinition, resource)) {
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        final Record record = new ArrayRecord(recordDefinition);
+        record.setValue("id", i);
+        record.setGeometryValue(geometryFactory.point(i % 360 - 180, i % 180 - 90));
+        writer.write(record);
+      }
+    }
+    return resource;
+  }
+
+  private void assertRecordDefinition(final RecordDefinition recordDefinition,
+    final List<Record> records) {
+    for (final Record record : records) {
+      Assert.assertSame("Record Definition", recordDefinition, record.getRecordDefinition());
+    }
+  }
+
+  private void assertRecords(final List<Record> expectedRecords,
+    final List<Record> actualRecords) {
+    Assert.assertEquals("Record Count", expectedRecords.size(), actualRecords.size());
+    for (int i = 0; i < expectedRecords.size(); i++) {
+      final Record expectedRecord = expectedRecords.get(i);
+      final Record actualRecord = actualRecords.get(i);
+      Assert.assertEquals("id", expectedRecord.getInteger("id"), actualRecord.getInteger("id"));
+      Assert.assertEquals("geometry", expectedRecord.getGeometry(), actualRecord.getGeometry());
+    }
+  }
+
+  @Test
+  public void testParallelStream() throws IOException {
+    final PathResource resource = writeShapefile();
+    final List<Record> expectedRecords;
+    try (
+      ShapefileRecordReader reader = new ShapefileRecordReader(resource, ArrayRecord.FACTORY)) {
+      expectedRecords = reader.toList();
+    }
+    Assert.assertEquals("Record Count", RECORD_COUNT, expectedRecords.size());
+
+    try (
+      ShapefileRecordReader reader = new ShapefileRecordReader(resource, ArrayRecord.FACTORY);
+      Stream<Record> stream = reader.parallelStream()) {
+      final List<Record> actualRecords = stream.collect(Collectors.toList());
+      assertRecords(expectedRecords, actualRecords);
+      assertRecordDefinition(reader.getRecordDefinition(), actualRecords);
+    }
+
+    try (
+      XbaseRecordReader reader = new XbaseRecordReader(resource.newResourceChangeExtension("dbf"),
+        ArrayRecord.FACTORY);
+      Stream<Record> stream = reader.parallelStream()) {
+      final List<Record> actualRecords = stream.collect(Collectors.toList());
+      Assert.assertEquals("Record Count", RECORD_COUNT, actualRecords.size());
+      assertRecordDefinition(reader.getRecordDefinition(), actualRecords);
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        Assert.assertEquals("id", expectedRecords.get(i).getInteger("id"),
+          actualRecords.get(i).getInteger("id"));
+      }
+    }
+  }
+}
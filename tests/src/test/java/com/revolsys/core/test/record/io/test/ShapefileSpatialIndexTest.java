@@ -0,0 +1,110 @@
+package com.revolsys.core.test.record.io.test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.coordinatesystem.model.systems.EpsgId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.file.Paths;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.format.shp.ShapefileRecordReader;
+import com.revolsys.record.io.format.shp.ShapefileSpatialIndex;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+import com.revolsys.spring.resource.PathResource;
+
+public class ShapefileSpatialIndexTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory
+    .floating2d(EpsgId.WGS84);
+
+  private static final int RECORD_COUNT = 10000;
+
+  private static PathResource writeShapefile() {
+    final Path directory = Paths.getPath("target/test/record/io/shp");
+    Paths.createDirectories(directory);
+    final PathResource resource = new PathResource(directory.resolve("spatialIndex.shp"));
+    final RecordDefinition recordDefinition = new RecordDefinitionBuilder("spatialIndex") //
+      .addField("id", DataTypes.INT) //
+      .addField("geometry", GeometryDataTypes.LINE_STRING) //
+      .setGeometryFactory(GEOMETRY_FACTORY) //
+      .getRecordDefinition();
+    try (
+      RecordWriter writer = RecordWriter.newRecordWriter(recordDefinition, resource)) {
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        final Record record = new ArrayRecord(recordDefinition);
+        record.setValue("id", i);
+        final double x = i % 360 - 180;
+        final double y = i % 180 - 90;
+        record.setGeometryValue(GEOMETRY_FACTORY.lineString(2, x, y, x + 0.5, y + 0.5));
+        writer.write(record);
+      }
+    }
+    return resource;
+  }
+
+  private void assertQuery(final List<Record> records, final PathResource resource,
+    final BoundingBox boundingBox) throws IOException {
+    final List<Integer> expectedIds = new ArrayList<>();
+    for (final Record record : records) {
+      if (record.getGeometry().bboxIntersects(boundingBox)) {
+        expectedIds.add(record.getInteger("id"));
+      }
+    }
+    try (
+      ShapefileRecordReader reader = new ShapefileRecordReader(resource, ArrayRecord.FACTORY)) {
+      reader.setMemoryMapped(true);
+      final int[] indexes = reader.getRecordIndexes(boundingBox);
+      Assert.assertNotNull("Spatial index", indexes);
+      final List<Integer> actualIds = new ArrayList<>();
+      for (final int index : indexes) {
+        final Record record = reader.getRecord(index);
+        if (record.getGeometry().bboxIntersects(boundingBox)) {
+          actualIds.add(record.getInteger("id"));
+        }
+      }
+      Assert.assertEquals(boundingBox.toString(), expectedIds, actualIds);
+    }
+  }
+
+  @Test
+  public void testQuery() throws IOException {
+    final PathResource resource = writeShapefile();
+    final List<Record> records;
+    try (
+      ShapefileRecordReader reader = new ShapefileRecordReader(resource, ArrayRecord.FACTORY)) {
+      records = reader.toList();
+    }
+    Assert.assertFalse("Index deleted on write",
+      resource.newResourceChangeExtension(ShapefileSpatialIndex.FILE_EXTENSION).exists());
+
+    assertQuery(records, resource, GEOMETRY_FACTORY.newBoundingBox(-10, -10, 10, 10));
+    Assert.assertTrue("Index created",
+      resource.newResourceChangeExtension(ShapefileSpatialIndex.FILE_EXTENSION).exists());
+    assertQuery(records, resource, GEOMETRY_FACTORY.newBoundingBox(-180, -90, 180, 90));
+    assertQuery(records, resource, GEOMETRY_FACTORY.newBoundingBox(170.25, 80.25, 170.3, 80.3));
+    assertQuery(records, resource, GEOMETRY_FACTORY.newBoundingBox(200, 100, 210, 110));
+  }
+
+  @Test
+  public void testQueryNotMemoryMapped() throws IOException {
+    final PathResource resource = writeShapefile();
+    try (
+      ShapefileRecordReader reader = new ShapefileRecordReader(resource, ArrayRecord.FACTORY)) {
+      final int[] indexes = reader
+        .getRecordIndexes(GEOMETRY_FACTORY.newBoundingBox(-10, -10, 10, 10));
+      Assert.assertNull("Spatial index not used", indexes);
+      Assert.assertFalse("Memory mapped", reader.isMemoryMapped());
+    }
+  }
+}
@@ -31,6 +31,8 @@ import com.revolsys.elevation.cloud.las.LasPointCloudHeader;
 import com.revolsys.elevation.cloud.las.LasPointCloudWriter;
 import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
 import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.cloud.las.zip.LasZipParallelReader;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geometry.model.GeometryFactoryWithOffsets;
 import com.revolsys.util.Debug;
@@ -294,6 +296,28 @@ public class LasTest {
     }
   }
 
+  public void assertColumnsEqual(final String label, final List<LasPoint> points1,
+    final LasPointCloud cloud2) {
+    final AtomicInteger index = new AtomicInteger();
+    cloud2.forEachPointColumns(1000, columns -> {
+      Assert.assertEquals(label + " startIndex", index.get(), columns.getStartIndex());
+      for (int i = 0; i < columns.size(); i++) {
+        final LasPoint point1 = points1.get(index.getAndIncrement());
+        Assert.assertEquals("xInt", point1.getXInt(), columns.getXInt(i));
+        Assert.assertEquals("yInt", point1.getYInt(), columns.getYInt(i));
+        Assert.assertEquals("zInt", point1.getZInt(), columns.getZInt(i));
+        Assert.assertEquals("intensity", point1.getIntensity(), columns.getIntensity(i));
+        Assert.assertEquals("classification", point1.getClassification(),
+          columns.getClassification(i));
+        Assert.assertEquals("returnNumber", point1.getReturnNumber(), columns.getReturnNumber(i));
+        Assert.assertEquals("numberOfReturns", point1.getNumberOfReturns(),
+          columns.getNumberOfReturns(i));
+        Assert.assertEquals("gpsTime", point1.getGpsTime(), columns.getGpsTime(i), 0);
+      }
+    });
+    Assert.assertEquals(label + " count", points1.size(), index.get());
+  }
+
   private void assertPointCloudEqual(final String label, final LasPointCloud cloud1,
     final LasPointCloud cloud2) {
     final LasPointCloudHeader header1 = cloud1.getHeader();
@@ -370,6 +394,9 @@ public class LasTest {
       LasPointCloud cloud2 = PointCloud.newPointCloud(file)) {
       assertPointCloudEqual(label, cloud, cloud2);
     }
+    assertReadBoundingBox(label, file, cloud.getPoints());
+    assertReadColumns(label, file, cloud.getPoints());
+    assertReadParallel(label, file, cloud.getPoints());
   }
 
   private void assertRead(final String label, final Path file, final List<LasPoint> points) {
@@ -377,6 +404,71 @@ public class LasTest {
       LasPointCloud cloud2 = PointCloud.newPointCloud(file)) {
       assertPointsEqual(label, points, cloud2);
     }
+    assertReadBoundingBox(label, file, points);
+    assertReadColumns(label, file, points);
+    assertReadParallel(label, file, points);
+  }
+
+  private void assertReadBoundingBox(final String label, final Path file,
+    final List<LasPoint> points) {
+    if (file.toString().endsWith(".laz")) {
+      try (
+        LasPointCloud cloud2 = PointCloud.newPointCloud(file)) {
+        final BoundingBox cloudBoundingBox = cloud2.getBoundingBox();
+        final double centreX = cloudBoundingBox.getCentreX();
+        final double centreY = cloudBoundingBox.getCentreY();
+        final BoundingBox boundingBox = cloud2.getGeometryFactory()
+          .newBoundingBox(cloudBoundingBox.getMinX(), cloudBoundingBox.getMinY(), centreX, centreY);
+        int expectedCount = 0;
+        for (final LasPoint point : points) {
+          if (boundingBox.bboxCovers(point.getX(), point.getY())) {
+            expectedCount++;
+          }
+        }
+        final AtomicInteger count = new AtomicInteger();
+        cloud2.forEachPoint(boundingBox, point -> {
+          Assert.assertTrue(label + " covers", boundingBox.bboxCovers(point.getX(), point.getY()));
+          count.incrementAndGet();
+        });
+        Assert.assertEquals(label + " boundingBox count", expectedCount, count.get());
+      }
+    }
+  }
+
+  private void assertReadColumns(final String label, final Path file,
+    final List<LasPoint> points) {
+    try (
+      LasPointCloud cloud2 = PointCloud.newPointCloud(file)) {
+      assertColumnsEqual(label, points, cloud2);
+    }
+  }
+
+  private void assertReadParallel(final String label, final Path file,
+    final List<LasPoint> points) {
+    if (file.toString().endsWith(".laz")) {
+      try (
+        LasPointCloud cloud2 = PointCloud.newPointCloud(file);
+        LasZipParallelReader reader = new LasZipParallelReader(cloud2)) {
+        for (final boolean ordered : Arrays.asList(true, false)) {
+          final AtomicInteger count = new AtomicInteger();
+          reader.setOrdered(ordered).forEachChunk(columns -> {
+            final int startIndex = (int)columns.getStartIndex();
+            if (ordered) {
+              Assert.assertEquals(label + " startIndex", count.get(), startIndex);
+            }
+            for (int i = 0; i < columns.size(); i++) {
+              final LasPoint point1 = points.get(startIndex + i);
+              Assert.assertEquals("xInt", point1.getXInt(), columns.getXInt(i));
+              Assert.assertEquals("yInt", point1.getYInt(), columns.getYInt(i));
+              Assert.assertEquals("zInt", point1.getZInt(), columns.getZInt(i));
+              Assert.assertEquals("gpsTime", point1.getGpsTime(), columns.getGpsTime(i), 0);
+            }
+            count.addAndGet(columns.size());
+          });
+          Assert.assertEquals(label + " count", points.size(), count.get());
+        }
+      }
+    }
   }
 
   public void assertWriter(final String prefix,